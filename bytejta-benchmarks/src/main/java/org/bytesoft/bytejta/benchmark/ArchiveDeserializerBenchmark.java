@@ -0,0 +1,104 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.transaction.Status;
+import javax.transaction.xa.XAResource;
+
+import org.bytesoft.bytejta.TransactionBeanFactoryImpl;
+import org.bytesoft.bytejta.TransactionStrategy;
+import org.bytesoft.bytejta.supports.resource.CommonResourceDescriptor;
+import org.bytesoft.transaction.archive.TransactionArchive;
+import org.bytesoft.transaction.archive.XAResourceArchive;
+import org.bytesoft.transaction.logging.ArchiveDeserializer;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.bytesoft.transaction.xa.XidFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding and decoding of a transaction-archive with 1 or N native resources, as done for every tx-log record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ArchiveDeserializerBenchmark {
+
+	@Param({ "1", "4" })
+	private int resources;
+
+	private ArchiveDeserializer deserializer;
+	private TransactionXid xid;
+	private TransactionArchive archive;
+	private byte[] byteArray;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		TransactionBeanFactoryImpl beanFactory = BenchmarkEnvironment.createBeanFactory();
+		XidFactory xidFactory = beanFactory.getXidFactory();
+
+		this.deserializer = beanFactory.getArchiveDeserializer();
+		this.xid = xidFactory.createGlobalXid();
+
+		this.archive = new TransactionArchive();
+		this.archive.setXid(this.xid);
+		this.archive.setStatus(Status.STATUS_COMMITTING);
+		this.archive.setVote(XAResource.XA_OK);
+		this.archive.setCoordinator(true);
+		this.archive.setPropagatedBy(BenchmarkEnvironment.ENDPOINT);
+		this.archive.setTransactionStrategyType(TransactionStrategy.TRANSACTION_STRATEGY_COMMON);
+		for (int i = 0; i < this.resources; i++) {
+			CommonResourceDescriptor descriptor = new CommonResourceDescriptor();
+			descriptor.setIdentifier(String.format("resource-%s", i));
+			descriptor.setDelegate(new InMemoryXAResource());
+
+			XAResourceArchive resourceArchive = new XAResourceArchive();
+			resourceArchive.setXid(xidFactory.createBranchXid(this.xid));
+			resourceArchive.setDescriptor(descriptor);
+			resourceArchive.setIdentified(true);
+			resourceArchive.setVote(XAResource.XA_OK);
+			this.archive.getNativeResources().add(resourceArchive);
+		}
+
+		this.byteArray = this.deserializer.serialize(this.xid, this.archive);
+	}
+
+	@Benchmark
+	public byte[] serialize() {
+		return this.deserializer.serialize(this.xid, this.archive);
+	}
+
+	@Benchmark
+	public Object deserialize() {
+		return this.deserializer.deserialize(this.xid, this.byteArray);
+	}
+
+}
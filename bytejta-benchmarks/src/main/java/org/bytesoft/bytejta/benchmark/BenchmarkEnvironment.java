@@ -0,0 +1,107 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.bytesoft.bytejta.TransactionBeanFactoryImpl;
+import org.bytesoft.bytejta.TransactionCoordinator;
+import org.bytesoft.bytejta.TransactionManagerImpl;
+import org.bytesoft.bytejta.TransactionRepositoryImpl;
+import org.bytesoft.bytejta.logging.ArchiveDeserializerImpl;
+import org.bytesoft.bytejta.logging.SampleTransactionLogger;
+import org.bytesoft.bytejta.logging.deserializer.TransactionArchiveDeserializer;
+import org.bytesoft.bytejta.logging.deserializer.XAResourceArchiveDeserializer;
+import org.bytesoft.bytejta.supports.resource.CommonResourceDescriptor;
+import org.bytesoft.bytejta.xa.XidFactoryImpl;
+import org.bytesoft.transaction.supports.resource.XAResourceDescriptor;
+import org.bytesoft.transaction.supports.serialize.XAResourceDeserializer;
+
+/**
+ * Wires the beans of the transaction manager the same way as bytejta-supports-standalone.xml does, without spring.
+ */
+public class BenchmarkEnvironment {
+	static final String ENDPOINT = "127.0.0.1:bytejta-benchmarks:0";
+
+	public static TransactionBeanFactoryImpl createBeanFactory() {
+		TransactionBeanFactoryImpl beanFactory = TransactionBeanFactoryImpl.getInstance();
+
+		XAResourceArchiveDeserializer resourceArchiveDeserializer = new XAResourceArchiveDeserializer();
+		resourceArchiveDeserializer.setBeanFactory(beanFactory);
+		TransactionArchiveDeserializer transactionArchiveDeserializer = new TransactionArchiveDeserializer();
+		transactionArchiveDeserializer.setResourceArchiveDeserializer(resourceArchiveDeserializer);
+		ArchiveDeserializerImpl archiveDeserializer = new ArchiveDeserializerImpl();
+		archiveDeserializer.setXaResourceArchiveDeserializer(resourceArchiveDeserializer);
+		archiveDeserializer.setTransactionArchiveDeserializer(transactionArchiveDeserializer);
+
+		TransactionCoordinator transactionCoordinator = new TransactionCoordinator();
+		transactionCoordinator.setBeanFactory(beanFactory);
+		transactionCoordinator.setEndpoint(ENDPOINT);
+
+		TransactionManagerImpl transactionManager = new TransactionManagerImpl();
+		transactionManager.setBeanFactory(beanFactory);
+
+		beanFactory.setXidFactory(new XidFactoryImpl());
+		beanFactory.setTransactionRepository(new TransactionRepositoryImpl());
+		beanFactory.setTransactionCoordinator(transactionCoordinator);
+		beanFactory.setTransactionManager(transactionManager);
+		beanFactory.setArchiveDeserializer(archiveDeserializer);
+		beanFactory.setResourceDeserializer(new XAResourceDeserializer() {
+			public XAResourceDescriptor deserialize(String identifier) {
+				CommonResourceDescriptor descriptor = new CommonResourceDescriptor();
+				descriptor.setIdentifier(identifier);
+				descriptor.setDelegate(new InMemoryXAResource());
+				return descriptor;
+			}
+		});
+
+		return beanFactory;
+	}
+
+	/**
+	 * Creates a transaction logger in a new temporary directory, its swap work runs on a daemon thread.
+	 */
+	public static SampleTransactionLogger createTransactionLogger(TransactionBeanFactoryImpl beanFactory, boolean optimized)
+			throws IOException {
+		File directory = File.createTempFile("bytejta-benchmarks-", "");
+		if (directory.delete() == false || directory.mkdirs() == false) {
+			throw new IOException(String.format("Failed to create directory %s!", directory.getAbsolutePath()));
+		}
+
+		SampleTransactionLogger transactionLogger = new SampleTransactionLogger();
+		transactionLogger.setBeanFactory(beanFactory);
+		transactionLogger.setDirectory(directory);
+		transactionLogger.setOptimized(optimized);
+		transactionLogger.setEndpoint(ENDPOINT);
+
+		Thread thread = new Thread(transactionLogger, "bytejta-benchmarks-logging");
+		thread.setDaemon(true);
+		thread.start();
+
+		beanFactory.setTransactionLogger(transactionLogger);
+		return transactionLogger;
+	}
+
+	public static void releaseTransactionLogger(SampleTransactionLogger transactionLogger) throws IOException {
+		transactionLogger.release();
+		transactionLogger.fireSwapImmediately();
+		transactionLogger.shutdown();
+		FileUtils.deleteDirectory(transactionLogger.getDirectory());
+	}
+
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.benchmark;
+
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
+
+/**
+ * An XAResource which keeps nothing, so that the benchmarks only measure the transaction manager.
+ */
+public class InMemoryXAResource implements XAResource {
+	private int transactionTimeout;
+
+	public void start(Xid xid, int flags) throws XAException {
+	}
+
+	public void end(Xid xid, int flags) throws XAException {
+	}
+
+	public int prepare(Xid xid) throws XAException {
+		return XAResource.XA_OK;
+	}
+
+	public void commit(Xid xid, boolean onePhase) throws XAException {
+	}
+
+	public void rollback(Xid xid) throws XAException {
+	}
+
+	public void forget(Xid xid) throws XAException {
+	}
+
+	public Xid[] recover(int flag) throws XAException {
+		return new Xid[0];
+	}
+
+	public boolean isSameRM(XAResource xares) throws XAException {
+		return this == xares;
+	}
+
+	public int getTransactionTimeout() throws XAException {
+		return this.transactionTimeout;
+	}
+
+	public boolean setTransactionTimeout(int seconds) throws XAException {
+		this.transactionTimeout = seconds;
+		return true;
+	}
+
+}
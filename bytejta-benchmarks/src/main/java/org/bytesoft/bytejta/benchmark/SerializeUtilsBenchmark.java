@@ -0,0 +1,91 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.benchmark;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import org.bytesoft.bytejta.xa.XidFactoryImpl;
+import org.bytesoft.common.utils.SerializeUtils;
+import org.bytesoft.transaction.TransactionContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization of a propagated transaction context with each of the serializers supported by SerializeUtils.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SerializeUtilsBenchmark {
+
+	@Param({ "kryo", "hessian", "java" })
+	private String serializer;
+
+	private TransactionContext transactionContext;
+	private byte[] byteArray;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		long createdTime = System.currentTimeMillis();
+		this.transactionContext = new TransactionContext();
+		this.transactionContext.setXid(new XidFactoryImpl().createGlobalXid());
+		this.transactionContext.setCoordinator(true);
+		this.transactionContext.setPropagated(true);
+		this.transactionContext.setPropagatedBy(BenchmarkEnvironment.ENDPOINT);
+		this.transactionContext.setCreatedTime(createdTime);
+		this.transactionContext.setExpiredTime(createdTime + 300000L);
+
+		this.byteArray = this.serialize();
+	}
+
+	@Benchmark
+	public byte[] serialize() throws IOException {
+		if ("kryo".equals(this.serializer)) {
+			return SerializeUtils.kryoSerialize(this.transactionContext);
+		} else if ("hessian".equals(this.serializer)) {
+			return SerializeUtils.hessianSerialize(this.transactionContext);
+		} else {
+			return SerializeUtils.javaSerialize(this.transactionContext);
+		}
+	}
+
+	@Benchmark
+	public Serializable deserialize() throws IOException {
+		if ("kryo".equals(this.serializer)) {
+			return SerializeUtils.kryoDeserialize(this.byteArray);
+		} else if ("hessian".equals(this.serializer)) {
+			return SerializeUtils.hessianDeserialize(this.byteArray);
+		} else {
+			return SerializeUtils.javaDeserialize(this.byteArray);
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.transaction.Transaction;
+
+import org.bytesoft.bytejta.TransactionBeanFactoryImpl;
+import org.bytesoft.bytejta.logging.SampleTransactionLogger;
+import org.bytesoft.bytejta.supports.resource.CommonResourceDescriptor;
+import org.bytesoft.transaction.TransactionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * begin/commit and begin/rollback of a local transaction with 0, 1 (one-phase commit) or N (two-phase commit) XA
+ * resources, the transaction log is written to a temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransactionManagerBenchmark {
+
+	@Param({ "0", "1", "4" })
+	private int resources;
+
+	private TransactionManager transactionManager;
+	private SampleTransactionLogger transactionLogger;
+	private InMemoryXAResource[] xaResources;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		TransactionBeanFactoryImpl beanFactory = BenchmarkEnvironment.createBeanFactory();
+		this.transactionLogger = BenchmarkEnvironment.createTransactionLogger(beanFactory, true);
+		this.transactionManager = beanFactory.getTransactionManager();
+
+		this.xaResources = new InMemoryXAResource[this.resources];
+		for (int i = 0; i < this.resources; i++) {
+			this.xaResources[i] = new InMemoryXAResource();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void teardown() throws Exception {
+		BenchmarkEnvironment.releaseTransactionLogger(this.transactionLogger);
+	}
+
+	@Benchmark
+	public void beginAndCommit() throws Exception {
+		this.transactionManager.begin();
+		this.enlistResources();
+		this.transactionManager.commit();
+	}
+
+	@Benchmark
+	public void beginAndRollback() throws Exception {
+		this.transactionManager.begin();
+		this.enlistResources();
+		this.transactionManager.rollback();
+	}
+
+	private void enlistResources() throws Exception {
+		Transaction transaction = this.transactionManager.getTransaction();
+		for (int i = 0; i < this.xaResources.length; i++) {
+			CommonResourceDescriptor descriptor = new CommonResourceDescriptor();
+			descriptor.setIdentifier(String.format("resource-%s", i));
+			descriptor.setDelegate(this.xaResources[i]);
+			transaction.enlistResource(descriptor);
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.transaction.xa.Xid;
+
+import org.bytesoft.bytejta.TransactionBeanFactoryImpl;
+import org.bytesoft.bytejta.logging.SampleTransactionLogger;
+import org.bytesoft.bytejta.xa.XidFactoryImpl;
+import org.bytesoft.transaction.xa.XidFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Raw create/modify/delete throughput of the tx log, with (optimized) and without (flush on every write) deferred
+ * flushing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class VirtualLoggingBenchmark {
+	static final int SIZE_OF_LIVE_XIDS = 1024;
+
+	@Param({ "true", "false" })
+	private boolean optimized;
+
+	@Param({ "256" })
+	private int valueSize;
+
+	private SampleTransactionLogger transactionLogger;
+	private XidFactory xidFactory = new XidFactoryImpl();
+	private Xid[] liveXids = new Xid[SIZE_OF_LIVE_XIDS];
+	private byte[] value;
+	private int counter;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		TransactionBeanFactoryImpl beanFactory = BenchmarkEnvironment.createBeanFactory();
+		this.transactionLogger = BenchmarkEnvironment.createTransactionLogger(beanFactory, this.optimized);
+		this.value = new byte[this.valueSize];
+
+		for (int i = 0; i < this.liveXids.length; i++) {
+			this.liveXids[i] = this.xidFactory.createGlobalXid();
+			this.transactionLogger.create(this.liveXids[i], this.value);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void teardown() throws Exception {
+		BenchmarkEnvironment.releaseTransactionLogger(this.transactionLogger);
+	}
+
+	/**
+	 * The records written by a transaction: create, modify and delete.
+	 */
+	@Benchmark
+	public void createModifyDelete() {
+		Xid xid = this.xidFactory.createGlobalXid();
+		this.transactionLogger.create(xid, this.value);
+		this.transactionLogger.modify(xid, this.value);
+		this.transactionLogger.delete(xid);
+	}
+
+	@Benchmark
+	public void modify() {
+		Xid xid = this.liveXids[(this.counter++) & (SIZE_OF_LIVE_XIDS - 1)];
+		this.transactionLogger.modify(xid, this.value);
+	}
+
+}
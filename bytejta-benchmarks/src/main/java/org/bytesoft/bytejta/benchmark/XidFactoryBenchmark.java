@@ -0,0 +1,72 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bytesoft.bytejta.xa.SequenceXidFactoryImpl;
+import org.bytesoft.bytejta.xa.XidFactoryImpl;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.bytesoft.transaction.xa.XidFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Xid generation, run with several threads since begin() and enlistResource() call it concurrently.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class XidFactoryBenchmark {
+
+	@Param({ "default", "sequence" })
+	private String factory;
+
+	private XidFactory xidFactory;
+	private TransactionXid globalXid;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		this.xidFactory = "sequence".equals(this.factory) ? new SequenceXidFactoryImpl() : new XidFactoryImpl();
+		this.globalXid = this.xidFactory.createGlobalXid();
+	}
+
+	@Benchmark
+	public TransactionXid createGlobalXid() {
+		return this.xidFactory.createGlobalXid();
+	}
+
+	@Benchmark
+	public TransactionXid createBranchXid() {
+		return this.xidFactory.createBranchXid(this.globalXid);
+	}
+
+}
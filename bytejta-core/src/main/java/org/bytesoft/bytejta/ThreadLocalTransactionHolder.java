@@ -0,0 +1,80 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bytesoft.transaction.Transaction;
+import org.bytesoft.transaction.supports.TransactionHolder;
+
+/**
+ * Keeps the current transaction in a thread-local, so that looking up the transaction of the current thread does not
+ * go through a shared map. Lookups on behalf of another thread are served by a concurrent map, which is only written
+ * when a transaction is associated or desociated and never takes a global monitor. Entries left by threads which died
+ * without desociating are removed when they are looked up, and swept periodically on associate.
+ */
+public class ThreadLocalTransactionHolder implements TransactionHolder {
+	static final int SWEEP_INTERVAL = 1024;
+
+	private final ThreadLocal<Transaction> current = new ThreadLocal<Transaction>();
+	private final Map<Thread, Transaction> thread2txMap = new ConcurrentHashMap<Thread, Transaction>();
+	private final AtomicInteger associated = new AtomicInteger();
+
+	public void associate(Transaction transaction) {
+		this.current.set(transaction);
+		this.thread2txMap.put(Thread.currentThread(), transaction);
+
+		if (this.associated.incrementAndGet() % SWEEP_INTERVAL == 0) {
+			this.removeDeadThreads();
+		} // end-if (this.associated.incrementAndGet() % SWEEP_INTERVAL == 0)
+	}
+
+	public Transaction desociate() {
+		Transaction transaction = this.current.get();
+		this.current.remove();
+		this.thread2txMap.remove(Thread.currentThread());
+		return transaction;
+	}
+
+	private void removeDeadThreads() {
+		for (Iterator<Thread> itr = this.thread2txMap.keySet().iterator(); itr.hasNext();) {
+			Thread thread = itr.next();
+			if (thread.isAlive() == false) {
+				itr.remove();
+			} // end-if (thread.isAlive() == false)
+		}
+	}
+
+	public Transaction getTransaction() {
+		return this.current.get();
+	}
+
+	public Transaction getTransaction(Thread thread) {
+		if (thread == Thread.currentThread()) {
+			return this.current.get();
+		}
+		Transaction transaction = this.thread2txMap.get(thread);
+		if (transaction != null && thread.isAlive() == false) {
+			this.thread2txMap.remove(thread, transaction);
+			return null;
+		}
+		return transaction;
+	}
+
+}
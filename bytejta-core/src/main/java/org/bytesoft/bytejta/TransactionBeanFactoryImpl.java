@@ -22,7 +22,11 @@ import org.bytesoft.transaction.TransactionRecovery;
 import org.bytesoft.transaction.TransactionRepository;
 import org.bytesoft.transaction.logging.ArchiveDeserializer;
 import org.bytesoft.transaction.logging.TransactionLogger;
+import org.bytesoft.transaction.remote.BatchCoalescer;
 import org.bytesoft.transaction.remote.RemoteCoordinator;
+import org.bytesoft.transaction.resource.XABranchExecutor;
+import org.bytesoft.transaction.supports.TransactionCompleter;
+import org.bytesoft.transaction.supports.TransactionStatistic;
 import org.bytesoft.transaction.supports.TransactionTimer;
 import org.bytesoft.transaction.supports.rpc.TransactionInterceptor;
 import org.bytesoft.transaction.supports.serialize.XAResourceDeserializer;
@@ -44,6 +48,11 @@ public class TransactionBeanFactoryImpl implements TransactionBeanFactory {
 	private ArchiveDeserializer archiveDeserializer;
 	private XAResourceDeserializer resourceDeserializer;
 
+	private XABranchExecutor branchExecutor;
+	private TransactionStatistic transactionStatistic;
+	private TransactionCompleter transactionCompleter;
+	private BatchCoalescer batchCoalescer;
+
 	private TransactionBeanFactoryImpl() {
 		if (instance != null) {
 			throw new IllegalStateException();
@@ -142,4 +151,36 @@ public class TransactionBeanFactoryImpl implements TransactionBeanFactory {
 		this.resourceDeserializer = resourceDeserializer;
 	}
 
+	public XABranchExecutor getBranchExecutor() {
+		return branchExecutor;
+	}
+
+	public void setBranchExecutor(XABranchExecutor branchExecutor) {
+		this.branchExecutor = branchExecutor;
+	}
+
+	public TransactionStatistic getTransactionStatistic() {
+		return transactionStatistic;
+	}
+
+	public void setTransactionStatistic(TransactionStatistic transactionStatistic) {
+		this.transactionStatistic = transactionStatistic;
+	}
+
+	public TransactionCompleter getTransactionCompleter() {
+		return transactionCompleter;
+	}
+
+	public void setTransactionCompleter(TransactionCompleter transactionCompleter) {
+		this.transactionCompleter = transactionCompleter;
+	}
+
+	public BatchCoalescer getBatchCoalescer() {
+		return batchCoalescer;
+	}
+
+	public void setBatchCoalescer(BatchCoalescer batchCoalescer) {
+		this.batchCoalescer = batchCoalescer;
+	}
+
 }
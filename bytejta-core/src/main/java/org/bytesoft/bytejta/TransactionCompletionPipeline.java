@@ -0,0 +1,227 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.transaction.HeuristicMixedException;
+import javax.transaction.HeuristicRollbackException;
+import javax.transaction.Status;
+import javax.transaction.SystemException;
+
+import org.bytesoft.common.utils.ByteUtils;
+import org.bytesoft.transaction.Transaction;
+import org.bytesoft.transaction.TransactionBeanFactory;
+import org.bytesoft.transaction.TransactionRepository;
+import org.bytesoft.transaction.aware.TransactionBeanFactoryAware;
+import org.bytesoft.transaction.supports.TransactionCompleter;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Completes the second phase of the global transactions whose commit has been returned to the application as soon as
+ * the commit decision was logged. A failed completion is retried a few times with an increasing delay, then the
+ * transaction is handed over to the recovery, which drives it from its COMMITTING record like after a crash. The
+ * synchronizations of the transaction are only notified once the outcome of its second phase is known. Transactions
+ * with native XA branches are always completed synchronously.
+ * <p>
+ * Asynchronous completion is disabled unless it is switched on through the enabled property.
+ */
+public class TransactionCompletionPipeline implements TransactionCompleter, TransactionBeanFactoryAware {
+	static final Logger logger = LoggerFactory.getLogger(TransactionCompletionPipeline.class);
+
+	@javax.inject.Inject
+	private TransactionBeanFactory beanFactory;
+	private volatile boolean enabled;
+	private int completionThreads = 4;
+	private int maxRetries = 3;
+	private long retryDelayMillis = 1000L;
+	private final Lock lock = new ReentrantLock();
+	private ScheduledThreadPoolExecutor executor;
+	private boolean terminated;
+
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return false if the pipeline does not accept the transaction, which then has to be completed by the caller.
+	 */
+	public boolean submit(Transaction transaction) {
+		if (TransactionImpl.class.isInstance(transaction) == false) {
+			return false;
+		} // end-if (TransactionImpl.class.isInstance(transaction) == false)
+
+		try {
+			this.getExecutor().execute(new CompletionTask((TransactionImpl) transaction));
+			return true;
+		} catch (RejectedExecutionException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Stops the completion threads. Pending retries are dropped, their transactions are still COMMITTING in the
+	 * tx-log and are completed by the recovery.
+	 */
+	public void shutdown() {
+		ScheduledThreadPoolExecutor scheduled = null;
+		this.lock.lock();
+		try {
+			scheduled = this.executor;
+			this.executor = null;
+			this.terminated = true;
+		} finally {
+			this.lock.unlock();
+		}
+
+		if (scheduled != null) {
+			scheduled.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+			scheduled.shutdown();
+			try {
+				scheduled.awaitTermination(this.retryDelayMillis, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private ScheduledThreadPoolExecutor getExecutor() {
+		this.lock.lock();
+		try {
+			return this.getExecutorInternal();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	private ScheduledThreadPoolExecutor getExecutorInternal() {
+		if (this.terminated) {
+			throw new RejectedExecutionException();
+		} else if (this.executor == null) {
+			ScheduledThreadPoolExecutor scheduled = new ScheduledThreadPoolExecutor(Math.max(1, this.completionThreads),
+					new ThreadFactory() {
+						private final AtomicInteger counter = new AtomicInteger();
+
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, "bytejta-completion-" + this.counter.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			scheduled.setRemoveOnCancelPolicy(true);
+			this.executor = scheduled;
+		}
+		return this.executor;
+	}
+
+	private class CompletionTask implements Runnable {
+		private final TransactionImpl transaction;
+		private int attempts;
+
+		public CompletionTask(TransactionImpl transaction) {
+			this.transaction = transaction;
+		}
+
+		public void run() {
+			TransactionXid xid = this.transaction.getTransactionContext().getXid();
+			try {
+				this.transaction.fireSecondPhaseCommit(this.attempts >= maxRetries);
+				this.transaction.fireAfterAsyncCompletion(Status.STATUS_COMMITTED);
+				this.transaction.forgetQuietly();
+			} catch (HeuristicMixedException ex) {
+				logger.error("{}> Error occurred while completing transaction.",
+						ByteUtils.byteArrayToString(xid.getGlobalTransactionId()), ex);
+				this.transaction.fireAfterAsyncCompletion(Status.STATUS_UNKNOWN);
+				this.transaction.forgetQuietly();
+			} catch (HeuristicRollbackException ex) {
+				logger.error("{}> Error occurred while completing transaction.",
+						ByteUtils.byteArrayToString(xid.getGlobalTransactionId()), ex);
+				this.transaction.fireAfterAsyncCompletion(Status.STATUS_ROLLEDBACK);
+				this.transaction.forgetQuietly();
+			} catch (SystemException ex) {
+				this.retryOrRecover(xid, ex);
+			} catch (RuntimeException ex) {
+				this.retryOrRecover(xid, ex);
+			}
+		}
+
+		private void retryOrRecover(TransactionXid xid, Exception error) {
+			if (this.attempts < maxRetries) {
+				long delayMillis = retryDelayMillis << this.attempts++;
+				logger.warn("{}> Error occurred while completing transaction, retry in {} ms.",
+						ByteUtils.byteArrayToString(xid.getGlobalTransactionId()), delayMillis, error);
+				try {
+					getExecutor().schedule(this, delayMillis, TimeUnit.MILLISECONDS);
+					return;
+				} catch (RejectedExecutionException rex) {
+					logger.debug("The completion pipeline has been shut down.", rex);
+				}
+			} else {
+				logger.error("{}> Error occurred while completing transaction, handed over to the recovery.",
+						ByteUtils.byteArrayToString(xid.getGlobalTransactionId()), error);
+			}
+
+			this.transaction.fireAfterAsyncCompletion(Status.STATUS_UNKNOWN);
+			TransactionRepository transactionRepository = beanFactory.getTransactionRepository();
+			transactionRepository.putErrorTransaction(xid, this.transaction);
+		}
+	}
+
+	public TransactionBeanFactory getBeanFactory() {
+		return beanFactory;
+	}
+
+	public void setBeanFactory(TransactionBeanFactory tbf) {
+		this.beanFactory = tbf;
+	}
+
+	public int getCompletionThreads() {
+		return completionThreads;
+	}
+
+	public void setCompletionThreads(int completionThreads) {
+		this.completionThreads = completionThreads;
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	public long getRetryDelayMillis() {
+		return retryDelayMillis;
+	}
+
+	public void setRetryDelayMillis(long retryDelayMillis) {
+		this.retryDelayMillis = retryDelayMillis;
+	}
+
+}
@@ -29,6 +29,7 @@ import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
 import javax.transaction.xa.Xid;
 
+import org.bytesoft.bytejta.jfr.TransactionFlightRecorder;
 import org.bytesoft.common.utils.ByteUtils;
 import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.transaction.CommitRequiredException;
@@ -38,12 +39,14 @@ import org.bytesoft.transaction.TransactionBeanFactory;
 import org.bytesoft.transaction.TransactionContext;
 import org.bytesoft.transaction.TransactionException;
 import org.bytesoft.transaction.TransactionManager;
+import org.bytesoft.transaction.TransactionRecovery;
 import org.bytesoft.transaction.TransactionRepository;
 import org.bytesoft.transaction.aware.TransactionBeanFactoryAware;
 import org.bytesoft.transaction.aware.TransactionEndpointAware;
 import org.bytesoft.transaction.remote.RemoteAddr;
 import org.bytesoft.transaction.remote.RemoteCoordinator;
 import org.bytesoft.transaction.remote.RemoteNode;
+import org.bytesoft.transaction.supports.TransactionStatistic;
 import org.bytesoft.transaction.xa.TransactionXid;
 import org.bytesoft.transaction.xa.XidFactory;
 import org.slf4j.Logger;
@@ -93,11 +96,20 @@ public class TransactionCoordinator implements RemoteCoordinator, TransactionBea
 			transaction.setTransactionTimeout((int) timeoutMillis);
 
 			transactionRepository.putTransaction(globalXid, transaction);
+
+			if (TransactionImpl.class.isInstance(transaction)) {
+				TransactionImpl created = (TransactionImpl) transaction;
+				TransactionStatistic transactionStatistic = this.beanFactory.getTransactionStatistic();
+				if (transactionStatistic != null) {
+					transactionStatistic.fireBeginTransaction(created);
+				} // end-if (transactionStatistic != null)
+				TransactionFlightRecorder.fireBeginTransaction(created);
+			} // end-if (TransactionImpl.class.isInstance(transaction))
+
 			logger.info("{}> begin-participant", ByteUtils.byteArrayToString(globalXid.getGlobalTransactionId()));
 		}
 
 		transactionManager.associateThread(transaction);
-		// this.transactionStatistic.fireBeginTransaction(transaction);
 
 		return transaction;
 	}
@@ -387,6 +399,9 @@ public class TransactionCoordinator implements RemoteCoordinator, TransactionBea
 		TransactionRepository repository = beanFactory.getTransactionRepository();
 		List<Transaction> allTransactionList = repository.getActiveTransactionList();
 
+		TransactionRecovery transactionRecovery = this.beanFactory.getTransactionRecovery();
+		boolean presumedAbort = transactionRecovery != null && transactionRecovery.isPresumedAbort();
+
 		List<Transaction> transactions = new ArrayList<Transaction>();
 		for (int i = 0; i < allTransactionList.size(); i++) {
 			Transaction transaction = allTransactionList.get(i);
@@ -397,6 +412,8 @@ public class TransactionCoordinator implements RemoteCoordinator, TransactionBea
 				transactions.add(transaction);
 			} else if (transaction.getTransactionContext().isRecoveried()) {
 				transactions.add(transaction);
+			} else if (presumedAbort && transaction.getTransactionContext().isCoordinator()) {
+				transactions.add(transaction); // undecided, its branches must not presume it aborted yet
 			}
 		}
 
@@ -466,6 +483,57 @@ public class TransactionCoordinator implements RemoteCoordinator, TransactionBea
 		}
 	}
 
+	public int[] batchCommit(Xid[] xids) throws XAException {
+		int[] errorCodes = new int[xids.length];
+		for (int i = 0; i < xids.length; i++) {
+			try {
+				this.commit(xids[i], false);
+				errorCodes[i] = XAResource.XA_OK;
+			} catch (XAException ex) {
+				errorCodes[i] = ex.errorCode;
+			} catch (RuntimeException ex) {
+				logger.error("{}> Error occurred while committing remote coordinator.",
+						ByteUtils.byteArrayToString(xids[i].getGlobalTransactionId()), ex);
+				errorCodes[i] = XAException.XAER_RMERR;
+			}
+		}
+		return errorCodes;
+	}
+
+	public int[] batchRollback(Xid[] xids) throws XAException {
+		int[] errorCodes = new int[xids.length];
+		for (int i = 0; i < xids.length; i++) {
+			try {
+				this.rollback(xids[i]);
+				errorCodes[i] = XAResource.XA_OK;
+			} catch (XAException ex) {
+				errorCodes[i] = ex.errorCode;
+			} catch (RuntimeException ex) {
+				logger.error("{}> Error occurred while rolling back remote coordinator.",
+						ByteUtils.byteArrayToString(xids[i].getGlobalTransactionId()), ex);
+				errorCodes[i] = XAException.XAER_RMERR;
+			}
+		}
+		return errorCodes;
+	}
+
+	public int[] batchForget(Xid[] xids) throws XAException {
+		int[] errorCodes = new int[xids.length];
+		for (int i = 0; i < xids.length; i++) {
+			try {
+				this.forget(xids[i]);
+				errorCodes[i] = XAResource.XA_OK;
+			} catch (XAException ex) {
+				errorCodes[i] = ex.errorCode;
+			} catch (RuntimeException ex) {
+				logger.error("{}> Error occurred while forgeting remote coordinator.",
+						ByteUtils.byteArrayToString(xids[i].getGlobalTransactionId()), ex);
+				errorCodes[i] = XAException.XAER_RMERR;
+			}
+		}
+		return errorCodes;
+	}
+
 	public void markParticipantReady() {
 		try {
 			this.lock.lock();
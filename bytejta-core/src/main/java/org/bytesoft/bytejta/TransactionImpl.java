@@ -20,6 +20,10 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.transaction.HeuristicCommitException;
 import javax.transaction.HeuristicMixedException;
@@ -51,6 +55,7 @@ import org.bytesoft.transaction.RollbackRequiredException;
 import org.bytesoft.transaction.Transaction;
 import org.bytesoft.transaction.TransactionBeanFactory;
 import org.bytesoft.transaction.TransactionContext;
+import org.bytesoft.transaction.TransactionRecovery;
 import org.bytesoft.transaction.TransactionRepository;
 import org.bytesoft.transaction.archive.TransactionArchive;
 import org.bytesoft.transaction.archive.XAResourceArchive;
@@ -63,7 +68,10 @@ import org.bytesoft.transaction.remote.RemoteSvc;
 import org.bytesoft.transaction.supports.TransactionExtra;
 import org.bytesoft.transaction.supports.TransactionListener;
 import org.bytesoft.transaction.supports.TransactionResourceListener;
+import org.bytesoft.transaction.supports.TransactionCompleter;
+import org.bytesoft.transaction.supports.TransactionStatistic;
 import org.bytesoft.transaction.supports.resource.XAResourceDescriptor;
+import org.bytesoft.transaction.supports.resource.XAResourceStatistic;
 import org.bytesoft.transaction.xa.TransactionXid;
 import org.bytesoft.transaction.xa.XidFactory;
 import org.slf4j.Logger;
@@ -72,6 +80,11 @@ import org.slf4j.LoggerFactory;
 public class TransactionImpl implements Transaction {
 	static final Logger logger = LoggerFactory.getLogger(TransactionImpl.class);
 
+	private final Lock lock = new ReentrantLock();
+	private final Lock invocationLock = new ReentrantLock();
+	private final Condition invocationCompleted = this.invocationLock.newCondition();
+	private transient int pendingInvocations;
+
 	private transient boolean timing = true;
 	private TransactionBeanFactory beanFactory;
 
@@ -96,135 +109,153 @@ public class TransactionImpl implements Transaction {
 	private final TransactionListenerList transactionListenerList = new TransactionListenerList();
 
 	private transient Exception createdAt;
+	private transient boolean decisionLogged;
+	private transient boolean asyncCompletion;
+	private transient boolean asyncCompletionNotified;
 
 	public TransactionImpl(TransactionContext txContext) {
 		this.transactionContext = txContext;
 	}
 
-	public synchronized int participantPrepare() throws RollbackRequiredException, CommitRequiredException {
-
-		if (this.transactionStatus == Status.STATUS_MARKED_ROLLBACK) {
-			throw new RollbackRequiredException();
-		} else if (this.transactionStatus == Status.STATUS_ROLLEDBACK) {
-			throw new RollbackRequiredException();
-		} else if (this.transactionStatus == Status.STATUS_ROLLING_BACK) {
-			throw new RollbackRequiredException();
-		} else if (this.transactionStatus == Status.STATUS_UNKNOWN) {
-			throw new RollbackRequiredException();
-		} else if (this.transactionStatus == Status.STATUS_NO_TRANSACTION) {
-			// it's impossible
-			throw new RollbackRequiredException();
-		} else if (this.transactionStatus == Status.STATUS_PREPARED) {
-			throw new CommitRequiredException();
-		} else if (this.transactionStatus == Status.STATUS_COMMITTING) {
-			throw new CommitRequiredException();
-		} else if (this.transactionStatus == Status.STATUS_COMMITTED) {
-			throw new CommitRequiredException();
-		} /* else active, preparing {} */
-
-		TransactionLogger transactionLogger = beanFactory.getTransactionLogger();
-		TransactionXid xid = this.transactionContext.getXid();
-
-		this.transactionStatus = Status.STATUS_PREPARING;
-		TransactionArchive archive = this.getTransactionArchive();
-		transactionLogger.createTransaction(archive);
-		this.transactionListenerList.onPrepareStart(xid);
-		logger.info("{}> prepare-participant start", ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
+	public int participantPrepare() throws RollbackRequiredException, CommitRequiredException {
+		this.lock.lock();
 		try {
-			TransactionStrategy currentStrategy = this.getTransactionStrategy();
-			int vote = currentStrategy.prepare(xid);
 
-			this.transactionStatus = Status.STATUS_PREPARED;
-			archive.setStatus(this.transactionStatus);
-			this.transactionVote = vote;
-			archive.setVote(vote);
+			if (this.transactionStatus == Status.STATUS_MARKED_ROLLBACK) {
+				throw new RollbackRequiredException();
+			} else if (this.transactionStatus == Status.STATUS_ROLLEDBACK) {
+				throw new RollbackRequiredException();
+			} else if (this.transactionStatus == Status.STATUS_ROLLING_BACK) {
+				throw new RollbackRequiredException();
+			} else if (this.transactionStatus == Status.STATUS_UNKNOWN) {
+				throw new RollbackRequiredException();
+			} else if (this.transactionStatus == Status.STATUS_NO_TRANSACTION) {
+				// it's impossible
+				throw new RollbackRequiredException();
+			} else if (this.transactionStatus == Status.STATUS_PREPARED) {
+				throw new CommitRequiredException();
+			} else if (this.transactionStatus == Status.STATUS_COMMITTING) {
+				throw new CommitRequiredException();
+			} else if (this.transactionStatus == Status.STATUS_COMMITTED) {
+				throw new CommitRequiredException();
+			} /* else active, preparing {} */
+
+			TransactionLogger transactionLogger = beanFactory.getTransactionLogger();
+			TransactionXid xid = this.transactionContext.getXid();
+
+			this.transactionStatus = Status.STATUS_PREPARING;
+			TransactionArchive archive = this.getTransactionArchive();
+			transactionLogger.createTransaction(archive);
+			this.transactionListenerList.onPrepareStart(xid);
+			logger.info("{}> prepare-participant start", ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
+			try {
+				TransactionStrategy currentStrategy = this.getTransactionStrategy();
+				int vote = currentStrategy.prepare(xid);
 
-			this.transactionListenerList.onPrepareSuccess(xid);
-			logger.info("{}> prepare-participant complete successfully",
-					ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
+				this.transactionStatus = Status.STATUS_PREPARED;
+				archive.setStatus(this.transactionStatus);
+				this.transactionVote = vote;
+				archive.setVote(vote);
 
-			return vote;
-		} catch (CommitRequiredException crex) {
-			this.transactionVote = XAResource.XA_OK;
-			archive.setVote(this.transactionVote);
+				this.transactionListenerList.onPrepareSuccess(xid);
+				logger.info("{}> prepare-participant complete successfully",
+						ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
 
-			this.transactionStatus = Status.STATUS_COMMITTING;
-			archive.setStatus(this.transactionStatus);
+				return vote;
+			} catch (CommitRequiredException crex) {
+				this.transactionVote = XAResource.XA_OK;
+				archive.setVote(this.transactionVote);
 
-			this.transactionListenerList.onPrepareSuccess(xid);
-			logger.info("{}> prepare-participant complete successfully",
-					ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
+				this.transactionStatus = Status.STATUS_COMMITTING;
+				archive.setStatus(this.transactionStatus);
 
-			throw crex;
-		} catch (RollbackRequiredException rrex) {
-			this.transactionStatus = Status.STATUS_ROLLING_BACK;
-			archive.setStatus(this.transactionStatus);
+				this.transactionListenerList.onPrepareSuccess(xid);
+				logger.info("{}> prepare-participant complete successfully",
+						ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
 
-			this.transactionListenerList.onPrepareFailure(xid);
-			logger.info("{}> prepare-participant failed", ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
+				throw crex;
+			} catch (RollbackRequiredException rrex) {
+				this.transactionStatus = Status.STATUS_ROLLING_BACK;
+				archive.setStatus(this.transactionStatus);
 
-			throw rrex;
-		} catch (RuntimeException xaex) {
-			this.transactionStatus = Status.STATUS_ROLLING_BACK;
-			archive.setStatus(this.transactionStatus);
+				this.transactionListenerList.onPrepareFailure(xid);
+				logger.info("{}> prepare-participant failed", ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
 
-			this.transactionListenerList.onPrepareFailure(xid);
-			logger.info("{}> prepare-participant failed", ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
+				throw rrex;
+			} catch (RuntimeException xaex) {
+				this.transactionStatus = Status.STATUS_ROLLING_BACK;
+				archive.setStatus(this.transactionStatus);
 
-			RollbackRequiredException rrex = new RollbackRequiredException();
-			rrex.initCause(xaex);
-			throw rrex;
+				this.transactionListenerList.onPrepareFailure(xid);
+				logger.info("{}> prepare-participant failed", ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
+
+				RollbackRequiredException rrex = new RollbackRequiredException();
+				rrex.initCause(xaex);
+				throw rrex;
+			} finally {
+				transactionLogger.updateTransaction(archive);
+			}
 		} finally {
-			transactionLogger.updateTransaction(archive);
+			this.lock.unlock();
 		}
 	}
 
-	public synchronized void recoveryCommit() throws CommitRequiredException, SystemException {
-		TransactionXid xid = this.transactionContext.getXid();
+	public void recoveryCommit() throws CommitRequiredException, SystemException {
+		this.lock.lock();
 		try {
-			this.recoverIfNecessary(); // Recover if transaction is recovered from tx-log.
+			TransactionXid xid = this.transactionContext.getXid();
+			try {
+				this.recoverIfNecessary(); // Recover if transaction is recovered from tx-log.
 
-			this.transactionContext.setRecoveredTimes(this.transactionContext.getRecoveredTimes() + 1);
-			this.transactionContext.setCreatedTime(System.currentTimeMillis());
+				this.transactionContext.setRecoveredTimes(this.transactionContext.getRecoveredTimes() + 1);
+				this.transactionContext.setCreatedTime(System.currentTimeMillis());
 
-			this.invokeParticipantCommit(false);
-		} catch (HeuristicMixedException ex) {
-			logger.error("{}> recover: branch={}, status= mixed, message= {}",
-					ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
-					ByteUtils.byteArrayToString(xid.getBranchQualifier()), ex.getMessage(), ex);
-			SystemException sysEx = new SystemException();
-			sysEx.initCause(ex);
-			throw sysEx;
-		} catch (HeuristicRollbackException ex) {
-			logger.error("{}> recover: branch={}, status= rolledback",
-					ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
-					ByteUtils.byteArrayToString(xid.getBranchQualifier()), ex);
-			SystemException sysEx = new SystemException();
-			sysEx.initCause(ex);
-			throw sysEx;
+				this.invokeParticipantCommit(false);
+			} catch (HeuristicMixedException ex) {
+				logger.error("{}> recover: branch={}, status= mixed, message= {}",
+						ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
+						ByteUtils.byteArrayToString(xid.getBranchQualifier()), ex.getMessage(), ex);
+				SystemException sysEx = new SystemException();
+				sysEx.initCause(ex);
+				throw sysEx;
+			} catch (HeuristicRollbackException ex) {
+				logger.error("{}> recover: branch={}, status= rolledback",
+						ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
+						ByteUtils.byteArrayToString(xid.getBranchQualifier()), ex);
+				SystemException sysEx = new SystemException();
+				sysEx.initCause(ex);
+				throw sysEx;
+			}
+		} finally {
+			this.lock.unlock();
 		}
 	}
 
 	/* opc: true, compensable-transaction & remote-coordinator; false, remote-coordinator */
-	public synchronized void participantCommit(boolean opc) throws RollbackException, HeuristicMixedException,
+	public void participantCommit(boolean opc) throws RollbackException, HeuristicMixedException,
 			HeuristicRollbackException, SecurityException, IllegalStateException, CommitRequiredException, SystemException {
-		if (this.transactionContext.isRecoveried()) {
-			this.recover(); // Execute recoveryInit if transaction is recovered from tx-log.
-			this.invokeParticipantCommit(opc);
-			return;
-		} // end-if (this.transactionContext.isRecoveried())
-
-		Transaction transaction = //
-				Transaction.class.isInstance(this.transactionalExtra) ? (Transaction) this.transactionalExtra : null;
-		TransactionContext transactionContext = transaction == null ? null : transaction.getTransactionContext();
-		TransactionXid transactionXid = transactionContext == null ? null : transactionContext.getXid();
-		boolean compensable = transactionXid != null && XidFactory.TCC_FORMAT_ID == transactionXid.getFormatId();
-		if (compensable) {
-			this.compensableOnePhaseCommit();
-		} else if (opc) {
-			this.participantOnePhaseCommit();
-		} else {
-			this.participantTwoPhaseCommit();
+		this.lock.lock();
+		try {
+			if (this.transactionContext.isRecoveried()) {
+				this.recover(); // Execute recoveryInit if transaction is recovered from tx-log.
+				this.invokeParticipantCommit(opc);
+				return;
+			} // end-if (this.transactionContext.isRecoveried())
+
+			Transaction transaction = //
+					Transaction.class.isInstance(this.transactionalExtra) ? (Transaction) this.transactionalExtra : null;
+			TransactionContext transactionContext = transaction == null ? null : transaction.getTransactionContext();
+			TransactionXid transactionXid = transactionContext == null ? null : transactionContext.getXid();
+			boolean compensable = transactionXid != null && XidFactory.TCC_FORMAT_ID == transactionXid.getFormatId();
+			if (compensable) {
+				this.compensableOnePhaseCommit();
+			} else if (opc) {
+				this.participantOnePhaseCommit();
+			} else {
+				this.participantTwoPhaseCommit();
+			}
+		} finally {
+			this.lock.unlock();
 		}
 	}
 
@@ -464,22 +495,27 @@ public class TransactionImpl implements Transaction {
 		}
 	}
 
-	public synchronized void commit() throws RollbackException, HeuristicMixedException, HeuristicRollbackException,
+	public void commit() throws RollbackException, HeuristicMixedException, HeuristicRollbackException,
 			SecurityException, IllegalStateException, CommitRequiredException, SystemException {
+		this.lock.lock();
+		try {
 
-		if (this.transactionStatus == Status.STATUS_ACTIVE) {
-			this.fireCommit();
-		} else if (this.transactionStatus == Status.STATUS_MARKED_ROLLBACK) {
-			this.fireRollback();
-			throw new HeuristicRollbackException();
-		} else if (this.transactionStatus == Status.STATUS_ROLLEDBACK) /* should never happen */ {
-			throw new RollbackException();
-		} else if (this.transactionStatus == Status.STATUS_COMMITTED) /* should never happen */ {
-			logger.debug("Current transaction has already been committed.");
-		} else {
-			throw new IllegalStateException();
-		}
+			if (this.transactionStatus == Status.STATUS_ACTIVE) {
+				this.fireCommit();
+			} else if (this.transactionStatus == Status.STATUS_MARKED_ROLLBACK) {
+				this.fireRollback();
+				throw new HeuristicRollbackException();
+			} else if (this.transactionStatus == Status.STATUS_ROLLEDBACK) /* should never happen */ {
+				throw new RollbackException();
+			} else if (this.transactionStatus == Status.STATUS_COMMITTED) /* should never happen */ {
+				logger.debug("Current transaction has already been committed.");
+			} else {
+				throw new IllegalStateException();
+			}
 
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
 	private void fireCommit() throws RollbackException, HeuristicMixedException, HeuristicRollbackException, SecurityException,
@@ -498,70 +534,103 @@ public class TransactionImpl implements Transaction {
 		logger.info("{}> commit-transaction complete successfully", ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
 	}
 
-	public synchronized void skipOnePhaseCommit()
+	public void skipOnePhaseCommit()
 			throws HeuristicRollbackException, HeuristicMixedException, CommitRequiredException, SystemException {
-		TransactionXid xid = this.transactionContext.getXid();
-		this.transactionListenerList.onCommitStart(xid);
-		this.transactionListenerList.onCommitSuccess(xid);
+		this.lock.lock();
+		try {
+			TransactionXid xid = this.transactionContext.getXid();
+			this.transactionListenerList.onCommitStart(xid);
+			this.transactionListenerList.onCommitSuccess(xid);
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
-	public synchronized void fireOnePhaseCommit()
+	public void fireOnePhaseCommit()
 			throws HeuristicRollbackException, HeuristicMixedException, CommitRequiredException, SystemException {
+		this.lock.lock();
+		try {
 
-		XAResourceArchive archive = null;
-		if (this.nativeParticipantList.size() > 0) {
-			archive = this.nativeParticipantList.get(0);
-		} else if (this.remoteParticipantList.size() > 0) {
-			archive = this.remoteParticipantList.get(0);
-		} else {
-			archive = this.participant;
-		}
+			XAResourceArchive archive = null;
+			if (this.nativeParticipantList.size() > 0) {
+				archive = this.nativeParticipantList.get(0);
+			} else if (this.remoteParticipantList.size() > 0) {
+				archive = this.remoteParticipantList.get(0);
+			} else {
+				archive = this.participant;
+			}
 
-		TransactionXid xid = this.transactionContext.getXid();
-		try {
-			this.transactionListenerList.onCommitStart(xid);
-			archive.commit(xid, true);
-			this.transactionListenerList.onCommitSuccess(xid);
-		} catch (XAException xaex) {
-			switch (xaex.errorCode) {
-			case XAException.XA_HEURMIX:
-				this.transactionListenerList.onCommitHeuristicMixed(xid);
-				HeuristicMixedException hmex = new HeuristicMixedException();
-				hmex.initCause(xaex);
-				throw hmex;
-			case XAException.XA_HEURCOM:
+			TransactionXid xid = this.transactionContext.getXid();
+			try {
+				this.transactionListenerList.onCommitStart(xid);
+				archive.commit(xid, true);
 				this.transactionListenerList.onCommitSuccess(xid);
-				break;
-			case XAException.XA_HEURRB:
-				this.transactionListenerList.onCommitHeuristicRolledback(xid);
-				HeuristicRollbackException hrex = new HeuristicRollbackException();
-				hrex.initCause(xaex);
-				throw hrex;
-			default:
+			} catch (XAException xaex) {
+				switch (xaex.errorCode) {
+				case XAException.XA_HEURMIX:
+					this.transactionListenerList.onCommitHeuristicMixed(xid);
+					HeuristicMixedException hmex = new HeuristicMixedException();
+					hmex.initCause(xaex);
+					throw hmex;
+				case XAException.XA_HEURCOM:
+					this.transactionListenerList.onCommitSuccess(xid);
+					break;
+				case XAException.XA_HEURRB:
+					this.transactionListenerList.onCommitHeuristicRolledback(xid);
+					HeuristicRollbackException hrex = new HeuristicRollbackException();
+					hrex.initCause(xaex);
+					throw hrex;
+				default:
+					this.transactionListenerList.onCommitFailure(xid);
+					SystemException ex = new SystemException();
+					ex.initCause(xaex);
+					throw ex;
+				}
+			} catch (RuntimeException rex) {
 				this.transactionListenerList.onCommitFailure(xid);
-				SystemException ex = new SystemException();
-				ex.initCause(xaex);
-				throw ex;
+				SystemException sysEx = new SystemException();
+				sysEx.initCause(rex);
+				throw sysEx;
 			}
-		} catch (RuntimeException rex) {
-			this.transactionListenerList.onCommitFailure(xid);
-			SystemException sysEx = new SystemException();
-			sysEx.initCause(rex);
-			throw sysEx;
+		} finally {
+			this.lock.unlock();
 		}
 	}
 
-	public synchronized void fireTwoPhaseCommit()
+	public void fireTwoPhaseCommit()
 			throws HeuristicRollbackException, HeuristicMixedException, CommitRequiredException, SystemException {
-		TransactionLogger transactionLogger = beanFactory.getTransactionLogger();
+		this.lock.lock();
+		try {
+			TransactionLogger transactionLogger = beanFactory.getTransactionLogger();
 
-		TransactionXid xid = this.transactionContext.getXid();
-		logger.info("{}> prepare-participant start", ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
+			TransactionXid xid = this.transactionContext.getXid();
+			logger.info("{}> prepare-participant start", ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
+
+			this.transactionStatus = Status.STATUS_PREPARING;// .setStatusPreparing();
+
+			TransactionArchive archive = this.getTransactionArchive();// new TransactionArchive();
+			if (this.isPresumedAbortUnlogged() == false) {
+				transactionLogger.createTransaction(archive);
+			} // end-if (this.isPresumedAbortUnlogged() == false)
 
-		this.transactionStatus = Status.STATUS_PREPARING;// .setStatusPreparing();
+			transactionLogger.beginBatch(xid);
+			try {
+				this.invokeTwoPhaseCommit(transactionLogger, archive);
+			} finally {
+				if (this.isPresumedAbortUnlogged()) {
+					transactionLogger.cancelBatch(xid);
+				} else {
+					transactionLogger.endBatch(this.getTransactionArchive());
+				}
+			}
+		} finally {
+			this.lock.unlock();
+		}
+	}
 
-		TransactionArchive archive = this.getTransactionArchive();// new TransactionArchive();
-		transactionLogger.createTransaction(archive);
+	private void invokeTwoPhaseCommit(TransactionLogger transactionLogger, TransactionArchive archive)
+			throws HeuristicRollbackException, HeuristicMixedException, CommitRequiredException, SystemException {
+		TransactionXid xid = this.transactionContext.getXid();
 
 		this.transactionListenerList.onPrepareStart(xid);
 
@@ -602,7 +671,9 @@ public class TransactionImpl implements Transaction {
 			logger.info("{}> prepare-participant & commit-participant complete successfully",
 					ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
 
-			transactionLogger.updateTransaction(archive);
+			if (this.isPresumedAbortUnlogged() == false) {
+				transactionLogger.updateTransaction(archive);
+			} // end-if (this.isPresumedAbortUnlogged() == false)
 		} else {
 			// this.transactionStatus = Status.STATUS_PREPARED;// .setStatusPrepared();
 
@@ -614,47 +685,105 @@ public class TransactionImpl implements Transaction {
 			archive.setVote(this.transactionVote);
 			archive.setStatus(this.transactionStatus);
 			this.transactionListenerList.onCommitStart(xid);
-			transactionLogger.updateTransaction(archive);
-
-			try {
-				currentStrategy.commit(xid, false);
-			} catch (HeuristicMixedException ex) {
-				this.transactionListenerList.onCommitHeuristicMixed(xid);
-				throw ex;
-			} catch (HeuristicRollbackException ex) {
-				this.transactionListenerList.onCommitHeuristicRolledback(xid);
-				throw ex;
-			} catch (SystemException ex) {
-				this.transactionListenerList.onCommitFailure(xid);
-				throw ex;
-			} catch (RuntimeException ex) {
-				this.transactionListenerList.onCommitFailure(xid);
-				throw ex;
+			if (this.isPresumedAbortUnlogged()) {
+				transactionLogger.createTransaction(archive); // the commit decision is the first record
+				this.decisionLogged = true;
+			} else {
+				transactionLogger.updateTransaction(archive);
 			}
 
-			this.transactionStatus = Status.STATUS_COMMITTED; // Status.STATUS_COMMITTED;
-			archive.setStatus(this.transactionStatus);
-			this.transactionListenerList.onCommitSuccess(xid);
-			transactionLogger.updateTransaction(archive);
+			if (this.isAsyncCompletionSupported()) {
+				TransactionCompleter transactionCompleter = this.beanFactory.getTransactionCompleter();
+				this.asyncCompletion = transactionCompleter.submit(this);
+			} // end-if (this.isAsyncCompletionSupported())
 
-			logger.info("{}> commit-participant complete successfully",
-					ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
+			if (this.asyncCompletion) {
+				logger.info("{}> commit-participant will be completed asynchronously",
+						ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
+			} else {
+				this.invokeSecondPhaseCommit(transactionLogger, archive, true);
+			}
 		} // end-else-if (vote == XAResource.XA_RDONLY)
 
 	}
 
-	public synchronized boolean delistResource(XAResource xaRes, int flag) throws IllegalStateException, SystemException {
-		if (this.transactionStatus != Status.STATUS_ACTIVE && this.transactionStatus != Status.STATUS_MARKED_ROLLBACK) {
-			throw new IllegalStateException();
+	/**
+	 * Completes the second phase of a transaction whose commit has already been returned to the application, see
+	 * {@link TransactionCompletionPipeline}. The commit failure is only reported to the listeners on the last attempt.
+	 */
+	public void fireSecondPhaseCommit(boolean lastAttempt)
+			throws HeuristicRollbackException, HeuristicMixedException, SystemException {
+		this.lock.lock();
+		try {
+			if (this.transactionStatus != Status.STATUS_COMMITTING) {
+				return;
+			} // end-if (this.transactionStatus != Status.STATUS_COMMITTING)
+
+			TransactionLogger transactionLogger = beanFactory.getTransactionLogger();
+			TransactionXid xid = this.transactionContext.getXid();
+
+			transactionLogger.beginBatch(xid);
+			try {
+				this.invokeSecondPhaseCommit(transactionLogger, this.getTransactionArchive(), lastAttempt);
+			} finally {
+				transactionLogger.endBatch(this.getTransactionArchive());
+			}
+		} finally {
+			this.lock.unlock();
 		}
+	}
 
-		if (XAResourceDescriptor.class.isInstance(xaRes)) {
-			return this.delistResource((XAResourceDescriptor) xaRes, flag);
-		} else {
-			XAResourceDescriptor descriptor = new UnidentifiedResourceDescriptor();
-			((UnidentifiedResourceDescriptor) descriptor).setDelegate(xaRes);
-			((UnidentifiedResourceDescriptor) descriptor).setIdentifier("");
-			return this.delistResource(descriptor, flag);
+	private void invokeSecondPhaseCommit(TransactionLogger transactionLogger, TransactionArchive archive,
+			boolean failureNotified) throws HeuristicRollbackException, HeuristicMixedException, SystemException {
+		TransactionXid xid = this.transactionContext.getXid();
+		TransactionStrategy currentStrategy = this.getTransactionStrategy();
+
+		try {
+			currentStrategy.commit(xid, false);
+		} catch (HeuristicMixedException ex) {
+			this.transactionListenerList.onCommitHeuristicMixed(xid);
+			throw ex;
+		} catch (HeuristicRollbackException ex) {
+			this.transactionListenerList.onCommitHeuristicRolledback(xid);
+			throw ex;
+		} catch (SystemException ex) {
+			if (failureNotified) {
+				this.transactionListenerList.onCommitFailure(xid);
+			} // end-if (failureNotified)
+			throw ex;
+		} catch (RuntimeException ex) {
+			if (failureNotified) {
+				this.transactionListenerList.onCommitFailure(xid);
+			} // end-if (failureNotified)
+			throw ex;
+		}
+
+		this.transactionStatus = Status.STATUS_COMMITTED; // Status.STATUS_COMMITTED;
+		archive.setStatus(this.transactionStatus);
+		this.transactionListenerList.onCommitSuccess(xid);
+		transactionLogger.updateTransaction(archive);
+
+		logger.info("{}> commit-participant complete successfully",
+				ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
+	}
+
+	public boolean delistResource(XAResource xaRes, int flag) throws IllegalStateException, SystemException {
+		this.lock.lock();
+		try {
+			if (this.transactionStatus != Status.STATUS_ACTIVE && this.transactionStatus != Status.STATUS_MARKED_ROLLBACK) {
+				throw new IllegalStateException();
+			}
+
+			if (XAResourceDescriptor.class.isInstance(xaRes)) {
+				return this.delistResource((XAResourceDescriptor) xaRes, flag);
+			} else {
+				XAResourceDescriptor descriptor = new UnidentifiedResourceDescriptor();
+				((UnidentifiedResourceDescriptor) descriptor).setDelegate(xaRes);
+				((UnidentifiedResourceDescriptor) descriptor).setIdentifier("");
+				return this.delistResource(descriptor, flag);
+			}
+		} finally {
+			this.lock.unlock();
 		}
 	}
 
@@ -735,28 +864,33 @@ public class TransactionImpl implements Transaction {
 		}
 	}
 
-	public synchronized boolean enlistResource(XAResource xaRes)
+	public boolean enlistResource(XAResource xaRes)
 			throws RollbackException, IllegalStateException, SystemException {
+		this.lock.lock();
+		try {
 
-		if (this.transactionStatus == Status.STATUS_MARKED_ROLLBACK) {
-			// When a RollbackException is received, DBCP treats the state as STATUS_ROLLEDBACK,
-			// but the actual state is still STATUS_MARKED_ROLLBACK.
-			throw new IllegalStateException(); // throw new RollbackException();
-		} else if (this.transactionStatus != Status.STATUS_ACTIVE) {
-			throw new IllegalStateException();
-		}
+			if (this.transactionStatus == Status.STATUS_MARKED_ROLLBACK) {
+				// When a RollbackException is received, DBCP treats the state as STATUS_ROLLEDBACK,
+				// but the actual state is still STATUS_MARKED_ROLLBACK.
+				throw new IllegalStateException(); // throw new RollbackException();
+			} else if (this.transactionStatus != Status.STATUS_ACTIVE) {
+				throw new IllegalStateException();
+			}
 
-		if (XAResourceDescriptor.class.isInstance(xaRes)) {
-			return this.enlistResource((XAResourceDescriptor) xaRes);
-		} else if (XAResourceDescriptor.class.isInstance(xaRes) == false && this.transactionContext.isCoordinator()) {
-			XAResourceDescriptor descriptor = new UnidentifiedResourceDescriptor();
-			((UnidentifiedResourceDescriptor) descriptor).setIdentifier("");
-			((UnidentifiedResourceDescriptor) descriptor).setDelegate(xaRes);
-			return this.enlistResource(descriptor);
-		} else {
-			throw new SystemException("Unknown xa resource!");
-		}
+			if (XAResourceDescriptor.class.isInstance(xaRes)) {
+				return this.enlistResource((XAResourceDescriptor) xaRes);
+			} else if (XAResourceDescriptor.class.isInstance(xaRes) == false && this.transactionContext.isCoordinator()) {
+				XAResourceDescriptor descriptor = new UnidentifiedResourceDescriptor();
+				((UnidentifiedResourceDescriptor) descriptor).setIdentifier("");
+				((UnidentifiedResourceDescriptor) descriptor).setDelegate(xaRes);
+				return this.enlistResource(descriptor);
+			} else {
+				throw new SystemException("Unknown xa resource!");
+			}
 
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
 	private XAResourceArchive getEnlistedResourceArchive(XAResourceDescriptor descriptor) {
@@ -799,6 +933,15 @@ public class TransactionImpl implements Transaction {
 			archive.setDescriptor(descriptor);
 			archive.setIdentified(true);
 
+			if (RemoteResourceDescriptor.class.isInstance(descriptor)) {
+				((RemoteResourceDescriptor) descriptor).setCoalescer(this.beanFactory.getBatchCoalescer());
+			} // end-if (RemoteResourceDescriptor.class.isInstance(descriptor))
+
+			TransactionStatistic transactionStatistic = this.beanFactory.getTransactionStatistic();
+			if (XAResourceStatistic.class.isInstance(transactionStatistic)) {
+				archive.setStatistic((XAResourceStatistic) transactionStatistic);
+			} // end-if (XAResourceStatistic.class.isInstance(transactionStatistic))
+
 			if (this.transactionalExtra != null && this.transactionalExtra.getTransactionXid() != null) {
 				archive.setXid(this.transactionalExtra.getTransactionXid());
 			} else {
@@ -950,32 +1093,42 @@ public class TransactionImpl implements Transaction {
 		return this.transactionStatus;
 	}
 
-	public synchronized void registerSynchronization(Synchronization sync)
+	public void registerSynchronization(Synchronization sync)
 			throws RollbackException, IllegalStateException, SystemException {
+		this.lock.lock();
+		try {
 
-		if (this.transactionStatus == Status.STATUS_MARKED_ROLLBACK) {
-			throw new RollbackException();
-		} else if (this.transactionStatus == Status.STATUS_ACTIVE) {
-			this.synchronizationList.registerSynchronizationQuietly(sync);
-			logger.debug("{}> register-sync: sync= {}"//
-					, ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), sync);
-		} else {
-			throw new IllegalStateException();
-		}
+			if (this.transactionStatus == Status.STATUS_MARKED_ROLLBACK) {
+				throw new RollbackException();
+			} else if (this.transactionStatus == Status.STATUS_ACTIVE) {
+				this.synchronizationList.registerSynchronizationQuietly(sync);
+				logger.debug("{}> register-sync: sync= {}"//
+						, ByteUtils.byteArrayToString(this.transactionContext.getXid().getGlobalTransactionId()), sync);
+			} else {
+				throw new IllegalStateException();
+			}
 
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
-	public synchronized void rollback() throws IllegalStateException, RollbackRequiredException, SystemException {
-		if (this.transactionStatus == Status.STATUS_UNKNOWN) {
-			throw new IllegalStateException();
-		} else if (this.transactionStatus == Status.STATUS_NO_TRANSACTION) {
-			throw new IllegalStateException();
-		} else if (this.transactionStatus == Status.STATUS_COMMITTED) /* should never happen */ {
-			throw new IllegalStateException();
-		} else if (this.transactionStatus == Status.STATUS_ROLLEDBACK) /* should never happen */ {
-			logger.debug("Current transaction has already been rolled back.");
-		} else {
-			this.fireRollback();
+	public void rollback() throws IllegalStateException, RollbackRequiredException, SystemException {
+		this.lock.lock();
+		try {
+			if (this.transactionStatus == Status.STATUS_UNKNOWN) {
+				throw new IllegalStateException();
+			} else if (this.transactionStatus == Status.STATUS_NO_TRANSACTION) {
+				throw new IllegalStateException();
+			} else if (this.transactionStatus == Status.STATUS_COMMITTED) /* should never happen */ {
+				throw new IllegalStateException();
+			} else if (this.transactionStatus == Status.STATUS_ROLLEDBACK) /* should never happen */ {
+				logger.debug("Current transaction has already been rolled back.");
+			} else {
+				this.fireRollback();
+			}
+		} finally {
+			this.lock.unlock();
 		}
 	}
 
@@ -989,35 +1142,45 @@ public class TransactionImpl implements Transaction {
 				ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
 	}
 
-	public synchronized void recoveryRollback() throws RollbackRequiredException, SystemException {
-		this.recoverIfNecessary(); // Recover if transaction is recovered from tx-log.
+	public void recoveryRollback() throws RollbackRequiredException, SystemException {
+		this.lock.lock();
+		try {
+			this.recoverIfNecessary(); // Recover if transaction is recovered from tx-log.
 
-		this.transactionContext.setRecoveredTimes(this.transactionContext.getRecoveredTimes() + 1);
-		this.transactionContext.setCreatedTime(System.currentTimeMillis());
+			this.transactionContext.setRecoveredTimes(this.transactionContext.getRecoveredTimes() + 1);
+			this.transactionContext.setCreatedTime(System.currentTimeMillis());
 
-		this.invokeParticipantRollback();
+			this.invokeParticipantRollback();
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
-	public synchronized void participantRollback() throws IllegalStateException, RollbackRequiredException, SystemException {
+	public void participantRollback() throws IllegalStateException, RollbackRequiredException, SystemException {
+		this.lock.lock();
+		try {
 
-		if (this.transactionStatus == Status.STATUS_UNKNOWN) {
-			throw new IllegalStateException();
-		} else if (this.transactionStatus == Status.STATUS_NO_TRANSACTION) {
-			throw new IllegalStateException();
-		} else if (this.transactionStatus == Status.STATUS_COMMITTED) {
-			throw new IllegalStateException();
-		} else if (this.transactionStatus == Status.STATUS_ROLLEDBACK) {
-			return;
-		}
+			if (this.transactionStatus == Status.STATUS_UNKNOWN) {
+				throw new IllegalStateException();
+			} else if (this.transactionStatus == Status.STATUS_NO_TRANSACTION) {
+				throw new IllegalStateException();
+			} else if (this.transactionStatus == Status.STATUS_COMMITTED) {
+				throw new IllegalStateException();
+			} else if (this.transactionStatus == Status.STATUS_ROLLEDBACK) {
+				return;
+			}
 
-		if (this.transactionContext.isRecoveried()) {
-			this.recover(); // Execute recoveryInit if transaction is recovered from tx-log.
-			this.invokeParticipantRollback();
-		} else {
-			// 回滚事务
-			this.invokeParticipantRollback();
-		}
+			if (this.transactionContext.isRecoveried()) {
+				this.recover(); // Execute recoveryInit if transaction is recovered from tx-log.
+				this.invokeParticipantRollback();
+			} else {
+				// 回滚事务
+				this.invokeParticipantRollback();
+			}
 
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
 	private void invokeParticipantRollback() throws SystemException {
@@ -1025,10 +1188,34 @@ public class TransactionImpl implements Transaction {
 		TransactionXid xid = this.transactionContext.getXid();
 		logger.info("{}> rollback-participant start", ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
 
+		boolean unlogged = this.isPresumedAbortUnlogged();
 		this.transactionStatus = Status.STATUS_ROLLING_BACK;
 		TransactionArchive archive = this.getTransactionArchive();
 		this.transactionListenerList.onRollbackStart(xid);
-		transactionLogger.updateTransaction(archive); // don't create!
+		if (unlogged) {
+			transactionLogger.beginBatch(xid); // participant updates are deferred and then discarded
+		} else {
+			transactionLogger.updateTransaction(archive); // don't create!
+		}
+
+		try {
+			this.invokeParticipantRollback(archive);
+		} finally {
+			if (unlogged) {
+				transactionLogger.cancelBatch(xid);
+			} // end-if (unlogged)
+		}
+
+		if (unlogged == false) {
+			transactionLogger.updateTransaction(archive);
+		} // end-if (unlogged == false)
+
+		logger.info("{}> rollback-participant complete successfully",
+				ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
+	}
+
+	private void invokeParticipantRollback(TransactionArchive archive) throws SystemException {
+		TransactionXid xid = this.transactionContext.getXid();
 
 		try {
 			TransactionStrategy currentStrategy = this.getTransactionStrategy();
@@ -1056,10 +1243,6 @@ public class TransactionImpl implements Transaction {
 		this.transactionStatus = Status.STATUS_ROLLEDBACK; // Status.STATUS_ROLLEDBACK;
 		archive.setStatus(this.transactionStatus);
 		this.transactionListenerList.onRollbackSuccess(xid);
-		transactionLogger.updateTransaction(archive);
-
-		logger.info("{}> rollback-participant complete successfully",
-				ByteUtils.byteArrayToString(xid.getGlobalTransactionId()));
 	}
 
 	public void suspend() throws RollbackRequiredException, SystemException {
@@ -1112,18 +1295,53 @@ public class TransactionImpl implements Transaction {
 
 	}
 
-	public synchronized void fireBeforeTransactionCompletionQuietly() {
-		this.synchronizationList.beforeCompletion();
-		this.delistAllResourceQuietly();
+	public void fireBeforeTransactionCompletionQuietly() {
+		this.lock.lock();
+		try {
+			this.synchronizationList.beforeCompletion();
+			this.delistAllResourceQuietly();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	public void fireBeforeTransactionCompletion() throws RollbackRequiredException, SystemException {
+		this.lock.lock();
+		try {
+			this.synchronizationList.beforeCompletion();
+			this.delistAllResource();
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
-	public synchronized void fireBeforeTransactionCompletion() throws RollbackRequiredException, SystemException {
-		this.synchronizationList.beforeCompletion();
-		this.delistAllResource();
+	public void fireAfterTransactionCompletion() {
+		this.lock.lock();
+		try {
+			if (this.asyncCompletion == false) {
+				this.synchronizationList.afterCompletion(this.transactionStatus);
+			} else if (this.transactionStatus != Status.STATUS_COMMITTING) {
+				this.fireAfterAsyncCompletion(this.transactionStatus);
+			} // else: the second phase is still in progress, the pipeline notifies the synchronizations
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
-	public synchronized void fireAfterTransactionCompletion() {
-		this.synchronizationList.afterCompletion(this.transactionStatus);
+	/**
+	 * Notifies the synchronizations of a transaction whose second phase has been handed over to the
+	 * {@link TransactionCompletionPipeline}, once its outcome is known.
+	 */
+	void fireAfterAsyncCompletion(int status) {
+		this.lock.lock();
+		try {
+			if (this.asyncCompletionNotified == false) {
+				this.asyncCompletionNotified = true;
+				this.synchronizationList.afterCompletion(status);
+			} // end-if (this.asyncCompletionNotified == false)
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
 	public void delistAllResourceQuietly() {
@@ -1181,12 +1399,17 @@ public class TransactionImpl implements Transaction {
 		}
 	}
 
-	public synchronized void setRollbackOnly() throws IllegalStateException, SystemException {
-		if (this.transactionStatus == Status.STATUS_ACTIVE || this.transactionStatus == Status.STATUS_MARKED_ROLLBACK) {
-			this.transactionContext.setRollbackOnly(true);
-			this.transactionStatus = Status.STATUS_MARKED_ROLLBACK;
-		} else {
-			throw new IllegalStateException();
+	public void setRollbackOnly() throws IllegalStateException, SystemException {
+		this.lock.lock();
+		try {
+			if (this.transactionStatus == Status.STATUS_ACTIVE || this.transactionStatus == Status.STATUS_MARKED_ROLLBACK) {
+				this.transactionContext.setRollbackOnly(true);
+				this.transactionStatus = Status.STATUS_MARKED_ROLLBACK;
+			} else {
+				throw new IllegalStateException();
+			}
+		} finally {
+			this.lock.unlock();
 		}
 	}
 
@@ -1196,13 +1419,18 @@ public class TransactionImpl implements Transaction {
 		}
 	}
 
-	public synchronized void recover() throws SystemException {
-		if (transactionStatus == Status.STATUS_PREPARING) {
-			this.recover4PreparingStatus();
-		} else if (transactionStatus == Status.STATUS_COMMITTING) {
-			this.recover4CommittingStatus();
-		} else if (transactionStatus == Status.STATUS_ROLLING_BACK) {
-			this.recover4RollingBackStatus();
+	public void recover() throws SystemException {
+		this.lock.lock();
+		try {
+			if (transactionStatus == Status.STATUS_PREPARING) {
+				this.recover4PreparingStatus();
+			} else if (transactionStatus == Status.STATUS_COMMITTING) {
+				this.recover4CommittingStatus();
+			} else if (transactionStatus == Status.STATUS_ROLLING_BACK) {
+				this.recover4RollingBackStatus();
+			}
+		} finally {
+			this.lock.unlock();
 		}
 	}
 
@@ -1304,8 +1532,10 @@ public class TransactionImpl implements Transaction {
 		if (unRollbackExists == false) {
 			this.transactionStatus = Status.STATUS_ROLLEDBACK;
 
-			TransactionArchive archive = this.getTransactionArchive();
-			transactionLogger.updateTransaction(archive);
+			if (this.isPresumedAbortUnlogged() == false) {
+				TransactionArchive archive = this.getTransactionArchive();
+				transactionLogger.updateTransaction(archive);
+			} // end-if (this.isPresumedAbortUnlogged() == false)
 		}
 
 	}
@@ -1362,77 +1592,99 @@ public class TransactionImpl implements Transaction {
 		return xidRecovered;
 	}
 
-	public synchronized void forgetQuietly() {
-		TransactionXid xid = this.transactionContext.getXid();
+	public void forgetQuietly() {
+		this.lock.lock();
 		try {
-			this.forget();
-		} catch (SystemException ex) {
-			logger.error("Error occurred while forgetting transaction: {}",
-					ByteUtils.byteArrayToInt(xid.getGlobalTransactionId()), ex);
-		} catch (RuntimeException ex) {
-			logger.error("Error occurred while forgetting transaction: {}",
-					ByteUtils.byteArrayToInt(xid.getGlobalTransactionId()), ex);
+			TransactionXid xid = this.transactionContext.getXid();
+			try {
+				this.forget();
+			} catch (SystemException ex) {
+				logger.error("Error occurred while forgetting transaction: {}",
+						ByteUtils.byteArrayToInt(xid.getGlobalTransactionId()), ex);
+			} catch (RuntimeException ex) {
+				logger.error("Error occurred while forgetting transaction: {}",
+						ByteUtils.byteArrayToInt(xid.getGlobalTransactionId()), ex);
+			}
+		} finally {
+			this.lock.unlock();
 		}
 	}
 
-	public synchronized void forget() throws SystemException {
-		TransactionRepository repository = beanFactory.getTransactionRepository();
-		TransactionLogger transactionLogger = this.beanFactory.getTransactionLogger();
+	public void forget() throws SystemException {
+		this.lock.lock();
+		try {
+			TransactionRepository repository = beanFactory.getTransactionRepository();
+			TransactionLogger transactionLogger = this.beanFactory.getTransactionLogger();
 
-		TransactionXid xid = this.transactionContext.getXid();
+			TransactionXid xid = this.transactionContext.getXid();
 
-		this.cleanup(); // forget branch-transaction has been hueristic completed.
+			this.cleanup(); // forget branch-transaction has been hueristic completed.
 
-		repository.removeErrorTransaction(xid);
-		repository.removeTransaction(xid);
+			repository.removeErrorTransaction(xid);
+			repository.removeTransaction(xid);
 
-		transactionLogger.deleteTransaction(this.getTransactionArchive());
-	}
+			if (this.isPresumedAbortUnlogged() == false) {
+				transactionLogger.deleteTransaction(this.getTransactionArchive());
+			} // end-if (this.isPresumedAbortUnlogged() == false)
 
-	public synchronized void cleanup() throws SystemException {
-		boolean unFinishExists = false;
+			TransactionStatistic transactionStatistic = this.beanFactory.getTransactionStatistic();
+			if (transactionStatistic != null) {
+				transactionStatistic.fireCleanupTransaction(this);
+			} // end-if (transactionStatistic != null)
+		} finally {
+			this.lock.unlock();
+		}
+	}
 
-		for (int i = 0; i < this.participantList.size(); i++) {
-			XAResourceArchive archive = this.participantList.get(i);
-			Xid currentXid = archive.getXid();
-			if (archive.isHeuristic()) {
-				try {
-					Xid branchXid = archive.getXid();
-					archive.forget(branchXid);
-				} catch (XAException xae) {
-					// Possible exception values are XAER_RMERR, XAER_RMFAIL
-					// , XAER_NOTA, XAER_INVAL, or XAER_PROTO.
-					switch (xae.errorCode) {
-					case XAException.XAER_RMERR:
-						unFinishExists = true;
-						logger.error("{}> forget: xares= {}, branch={}, error= {}",
-								ByteUtils.byteArrayToString(currentXid.getGlobalTransactionId()), archive,
-								ByteUtils.byteArrayToString(currentXid.getBranchQualifier()), xae.errorCode);
-						break;
-					case XAException.XAER_RMFAIL:
-						unFinishExists = true;
-						logger.error("{}> forget: xares= {}, branch={}, error= {}",
-								ByteUtils.byteArrayToString(currentXid.getGlobalTransactionId()), archive,
-								ByteUtils.byteArrayToString(currentXid.getBranchQualifier()), xae.errorCode);
-						break;
-					case XAException.XAER_NOTA:
-					case XAException.XAER_INVAL:
-					case XAException.XAER_PROTO:
-						break;
-					default:
-						unFinishExists = true;
-						logger.error("{}> forget: xares= {}, branch={}, error= {}",
-								ByteUtils.byteArrayToString(currentXid.getGlobalTransactionId()), archive,
-								ByteUtils.byteArrayToString(currentXid.getBranchQualifier()), xae.errorCode);
+	public void cleanup() throws SystemException {
+		this.lock.lock();
+		try {
+			boolean unFinishExists = false;
+
+			for (int i = 0; i < this.participantList.size(); i++) {
+				XAResourceArchive archive = this.participantList.get(i);
+				Xid currentXid = archive.getXid();
+				if (archive.isHeuristic()) {
+					try {
+						Xid branchXid = archive.getXid();
+						archive.forget(branchXid);
+					} catch (XAException xae) {
+						// Possible exception values are XAER_RMERR, XAER_RMFAIL
+						// , XAER_NOTA, XAER_INVAL, or XAER_PROTO.
+						switch (xae.errorCode) {
+						case XAException.XAER_RMERR:
+							unFinishExists = true;
+							logger.error("{}> forget: xares= {}, branch={}, error= {}",
+									ByteUtils.byteArrayToString(currentXid.getGlobalTransactionId()), archive,
+									ByteUtils.byteArrayToString(currentXid.getBranchQualifier()), xae.errorCode);
+							break;
+						case XAException.XAER_RMFAIL:
+							unFinishExists = true;
+							logger.error("{}> forget: xares= {}, branch={}, error= {}",
+									ByteUtils.byteArrayToString(currentXid.getGlobalTransactionId()), archive,
+									ByteUtils.byteArrayToString(currentXid.getBranchQualifier()), xae.errorCode);
+							break;
+						case XAException.XAER_NOTA:
+						case XAException.XAER_INVAL:
+						case XAException.XAER_PROTO:
+							break;
+						default:
+							unFinishExists = true;
+							logger.error("{}> forget: xares= {}, branch={}, error= {}",
+									ByteUtils.byteArrayToString(currentXid.getGlobalTransactionId()), archive,
+									ByteUtils.byteArrayToString(currentXid.getBranchQualifier()), xae.errorCode);
+						}
 					}
-				}
-			} // end-if
-		} // end-for
+				} // end-if
+			} // end-for
 
-		if (unFinishExists) {
-			throw new SystemException("Error occurred while cleaning branch transaction!");
-		}
+			if (unFinishExists) {
+				throw new SystemException("Error occurred while cleaning branch transaction!");
+			}
 
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
 	public TransactionArchive getTransactionArchive() {
@@ -1489,13 +1741,23 @@ public class TransactionImpl implements Transaction {
 		this.resourceListenerList.registerTransactionResourceListener(listener);
 	}
 
-	public synchronized void stopTiming() {
-		this.setTiming(false);
+	public void stopTiming() {
+		this.lock.lock();
+		try {
+			this.setTiming(false);
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
-	public synchronized void changeTransactionTimeout(int timeout) {
-		long created = this.transactionContext.getCreatedTime();
-		transactionContext.setExpiredTime(created + timeout);
+	public void changeTransactionTimeout(int timeout) {
+		this.lock.lock();
+		try {
+			long created = this.transactionContext.getCreatedTime();
+			transactionContext.setExpiredTime(created + timeout);
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
 	public TransactionStrategy getTransactionStrategy() {
@@ -1508,6 +1770,93 @@ public class TransactionImpl implements Transaction {
 		}
 	}
 
+	/**
+	 * Under presumed-abort the coordinator forces nothing but its commit decision, a global transaction which has no
+	 * record in the tx-log is presumed to be rolled back. A transaction with a last resource is always logged: the last
+	 * resource is committed in one phase while the others are prepared, before the decision could be forced.
+	 */
+	private boolean isPresumedAbortUnlogged() {
+		if (this.transactionContext.isCoordinator() == false || this.transactionContext.isRecoveried()) {
+			return false;
+		} else if (this.decisionLogged) {
+			return false;
+		} else if (this.participant != null) {
+			return false; // LastResourceOptimizeStrategy/XATerminatorOptd
+		}
+
+		TransactionRecovery transactionRecovery = this.beanFactory.getTransactionRecovery();
+		return transactionRecovery != null && transactionRecovery.isPresumedAbort();
+	}
+
+	/**
+	 * Registers a remote invocation whose response is received asynchronously, possibly by another thread. The
+	 * transaction is not completed before the response has been received and the remote branch delisted.
+	 */
+	public void beginAsyncInvocation() {
+		this.invocationLock.lock();
+		try {
+			this.pendingInvocations++;
+		} finally {
+			this.invocationLock.unlock();
+		}
+	}
+
+	public void endAsyncInvocation() {
+		this.invocationLock.lock();
+		try {
+			this.pendingInvocations = Math.max(0, this.pendingInvocations - 1);
+			if (this.pendingInvocations == 0) {
+				this.invocationCompleted.signalAll();
+			} // end-if (this.pendingInvocations == 0)
+		} finally {
+			this.invocationLock.unlock();
+		}
+	}
+
+	/**
+	 * Waits for the pending asynchronous invocations, the transaction lock must not be held by the caller since the
+	 * responses need it to delist their branches.
+	 *
+	 * @return false if some invocations are still pending when the transaction expires.
+	 */
+	public boolean awaitAsyncInvocations() {
+		long expiredTime = this.transactionContext.getExpiredTime();
+		this.invocationLock.lock();
+		try {
+			while (this.pendingInvocations > 0) {
+				long remains = expiredTime - System.currentTimeMillis();
+				if (remains <= 0) {
+					return false;
+				}
+				this.invocationCompleted.await(remains, TimeUnit.MILLISECONDS);
+			}
+			return true;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return this.pendingInvocations == 0;
+		} finally {
+			this.invocationLock.unlock();
+		}
+	}
+
+	private boolean isAsyncCompletionSupported() {
+		if (this.transactionContext.isCoordinator() == false || this.transactionContext.isRecoveried()) {
+			return false;
+		} else if (this.nativeParticipantList.isEmpty() == false) {
+			return false; // the application would reuse its local connections while their branches are still locked
+		}
+		TransactionCompleter transactionCompleter = this.beanFactory.getTransactionCompleter();
+		return transactionCompleter != null && transactionCompleter.isEnabled();
+	}
+
+	/**
+	 * Returns true if the second phase has been handed over to the {@link TransactionCompletionPipeline}, which then
+	 * forgets the transaction on its own.
+	 */
+	public boolean isAsyncCompletion() {
+		return this.asyncCompletion;
+	}
+
 	private TransactionStrategy initGetTransactionStrategy() {
 		int nativeResNum = this.nativeParticipantList.size();
 		int remoteResNum = this.remoteParticipantList.size();
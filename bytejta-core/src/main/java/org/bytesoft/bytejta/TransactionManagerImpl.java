@@ -15,11 +15,10 @@
  */
 package org.bytesoft.bytejta;
 
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.transaction.HeuristicMixedException;
 import javax.transaction.HeuristicRollbackException;
@@ -30,6 +29,8 @@ import javax.transaction.Status;
 import javax.transaction.SystemException;
 import javax.transaction.xa.Xid;
 
+import org.bytesoft.bytejta.TransactionTimingWheel.TimingEntry;
+import org.bytesoft.bytejta.jfr.TransactionFlightRecorder;
 import org.bytesoft.common.utils.ByteUtils;
 import org.bytesoft.transaction.RollbackRequiredException;
 import org.bytesoft.transaction.Transaction;
@@ -40,6 +41,8 @@ import org.bytesoft.transaction.TransactionRepository;
 import org.bytesoft.transaction.aware.TransactionBeanFactoryAware;
 import org.bytesoft.transaction.aware.TransactionDebuggable;
 import org.bytesoft.transaction.remote.RemoteCoordinator;
+import org.bytesoft.transaction.supports.TransactionHolder;
+import org.bytesoft.transaction.supports.TransactionStatistic;
 import org.bytesoft.transaction.supports.TransactionTimer;
 import org.bytesoft.transaction.xa.TransactionXid;
 import org.bytesoft.transaction.xa.XidFactory;
@@ -53,8 +56,10 @@ public class TransactionManagerImpl
 	@javax.inject.Inject
 	private TransactionBeanFactory beanFactory;
 	private int timeoutSeconds = 5 * 60;
-	private final Map<Thread, Transaction> thread2txMap = new ConcurrentHashMap<Thread, Transaction>();
+	private TransactionHolder transactionHolder = new ThreadLocalTransactionHolder();
 	private final Map<Xid, Transaction> xid2txMap = new ConcurrentHashMap<Xid, Transaction>();
+	private final ConcurrentMap<Xid, TimingEntry> xid2timingMap = new ConcurrentHashMap<Xid, TimingEntry>();
+	private final TransactionTimingWheel timingWheel = new TransactionTimingWheel(1000L);
 	private boolean debuggingEnabled;
 
 	public void begin() throws NotSupportedException, SystemException {
@@ -89,7 +94,12 @@ public class TransactionManagerImpl
 		this.associateThread(transaction);
 		TransactionRepository transactionRepository = this.beanFactory.getTransactionRepository();
 		transactionRepository.putTransaction(globalXid, transaction);
-		// this.transactionStatistic.fireBeginTransaction(transaction);
+
+		TransactionStatistic transactionStatistic = this.beanFactory.getTransactionStatistic();
+		if (transactionStatistic != null) {
+			transactionStatistic.fireBeginTransaction(transaction);
+		} // end-if (transactionStatistic != null)
+		TransactionFlightRecorder.fireBeginTransaction(transaction);
 
 		logger.info("{}> begin-transaction", ByteUtils.byteArrayToString(globalXid.getGlobalTransactionId()));
 	}
@@ -110,6 +120,10 @@ public class TransactionManagerImpl
 			throw new HeuristicRollbackException();
 		} else if (transaction.getTransactionStatus() != Status.STATUS_ACTIVE) {
 			throw new IllegalStateException();
+		} else if (this.awaitAsyncInvocations(transaction) == false) {
+			logger.warn("Asynchronous remote invocations are still pending, the transaction will be rolled back.");
+			this.rollback(transaction);
+			throw new HeuristicRollbackException();
 		}
 
 		TransactionRepository transactionRepository = this.beanFactory.getTransactionRepository();
@@ -153,7 +167,9 @@ public class TransactionManagerImpl
 
 		try {
 			transaction.commit();
-			transaction.forgetQuietly(); // forget transaction
+			if (this.isAsyncCompletion(transaction) == false) {
+				transaction.forgetQuietly(); // forget transaction
+			} // end-if (this.isAsyncCompletion(transaction) == false)
 		} catch (IllegalStateException ex) {
 			logger.error("Error occurred while committing transaction.", ex);
 			transactionRepository.putErrorTransaction(transactionXid, transaction);
@@ -241,20 +257,30 @@ public class TransactionManagerImpl
 		TransactionContext transactionContext = transaction.getTransactionContext();
 		TransactionXid transactionXid = transactionContext.getXid();
 		this.xid2txMap.put(transactionXid, transaction);
-		this.thread2txMap.put(Thread.currentThread(), transaction);
+		this.transactionHolder.associate(transaction);
+		this.startTiming(transaction);
 	}
 
 	public Transaction desociateThread() {
-		Transaction transaction = this.thread2txMap.remove(Thread.currentThread());
+		Transaction transaction = this.transactionHolder.desociate();
 		if (transaction == null) {
 			return null;
 		}
 
 		TransactionContext transactionContext = transaction.getTransactionContext();
 		this.xid2txMap.remove(transactionContext.getXid());
+		this.cancelTiming(transaction);
 		return transaction;
 	}
 
+	public void bindThread(Transaction transaction) {
+		this.transactionHolder.associate(transaction);
+	}
+
+	public Transaction unbindThread() {
+		return this.transactionHolder.desociate();
+	}
+
 	public Transaction suspend() throws RollbackRequiredException, SystemException {
 		Transaction transaction = this.desociateThread();
 		if (transaction == null) {
@@ -294,7 +320,7 @@ public class TransactionManagerImpl
 	}
 
 	public Transaction getTransaction(Thread thread) {
-		return this.thread2txMap.get(thread);
+		return this.transactionHolder.getTransaction(thread);
 	}
 
 	public Transaction getTransactionQuietly() {
@@ -308,7 +334,7 @@ public class TransactionManagerImpl
 	}
 
 	public Transaction getTransaction() throws SystemException {
-		return this.thread2txMap.get(Thread.currentThread());
+		return this.transactionHolder.getTransaction();
 	}
 
 	public void setRollbackOnlyQuietly() {
@@ -336,27 +362,51 @@ public class TransactionManagerImpl
 			// ignore
 		} else {
 			((TransactionImpl) transaction).changeTransactionTimeout(seconds * 1000);
+			this.startTiming(transaction);
+		}
+	}
+
+	/**
+	 * Only the transactions associated with a thread are timed, they are scheduled on the timing wheel when they are
+	 * associated and cancelled when they are desociated or stop timing.
+	 */
+	private void startTiming(Transaction transaction) {
+		if (transaction.isTiming() == false) {
+			return;
+		}
+
+		TransactionContext transactionContext = transaction.getTransactionContext();
+		TimingEntry entry = this.timingWheel.schedule(transaction, transactionContext.getExpiredTime());
+		TimingEntry previous = this.xid2timingMap.put(transactionContext.getXid(), entry);
+		if (previous != null) {
+			this.timingWheel.cancel(previous);
+		}
+	}
+
+	private void cancelTiming(Transaction transaction) {
+		TransactionContext transactionContext = transaction.getTransactionContext();
+		TimingEntry entry = this.xid2timingMap.remove(transactionContext.getXid());
+		if (entry != null) {
+			this.timingWheel.cancel(entry);
 		}
 	}
 
 	public void timingExecution() {
-		List<Transaction> expiredTransactions = new ArrayList<Transaction>();
-		List<Transaction> activeTransactions = new ArrayList<Transaction>(this.thread2txMap.values());
 		long current = System.currentTimeMillis();
-		Iterator<Transaction> activeItr = activeTransactions.iterator();
-		while (activeItr.hasNext()) {
-			Transaction transaction = activeItr.next();
-			if (transaction.isTiming()) {
-				TransactionContext transactionContext = transaction.getTransactionContext();
-				if (transactionContext.getExpiredTime() <= current) {
-					expiredTransactions.add(transaction);
-				}
-			} // end-if (transaction.isTiming())
-		}
+		List<TimingEntry> expiredEntries = this.timingWheel.advance(current);
+		for (int i = 0; i < expiredEntries.size(); i++) {
+			TimingEntry entry = expiredEntries.get(i);
+			Transaction transaction = entry.getTransaction();
+			TransactionContext transactionContext = transaction.getTransactionContext();
+			if (this.xid2timingMap.remove(transactionContext.getXid(), entry) == false) {
+				continue; // rescheduled or desociated
+			} else if (transaction.isTiming() == false) {
+				continue;
+			} else if (transactionContext.getExpiredTime() > current) {
+				this.startTiming(transaction); // the timeout has been extended
+				continue;
+			}
 
-		Iterator<Transaction> expiredItr = expiredTransactions.iterator();
-		while (activeItr.hasNext()) {
-			Transaction transaction = expiredItr.next();
 			if (transaction.getTransactionStatus() == Status.STATUS_ACTIVE
 					|| transaction.getTransactionStatus() == Status.STATUS_MARKED_ROLLBACK) {
 				this.timingRollback(transaction);
@@ -388,6 +438,16 @@ public class TransactionManagerImpl
 		if (TransactionImpl.class.isInstance(transaction)) {
 			((TransactionImpl) transaction).stopTiming();
 		}
+		this.cancelTiming(transaction);
+	}
+
+	private boolean awaitAsyncInvocations(Transaction transaction) {
+		return TransactionImpl.class.isInstance(transaction) == false
+				|| ((TransactionImpl) transaction).awaitAsyncInvocations();
+	}
+
+	private boolean isAsyncCompletion(Transaction transaction) {
+		return TransactionImpl.class.isInstance(transaction) && ((TransactionImpl) transaction).isAsyncCompletion();
 	}
 
 	public boolean isDebuggingEnabled() {
@@ -406,6 +466,14 @@ public class TransactionManagerImpl
 		this.timeoutSeconds = timeoutSeconds;
 	}
 
+	public TransactionHolder getTransactionHolder() {
+		return transactionHolder;
+	}
+
+	public void setTransactionHolder(TransactionHolder transactionHolder) {
+		this.transactionHolder = transactionHolder;
+	}
+
 	public TransactionBeanFactory getBeanFactory() {
 		return this.beanFactory;
 	}
@@ -15,14 +15,33 @@
  */
 package org.bytesoft.bytejta;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.transaction.Status;
 import javax.transaction.SystemException;
+import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
 
 import org.apache.commons.lang3.StringUtils;
+import org.bytesoft.bytejta.jfr.TransactionFlightRecorder;
 import org.bytesoft.bytejta.supports.resource.RemoteResourceDescriptor;
 import org.bytesoft.common.utils.ByteUtils;
 import org.bytesoft.common.utils.CommonUtils;
@@ -40,7 +59,9 @@ import org.bytesoft.transaction.logging.TransactionLogger;
 import org.bytesoft.transaction.recovery.TransactionRecoveryCallback;
 import org.bytesoft.transaction.recovery.TransactionRecoveryListener;
 import org.bytesoft.transaction.remote.RemoteSvc;
+import org.bytesoft.transaction.supports.TransactionStatistic;
 import org.bytesoft.transaction.supports.resource.XAResourceDescriptor;
+import org.bytesoft.transaction.supports.serialize.XAResourceDeserializer;
 import org.bytesoft.transaction.xa.TransactionXid;
 import org.bytesoft.transaction.xa.XidFactory;
 import org.slf4j.Logger;
@@ -50,63 +71,241 @@ public class TransactionRecoveryImpl implements TransactionRecovery, Transaction
 	static final Logger logger = LoggerFactory.getLogger(TransactionRecoveryImpl.class);
 	static final long SECOND_MILLIS = 1000L;
 
+	private final Lock lock = new ReentrantLock();
+
 	private TransactionRecoveryListener listener;
 	@javax.inject.Inject
 	private TransactionBeanFactory beanFactory;
 	private volatile boolean initialized;
 
-	public synchronized void timingRecover() {
-		TransactionRepository transactionRepository = beanFactory.getTransactionRepository();
-		List<Transaction> transactions = transactionRepository.getErrorTransactionList();
-		int total = transactions == null ? 0 : transactions.size(), value = 0;
+	/* the number of workers used by startRecovery and timingRecover, values less than 2 keep the recovery serial */
+	private int recoveryThreads = 1;
+	/* the number of transactions which may be recovered against one resource at the same time, 0 means no limit */
+	private int resourceConcurrency = 0;
+	private final ConcurrentHashMap<String, Semaphore> resourcePermits = new ConcurrentHashMap<String, Semaphore>();
+	/* the coordinator only logs its commit decision, an in-doubt branch unknown to its coordinator is rolled back */
+	/* (transactions with a last resource are still logged in full, the last resource commits before the decision) */
+	private boolean presumedAbort;
+
+	public void timingRecover() {
+		this.lock.lock();
+		try {
+			TransactionRepository transactionRepository = beanFactory.getTransactionRepository();
+			List<Transaction> transactions = transactionRepository.getErrorTransactionList();
+			int total = transactions == null ? 0 : transactions.size(), value = 0;
+			List<Transaction> recoverableList = new ArrayList<Transaction>();
+			for (int i = 0; transactions != null && i < transactions.size(); i++) {
+				Transaction transaction = transactions.get(i);
+				TransactionContext transactionContext = transaction.getTransactionContext();
+				int recoveredTimes = transactionContext.getRecoveredTimes() > 10 ? 10 : transactionContext.getRecoveredTimes();
+				long recoverMillis = transactionContext.getCreatedTime() + SECOND_MILLIS * 60L * (long) Math.pow(2, recoveredTimes);
+
+				if (System.currentTimeMillis() < recoverMillis) {
+					continue;
+				} // end-if (System.currentTimeMillis() < recoverMillis)
+
+				recoverableList.add(transaction);
+			}
+
+			if (this.presumedAbort) {
+				List<Transaction> preparedList = this.getExpiredPreparedList(transactionRepository);
+				for (int i = 0; i < preparedList.size(); i++) {
+					Transaction transaction = preparedList.get(i);
+					if (recoverableList.contains(transaction) == false) {
+						recoverableList.add(transaction);
+					} // end-if (recoverableList.contains(transaction) == false)
+				}
+				total += preparedList.size();
+			} // end-if (this.presumedAbort)
+
+			if (this.recoveryThreads > 1 && recoverableList.size() > 1) {
+				value = this.parallelRecover(recoverableList);
+			} else {
+				for (int i = 0; i < recoverableList.size(); i++) {
+					value += this.recoverTransactionQuietly(recoverableList.get(i)) ? 1 : 0;
+				}
+			}
+
+			logger.debug("[transaction-recovery] total= {}, success= {}", total, value);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Under presumed-abort a coordinator which fails before its decision leaves no record to drive the rollback of the
+	 * prepared branches, so the branches which have outlived their transaction ask for the outcome themselves.
+	 */
+	private List<Transaction> getExpiredPreparedList(TransactionRepository transactionRepository) {
+		List<Transaction> transactions = transactionRepository.getActiveTransactionList();
+		List<Transaction> preparedList = new ArrayList<Transaction>();
+		long current = System.currentTimeMillis();
 		for (int i = 0; transactions != null && i < transactions.size(); i++) {
 			Transaction transaction = transactions.get(i);
 			TransactionContext transactionContext = transaction.getTransactionContext();
-			TransactionXid xid = transactionContext.getXid();
-			int recoveredTimes = transactionContext.getRecoveredTimes() > 10 ? 10 : transactionContext.getRecoveredTimes();
-			long recoverMillis = transactionContext.getCreatedTime() + SECOND_MILLIS * 60L * (long) Math.pow(2, recoveredTimes);
-
-			if (System.currentTimeMillis() < recoverMillis) {
+			if (transactionContext.isCoordinator() || transactionContext.isRecoveried()) {
+				continue;
+			} else if (transaction.getTransactionStatus() != Status.STATUS_PREPARED) {
 				continue;
-			} // end-if (System.currentTimeMillis() < recoverMillis)
+			}
 
+			long expiredTime = transactionContext.getExpiredTime();
+			if (expiredTime > 0 && current > expiredTime + SECOND_MILLIS * 60L) {
+				preparedList.add(transaction);
+			} // end-if (expiredTime > 0 && current > expiredTime + SECOND_MILLIS * 60L)
+		}
+		return preparedList;
+	}
+
+	/**
+	 * Submits one task per transaction to a pool created for this pass, so a slow transaction only holds its own worker
+	 * and the others are picked up by the idle ones. The list holds each transaction once, so a transaction is never
+	 * driven by two workers at the same time. The pool is shut down when the pass is over.
+	 */
+	private int parallelRecover(List<Transaction> transactions) {
+		final int total = transactions.size();
+		final int progressInterval = Math.max(1, total / 10);
+		final AtomicInteger completed = new AtomicInteger();
+		final AtomicInteger success = new AtomicInteger();
+
+		ThreadPoolExecutor executor = this.createRecoveryExecutor(Math.min(this.recoveryThreads, total));
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>(total);
+			for (int i = 0; i < total; i++) {
+				final Transaction transaction = transactions.get(i);
+				futures.add(executor.submit(new Runnable() {
+					public void run() {
+						if (recoverTransactionWithPermits(transaction)) {
+							success.incrementAndGet();
+						}
+
+						int count = completed.incrementAndGet();
+						if (count % progressInterval == 0 || count == total) {
+							logger.info("[transaction-recovery] progress= {}/{}, success= {}", count, total, success.get());
+						}
+					}
+				}));
+			}
+
+			this.awaitRecoveryWorkers(futures);
+		} finally {
+			executor.shutdown();
+		}
+
+		return success.get();
+	}
+
+	private void awaitRecoveryWorkers(List<Future<?>> futures) {
+		for (int i = 0; i < futures.size(); i++) {
 			try {
-				this.recoverTransaction(transaction);
-				value++;
-			} catch (CommitRequiredException ex) {
-				logger.debug("{}> recover: branch={}, message= commit-required",
-						ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
-						ByteUtils.byteArrayToString(xid.getBranchQualifier()), ex);
-				continue;
-			} catch (RollbackRequiredException ex) {
-				logger.debug("{}> recover: branch={}, message= rollback-required",
-						ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
-						ByteUtils.byteArrayToString(xid.getBranchQualifier()), ex);
-				continue;
-			} catch (SystemException ex) {
-				logger.debug("{}> recover: branch={}, message= {}", ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
-						ByteUtils.byteArrayToString(xid.getBranchQualifier()), ex.getMessage(), ex);
-				continue;
-			} catch (RuntimeException ex) {
-				logger.debug("{}> recover: branch={}, message= {}", ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
-						ByteUtils.byteArrayToString(xid.getBranchQualifier()), ex.getMessage(), ex);
-				continue;
+				futures.get(i).get();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				logger.warn("[transaction-recovery] interrupted while waiting for the recovery workers.");
+				break;
+			} catch (ExecutionException ex) {
+				logger.error("Error occurred while recovering transactions.", ex.getCause());
+			}
+		}
+	}
+
+	private boolean recoverTransactionWithPermits(Transaction transaction) {
+		if (this.resourceConcurrency <= 0 || TransactionImpl.class.isInstance(transaction) == false) {
+			return this.recoverTransactionQuietly(transaction);
+		}
+
+		Set<String> identifiers = new TreeSet<String>(); // acquired in a fixed order to avoid dead lock
+		List<XAResourceArchive> participants = ((TransactionImpl) transaction).getParticipantList();
+		for (int i = 0; participants != null && i < participants.size(); i++) {
+			XAResourceDescriptor descriptor = participants.get(i).getDescriptor();
+			identifiers.add(descriptor == null ? "" : StringUtils.trimToEmpty(descriptor.getIdentifier()));
+		}
+
+		List<Semaphore> acquiredList = new ArrayList<Semaphore>(identifiers.size());
+		try {
+			for (Iterator<String> itr = identifiers.iterator(); itr.hasNext();) {
+				Semaphore permits = this.getResourcePermits(itr.next());
+				permits.acquireUninterruptibly();
+				acquiredList.add(permits);
+			}
+
+			return this.recoverTransactionQuietly(transaction);
+		} finally {
+			for (int i = 0; i < acquiredList.size(); i++) {
+				acquiredList.get(i).release();
 			}
 		}
-		logger.debug("[transaction-recovery] total= {}, success= {}", total, value);
+	}
+
+	private Semaphore getResourcePermits(String identifier) {
+		Semaphore permits = this.resourcePermits.get(identifier);
+		if (permits == null) {
+			Semaphore created = new Semaphore(this.resourceConcurrency);
+			Semaphore existed = this.resourcePermits.putIfAbsent(identifier, created);
+			permits = existed == null ? created : existed;
+		}
+		return permits;
+	}
+
+	private ThreadPoolExecutor createRecoveryExecutor(int threads) {
+		return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					private final AtomicInteger counter = new AtomicInteger();
+
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "bytejta-recovery-" + this.counter.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	private boolean recoverTransactionQuietly(Transaction transaction) {
+		TransactionXid xid = transaction.getTransactionContext().getXid();
+		try {
+			this.recoverTransaction(transaction);
+			return true;
+		} catch (CommitRequiredException ex) {
+			logger.debug("{}> recover: branch={}, message= commit-required",
+					ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
+					ByteUtils.byteArrayToString(xid.getBranchQualifier()), ex);
+		} catch (RollbackRequiredException ex) {
+			logger.debug("{}> recover: branch={}, message= rollback-required",
+					ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
+					ByteUtils.byteArrayToString(xid.getBranchQualifier()), ex);
+		} catch (SystemException ex) {
+			logger.debug("{}> recover: branch={}, message= {}", ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
+					ByteUtils.byteArrayToString(xid.getBranchQualifier()), ex.getMessage(), ex);
+		} catch (RuntimeException ex) {
+			logger.debug("{}> recover: branch={}, message= {}", ByteUtils.byteArrayToString(xid.getGlobalTransactionId()),
+					ByteUtils.byteArrayToString(xid.getBranchQualifier()), ex.getMessage(), ex);
+		}
+		return false;
 	}
 
 	public void recoverTransaction(Transaction transaction)
 			throws CommitRequiredException, RollbackRequiredException, SystemException {
 
-		TransactionContext transactionContext = transaction.getTransactionContext();
-		boolean coordinator = transactionContext.isCoordinator();
-		if (coordinator) {
-			transaction.recover();
-			this.recoverCoordinator(transaction);
-		} else {
-			transaction.recover();
-			this.recoverParticipant(transaction);
+		TransactionStatistic transactionStatistic = this.beanFactory.getTransactionStatistic();
+		if (transactionStatistic != null && TransactionImpl.class.isInstance(transaction)) {
+			transactionStatistic.fireRecoverTransaction((TransactionImpl) transaction);
+		} // end-if (transactionStatistic != null)
+
+		long startNanos = System.nanoTime();
+		boolean success = false;
+		try {
+			TransactionContext transactionContext = transaction.getTransactionContext();
+			boolean coordinator = transactionContext.isCoordinator();
+			if (coordinator) {
+				transaction.recover();
+				this.recoverCoordinator(transaction);
+			} else {
+				transaction.recover();
+				this.recoverParticipant(transaction);
+			}
+			success = true;
+		} finally {
+			TransactionFlightRecorder.fireRecoverTransaction(transaction, success, System.nanoTime() - startNanos);
 		}
 
 	}
@@ -143,6 +342,11 @@ public class TransactionRecoveryImpl implements TransactionRecovery, Transaction
 		TransactionImpl transactionImpl = (TransactionImpl) transaction;
 		switch (transaction.getTransactionStatus()) {
 		case Status.STATUS_PREPARED:
+			if (this.presumedAbort && this.isPresumedAborted(transaction)) {
+				transactionImpl.recoveryRollback();
+				transactionImpl.forgetQuietly();
+			} // end-if (this.presumedAbort && this.isPresumedAborted(transaction))
+			break;
 		case Status.STATUS_COMMITTING:
 			break;
 		case Status.STATUS_COMMITTED:
@@ -159,31 +363,104 @@ public class TransactionRecoveryImpl implements TransactionRecovery, Transaction
 		}
 	}
 
-	public synchronized void startRecovery() {
-		final TransactionRepository transactionRepository = beanFactory.getTransactionRepository();
-		final TransactionLogger transactionLogger = beanFactory.getTransactionLogger();
-		transactionLogger.recover(new TransactionRecoveryCallback() {
-			public void recover(TransactionArchive archive) {
-				try {
-					TransactionImpl transaction = (TransactionImpl) reconstruct(archive);
-					if (listener != null) {
-						listener.onRecovery(transaction);
-					}
-					TransactionContext transactionContext = transaction.getTransactionContext();
-					TransactionXid globalXid = transactionContext.getXid();
-					transactionRepository.putTransaction(globalXid, transaction);
-					transactionRepository.putErrorTransaction(globalXid, transaction);
-				} catch (IllegalStateException ex) {
-					transactionLogger.deleteTransaction(archive);
+	/**
+	 * Asks the coordinator of the prepared branch for its in-doubt transactions, the branch is presumed to be aborted
+	 * if the coordinator has no record of its global transaction. An unreachable coordinator decides nothing, the
+	 * branch keeps waiting for it.
+	 */
+	private boolean isPresumedAborted(Transaction transaction) {
+		TransactionContext transactionContext = transaction.getTransactionContext();
+		Object propagatedBy = transactionContext.getPropagatedBy();
+		if (propagatedBy == null) {
+			return false;
+		}
+
+		XAResourceDeserializer resourceDeserializer = this.beanFactory.getResourceDeserializer();
+		XAResourceDescriptor descriptor = resourceDeserializer.deserialize(String.valueOf(propagatedBy));
+		if (RemoteResourceDescriptor.class.isInstance(descriptor) == false) {
+			return false;
+		}
+
+		byte[] globalTransactionId = transactionContext.getXid().getGlobalTransactionId();
+		try {
+			Xid[] xids = descriptor.recover(XAResource.TMSTARTRSCAN | XAResource.TMENDRSCAN);
+			for (int i = 0; xids != null && i < xids.length; i++) {
+				if (Arrays.equals(globalTransactionId, xids[i].getGlobalTransactionId())) {
+					return false;
 				}
+			}
+		} catch (XAException ex) {
+			logger.debug("{}> coordinator is unavailable, errorCode= {}", ByteUtils.byteArrayToString(globalTransactionId),
+					ex.errorCode);
+			return false;
+		} catch (RuntimeException ex) {
+			logger.debug("{}> coordinator is unavailable", ByteUtils.byteArrayToString(globalTransactionId), ex);
+			return false;
+		}
+
+		logger.info("{}> transaction is unknown to its coordinator, presumed to be rolled back",
+				ByteUtils.byteArrayToString(globalTransactionId));
+		return true;
+	}
+
+	/**
+	 * Reconstructs the transactions of the tx-log. With more than one recovery thread each archive, which holds all
+	 * the records of one xid, is reconstructed by a worker of a pool created for the startup, and the participant is
+	 * only marked ready once all of them are done; the recovery listener is then called from those workers.
+	 */
+	public void startRecovery() {
+		this.lock.lock();
+		try {
+			TransactionLogger transactionLogger = beanFactory.getTransactionLogger();
+			final ThreadPoolExecutor executor = //
+					this.recoveryThreads > 1 ? this.createRecoveryExecutor(this.recoveryThreads) : null;
+			final List<Future<?>> futures = new ArrayList<Future<?>>();
+			try {
+				transactionLogger.recover(new TransactionRecoveryCallback() {
+					public void recover(final TransactionArchive archive) {
+						if (executor == null) {
+							reconstructQuietly(archive);
+						} else {
+							futures.add(executor.submit(new Runnable() {
+								public void run() {
+									reconstructQuietly(archive);
+								}
+							}));
+						}
+					}
+				});
 
+				this.awaitRecoveryWorkers(futures);
+			} finally {
+				if (executor != null) {
+					executor.shutdown();
+				} // end-if (executor != null)
 			}
-		});
 
-		TransactionCoordinator transactionCoordinator = //
-				(TransactionCoordinator) this.beanFactory.getNativeParticipant();
-		transactionCoordinator.markParticipantReady();
-		this.initialized = true; // timingRecovery should be executed after initialization
+			TransactionCoordinator transactionCoordinator = //
+					(TransactionCoordinator) this.beanFactory.getNativeParticipant();
+			transactionCoordinator.markParticipantReady();
+			this.initialized = true; // timingRecovery should be executed after initialization
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	private void reconstructQuietly(TransactionArchive archive) {
+		TransactionRepository transactionRepository = beanFactory.getTransactionRepository();
+		TransactionLogger transactionLogger = beanFactory.getTransactionLogger();
+		try {
+			TransactionImpl transaction = (TransactionImpl) this.reconstruct(archive);
+			if (this.listener != null) {
+				this.listener.onRecovery(transaction);
+			}
+			TransactionContext transactionContext = transaction.getTransactionContext();
+			TransactionXid globalXid = transactionContext.getXid();
+			transactionRepository.putTransaction(globalXid, transaction);
+			transactionRepository.putErrorTransaction(globalXid, transaction);
+		} catch (IllegalStateException ex) {
+			transactionLogger.deleteTransaction(archive);
+		}
 	}
 
 	public org.bytesoft.transaction.Transaction reconstruct(TransactionArchive archive) throws IllegalStateException {
@@ -256,9 +533,14 @@ public class TransactionRecoveryImpl implements TransactionRecovery, Transaction
 		return transaction;
 	}
 
-	public synchronized void branchRecover() {
-		// For a completed global transaction, if its branch receives a business request again, it will be rolled back by the
-		// RM's timeout mechanism, there is no need to deal with it.
+	public void branchRecover() {
+		this.lock.lock();
+		try {
+			// For a completed global transaction, if its branch receives a business request again, it will be rolled back by the
+			// RM's timeout mechanism, there is no need to deal with it.
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
 	public boolean isInitialized() {
@@ -273,6 +555,30 @@ public class TransactionRecoveryImpl implements TransactionRecovery, Transaction
 		this.beanFactory = tbf;
 	}
 
+	public int getRecoveryThreads() {
+		return recoveryThreads;
+	}
+
+	public void setRecoveryThreads(int recoveryThreads) {
+		this.recoveryThreads = recoveryThreads;
+	}
+
+	public int getResourceConcurrency() {
+		return resourceConcurrency;
+	}
+
+	public void setResourceConcurrency(int resourceConcurrency) {
+		this.resourceConcurrency = resourceConcurrency;
+	}
+
+	public boolean isPresumedAbort() {
+		return presumedAbort;
+	}
+
+	public void setPresumedAbort(boolean presumedAbort) {
+		this.presumedAbort = presumedAbort;
+	}
+
 	public TransactionRecoveryListener getListener() {
 		return listener;
 	}
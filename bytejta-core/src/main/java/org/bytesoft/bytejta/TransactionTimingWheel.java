@@ -0,0 +1,170 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.bytesoft.transaction.Transaction;
+
+/**
+ * Hierarchical timing wheel holding the expiration time of the active transactions. Four levels of 64 slots cover
+ * 64 ticks, 64^2 ticks, 64^3 ticks and 64^4 ticks ahead; an entry is placed in the lowest level able to hold it and
+ * cascades down to the lower levels as the wheel turns. Scheduling and cancelling an entry are O(1), advancing the
+ * wheel only visits the slots of the elapsed ticks.
+ */
+public class TransactionTimingWheel {
+	static final int WHEEL_BITS = 6;
+	static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+	static final int WHEEL_MASK = WHEEL_SIZE - 1;
+	static final int WHEEL_LEVELS = 4;
+	static final long MAX_TICKS = (1L << (WHEEL_BITS * WHEEL_LEVELS)) - 1;
+
+	private final Lock lock = new ReentrantLock();
+	private final TimingEntry[][] wheels = new TimingEntry[WHEEL_LEVELS][WHEEL_SIZE];
+	private final long tickMillis;
+	private long nextTick = -1; /* the next tick to be processed */
+
+	public TransactionTimingWheel(long tickMillis) {
+		if (tickMillis <= 0) {
+			throw new IllegalArgumentException("The tick must be positive!");
+		}
+
+		this.tickMillis = tickMillis;
+		for (int level = 0; level < WHEEL_LEVELS; level++) {
+			for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+				TimingEntry head = new TimingEntry(null, 0);
+				head.prev = head;
+				head.next = head;
+				this.wheels[level][slot] = head;
+			}
+		}
+	}
+
+	public TimingEntry schedule(Transaction transaction, long expiredMillis) {
+		TimingEntry entry = new TimingEntry(transaction, expiredMillis / this.tickMillis);
+		try {
+			this.lock.lock();
+			if (this.nextTick < 0) {
+				this.nextTick = System.currentTimeMillis() / this.tickMillis;
+			}
+			this.place(entry);
+		} finally {
+			this.lock.unlock();
+		}
+		return entry;
+	}
+
+	public void cancel(TimingEntry entry) {
+		try {
+			this.lock.lock();
+			this.unlink(entry);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Turns the wheel up to the specified time and returns the entries which have expired, they are no longer scheduled.
+	 */
+	public List<TimingEntry> advance(long currentMillis) {
+		List<TimingEntry> expiredEntries = new ArrayList<TimingEntry>();
+		long currentTick = currentMillis / this.tickMillis;
+		try {
+			this.lock.lock();
+			if (this.nextTick < 0) {
+				this.nextTick = currentTick;
+			}
+
+			for (; this.nextTick <= currentTick; this.nextTick++) {
+				int index = (int) (this.nextTick & WHEEL_MASK);
+				for (int level = 1; index == 0 && level < WHEEL_LEVELS; level++) {
+					index = (int) ((this.nextTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+					this.cascade(level, index);
+				}
+
+				TimingEntry head = this.wheels[0][(int) (this.nextTick & WHEEL_MASK)];
+				while (head.next != head) {
+					TimingEntry entry = head.next;
+					this.unlink(entry);
+					if (entry.expiredTick > this.nextTick) {
+						this.place(entry); // beyond the range of the wheel when scheduled
+					} else {
+						expiredEntries.add(entry);
+					}
+				}
+			}
+		} finally {
+			this.lock.unlock();
+		}
+		return expiredEntries;
+	}
+
+	private void cascade(int level, int index) {
+		TimingEntry head = this.wheels[level][index];
+		while (head.next != head) {
+			TimingEntry entry = head.next;
+			this.unlink(entry);
+			this.place(entry);
+		}
+	}
+
+	private void place(TimingEntry entry) {
+		long ticks = entry.expiredTick - this.nextTick;
+		long tick = ticks > MAX_TICKS ? this.nextTick + MAX_TICKS : Math.max(entry.expiredTick, this.nextTick);
+
+		int level = 0;
+		for (long delta = tick - this.nextTick; level < WHEEL_LEVELS - 1 && delta >= WHEEL_SIZE; level++) {
+			delta = delta >>> WHEEL_BITS;
+		}
+
+		TimingEntry head = this.wheels[level][(int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK)];
+		entry.prev = head.prev;
+		entry.next = head;
+		head.prev.next = entry;
+		head.prev = entry;
+	}
+
+	private void unlink(TimingEntry entry) {
+		if (entry.prev == null) {
+			return; // expired or cancelled already
+		}
+
+		entry.prev.next = entry.next;
+		entry.next.prev = entry.prev;
+		entry.prev = null;
+		entry.next = null;
+	}
+
+	public static class TimingEntry {
+		private final Transaction transaction;
+		private final long expiredTick;
+		private TimingEntry prev;
+		private TimingEntry next;
+
+		private TimingEntry(Transaction transaction, long expiredTick) {
+			this.transaction = transaction;
+			this.expiredTick = expiredTick;
+		}
+
+		public Transaction getTransaction() {
+			return transaction;
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.jfr;
+
+import org.bytesoft.bytejta.TransactionImpl;
+import org.bytesoft.transaction.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Entry point of the Java Flight Recorder events of the transaction lifecycle. The events are emitted by a
+ * {@link FlightRecorderSupport} which is only loaded when both the running JVM and the build provide JFR, so that this
+ * class can be called unconditionally from the transaction code paths.
+ */
+public final class TransactionFlightRecorder {
+	static final Logger logger = LoggerFactory.getLogger(TransactionFlightRecorder.class);
+
+	static final String SUPPORT_CLASS_NAME = "org.bytesoft.bytejta.jfr.FlightRecorderEvents";
+	static final FlightRecorderSupport SUPPORT = createFlightRecorderSupport();
+
+	private TransactionFlightRecorder() {
+	}
+
+	static FlightRecorderSupport createFlightRecorderSupport() {
+		try {
+			Class.forName("jdk.jfr.FlightRecorder");
+		} catch (ClassNotFoundException ex) {
+			return null; // the current jvm does not provide JFR
+		}
+
+		try {
+			Class<?> clazz = Class.forName(SUPPORT_CLASS_NAME);
+			return (FlightRecorderSupport) clazz.getDeclaredConstructor().newInstance();
+		} catch (ClassNotFoundException ex) {
+			logger.debug("Java Flight Recorder events are not included in this build.");
+			return null;
+		} catch (Exception ex) {
+			logger.debug("Java Flight Recorder is not supported by the current jvm.", ex);
+			return null;
+		} catch (LinkageError ex) {
+			logger.debug("Java Flight Recorder is not supported by the current jvm.", ex);
+			return null;
+		}
+	}
+
+	public static void fireBeginTransaction(TransactionImpl transaction) {
+		if (SUPPORT != null) {
+			SUPPORT.fireBeginTransaction(transaction);
+		}
+	}
+
+	public static void fireRecoverTransaction(Transaction transaction, boolean success, long costNanos) {
+		if (SUPPORT != null) {
+			SUPPORT.fireRecoverTransaction(transaction, success, costNanos);
+		}
+	}
+
+	public static void fireLoggingWrite(long costNanos) {
+		if (SUPPORT != null) {
+			SUPPORT.fireLoggingWrite(costNanos);
+		}
+	}
+
+	public static void fireLoggingFlush(long costNanos) {
+		if (SUPPORT != null) {
+			SUPPORT.fireLoggingFlush(costNanos);
+		}
+	}
+
+	public static boolean isAvailable() {
+		return SUPPORT != null;
+	}
+
+}
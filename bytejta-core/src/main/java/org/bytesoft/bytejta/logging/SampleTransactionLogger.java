@@ -37,10 +37,9 @@ import org.bytesoft.transaction.aware.TransactionEndpointAware;
 import org.bytesoft.transaction.logging.ArchiveDeserializer;
 import org.bytesoft.transaction.logging.LoggingFlushable;
 import org.bytesoft.transaction.logging.TransactionLogger;
-import org.bytesoft.transaction.logging.store.VirtualLoggingListener;
 import org.bytesoft.transaction.logging.store.VirtualLoggingRecord;
-import org.bytesoft.transaction.logging.store.VirtualLoggingSystem;
 import org.bytesoft.transaction.recovery.TransactionRecoveryCallback;
+import org.bytesoft.transaction.supports.TransactionStatistic;
 import org.bytesoft.transaction.xa.TransactionXid;
 import org.bytesoft.transaction.xa.XidFactory;
 import org.slf4j.Logger;
@@ -53,6 +52,7 @@ public class SampleTransactionLogger extends VirtualLoggingSystemImpl
 	@javax.inject.Inject
 	private TransactionBeanFactory beanFactory;
 	private String identifier;
+	private final TransactionLoggingBatch batch = new TransactionLoggingBatch();
 
 	@PostConstruct
 	public void construct() throws IOException {
@@ -83,6 +83,7 @@ public class SampleTransactionLogger extends VirtualLoggingSystemImpl
 	public void updateTransaction(TransactionArchive archive) {
 		ArchiveDeserializer deserializer = this.beanFactory.getArchiveDeserializer();
 
+		this.batch.cover(archive.getXid());
 		try {
 			byte[] byteArray = deserializer.serialize((TransactionXid) archive.getXid(), archive);
 			this.modify(archive.getXid(), byteArray);
@@ -103,6 +104,10 @@ public class SampleTransactionLogger extends VirtualLoggingSystemImpl
 	}
 
 	public void updateParticipant(XAResourceArchive archive) {
+		if (archive.isHeuristic() == false && this.batch.defer(archive.getXid())) {
+			return; // heuristic outcomes are written at once, a crash must not lose them
+		}
+
 		ArchiveDeserializer deserializer = this.beanFactory.getArchiveDeserializer();
 
 		try {
@@ -116,6 +121,20 @@ public class SampleTransactionLogger extends VirtualLoggingSystemImpl
 	public void deleteParticipant(XAResourceArchive archive) {
 	}
 
+	public void beginBatch(Xid xid) {
+		this.batch.begin(xid);
+	}
+
+	public void endBatch(TransactionArchive archive) {
+		if (this.batch.end(archive.getXid())) {
+			this.updateTransaction(archive);
+		}
+	}
+
+	public void cancelBatch(Xid xid) {
+		this.batch.end(xid);
+	}
+
 	public void createResource(XAResourceArchive archive) {
 	}
 
@@ -125,6 +144,13 @@ public class SampleTransactionLogger extends VirtualLoggingSystemImpl
 	public void deleteResource(XAResourceArchive archive) {
 	}
 
+	protected void afterWrite(long costNanos) {
+		TransactionStatistic transactionStatistic = this.beanFactory.getTransactionStatistic();
+		if (transactionStatistic != null) {
+			transactionStatistic.fireLoggingCompleted(costNanos);
+		}
+	}
+
 	public List<VirtualLoggingRecord> compressIfNecessary(List<VirtualLoggingRecord> recordList) {
 		ArchiveDeserializer deserializer = this.beanFactory.getArchiveDeserializer();
 		XidFactory xidFactory = this.beanFactory.getXidFactory();
@@ -224,99 +250,12 @@ public class SampleTransactionLogger extends VirtualLoggingSystemImpl
 	}
 
 	public void recover(TransactionRecoveryCallback callback) {
+		ArchiveDeserializer deserializer = this.beanFactory.getArchiveDeserializer();
+		XidFactory xidFactory = this.beanFactory.getXidFactory();
 
-		final Map<Xid, TransactionArchive> xidMap = new HashMap<Xid, TransactionArchive>();
-		final ArchiveDeserializer deserializer = this.beanFactory.getArchiveDeserializer();
-		final XidFactory xidFactory = this.beanFactory.getXidFactory();
-
-		this.traversal(new VirtualLoggingListener() {
-			public void recvOperation(VirtualLoggingRecord action) {
-				Xid xid = action.getIdentifier();
-				int operator = action.getOperator();
-				if (VirtualLoggingSystem.OPERATOR_DELETE == operator) {
-					xidMap.remove(xid);
-				} else if (xidMap.containsKey(xid) == false) {
-					xidMap.put(xid, null);
-				}
-			}
-		});
-
-		this.traversal(new VirtualLoggingListener() {
-			public void recvOperation(VirtualLoggingRecord action) {
-				Xid xid = action.getIdentifier();
-				if (xidMap.containsKey(xid)) {
-					this.execOperation(action);
-				}
-			}
-
-			public void execOperation(VirtualLoggingRecord action) {
-				Xid identifier = action.getIdentifier();
-
-				TransactionXid xid = xidFactory.createGlobalXid(identifier.getGlobalTransactionId());
-
-				Object obj = deserializer.deserialize(xid, action.getValue());
-				if (TransactionArchive.class.isInstance(obj)) {
-					TransactionArchive archive = (TransactionArchive) obj;
-					xidMap.put(identifier, archive);
-				} else if (XAResourceArchive.class.isInstance(obj)) {
-					TransactionArchive archive = xidMap.get(identifier);
-					if (archive == null) {
-						logger.error("Error occurred while recovering resource archive: {}", obj);
-						return;
-					}
-
-					XAResourceArchive resourceArchive = (XAResourceArchive) obj;
-					boolean matched = false;
-
-					List<XAResourceArchive> nativeResources = archive.getNativeResources();
-					for (int i = 0; matched == false && nativeResources != null && i < nativeResources.size(); i++) {
-						XAResourceArchive element = nativeResources.get(i);
-						if (resourceArchive.getXid().equals(element.getXid())) {
-							matched = true;
-							nativeResources.set(i, resourceArchive);
-						}
-					}
-
-					XAResourceArchive optimizedResource = archive.getOptimizedResource();
-					if (matched == false && optimizedResource != null) {
-						if (resourceArchive.getXid().equals(optimizedResource.getXid())) {
-							matched = true;
-							archive.setOptimizedResource(resourceArchive);
-						}
-					}
-
-					List<XAResourceArchive> remoteResources = archive.getRemoteResources();
-					for (int i = 0; matched == false && remoteResources != null && i < remoteResources.size(); i++) {
-						XAResourceArchive element = remoteResources.get(i);
-						if (resourceArchive.getXid().equals(element.getXid())) {
-							matched = true;
-							remoteResources.set(i, resourceArchive);
-						}
-					}
-
-					if (matched == false) {
-						logger.error("Error occurred while recovering resource archive: {}, invalid resoure!", obj);
-					}
-
-				}
-
-			}
-		});
-
-		for (Iterator<Map.Entry<Xid, TransactionArchive>> itr = xidMap.entrySet().iterator(); itr.hasNext();) {
-			Map.Entry<Xid, TransactionArchive> entry = itr.next();
-			TransactionArchive archive = entry.getValue();
-			if (archive == null) {
-				continue;
-			} else {
-				try {
-					callback.recover(archive);
-				} catch (RuntimeException rex) {
-					logger.error("Error occurred while recovering transaction(xid= {}).", archive.getXid(), rex);
-				}
-			}
-		}
-
+		TransactionArchiveAssembler assembler = new TransactionArchiveAssembler(deserializer, xidFactory);
+		this.traversalLiveRecords(assembler);
+		assembler.fireRecover(callback);
 	}
 
 	public File getDefaultDirectory() {
@@ -0,0 +1,205 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.logging;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.annotation.PostConstruct;
+import javax.transaction.xa.Xid;
+
+import org.apache.commons.lang3.StringUtils;
+import org.bytesoft.bytejta.logging.store.SegmentedLoggingSystemImpl;
+import org.bytesoft.transaction.TransactionBeanFactory;
+import org.bytesoft.transaction.archive.TransactionArchive;
+import org.bytesoft.transaction.archive.XAResourceArchive;
+import org.bytesoft.transaction.aware.TransactionBeanFactoryAware;
+import org.bytesoft.transaction.aware.TransactionEndpointAware;
+import org.bytesoft.transaction.logging.ArchiveDeserializer;
+import org.bytesoft.transaction.logging.LoggingFlushable;
+import org.bytesoft.transaction.logging.TransactionLogger;
+import org.bytesoft.transaction.recovery.TransactionRecoveryCallback;
+import org.bytesoft.transaction.supports.TransactionStatistic;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.bytesoft.transaction.xa.XidFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class SegmentedTransactionLogger extends SegmentedLoggingSystemImpl
+		implements TransactionLogger, LoggingFlushable, TransactionBeanFactoryAware, TransactionEndpointAware {
+	static final Logger logger = LoggerFactory.getLogger(SegmentedTransactionLogger.class);
+
+	@javax.inject.Inject
+	private TransactionBeanFactory beanFactory;
+	private String identifier;
+	private final TransactionLoggingBatch batch = new TransactionLoggingBatch();
+
+	@PostConstruct
+	public void construct() throws IOException {
+		this.initializeIfNecessary();
+	}
+
+	private void initializeIfNecessary() throws IllegalStateException {
+		if (StringUtils.isNotBlank(this.identifier)) {
+			try {
+				super.construct();
+			} catch (IOException error) {
+				throw new IllegalStateException("Error occurred while initializing tx-log!", error);
+			}
+		} // end-if (StringUtils.isNotBlank(this.endpoint))
+	}
+
+	public void createTransaction(TransactionArchive archive) {
+		ArchiveDeserializer deserializer = this.beanFactory.getArchiveDeserializer();
+
+		try {
+			byte[] byteArray = deserializer.serialize((TransactionXid) archive.getXid(), archive);
+			this.create(archive.getXid(), byteArray);
+		} catch (RuntimeException rex) {
+			logger.error("Error occurred while creating transaction-archive.", rex);
+		}
+	}
+
+	public void updateTransaction(TransactionArchive archive) {
+		ArchiveDeserializer deserializer = this.beanFactory.getArchiveDeserializer();
+
+		this.batch.cover(archive.getXid());
+		try {
+			byte[] byteArray = deserializer.serialize((TransactionXid) archive.getXid(), archive);
+			this.modify(archive.getXid(), byteArray);
+		} catch (RuntimeException rex) {
+			logger.error("Error occurred while modifying transaction-archive.", rex);
+		}
+	}
+
+	public void deleteTransaction(TransactionArchive archive) {
+		try {
+			this.delete(archive.getXid());
+		} catch (RuntimeException rex) {
+			logger.error("Error occurred while deleting transaction-archive.", rex);
+		}
+	}
+
+	public void createParticipant(XAResourceArchive archive) {
+	}
+
+	public void updateParticipant(XAResourceArchive archive) {
+		if (archive.isHeuristic() == false && this.batch.defer(archive.getXid())) {
+			return; // heuristic outcomes are written at once, a crash must not lose them
+		}
+
+		ArchiveDeserializer deserializer = this.beanFactory.getArchiveDeserializer();
+
+		try {
+			byte[] byteArray = deserializer.serialize((TransactionXid) archive.getXid(), archive);
+			this.modify(archive.getXid(), byteArray);
+		} catch (RuntimeException rex) {
+			logger.error("Error occurred while modifying resource-archive.", rex);
+		}
+	}
+
+	public void deleteParticipant(XAResourceArchive archive) {
+	}
+
+	public void beginBatch(Xid xid) {
+		this.batch.begin(xid);
+	}
+
+	public void endBatch(TransactionArchive archive) {
+		if (this.batch.end(archive.getXid())) {
+			this.updateTransaction(archive);
+		}
+	}
+
+	public void cancelBatch(Xid xid) {
+		this.batch.end(xid);
+	}
+
+	public void createResource(XAResourceArchive archive) {
+	}
+
+	public void updateResource(XAResourceArchive archive) {
+	}
+
+	public void deleteResource(XAResourceArchive archive) {
+	}
+
+	protected void afterWrite(long costNanos) {
+		TransactionStatistic transactionStatistic = this.beanFactory.getTransactionStatistic();
+		if (transactionStatistic != null) {
+			transactionStatistic.fireLoggingCompleted(costNanos);
+		}
+	}
+
+	public void recover(TransactionRecoveryCallback callback) {
+		ArchiveDeserializer deserializer = this.beanFactory.getArchiveDeserializer();
+		XidFactory xidFactory = this.beanFactory.getXidFactory();
+
+		TransactionArchiveAssembler assembler = new TransactionArchiveAssembler(deserializer, xidFactory);
+		this.traversal(assembler);
+		assembler.fireRecover(callback);
+	}
+
+	public File getDefaultDirectory() {
+		String address = StringUtils.trimToEmpty(this.identifier);
+		File directory = new File(String.format("bytejta/%s/segments", address.replaceAll("\\W", "_")));
+		if (directory.exists() == false) {
+			try {
+				boolean created = directory.mkdirs();
+				if (created == false) {
+					logger.error("Failed to create directory {}!", directory.getAbsolutePath());
+				} // end-if (created == false)
+			} catch (SecurityException ex) {
+				logger.error("Error occurred while creating directory {}!", directory.getAbsolutePath(), ex);
+			}
+		}
+		return directory;
+	}
+
+	public int getMajorVersion() {
+		return 0;
+	}
+
+	public int getMinorVersion() {
+		return 6;
+	}
+
+	public String getLoggingFilePrefix() {
+		return "bytejta-";
+	}
+
+	public String getLoggingIdentifier() {
+		return "org.bytesoft.bytejta.logging.segmented";
+	}
+
+	public String getEndpoint() {
+		return identifier;
+	}
+
+	public void setEndpoint(String identifier) {
+		this.identifier = identifier;
+		this.initializeIfNecessary();
+	}
+
+	public TransactionBeanFactory getBeanFactory() {
+		return beanFactory;
+	}
+
+	public void setBeanFactory(TransactionBeanFactory beanFactory) {
+		this.beanFactory = beanFactory;
+	}
+
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.logging;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.transaction.xa.Xid;
+
+import org.bytesoft.transaction.archive.TransactionArchive;
+import org.bytesoft.transaction.archive.XAResourceArchive;
+import org.bytesoft.transaction.logging.ArchiveDeserializer;
+import org.bytesoft.transaction.logging.store.VirtualLoggingListener;
+import org.bytesoft.transaction.logging.store.VirtualLoggingRecord;
+import org.bytesoft.transaction.logging.store.VirtualLoggingSystem;
+import org.bytesoft.transaction.recovery.TransactionRecoveryCallback;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.bytesoft.transaction.xa.XidFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rebuilds the transaction archives from the records of a tx-log, in the order they were written: a transaction record
+ * replaces the archive of its xid, a resource record is merged into it and a delete record drops it.
+ */
+public class TransactionArchiveAssembler implements VirtualLoggingListener {
+	static final Logger logger = LoggerFactory.getLogger(TransactionArchiveAssembler.class);
+
+	private final Map<Xid, TransactionArchive> archiveMap = new LinkedHashMap<Xid, TransactionArchive>();
+	private final ArchiveDeserializer deserializer;
+	private final XidFactory xidFactory;
+
+	public TransactionArchiveAssembler(ArchiveDeserializer deserializer, XidFactory xidFactory) {
+		this.deserializer = deserializer;
+		this.xidFactory = xidFactory;
+	}
+
+	public void recvOperation(VirtualLoggingRecord action) {
+		Xid identifier = action.getIdentifier();
+		if (VirtualLoggingSystem.OPERATOR_DELETE == action.getOperator()) {
+			this.archiveMap.remove(identifier);
+			return;
+		}
+
+		TransactionXid xid = this.xidFactory.createGlobalXid(identifier.getGlobalTransactionId());
+		Object obj = this.deserializer.deserialize(xid, action.getValue());
+		if (TransactionArchive.class.isInstance(obj)) {
+			this.archiveMap.put(identifier, (TransactionArchive) obj);
+		} else if (XAResourceArchive.class.isInstance(obj)) {
+			TransactionArchive archive = this.archiveMap.get(identifier);
+			if (archive == null) {
+				logger.error("Error occurred while recovering resource archive: {}", obj);
+			} else {
+				this.mergeResourceArchive(archive, (XAResourceArchive) obj);
+			}
+		} else {
+			logger.error("Error occurred while recovering resource archive: {}", obj);
+		}
+	}
+
+	private void mergeResourceArchive(TransactionArchive archive, XAResourceArchive resourceArchive) {
+		boolean matched = false;
+
+		List<XAResourceArchive> nativeResources = archive.getNativeResources();
+		for (int i = 0; matched == false && nativeResources != null && i < nativeResources.size(); i++) {
+			XAResourceArchive element = nativeResources.get(i);
+			if (resourceArchive.getXid().equals(element.getXid())) {
+				matched = true;
+				nativeResources.set(i, resourceArchive);
+			}
+		}
+
+		XAResourceArchive optimizedResource = archive.getOptimizedResource();
+		if (matched == false && optimizedResource != null) {
+			if (resourceArchive.getXid().equals(optimizedResource.getXid())) {
+				matched = true;
+				archive.setOptimizedResource(resourceArchive);
+			}
+		}
+
+		List<XAResourceArchive> remoteResources = archive.getRemoteResources();
+		for (int i = 0; matched == false && remoteResources != null && i < remoteResources.size(); i++) {
+			XAResourceArchive element = remoteResources.get(i);
+			if (resourceArchive.getXid().equals(element.getXid())) {
+				matched = true;
+				remoteResources.set(i, resourceArchive);
+			}
+		}
+
+		if (matched == false) {
+			logger.error("Error occurred while recovering resource archive: {}, invalid resoure!", resourceArchive);
+		}
+	}
+
+	public void fireRecover(TransactionRecoveryCallback callback) {
+		for (Iterator<Map.Entry<Xid, TransactionArchive>> itr = this.archiveMap.entrySet().iterator(); itr.hasNext();) {
+			Map.Entry<Xid, TransactionArchive> entry = itr.next();
+			TransactionArchive archive = entry.getValue();
+			try {
+				callback.recover(archive);
+			} catch (RuntimeException rex) {
+				logger.error("Error occurred while recovering transaction(xid= {}).", archive.getXid(), rex);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.logging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.transaction.xa.Xid;
+
+import org.bytesoft.transaction.logging.store.VirtualLoggingKey;
+
+/**
+ * Tracks the global transactions whose current phase is logged as a batch. While a batch is open, participant updates
+ * are not appended on their own but only mark the batch as dirty: the transaction-archive, which embeds every
+ * participant, is appended once at the end of the phase and carries all of them in a single record. Heuristic outcomes
+ * are never deferred.
+ */
+public class TransactionLoggingBatch {
+
+	private final Map<VirtualLoggingKey, AtomicBoolean> batches = new ConcurrentHashMap<VirtualLoggingKey, AtomicBoolean>();
+
+	public void begin(Xid xid) {
+		this.batches.put(this.createKey(xid), new AtomicBoolean());
+	}
+
+	/**
+	 * Returns true if a batch is open for the global transaction, in which case the update has been deferred.
+	 */
+	public boolean defer(Xid xid) {
+		if (this.batches.isEmpty()) {
+			return false;
+		}
+
+		AtomicBoolean dirty = this.batches.get(this.createKey(xid));
+		if (dirty == null) {
+			return false;
+		}
+
+		dirty.set(true);
+		return true;
+	}
+
+	/**
+	 * Called before the transaction-archive is appended, all the deferred updates are covered by it.
+	 */
+	public void cover(Xid xid) {
+		if (this.batches.isEmpty()) {
+			return;
+		}
+
+		AtomicBoolean dirty = this.batches.get(this.createKey(xid));
+		if (dirty != null) {
+			dirty.set(false);
+		}
+	}
+
+	/**
+	 * Closes the batch, returns true if some deferred updates have not been covered by a transaction-archive yet.
+	 */
+	public boolean end(Xid xid) {
+		AtomicBoolean dirty = this.batches.remove(this.createKey(xid));
+		return dirty != null && dirty.get();
+	}
+
+	private VirtualLoggingKey createKey(Xid xid) {
+		VirtualLoggingKey key = new VirtualLoggingKey();
+		key.setGlobalTransactionId(xid.getGlobalTransactionId());
+		return key;
+	}
+
+}
@@ -27,7 +27,9 @@ import org.bytesoft.transaction.TransactionBeanFactory;
 import org.bytesoft.transaction.archive.XAResourceArchive;
 import org.bytesoft.transaction.aware.TransactionBeanFactoryAware;
 import org.bytesoft.transaction.logging.ArchiveDeserializer;
+import org.bytesoft.transaction.supports.TransactionStatistic;
 import org.bytesoft.transaction.supports.resource.XAResourceDescriptor;
+import org.bytesoft.transaction.supports.resource.XAResourceStatistic;
 import org.bytesoft.transaction.supports.serialize.XAResourceDeserializer;
 import org.bytesoft.transaction.xa.TransactionXid;
 import org.bytesoft.transaction.xa.XidFactory;
@@ -124,6 +126,15 @@ public class XAResourceArchiveDeserializer implements ArchiveDeserializer, Trans
 
 		archive.setDescriptor(descriptor);
 
+		if (RemoteResourceDescriptor.class.isInstance(descriptor)) {
+			((RemoteResourceDescriptor) descriptor).setCoalescer(this.beanFactory.getBatchCoalescer());
+		} // end-if (RemoteResourceDescriptor.class.isInstance(descriptor))
+
+		TransactionStatistic transactionStatistic = this.beanFactory.getTransactionStatistic();
+		if (XAResourceStatistic.class.isInstance(transactionStatistic)) {
+			archive.setStatistic((XAResourceStatistic) transactionStatistic);
+		} // end-if (XAResourceStatistic.class.isInstance(transactionStatistic))
+
 		int branchVote = buffer.get();
 		int readonly = buffer.get();
 		int committedValue = buffer.get();
@@ -0,0 +1,558 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.logging.store;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.resource.spi.work.Work;
+import javax.transaction.xa.Xid;
+
+import org.bytesoft.bytejta.jfr.TransactionFlightRecorder;
+import org.bytesoft.common.utils.ByteUtils;
+import org.bytesoft.common.utils.CommonUtils;
+import org.bytesoft.transaction.logging.store.VirtualLoggingKey;
+import org.bytesoft.transaction.logging.store.VirtualLoggingListener;
+import org.bytesoft.transaction.logging.store.VirtualLoggingRecord;
+import org.bytesoft.transaction.logging.store.VirtualLoggingSystem;
+import org.bytesoft.transaction.xa.XidFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public abstract class SegmentedLoggingSystemImpl implements VirtualLoggingSystem, Work {
+	static final Logger logger = LoggerFactory.getLogger(SegmentedLoggingSystemImpl.class);
+
+	static final String SEGMENT_SUFFIX = ".seg";
+	static final String MANIFEST_NAME = "manifest";
+
+	private final Lock lock = new ReentrantLock();
+	/* traversals hold the read lock, compaction may only destroy segments while holding the write lock */
+	private final ReentrantReadWriteLock traversalLock = new ReentrantReadWriteLock();
+	/* serializes manifest writes, the latest written version wins */
+	private final Lock manifestLock = new ReentrantLock();
+	private long manifestVersion; // guarded by lock
+	private long writtenManifestVersion; // guarded by manifestLock
+	private final Lock timingLock = new ReentrantLock();
+	private final Condition timingCondition = this.timingLock.newCondition();
+
+	private volatile boolean released;
+	private boolean initialized;
+
+	private File directory;
+
+	private final TreeMap<Long, VirtualLoggingSegment> segments = new TreeMap<Long, VirtualLoggingSegment>();
+	private VirtualLoggingSegment active;
+
+	/* xid -> ids of the segments which contain at least one record of the xid */
+	private final Map<Xid, TreeSet<Long>> xidSegmentMap = new HashMap<Xid, TreeSet<Long>>();
+	/* segment id -> xids which have at least one record in the segment */
+	private final Map<Long, Set<Xid>> segmentXidMap = new HashMap<Long, Set<Xid>>();
+	private final Set<Xid> deletedXids = new HashSet<Xid>();
+
+	private boolean optimized = true;
+	private int segmentSize = 1024 * 1024 * 4;
+	private int compactInterval = 10;
+
+	public synchronized void construct() throws IOException {
+		if (this.initialized == false) {
+			this.initialize();
+			this.initialized = true;
+		}
+	}
+
+	private void initialize() throws IOException {
+		if (this.directory == null) {
+			this.directory = this.getDefaultDirectory();
+		}
+
+		if (this.directory.exists() == false) {
+			if (this.directory.mkdirs() == false) {
+				throw new RuntimeException(String.format("Failed to create directory %s!", this.directory.getAbsolutePath()));
+			}
+		}
+
+		List<Long> segmentIds = this.readManifest();
+		for (int i = 0; i < segmentIds.size(); i++) {
+			long segmentId = segmentIds.get(i);
+			VirtualLoggingSegment segment = this.createSegment(segmentId);
+			segment.initialize(this.segmentSize);
+			this.segments.put(segmentId, segment);
+			segment.traversal(new VirtualLoggingSegment.VirtualLoggingSegmentListener() {
+				public void recvRecord(VirtualLoggingSegment segment, byte[] byteArray) {
+					indexRecord(segment.getSegmentId(), getIdentifier(byteArray), byteArray[XidFactory.GLOBAL_TRANSACTION_LENGTH]);
+				}
+			});
+		}
+
+		this.deleteOrphanSegments();
+
+		if (this.segments.isEmpty()) {
+			this.rollSegment(0, this.segmentSize);
+		} else {
+			this.active = this.segments.lastEntry().getValue();
+		}
+	}
+
+	private void deleteOrphanSegments() {
+		final String prefix = this.getLoggingFilePrefix();
+		File[] files = this.directory.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			String name = files[i].getName();
+			if (name.startsWith(prefix) == false || name.endsWith(SEGMENT_SUFFIX) == false) {
+				continue;
+			}
+
+			String value = name.substring(prefix.length(), name.length() - SEGMENT_SUFFIX.length());
+			try {
+				if (this.segments.containsKey(Long.parseLong(value)) == false) {
+					logger.info("Delete orphan logging segment {}.", files[i].getAbsolutePath());
+					files[i].delete();
+				}
+			} catch (NumberFormatException ex) {
+				logger.debug("Ignore unknown file {}.", files[i].getAbsolutePath());
+			}
+		}
+	}
+
+	public void run() {
+		while (this.released == false) {
+			try {
+				this.timingLock.lock();
+				this.timingCondition.await(this.compactInterval, TimeUnit.SECONDS);
+			} catch (Exception ex) {
+				logger.debug(ex.getMessage(), ex);
+			} finally {
+				this.timingLock.unlock();
+			}
+
+			try {
+				this.compact();
+			} catch (RuntimeException rex) {
+				logger.error("Error occurred while compacting logging segments.", rex);
+			}
+		}
+	}
+
+	public void fireCompactImmediately() {
+		try {
+			this.timingLock.lock();
+			this.timingCondition.signalAll();
+		} finally {
+			this.timingLock.unlock();
+		}
+	}
+
+	public void compact() {
+		if (this.traversalLock.writeLock().tryLock() == false) {
+			return; // a traversal is reading the segments, compact next time
+		}
+
+		try {
+			this.compactSegments();
+		} finally {
+			this.traversalLock.writeLock().unlock();
+		}
+	}
+
+	private void compactSegments() {
+		List<VirtualLoggingSegment> droppedList = new ArrayList<VirtualLoggingSegment>();
+		VirtualLoggingSegment active = null;
+		List<Long> segmentIds = null;
+		long version = 0;
+		try {
+			this.lock.lock();
+			for (Iterator<VirtualLoggingSegment> itr = this.segments.values().iterator(); itr.hasNext();) {
+				VirtualLoggingSegment segment = itr.next();
+				if (segment != this.active && this.isSegmentDroppable(segment.getSegmentId())) {
+					droppedList.add(segment);
+				}
+			}
+
+			if (droppedList.isEmpty()) {
+				return;
+			}
+
+			for (int i = 0; i < droppedList.size(); i++) {
+				long segmentId = droppedList.get(i).getSegmentId();
+				this.segments.remove(segmentId);
+				this.unindexSegment(segmentId);
+			}
+
+			active = this.active;
+			segmentIds = new ArrayList<Long>(this.segments.keySet());
+			version = ++this.manifestVersion;
+		} finally {
+			this.lock.unlock();
+		}
+
+		// the delete records must be durable before older records disappear
+		active.flushImmediately();
+		this.writeManifest(segmentIds, version);
+
+		for (int i = 0; i < droppedList.size(); i++) {
+			VirtualLoggingSegment segment = droppedList.get(i);
+			segment.destroyQuietly();
+			logger.debug("Logging segment {} has been dropped.", segment.getFile().getName());
+		}
+	}
+
+	/**
+	 * A segment can be dropped when every xid it references has been deleted and the segment is the oldest one still
+	 * holding records of that xid. Any remaining records of those xids then live in newer segments (including the
+	 * delete record), so dropping the segment can never resurrect a finished transaction.
+	 */
+	private boolean isSegmentDroppable(long segmentId) {
+		Set<Xid> xids = this.segmentXidMap.get(segmentId);
+		for (Iterator<Xid> itr = xids == null ? null : xids.iterator(); itr != null && itr.hasNext();) {
+			Xid xid = itr.next();
+			if (this.deletedXids.contains(xid) == false) {
+				return false;
+			}
+
+			TreeSet<Long> segmentIds = this.xidSegmentMap.get(xid);
+			if (segmentIds != null && segmentIds.first() != segmentId) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void indexRecord(long segmentId, Xid xid, int operator) {
+		TreeSet<Long> segmentIds = this.xidSegmentMap.get(xid);
+		if (segmentIds == null) {
+			segmentIds = new TreeSet<Long>();
+			this.xidSegmentMap.put(xid, segmentIds);
+		}
+		segmentIds.add(segmentId);
+
+		Set<Xid> xids = this.segmentXidMap.get(segmentId);
+		if (xids == null) {
+			xids = new HashSet<Xid>();
+			this.segmentXidMap.put(segmentId, xids);
+		}
+		xids.add(xid);
+
+		if (operator == OPERATOR_DELETE) {
+			this.deletedXids.add(xid);
+		} else {
+			this.deletedXids.remove(xid);
+		}
+	}
+
+	private void unindexSegment(long segmentId) {
+		Set<Xid> xids = this.segmentXidMap.remove(segmentId);
+		for (Iterator<Xid> itr = xids == null ? null : xids.iterator(); itr != null && itr.hasNext();) {
+			Xid xid = itr.next();
+			TreeSet<Long> segmentIds = this.xidSegmentMap.get(xid);
+			if (segmentIds == null) {
+				continue;
+			}
+
+			segmentIds.remove(segmentId);
+			if (segmentIds.isEmpty()) {
+				this.xidSegmentMap.remove(xid);
+				this.deletedXids.remove(xid);
+			}
+		}
+	}
+
+	private void rollSegment(long segmentId, int size) throws IOException {
+		VirtualLoggingSegment segment = this.createSegment(segmentId);
+		this.segments.put(segmentId, segment);
+		// register the segment before any record is appended to it
+		this.writeManifest(new ArrayList<Long>(this.segments.keySet()), ++this.manifestVersion);
+		segment.initialize(size);
+
+		VirtualLoggingSegment previous = this.active;
+		this.active = segment;
+		if (previous != null) {
+			previous.flushImmediately();
+		}
+	}
+
+	private VirtualLoggingSegment createSegment(long segmentId) {
+		String prefix = this.getLoggingFilePrefix();
+		File file = new File(this.directory, String.format("%s%d%s", prefix, segmentId, SEGMENT_SUFFIX));
+		byte[] identifier = this.getLoggingIdentifier().getBytes();
+		return new VirtualLoggingSegment(file, segmentId, identifier, this.getMajorVersion(), this.getMinorVersion());
+	}
+
+	private List<Long> readManifest() throws IOException {
+		List<Long> segmentIds = new ArrayList<Long>();
+		File manifest = new File(this.directory, String.format("%s%s", this.getLoggingFilePrefix(), MANIFEST_NAME));
+		if (manifest.exists() == false) {
+			return segmentIds;
+		}
+
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(new FileInputStream(manifest));
+			int size = input.readInt();
+			for (int i = 0; i < size; i++) {
+				segmentIds.add(input.readLong());
+			}
+		} finally {
+			CommonUtils.closeQuietly(input);
+		}
+		return segmentIds;
+	}
+
+	private void writeManifest(List<Long> segmentIds, long version) {
+		try {
+			this.manifestLock.lock();
+			if (version > this.writtenManifestVersion) {
+				this.writeManifest(segmentIds);
+				this.writtenManifestVersion = version;
+			} // end-if (version > this.writtenManifestVersion)
+		} finally {
+			this.manifestLock.unlock();
+		}
+	}
+
+	private void writeManifest(List<Long> segmentIds) {
+		String prefix = this.getLoggingFilePrefix();
+		File manifest = new File(this.directory, String.format("%s%s", prefix, MANIFEST_NAME));
+		File temporary = new File(this.directory, String.format("%s%s.tmp", prefix, MANIFEST_NAME));
+
+		FileOutputStream stream = null;
+		try {
+			stream = new FileOutputStream(temporary);
+			DataOutputStream output = new DataOutputStream(stream);
+			output.writeInt(segmentIds.size());
+			for (int i = 0; i < segmentIds.size(); i++) {
+				output.writeLong(segmentIds.get(i));
+			}
+			output.flush();
+			stream.getFD().sync();
+		} catch (IOException ex) {
+			throw new IllegalStateException("Error occurred while writing the logging manifest!", ex);
+		} finally {
+			CommonUtils.closeQuietly(stream);
+		}
+
+		try {
+			Files.move(temporary.toPath(), manifest.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ex) {
+			throw new IllegalStateException("Error occurred while replacing the logging manifest!", ex);
+		}
+	}
+
+	/**
+	 * Streams the records written before the call to the listener. Only the list of segments and the end of the active
+	 * one are read under the logging lock, so writers are not stalled by the traversal.
+	 */
+	public void traversal(final VirtualLoggingListener listener) {
+		List<VirtualLoggingSegment> segmentList = null;
+		int activeEndIndex = 0;
+		try {
+			this.traversalLock.readLock().lock();
+
+			try {
+				this.lock.lock();
+				segmentList = new ArrayList<VirtualLoggingSegment>(this.segments.values());
+				activeEndIndex = this.active.getEndIndex();
+			} finally {
+				this.lock.unlock();
+			}
+
+			VirtualLoggingSegment.VirtualLoggingSegmentListener segmentListener = //
+					new VirtualLoggingSegment.VirtualLoggingSegmentListener() {
+						public void recvRecord(VirtualLoggingSegment segment, byte[] byteArray) {
+							listener.recvOperation(createRecord(byteArray));
+						}
+					};
+			for (int i = 0; i < segmentList.size(); i++) {
+				VirtualLoggingSegment segment = segmentList.get(i);
+				int endIndex = i == segmentList.size() - 1 ? activeEndIndex : segment.getEndIndex();
+				segment.traversal(segmentListener, endIndex);
+			}
+		} finally {
+			this.traversalLock.readLock().unlock();
+		}
+	}
+
+	private VirtualLoggingRecord createRecord(byte[] byteArray) {
+		int operator = byteArray[XidFactory.GLOBAL_TRANSACTION_LENGTH];
+		byte[] valueByteArray = new byte[byteArray.length - VirtualLoggingSegment.RECORD_HEADER_SIZE];
+		System.arraycopy(byteArray, VirtualLoggingSegment.RECORD_HEADER_SIZE, valueByteArray, 0, valueByteArray.length);
+
+		VirtualLoggingRecord record = new VirtualLoggingRecord();
+		record.setIdentifier(this.getIdentifier(byteArray));
+		record.setOperator(operator);
+		record.setContent(byteArray);
+		record.setValue(valueByteArray);
+		return record;
+	}
+
+	private Xid getIdentifier(byte[] byteArray) {
+		byte[] keyByteArray = new byte[XidFactory.GLOBAL_TRANSACTION_LENGTH];
+		System.arraycopy(byteArray, 0, keyByteArray, 0, keyByteArray.length);
+		VirtualLoggingKey xid = new VirtualLoggingKey();
+		xid.setGlobalTransactionId(keyByteArray);
+		return xid;
+	}
+
+	public void create(Xid xid, byte[] textByteArray) {
+		this.write(xid, OPERATOR_CREATE, textByteArray);
+	}
+
+	public void delete(Xid xid) {
+		this.write(xid, OPERATOR_DELETE, new byte[0]);
+	}
+
+	public void modify(Xid xid, byte[] textByteArray) {
+		this.write(xid, OPERATOR_MOFIFY, textByteArray);
+	}
+
+	private void write(Xid xid, int operator, byte[] textByteArray) {
+		byte[] keyByteArray = xid.getGlobalTransactionId();
+		byte[] sizeByteArray = ByteUtils.intToByteArray(textByteArray.length);
+
+		byte[] byteArray = new byte[keyByteArray.length + 1 + sizeByteArray.length + textByteArray.length];
+
+		System.arraycopy(keyByteArray, 0, byteArray, 0, keyByteArray.length);
+		byteArray[keyByteArray.length] = (byte) (operator & 0xFF);
+		System.arraycopy(sizeByteArray, 0, byteArray, keyByteArray.length + 1, sizeByteArray.length);
+		System.arraycopy(textByteArray, 0, byteArray, keyByteArray.length + 1 + sizeByteArray.length, textByteArray.length);
+
+		long startNanos = System.nanoTime();
+		boolean rolled = false;
+		try {
+			this.lock.lock();
+			if (this.active.isWritable(byteArray.length) == false) {
+				int headerSize = this.getLoggingIdentifier().getBytes().length + 2 + 8 + 8 + 4;
+				this.rollSegment(this.active.getSegmentId() + 1, Math.max(this.segmentSize, headerSize + byteArray.length));
+				rolled = true;
+			}
+
+			this.active.write(byteArray);
+			this.indexRecord(this.active.getSegmentId(), this.getIdentifier(byteArray), operator);
+
+			if (this.optimized == false) {
+				this.active.flushImmediately();
+			}
+		} catch (IOException ex) {
+			throw new IllegalStateException("Error occurred while creating a new logging segment!", ex);
+		} finally {
+			this.lock.unlock();
+		}
+
+		long costNanos = System.nanoTime() - startNanos;
+		TransactionFlightRecorder.fireLoggingWrite(costNanos);
+		this.afterWrite(costNanos);
+
+		if (rolled) {
+			this.fireCompactImmediately();
+		}
+	}
+
+	/**
+	 * Invoked once a record has been written, with the time the caller waited for it.
+	 */
+	protected void afterWrite(long costNanos) {
+	}
+
+	public void flushImmediately() {
+		try {
+			this.lock.lock();
+			this.active.flushImmediately();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	public void shutdown() {
+		try {
+			this.lock.lock();
+			for (Iterator<VirtualLoggingSegment> itr = this.segments.values().iterator(); itr.hasNext();) {
+				VirtualLoggingSegment segment = itr.next();
+				segment.flushImmediately();
+				segment.closeQuietly();
+			}
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	public void release() {
+		this.released = true;
+		this.fireCompactImmediately();
+	}
+
+	public abstract File getDefaultDirectory();
+
+	public abstract int getMajorVersion();
+
+	public abstract int getMinorVersion();
+
+	public abstract String getLoggingIdentifier();
+
+	public abstract String getLoggingFilePrefix();
+
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	public void setSegmentSize(int segmentSize) {
+		this.segmentSize = segmentSize;
+	}
+
+	public int getCompactInterval() {
+		return compactInterval;
+	}
+
+	public void setCompactInterval(int compactInterval) {
+		this.compactInterval = compactInterval;
+	}
+
+	public boolean isOptimized() {
+		return optimized;
+	}
+
+	public void setOptimized(boolean optimized) {
+		this.optimized = optimized;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public void setDirectory(File directory) {
+		this.directory = directory;
+	}
+
+}
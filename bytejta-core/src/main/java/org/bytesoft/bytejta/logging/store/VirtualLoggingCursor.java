@@ -0,0 +1,121 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.logging.store;
+
+import java.nio.ByteBuffer;
+
+import org.bytesoft.transaction.xa.XidFactory;
+
+/**
+ * Flyweight over the records of a logging file. The cursor is positioned on one record at a time and exposes its
+ * fields as views of the mapped region, so moving from one record to the next allocates nothing. Views returned by the
+ * cursor are only valid until it moves again.
+ */
+public class VirtualLoggingCursor {
+	static final int RECORD_HEADER_SIZE = XidFactory.GLOBAL_TRANSACTION_LENGTH + 1 + 4;
+
+	private final ByteBuffer buffer;
+	private final ByteBuffer content;
+	private final ByteBuffer value;
+	private final int startIdx;
+	private final int endIndex;
+
+	private int position = -1;
+	private int length;
+	private int operator;
+
+	public VirtualLoggingCursor(ByteBuffer buffer, int startIdx, int endIndex) {
+		this.buffer = buffer.duplicate();
+		this.content = buffer.duplicate();
+		this.value = buffer.duplicate();
+		this.startIdx = startIdx;
+		this.endIndex = endIndex;
+	}
+
+	/**
+	 * Moves to the record following the current one, or to the first record if the cursor has not been positioned yet.
+	 */
+	public boolean next() {
+		int next = this.position < 0 ? this.startIdx : this.position + this.length;
+		return this.moveTo(next);
+	}
+
+	/**
+	 * Moves to the record starting at the specified position, returns false if no complete record starts there.
+	 */
+	public boolean moveTo(int next) {
+		if (next < this.startIdx || next + RECORD_HEADER_SIZE > this.endIndex) {
+			return false;
+		}
+
+		int size = this.buffer.getInt(next + XidFactory.GLOBAL_TRANSACTION_LENGTH + 1);
+		if (size < 0 || next + RECORD_HEADER_SIZE + size > this.endIndex) {
+			return false;
+		}
+
+		this.position = next;
+		this.length = RECORD_HEADER_SIZE + size;
+		this.operator = this.buffer.get(next + XidFactory.GLOBAL_TRANSACTION_LENGTH);
+		return true;
+	}
+
+	public void getGlobalTransactionId(byte[] keyByteArray) {
+		for (int i = 0; i < XidFactory.GLOBAL_TRANSACTION_LENGTH; i++) {
+			keyByteArray[i] = this.buffer.get(this.position + i);
+		}
+	}
+
+	public boolean matches(byte[] keyByteArray) {
+		for (int i = 0; i < XidFactory.GLOBAL_TRANSACTION_LENGTH; i++) {
+			if (keyByteArray[i] != this.buffer.get(this.position + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The whole record (key, operator, size and value).
+	 */
+	public ByteBuffer getContent() {
+		this.content.limit(this.position + this.length);
+		this.content.position(this.position);
+		return this.content;
+	}
+
+	public ByteBuffer getValue() {
+		this.value.limit(this.position + this.length);
+		this.value.position(this.position + RECORD_HEADER_SIZE);
+		return this.value;
+	}
+
+	public int getPosition() {
+		return position;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public int getOperator() {
+		return operator;
+	}
+
+	public static interface VirtualLoggingCursorListener {
+		public void recvRecord(VirtualLoggingCursor cursor);
+	}
+
+}
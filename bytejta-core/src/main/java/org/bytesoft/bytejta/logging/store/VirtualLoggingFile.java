@@ -18,10 +18,12 @@ package org.bytesoft.bytejta.logging.store;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.Arrays;
 
+import org.bytesoft.bytejta.jfr.TransactionFlightRecorder;
 import org.bytesoft.transaction.logging.store.VirtualLoggingTrigger;
 import org.bytesoft.transaction.xa.XidFactory;
 import org.slf4j.Logger;
@@ -39,6 +41,7 @@ public class VirtualLoggingFile {
 	private MappedByteBuffer readable;
 	private MappedByteBuffer writable;
 
+	private final File file;
 	private RandomAccessFile raf;
 
 	private byte[] identifier;
@@ -64,6 +67,7 @@ public class VirtualLoggingFile {
 		this.majorVersion = major;
 		this.minorVersion = minor;
 
+		this.file = file;
 		this.initialized = file.exists();
 		this.raf = new RandomAccessFile(file, "rw");
 		if (this.initialized == false) {
@@ -241,16 +245,32 @@ public class VirtualLoggingFile {
 		}
 	}
 
-	public void write(byte[] byteArray) {
-		if (this.writable.capacity() < this.endIndex + byteArray.length) {
+	/**
+	 * Opens a cursor over the records written so far, later appends are not visible to it.
+	 */
+	public VirtualLoggingCursor openCursor() {
+		return new VirtualLoggingCursor(this.readable, this.startIdx, this.endIndex);
+	}
+
+	public int write(byte[] byteArray) {
+		return this.write(ByteBuffer.wrap(byteArray));
+	}
+
+	/**
+	 * Appends the remaining bytes of the buffer, which may be a view of another mapped file.
+	 */
+	public int write(ByteBuffer byteBuffer) {
+		int position = this.endIndex;
+		int length = byteBuffer.remaining();
+		if (this.writable.capacity() < this.endIndex + length) {
 			this.resizeMappedByteBuffer(this.endIndex + INCREASE_SIZE);
 		}
 		this.writable.position(this.endIndex);
-		this.writable.put(byteArray);
+		this.writable.put(byteBuffer);
 
 		writable.position(identifier.length + 2 + 8 + 4 + 2);
 		this.writable.putLong(System.currentTimeMillis());
-		this.endIndex = this.endIndex + byteArray.length;
+		this.endIndex = this.endIndex + length;
 		this.writable.putInt(this.endIndex);
 
 		int threshold = (this.writable.capacity() * 2) / 3;
@@ -258,6 +278,7 @@ public class VirtualLoggingFile {
 			this.trigger.fireSwapImmediately();
 		}
 
+		return position;
 	}
 
 	private void resizeMappedByteBuffer(long size) {
@@ -277,7 +298,9 @@ public class VirtualLoggingFile {
 
 	public void flushImmediately() {
 		if (this.writable != null) {
+			long startNanos = System.nanoTime();
 			this.writable.force();
+			TransactionFlightRecorder.fireLoggingFlush(System.nanoTime() - startNanos);
 		}
 	}
 
@@ -291,6 +314,10 @@ public class VirtualLoggingFile {
 		}
 	}
 
+	public File getFile() {
+		return file;
+	}
+
 	public byte[] getIdentifier() {
 		return identifier;
 	}
@@ -0,0 +1,240 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.logging.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Group-commit pipeline: writers enqueue records without taking the logging lock, a single flusher thread drains
+ * them in batches, appends each batch to the master file and forces it once, then completes the per-record futures.
+ * Writers enqueue under the shared side of a lock whose exclusive side the flusher takes to terminate, so a record is
+ * either refused or eventually completed; records still queued when the flusher terminates are failed.
+ */
+public class VirtualLoggingFlusher implements Runnable {
+	static final Logger logger = LoggerFactory.getLogger(VirtualLoggingFlusher.class);
+
+	static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+	static final long LINGER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	private final Queue<FlushRequest> requestQueue = new ConcurrentLinkedQueue<FlushRequest>();
+	private final VirtualLoggingSystemImpl loggingSystem;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private volatile boolean released;
+	private volatile boolean aborted;
+	private volatile Thread thread;
+	private boolean terminated; // guarded by lock
+
+	private int maxBatchSize = 256;
+	private long maxLingerMillis = 2L;
+
+	public VirtualLoggingFlusher(VirtualLoggingSystemImpl loggingSystem) {
+		this.loggingSystem = loggingSystem;
+	}
+
+	public synchronized void start() {
+		if (this.thread == null) {
+			Thread flusher = new Thread(this, "bytejta-logging-flusher");
+			flusher.setDaemon(true);
+			this.thread = flusher;
+			flusher.start();
+		}
+	}
+
+	public void write(byte[] byteArray) {
+		FlushRequest request = new FlushRequest(byteArray);
+
+		Thread flusher = null;
+		this.lock.readLock().lock();
+		try {
+			if (this.released) {
+				throw new IllegalStateException("The logging flusher has already been released!");
+			}
+
+			flusher = this.thread;
+			if (flusher == null || this.terminated) {
+				throw new IllegalStateException("The logging flusher is not running!");
+			}
+
+			this.requestQueue.offer(request);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+
+		LockSupport.unpark(flusher);
+
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					request.future.get();
+					return;
+				} catch (InterruptedException ex) {
+					interrupted = true; // the record is already queued, wait until it is durable
+				} catch (ExecutionException ex) {
+					throw new IllegalStateException("Error occurred while flushing the logging record!", ex.getCause());
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	public void run() {
+		try {
+			this.processRequests();
+		} finally {
+			this.terminate();
+		}
+	}
+
+	private void processRequests() {
+		List<FlushRequest> batch = new ArrayList<FlushRequest>(this.maxBatchSize);
+		while (this.aborted == false) {
+			FlushRequest first = this.requestQueue.poll();
+			if (first == null && this.released && this.isTerminatable()) {
+				break;
+			} else if (first == null) {
+				LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+				continue;
+			}
+
+			batch.add(first);
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.maxLingerMillis);
+			while (batch.size() < this.maxBatchSize) {
+				FlushRequest request = this.requestQueue.poll();
+				if (request != null) {
+					batch.add(request);
+				} else if (this.released || System.nanoTime() >= deadline) {
+					break;
+				} else {
+					LockSupport.parkNanos(this, LINGER_PARK_NANOS);
+				}
+			}
+
+			this.flush(batch);
+			batch.clear();
+		}
+	}
+
+	private boolean isTerminatable() {
+		this.lock.writeLock().lock();
+		try {
+			if (this.requestQueue.isEmpty()) {
+				this.terminated = true;
+			}
+			return this.terminated;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	private void terminate() {
+		this.lock.writeLock().lock();
+		try {
+			this.terminated = true;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+
+		IllegalStateException error = new IllegalStateException("The logging flusher has been terminated!");
+		FlushRequest request = null;
+		while ((request = this.requestQueue.poll()) != null) {
+			request.future.completeExceptionally(error);
+		}
+	}
+
+	private void flush(List<FlushRequest> batch) {
+		List<byte[]> recordList = new ArrayList<byte[]>(batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			recordList.add(batch.get(i).byteArray);
+		}
+
+		try {
+			this.loggingSystem.writeAndFlush(recordList);
+		} catch (RuntimeException rex) {
+			logger.error("Error occurred while flushing {} logging records!", batch.size(), rex);
+			for (int i = 0; i < batch.size(); i++) {
+				batch.get(i).future.completeExceptionally(rex);
+			}
+			return;
+		}
+
+		for (int i = 0; i < batch.size(); i++) {
+			batch.get(i).future.complete(null);
+		}
+	}
+
+	public void release() {
+		this.released = true;
+
+		Thread flusher = this.thread;
+		if (flusher == null) {
+			return;
+		}
+
+		LockSupport.unpark(flusher);
+		try {
+			flusher.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (flusher.isAlive()) {
+			this.aborted = true; // stop after the current batch and fail the records still queued
+			LockSupport.unpark(flusher);
+		}
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public void setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	public long getMaxLingerMillis() {
+		return maxLingerMillis;
+	}
+
+	public void setMaxLingerMillis(long maxLingerMillis) {
+		this.maxLingerMillis = maxLingerMillis;
+	}
+
+	static class FlushRequest {
+		final byte[] byteArray;
+		final CompletableFuture<Void> future = new CompletableFuture<Void>();
+
+		FlushRequest(byte[] byteArray) {
+			this.byteArray = byteArray;
+		}
+	}
+
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.logging.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+import org.bytesoft.bytejta.jfr.TransactionFlightRecorder;
+import org.bytesoft.transaction.xa.XidFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class VirtualLoggingSegment {
+	static final Logger logger = LoggerFactory.getLogger(VirtualLoggingSegment.class);
+
+	static final int RECORD_HEADER_SIZE = XidFactory.GLOBAL_TRANSACTION_LENGTH + 1 + 4;
+
+	private final File file;
+	private final long segmentId;
+	private final byte[] identifier;
+	private final int majorVersion;
+	private final int minorVersion;
+
+	private RandomAccessFile raf;
+	private MappedByteBuffer buffer;
+
+	private int startIdx;
+	private int endIndex;
+
+	public VirtualLoggingSegment(File file, long segmentId, byte[] identifier, int major, int minor) {
+		this.file = file;
+		this.segmentId = segmentId;
+		this.identifier = identifier;
+		this.majorVersion = major;
+		this.minorVersion = minor;
+	}
+
+	public void initialize(int segmentSize) throws IOException {
+		boolean exists = this.file.exists();
+
+		this.raf = new RandomAccessFile(this.file, "rw");
+		long size = exists ? this.raf.length() : segmentSize;
+		this.buffer = this.raf.getChannel().map(MapMode.READ_WRITE, 0, size);
+
+		this.startIdx = this.identifier.length + 2 + 8 + 8 + 4;
+		if (exists) {
+			this.checkHeader();
+		} else {
+			this.buffer.position(0);
+			this.buffer.put(this.identifier);
+			this.buffer.put((byte) this.majorVersion);
+			this.buffer.put((byte) this.minorVersion);
+			this.buffer.putLong(this.segmentId);
+			this.buffer.putLong(System.currentTimeMillis());
+			this.endIndex = this.startIdx;
+			this.buffer.putInt(this.endIndex);
+		}
+	}
+
+	private void checkHeader() {
+		byte[] array = new byte[this.identifier.length];
+		this.buffer.position(0);
+		this.buffer.get(array);
+		if (Arrays.equals(this.identifier, array) == false) {
+			throw new IllegalStateException(String.format("Illegal file format: %s!", this.file.getAbsolutePath()));
+		}
+
+		int major = this.buffer.get();
+		int minor = this.buffer.get();
+		if (major != this.majorVersion || minor != this.minorVersion) {
+			throw new IllegalStateException(String.format("Incompatible version: %s!", this.file.getAbsolutePath()));
+		}
+
+		long id = this.buffer.getLong();
+		if (id != this.segmentId) {
+			throw new IllegalStateException(String.format("Illegal segment id: %s!", this.file.getAbsolutePath()));
+		}
+
+		this.buffer.getLong(); // created time
+		this.endIndex = this.buffer.getInt();
+	}
+
+	public boolean isWritable(int length) {
+		return this.endIndex + length <= this.buffer.capacity();
+	}
+
+	public void write(byte[] byteArray) {
+		this.buffer.position(this.endIndex);
+		this.buffer.put(byteArray);
+
+		this.endIndex = this.endIndex + byteArray.length;
+		this.buffer.position(this.identifier.length + 2 + 8 + 8);
+		this.buffer.putInt(this.endIndex);
+	}
+
+	public void traversal(VirtualLoggingSegmentListener listener) {
+		this.traversal(listener, this.endIndex);
+	}
+
+	/**
+	 * Traverses the records written before the specified end index, which the caller has read under the logging lock.
+	 */
+	public void traversal(VirtualLoggingSegmentListener listener, int endIndex) {
+		ByteBuffer readable = this.buffer.duplicate();
+		int position = this.startIdx;
+		while (position + RECORD_HEADER_SIZE <= endIndex) {
+			readable.position(position + XidFactory.GLOBAL_TRANSACTION_LENGTH + 1);
+			int size = readable.getInt();
+			int length = RECORD_HEADER_SIZE + size;
+			if (size < 0 || position + length > endIndex) {
+				logger.warn("Incomplete record found in segment {}, position= {}.", this.file.getName(), position);
+				break;
+			}
+
+			byte[] byteArray = new byte[length];
+			readable.position(position);
+			readable.get(byteArray);
+
+			listener.recvRecord(this, byteArray);
+			position += length;
+		}
+	}
+
+	public void flushImmediately() {
+		if (this.buffer != null) {
+			long startNanos = System.nanoTime();
+			this.buffer.force();
+			TransactionFlightRecorder.fireLoggingFlush(System.nanoTime() - startNanos);
+		}
+	}
+
+	public void closeQuietly() {
+		if (this.raf != null) {
+			try {
+				this.raf.close();
+			} catch (Exception ex) {
+				logger.debug(ex.getMessage(), ex);
+			}
+		}
+	}
+
+	public void destroyQuietly() {
+		this.closeQuietly();
+		this.buffer = null;
+		if (this.file.delete() == false) {
+			logger.warn("Failed to delete logging segment {}!", this.file.getAbsolutePath());
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public long getSegmentId() {
+		return segmentId;
+	}
+
+	public int getEndIndex() {
+		return endIndex;
+	}
+
+	public static interface VirtualLoggingSegmentListener {
+		public void recvRecord(VirtualLoggingSegment segment, byte[] byteArray);
+	}
+
+}
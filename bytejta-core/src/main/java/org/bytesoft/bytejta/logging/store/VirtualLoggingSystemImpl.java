@@ -15,10 +15,21 @@
  */
 package org.bytesoft.bytejta.logging.store;
 
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -29,7 +40,9 @@ import java.util.concurrent.locks.ReentrantLock;
 import javax.resource.spi.work.Work;
 import javax.transaction.xa.Xid;
 
+import org.bytesoft.bytejta.jfr.TransactionFlightRecorder;
 import org.bytesoft.common.utils.ByteUtils;
+import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.transaction.logging.store.VirtualLoggingKey;
 import org.bytesoft.transaction.logging.store.VirtualLoggingListener;
 import org.bytesoft.transaction.logging.store.VirtualLoggingRecord;
@@ -42,10 +55,12 @@ import org.slf4j.LoggerFactory;
 public abstract class VirtualLoggingSystemImpl implements VirtualLoggingSystem, VirtualLoggingTrigger, Work {
 	static final Logger logger = LoggerFactory.getLogger(VirtualLoggingSystemImpl.class);
 	static final int COMPRESS_BATCH_SIZE = 10000;
+	static final String CHECKPOINT_NAME = "index.ckp";
 
 	private final Lock lock = new ReentrantLock();
 	private final Lock timingLock = new ReentrantLock();
 	private final Condition timingCondition = this.timingLock.newCondition();
+	private final Lock checkpointLock = new ReentrantLock(); /* one writer of the checkpoint file at a time */
 
 	private boolean released;
 
@@ -54,12 +69,23 @@ public abstract class VirtualLoggingSystemImpl implements VirtualLoggingSystem,
 	private VirtualLoggingFile master;
 	private VirtualLoggingFile slaver;
 
+	/* xid -> offsets of its records in the master file, deleted xids are removed */
+	private Map<Xid, List<Integer>> index = new LinkedHashMap<Xid, List<Integer>>();
+	private int checkpointIndex;
+	private int generation; /* increased on every swap */
+	private int stepTwoIndex; /* the end of the master copied by the deprecated syncStepTwo */
+
 	private boolean optimized = true;
 	private boolean initialized;
 
 	private int switchThreshold = 1024 * 1024 * 8;
 	private int switchInterval = 60;
 
+	private boolean groupCommitEnabled;
+	private int groupCommitBatchSize = 256;
+	private long groupCommitLingerMillis = 2L;
+	private VirtualLoggingFlusher flusher;
+
 	public synchronized void construct() throws IOException {
 		if (this.initialized == false) {
 			this.initialize();
@@ -90,6 +116,17 @@ public abstract class VirtualLoggingSystemImpl implements VirtualLoggingSystem,
 		this.initialize(masterMgr, slaverMgr);
 
 		this.flushAllIfNecessary();
+
+		int position = this.loadCheckpoint();
+		this.indexMaster(position);
+
+		if (this.groupCommitEnabled) {
+			VirtualLoggingFlusher loggingFlusher = new VirtualLoggingFlusher(this);
+			loggingFlusher.setMaxBatchSize(this.groupCommitBatchSize);
+			loggingFlusher.setMaxLingerMillis(this.groupCommitLingerMillis);
+			loggingFlusher.start();
+			this.flusher = loggingFlusher;
+		} // end-if (this.groupCommitEnabled)
 	}
 
 	private void initialize(VirtualLoggingFile prev, VirtualLoggingFile next) {
@@ -150,11 +187,12 @@ public abstract class VirtualLoggingSystemImpl implements VirtualLoggingSystem,
 
 			int increment = this.master.getEndIndex() - lastEndIndex;
 			if (increment < this.switchThreshold) {
+				this.writeCheckpointIfNecessary();
 				continue;
 			} // end-if (increasement < this.switchThreshold)
 
 			this.syncMasterAndSlaver();
-			this.swapMasterAndSlaver();
+			this.writeCheckpointIfNecessary();
 
 			lastEndIndex = this.master.getEndIndex();
 		}
@@ -169,38 +207,63 @@ public abstract class VirtualLoggingSystemImpl implements VirtualLoggingSystem,
 		}
 	}
 
-	public void traversal(VirtualLoggingListener listener) {
-		this.master.prepareForReading();
-		while (true) {
-			byte[] byteArray = null;
-			try {
-				byteArray = this.master.read();
-			} catch (RuntimeException rex) {
-				byteArray = new byte[0];
+	public void traversal(final VirtualLoggingListener listener) {
+		this.traversalCursor(new VirtualLoggingCursor.VirtualLoggingCursorListener() {
+			public void recvRecord(VirtualLoggingCursor cursor) {
+				listener.recvOperation(createRecord(cursor));
 			}
+		});
+	}
 
-			if (byteArray.length == 0) {
-				break;
-			}
-
-			byte[] keyByteArray = new byte[XidFactory.GLOBAL_TRANSACTION_LENGTH];
-			System.arraycopy(byteArray, 0, keyByteArray, 0, keyByteArray.length);
-			int operator = byteArray[keyByteArray.length];
-			byte[] valueByteArray = new byte[byteArray.length - XidFactory.GLOBAL_TRANSACTION_LENGTH - 1 - 4];
-			System.arraycopy(byteArray, XidFactory.GLOBAL_TRANSACTION_LENGTH + 1 + 4, valueByteArray, 0, valueByteArray.length);
-
-			VirtualLoggingKey xid = new VirtualLoggingKey();
-			xid.setGlobalTransactionId(keyByteArray);
-
-			VirtualLoggingRecord record = new VirtualLoggingRecord();
-			record.setIdentifier(xid);
-			record.setOperator(operator);
-			record.setContent(byteArray);
-			record.setValue(valueByteArray);
+	/**
+	 * Traverses all records of the master without copying them, the cursor must not be retained by the listener.
+	 */
+	public void traversalCursor(VirtualLoggingCursor.VirtualLoggingCursorListener listener) {
+		VirtualLoggingCursor cursor = this.master.openCursor();
+		while (cursor.next()) {
+			listener.recvRecord(cursor);
+		}
+	}
 
-			listener.recvOperation(record);
+	/**
+	 * Delivers the records of every transaction which has not been deleted, grouped by xid and in the order they were
+	 * written. Only the indexed records are read, so deleted transactions cost nothing here.
+	 */
+	public void traversalLiveRecords(VirtualLoggingListener listener) {
+		try {
+			this.lock.lock(); // the master must not be swapped while its offsets are being read
+			VirtualLoggingCursor cursor = this.master.openCursor();
+			for (Iterator<Map.Entry<Xid, List<Integer>>> itr = this.index.entrySet().iterator(); itr.hasNext();) {
+				Map.Entry<Xid, List<Integer>> entry = itr.next();
+				List<Integer> offsets = entry.getValue();
+				for (int i = 0; i < offsets.size(); i++) {
+					if (cursor.moveTo(offsets.get(i)) == false) {
+						logger.warn("Invalid record offset {} of transaction {}.", offsets.get(i), entry.getKey());
+						continue;
+					}
+					listener.recvOperation(this.createRecord(cursor));
+				}
+			}
+		} finally {
+			this.lock.unlock();
 		}
+	}
 
+	private VirtualLoggingRecord createRecord(VirtualLoggingCursor cursor) {
+		byte[] keyByteArray = new byte[XidFactory.GLOBAL_TRANSACTION_LENGTH];
+		cursor.getGlobalTransactionId(keyByteArray);
+		ByteBuffer value = cursor.getValue();
+		byte[] valueByteArray = new byte[value.remaining()];
+		value.get(valueByteArray);
+
+		VirtualLoggingKey xid = new VirtualLoggingKey();
+		xid.setGlobalTransactionId(keyByteArray);
+
+		VirtualLoggingRecord record = new VirtualLoggingRecord();
+		record.setIdentifier(xid);
+		record.setOperator(cursor.getOperator());
+		record.setValue(valueByteArray);
+		return record;
 	}
 
 	public void create(Xid xid, byte[] textByteArray) {
@@ -214,14 +277,7 @@ public abstract class VirtualLoggingSystemImpl implements VirtualLoggingSystem,
 		System.arraycopy(sizeByteArray, 0, byteArray, keyByteArray.length + 1, sizeByteArray.length);
 		System.arraycopy(textByteArray, 0, byteArray, keyByteArray.length + 1 + sizeByteArray.length, textByteArray.length);
 
-		try {
-			this.lock.lock();
-			this.master.write(byteArray);
-
-			this.flushMasterIfNecessary();
-		} finally {
-			this.lock.unlock();
-		}
+		this.write(byteArray);
 	}
 
 	public void delete(Xid xid) {
@@ -234,14 +290,7 @@ public abstract class VirtualLoggingSystemImpl implements VirtualLoggingSystem,
 		byteArray[keyByteArray.length] = (byte) (OPERATOR_DELETE & 0xFF);
 		System.arraycopy(sizeByteArray, 0, byteArray, keyByteArray.length + 1, sizeByteArray.length);
 
-		try {
-			this.lock.lock();
-			this.master.write(byteArray);
-
-			this.flushMasterIfNecessary();
-		} finally {
-			this.lock.unlock();
-		}
+		this.write(byteArray);
 	}
 
 	public void modify(Xid xid, byte[] textByteArray) {
@@ -255,129 +304,257 @@ public abstract class VirtualLoggingSystemImpl implements VirtualLoggingSystem,
 		System.arraycopy(sizeByteArray, 0, byteArray, keyByteArray.length + 1, sizeByteArray.length);
 		System.arraycopy(textByteArray, 0, byteArray, keyByteArray.length + 1 + sizeByteArray.length, textByteArray.length);
 
+		this.write(byteArray);
+	}
+
+	private void write(byte[] byteArray) {
+		long startNanos = System.nanoTime();
+		if (this.flusher != null) {
+			this.flusher.write(byteArray); // block until the batch containing this record has been forced
+		} else {
+			try {
+				this.lock.lock();
+				this.writeMaster(byteArray);
+
+				this.flushMasterIfNecessary();
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		long costNanos = System.nanoTime() - startNanos;
+		TransactionFlightRecorder.fireLoggingWrite(costNanos);
+		this.afterWrite(costNanos);
+	}
+
+	/**
+	 * Invoked once a record has been written, with the time the caller waited for it.
+	 */
+	protected void afterWrite(long costNanos) {
+	}
+
+	void writeAndFlush(List<byte[]> recordList) {
 		try {
 			this.lock.lock();
-			this.master.write(byteArray);
+			for (int i = 0; i < recordList.size(); i++) {
+				this.writeMaster(recordList.get(i));
+			}
 
-			this.flushMasterIfNecessary();
+			this.master.flushImmediately();
 		} finally {
 			this.lock.unlock();
 		}
 	}
 
-	public void syncMasterAndSlaver() {
-		this.master.prepareForReading();
-		Map<Xid, Boolean> recordMap = this.syncStepOne();
-		this.master.prepareForReading();
-		this.syncStepTwo(recordMap, true);
+	private void writeMaster(byte[] byteArray) {
+		int position = this.master.write(byteArray);
 
-		this.flushSlaverIfNecessary();
+		VirtualLoggingKey xid = new VirtualLoggingKey();
+		xid.setGlobalTransactionId(Arrays.copyOf(byteArray, XidFactory.GLOBAL_TRANSACTION_LENGTH));
+		this.indexRecord(this.index, xid, byteArray[XidFactory.GLOBAL_TRANSACTION_LENGTH], position);
 	}
 
-	public Map<Xid, Boolean> syncStepOne() {
-		Map<Xid, Boolean> recordMap = new HashMap<Xid, Boolean>();
-		while (true) {
-			byte[] byteArray = null;
-			try {
-				byteArray = this.master.read();
-			} catch (RuntimeException rex) {
-				byteArray = new byte[0];
-			}
+	/**
+	 * Applies a record to the index. The key is only used for lookups, a copy of it is stored when the xid is new, so
+	 * callers may reuse it for subsequent records.
+	 */
+	private void indexRecord(Map<Xid, List<Integer>> recordMap, VirtualLoggingKey xid, int operator, int position) {
+		if (operator == OPERATOR_DELETE) {
+			recordMap.remove(xid);
+			return;
+		}
 
-			if (byteArray.length == 0) {
-				break;
-			}
+		List<Integer> offsets = recordMap.get(xid);
+		if (offsets == null) {
+			VirtualLoggingKey key = new VirtualLoggingKey();
+			key.setGlobalTransactionId(xid.getGlobalTransactionId().clone());
+			offsets = new ArrayList<Integer>(4);
+			recordMap.put(key, offsets);
+		}
+		offsets.add(position);
+	}
 
-			byte[] keyByteArray = new byte[XidFactory.GLOBAL_TRANSACTION_LENGTH];
-			System.arraycopy(byteArray, 0, keyByteArray, 0, keyByteArray.length);
-			int operator = byteArray[keyByteArray.length];
+	private void indexMaster(int position) {
+		VirtualLoggingKey xid = new VirtualLoggingKey();
+		xid.setGlobalTransactionId(new byte[XidFactory.GLOBAL_TRANSACTION_LENGTH]);
 
-			VirtualLoggingKey xid = new VirtualLoggingKey();
-			xid.setGlobalTransactionId(keyByteArray);
+		VirtualLoggingCursor cursor = this.master.openCursor();
+		boolean found = cursor.moveTo(position);
+		while (found) {
+			cursor.getGlobalTransactionId(xid.getGlobalTransactionId());
+			this.indexRecord(this.index, xid, cursor.getOperator(), cursor.getPosition());
+			found = cursor.next();
+		}
+	}
 
-			VirtualLoggingRecord record = new VirtualLoggingRecord();
-			record.setIdentifier(xid);
-			record.setOperator(operator);
-			record.setContent(byteArray);
+	private Map<Xid, List<Integer>> copyIndex() {
+		Map<Xid, List<Integer>> recordMap = new LinkedHashMap<Xid, List<Integer>>(this.index.size());
+		for (Iterator<Map.Entry<Xid, List<Integer>>> itr = this.index.entrySet().iterator(); itr.hasNext();) {
+			Map.Entry<Xid, List<Integer>> entry = itr.next();
+			recordMap.put(entry.getKey(), new ArrayList<Integer>(entry.getValue()));
+		}
+		return recordMap;
+	}
 
-			if (operator == OPERATOR_DELETE) {
-				recordMap.put(xid, true);
+	/**
+	 * Copies the live records of the master into the slaver without blocking the writers, then swaps the two files.
+	 * Only the records appended after the index snapshot are copied while holding the lock.
+	 */
+	public void syncMasterAndSlaver() {
+		Map<Xid, List<Integer>> recordMap = null;
+		VirtualLoggingCursor cursor = null;
+		int syncIndex = 0;
+		try {
+			this.lock.lock();
+			recordMap = this.copyIndex();
+			syncIndex = this.master.getEndIndex();
+			cursor = this.master.openCursor(); // bounded by syncIndex, later appends are copied by the swap
+		} finally {
+			this.lock.unlock();
+		}
+
+		this.slaver.switchToSlaver(); // discard anything left by an interrupted sync
+
+		Map<Xid, List<Integer>> slaverIndex = new LinkedHashMap<Xid, List<Integer>>(recordMap.size());
+		List<VirtualLoggingRecord> recordList = new ArrayList<VirtualLoggingRecord>();
+		for (Iterator<Map.Entry<Xid, List<Integer>>> itr = recordMap.entrySet().iterator(); itr.hasNext();) {
+			Map.Entry<Xid, List<Integer>> entry = itr.next();
+			List<Integer> offsets = entry.getValue();
+			for (int i = 0; i < offsets.size(); i++) {
+				if (cursor.moveTo(offsets.get(i))) {
+					VirtualLoggingRecord record = this.createRecord(cursor);
+					byte[] byteArray = new byte[cursor.getLength()];
+					cursor.getContent().get(byteArray);
+					record.setContent(byteArray);
+					recordList.add(record);
+				}
 			}
 
+			if (recordList.size() >= COMPRESS_BATCH_SIZE) /* records of one xid are never split across batches */ {
+				this.writeSlaver(this.compressIfNecessary(recordList), slaverIndex);
+				recordList = new ArrayList<VirtualLoggingRecord>();
+			}
 		}
+		this.writeSlaver(this.compressIfNecessary(recordList), slaverIndex);
 
-		return recordMap;
+		this.flushSlaverIfNecessary();
 
+		this.swapMasterAndSlaver(syncIndex, slaverIndex);
 	}
 
-	public List<VirtualLoggingRecord> compressIfNecessary(List<VirtualLoggingRecord> recordList) {
-		return recordList;
+	/**
+	 * Returns the xids which have been deleted in the master.
+	 *
+	 * @deprecated the live-transaction index makes the two-step sync unnecessary, use {@link #syncMasterAndSlaver()}.
+	 */
+	@Deprecated
+	public Map<Xid, Boolean> syncStepOne() {
+		final Map<Xid, Boolean> recordMap = new HashMap<Xid, Boolean>();
+		try {
+			this.lock.lock();
+			this.traversalCursor(new VirtualLoggingCursor.VirtualLoggingCursorListener() {
+				public void recvRecord(VirtualLoggingCursor cursor) {
+					if (cursor.getOperator() == OPERATOR_DELETE) {
+						byte[] keyByteArray = new byte[XidFactory.GLOBAL_TRANSACTION_LENGTH];
+						cursor.getGlobalTransactionId(keyByteArray);
+						VirtualLoggingKey xid = new VirtualLoggingKey();
+						xid.setGlobalTransactionId(keyByteArray);
+						recordMap.put(xid, true);
+					} // end-if (cursor.getOperator() == OPERATOR_DELETE)
+				}
+			});
+		} finally {
+			this.lock.unlock();
+		}
+		return recordMap;
 	}
 
-	public void syncStepTwo(Map<Xid, Boolean> recordMap, boolean compressRequired) {
-		final List<VirtualLoggingRecord> recordList = new ArrayList<VirtualLoggingRecord>(COMPRESS_BATCH_SIZE);
-		while (true) {
-			byte[] byteArray = null;
-			try {
-				byteArray = this.master.read();
-			} catch (RuntimeException rex) {
-				byteArray = new byte[0];
-			}
+	/**
+	 * Copies the records of the master whose xid is not in the specified map into the slaver.
+	 *
+	 * @deprecated the live-transaction index makes the two-step sync unnecessary, use {@link #syncMasterAndSlaver()}.
+	 */
+	@Deprecated
+	public void syncStepTwo(final Map<Xid, Boolean> recordMap, boolean compressRequired) {
+		final List<VirtualLoggingRecord> recordList = new ArrayList<VirtualLoggingRecord>();
+		try {
+			this.lock.lock();
+			this.traversal(new VirtualLoggingListener() {
+				public void recvOperation(VirtualLoggingRecord action) {
+					if (recordMap.containsKey(action.getIdentifier()) == false) {
+						recordList.add(action);
+					} // end-if (recordMap.containsKey(action.getIdentifier()) == false)
+				}
+			});
+			this.stepTwoIndex = this.master.getEndIndex();
+		} finally {
+			this.lock.unlock();
+		}
 
-			if (byteArray.length == 0) {
-				break;
-			}
+		List<VirtualLoggingRecord> resultList = compressRequired ? this.compressIfNecessary(recordList) : recordList;
+		this.writeSlaver(resultList, new HashMap<Xid, List<Integer>>());
+		this.flushSlaverIfNecessary();
+	}
 
-			byte[] keyByteArray = new byte[XidFactory.GLOBAL_TRANSACTION_LENGTH];
-			System.arraycopy(byteArray, 0, keyByteArray, 0, keyByteArray.length);
-			int operator = byteArray[keyByteArray.length];
-			byte[] valueByteArray = new byte[byteArray.length - XidFactory.GLOBAL_TRANSACTION_LENGTH - 1 - 4];
-			System.arraycopy(byteArray, XidFactory.GLOBAL_TRANSACTION_LENGTH + 1 + 4, valueByteArray, 0, valueByteArray.length);
+	/**
+	 * Copies the records appended to the master since {@link #syncStepTwo(Map, boolean)} into the slaver, then swaps
+	 * the two files.
+	 *
+	 * @deprecated the live-transaction index makes the two-step sync unnecessary, use {@link #syncMasterAndSlaver()}.
+	 */
+	@Deprecated
+	public void swapMasterAndSlaver() {
+		try {
+			this.lock.lock();
 
 			VirtualLoggingKey xid = new VirtualLoggingKey();
-			xid.setGlobalTransactionId(keyByteArray);
+			xid.setGlobalTransactionId(new byte[XidFactory.GLOBAL_TRANSACTION_LENGTH]);
 
-			if (recordMap.containsKey(xid)) /* deleted */ {
-				continue;
-			}
-
-			VirtualLoggingRecord record = new VirtualLoggingRecord();
-			record.setIdentifier(xid);
-			record.setOperator(operator);
-			record.setContent(byteArray);
-			record.setValue(valueByteArray);
-
-			recordList.add(record);
-
-			if (compressRequired == false) {
-				continue;
-			} else if (recordList.size() % COMPRESS_BATCH_SIZE != 0) {
-				continue;
+			Map<Xid, List<Integer>> slaverIndex = new LinkedHashMap<Xid, List<Integer>>();
+			VirtualLoggingCursor cursor = this.slaver.openCursor();
+			while (cursor.next()) /* records already copied by syncStepTwo */ {
+				cursor.getGlobalTransactionId(xid.getGlobalTransactionId());
+				this.indexRecord(slaverIndex, xid, cursor.getOperator(), cursor.getPosition());
 			}
 
-			List<VirtualLoggingRecord> compressedList = this.compressIfNecessary(recordList);
-			if (compressedList != recordList && compressedList != null) {
-				recordList.clear();
-				recordList.addAll(compressedList);
-			} // end-if (compressedList != recordList && compressedList != null)
-
+			int syncIndex = this.stepTwoIndex > 0 ? this.stepTwoIndex : this.master.getStartIdx();
+			this.swapMasterAndSlaver(syncIndex, slaverIndex);
+		} finally {
+			this.lock.unlock();
 		}
+	}
 
+	public List<VirtualLoggingRecord> compressIfNecessary(List<VirtualLoggingRecord> recordList) {
+		return recordList;
+	}
+
+	private void writeSlaver(List<VirtualLoggingRecord> recordList, Map<Xid, List<Integer>> slaverIndex) {
+		VirtualLoggingKey xid = new VirtualLoggingKey();
 		for (int i = 0; recordList != null && i < recordList.size(); i++) {
-			VirtualLoggingRecord record = recordList.get(i);
-			Xid xid = record.getIdentifier();
-			if (recordMap.containsKey(xid) == false) {
-				byte[] byteArray = record.getContent();
-				this.slaver.write(byteArray);
-			}
+			byte[] byteArray = recordList.get(i).getContent();
+			int position = this.slaver.write(byteArray);
+			xid.setGlobalTransactionId(Arrays.copyOf(byteArray, XidFactory.GLOBAL_TRANSACTION_LENGTH));
+			this.indexRecord(slaverIndex, xid, byteArray[XidFactory.GLOBAL_TRANSACTION_LENGTH], position);
 		}
-
 	}
 
-	public void swapMasterAndSlaver() {
+	private void swapMasterAndSlaver(int syncIndex, Map<Xid, List<Integer>> slaverIndex) {
 		try {
 			this.lock.lock();
-			this.syncStepTwo(new HashMap<Xid, Boolean>(), false);
+
+			VirtualLoggingKey xid = new VirtualLoggingKey();
+			xid.setGlobalTransactionId(new byte[XidFactory.GLOBAL_TRANSACTION_LENGTH]);
+
+			VirtualLoggingCursor cursor = this.master.openCursor();
+			boolean found = cursor.moveTo(syncIndex);
+			while (found) /* records appended since the snapshot, copied mapped-to-mapped */ {
+				cursor.getGlobalTransactionId(xid.getGlobalTransactionId());
+				int position = this.slaver.write(cursor.getContent());
+				this.indexRecord(slaverIndex, xid, cursor.getOperator(), position);
+				found = cursor.next();
+			}
+
+			this.deleteCheckpoint(); // the offsets of the current checkpoint become invalid after swapping
 
 			this.slaver.markAsMaster();
 			this.master.switchToSlaver();
@@ -389,6 +566,150 @@ public abstract class VirtualLoggingSystemImpl implements VirtualLoggingSystem,
 			this.slaver = this.master;
 			this.master = theNextMaster;
 
+			this.index = slaverIndex;
+			this.checkpointIndex = 0;
+			this.stepTwoIndex = 0;
+			this.generation++;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	private File getCheckpointFile() {
+		return new File(this.directory, String.format("%s%s", this.getLoggingFilePrefix(), CHECKPOINT_NAME));
+	}
+
+	private void deleteCheckpoint() {
+		File checkpoint = this.getCheckpointFile();
+		if (checkpoint.exists() && checkpoint.delete() == false) {
+			logger.warn("Failed to delete the logging checkpoint {}!", checkpoint.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Loads the index saved by the last checkpoint, returns the position of the master from which the remaining
+	 * records still have to be indexed.
+	 */
+	private int loadCheckpoint() {
+		File checkpoint = this.getCheckpointFile();
+		if (checkpoint.exists() == false) {
+			return this.master.getStartIdx();
+		}
+
+		Map<Xid, List<Integer>> recordMap = new LinkedHashMap<Xid, List<Integer>>();
+		VirtualLoggingCursor cursor = this.master.openCursor();
+		int endIndex = 0;
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(new FileInputStream(checkpoint));
+			String name = input.readUTF();
+			endIndex = input.readInt();
+			if (name.equals(this.master.getFile().getName()) == false || endIndex > this.master.getEndIndex()
+					|| endIndex < this.master.getStartIdx()) {
+				logger.warn("The logging checkpoint {} does not match the master, ignore it.", checkpoint.getName());
+				return this.master.getStartIdx();
+			}
+
+			int size = input.readInt();
+			for (int i = 0; i < size; i++) {
+				byte[] keyByteArray = new byte[XidFactory.GLOBAL_TRANSACTION_LENGTH];
+				input.readFully(keyByteArray);
+				int length = input.readInt();
+				List<Integer> offsets = new ArrayList<Integer>(length);
+				for (int j = 0; j < length; j++) {
+					int offset = input.readInt();
+					if (offset >= endIndex || cursor.moveTo(offset) == false || cursor.matches(keyByteArray) == false) {
+						logger.warn("The logging checkpoint {} is corrupted, ignore it.", checkpoint.getName());
+						return this.master.getStartIdx();
+					}
+					offsets.add(offset);
+				}
+
+				VirtualLoggingKey xid = new VirtualLoggingKey();
+				xid.setGlobalTransactionId(keyByteArray);
+				recordMap.put(xid, offsets);
+			}
+		} catch (IOException ex) {
+			logger.warn("Error occurred while loading the logging checkpoint {}, ignore it.", checkpoint.getName(), ex);
+			return this.master.getStartIdx();
+		} finally {
+			CommonUtils.closeQuietly(input);
+		}
+
+		this.index = recordMap;
+		this.checkpointIndex = endIndex;
+		return endIndex;
+	}
+
+	private void writeCheckpointIfNecessary() {
+		try {
+			this.checkpointLock.lock();
+			this.writeCheckpoint();
+		} finally {
+			this.checkpointLock.unlock();
+		}
+	}
+
+	private void writeCheckpoint() {
+		Map<Xid, List<Integer>> recordMap = null;
+		String name = null;
+		int endIndex = 0;
+		int current = 0;
+		try {
+			this.lock.lock();
+			if (this.master.getEndIndex() == this.checkpointIndex) {
+				return;
+			}
+
+			recordMap = this.copyIndex();
+			name = this.master.getFile().getName();
+			endIndex = this.master.getEndIndex();
+			current = this.generation;
+			this.master.flushImmediately(); // the checkpoint must not refer to records which are not durable yet
+		} finally {
+			this.lock.unlock();
+		}
+
+		File checkpoint = this.getCheckpointFile();
+		File temporary = new File(this.directory, String.format("%s%s.tmp", this.getLoggingFilePrefix(), CHECKPOINT_NAME));
+
+		FileOutputStream stream = null;
+		try {
+			stream = new FileOutputStream(temporary);
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream));
+			output.writeUTF(name);
+			output.writeInt(endIndex);
+			output.writeInt(recordMap.size());
+			for (Iterator<Map.Entry<Xid, List<Integer>>> itr = recordMap.entrySet().iterator(); itr.hasNext();) {
+				Map.Entry<Xid, List<Integer>> entry = itr.next();
+				byte[] globalByteArray = entry.getKey().getGlobalTransactionId();
+				output.write(Arrays.copyOf(globalByteArray, XidFactory.GLOBAL_TRANSACTION_LENGTH));
+				List<Integer> offsets = entry.getValue();
+				output.writeInt(offsets.size());
+				for (int i = 0; i < offsets.size(); i++) {
+					output.writeInt(offsets.get(i));
+				}
+			}
+			output.flush();
+			stream.getFD().sync();
+		} catch (IOException ex) {
+			logger.error("Error occurred while writing the logging checkpoint!", ex);
+			return;
+		} finally {
+			CommonUtils.closeQuietly(stream);
+		}
+
+		try {
+			this.lock.lock();
+			if (current != this.generation) {
+				return; // swapped in the meantime
+			}
+
+			Files.move(temporary.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			this.checkpointIndex = endIndex;
+		} catch (IOException ex) {
+			logger.error("Error occurred while replacing the logging checkpoint!", ex);
 		} finally {
 			this.lock.unlock();
 		}
@@ -416,6 +737,12 @@ public abstract class VirtualLoggingSystemImpl implements VirtualLoggingSystem,
 	}
 
 	public void shutdown() {
+		if (this.flusher != null) {
+			this.flusher.release();
+		}
+
+		this.writeCheckpointIfNecessary();
+
 		this.master.flushImmediately();
 		this.slaver.flushImmediately();
 
@@ -471,6 +798,30 @@ public abstract class VirtualLoggingSystemImpl implements VirtualLoggingSystem,
 		this.optimized = optimized;
 	}
 
+	public boolean isGroupCommitEnabled() {
+		return groupCommitEnabled;
+	}
+
+	public void setGroupCommitEnabled(boolean groupCommitEnabled) {
+		this.groupCommitEnabled = groupCommitEnabled;
+	}
+
+	public int getGroupCommitBatchSize() {
+		return groupCommitBatchSize;
+	}
+
+	public void setGroupCommitBatchSize(int groupCommitBatchSize) {
+		this.groupCommitBatchSize = groupCommitBatchSize;
+	}
+
+	public long getGroupCommitLingerMillis() {
+		return groupCommitLingerMillis;
+	}
+
+	public void setGroupCommitLingerMillis(long groupCommitLingerMillis) {
+		this.groupCommitLingerMillis = groupCommitLingerMillis;
+	}
+
 	public File getDirectory() {
 		return directory;
 	}
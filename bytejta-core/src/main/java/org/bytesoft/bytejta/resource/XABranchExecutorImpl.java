@@ -0,0 +1,98 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.resource;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bytesoft.transaction.resource.XABranchExecutor;
+
+/**
+ * Bounded pool used by XATerminatorImpl to call the branches of one phase concurrently. The pool rejects what it can
+ * not queue; XATerminatorImpl then calls the branch on the thread driving the transaction, so a saturated pool
+ * degrades to the sequential behavior.
+ */
+public class XABranchExecutorImpl implements XABranchExecutor {
+
+	private int maximumPoolSize = 32;
+	private int queueCapacity = 1024;
+	private long branchTimeout = 30000L;
+
+	private volatile ThreadPoolExecutor executor;
+
+	public ExecutorService getExecutorService() {
+		ThreadPoolExecutor current = this.executor;
+		if (current == null) {
+			synchronized (this) {
+				if (this.executor == null) {
+					this.executor = this.createExecutor();
+				}
+				current = this.executor;
+			}
+		}
+		return current;
+	}
+
+	private ThreadPoolExecutor createExecutor() {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(this.maximumPoolSize, this.maximumPoolSize, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(this.queueCapacity), new ThreadFactory() {
+					private final AtomicInteger counter = new AtomicInteger();
+
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "bytejta-branch-" + this.counter.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				}, new ThreadPoolExecutor.AbortPolicy());
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	public synchronized void shutdown() {
+		if (this.executor != null) {
+			this.executor.shutdown();
+		}
+	}
+
+	public int getMaximumPoolSize() {
+		return maximumPoolSize;
+	}
+
+	public void setMaximumPoolSize(int maximumPoolSize) {
+		this.maximumPoolSize = maximumPoolSize;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public long getBranchTimeout() {
+		return branchTimeout;
+	}
+
+	public void setBranchTimeout(long branchTimeout) {
+		this.branchTimeout = branchTimeout;
+	}
+
+}
@@ -17,6 +17,17 @@ package org.bytesoft.bytejta.resource;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
@@ -26,6 +37,7 @@ import org.bytesoft.common.utils.ByteUtils;
 import org.bytesoft.transaction.TransactionBeanFactory;
 import org.bytesoft.transaction.archive.XAResourceArchive;
 import org.bytesoft.transaction.logging.TransactionLogger;
+import org.bytesoft.transaction.resource.XABranchExecutor;
 import org.bytesoft.transaction.resource.XATerminator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,47 +45,156 @@ import org.slf4j.LoggerFactory;
 public class XATerminatorImpl implements XATerminator {
 	static final Logger logger = LoggerFactory.getLogger(XATerminatorImpl.class);
 
+	private final Lock lock = new ReentrantLock();
+
+	static final int BRANCH_COMMITTED = 0x1;
+	static final int BRANCH_ROLLEDBACK = 0x2;
+	static final int BRANCH_UNFINISHED = 0x4;
+	static final int BRANCH_ERROR = 0x8;
+
 	private TransactionBeanFactory beanFactory;
 	private final List<XAResourceArchive> resources = new ArrayList<XAResourceArchive>();
 
-	public synchronized int prepare(Xid xid) throws XAException {
+	public int prepare(Xid xid) throws XAException {
+		this.lock.lock();
+		try {
+			int globalVote = XAResource.XA_RDONLY;
+			if (this.isConcurrentRequired()) {
+				int[] votes = this.invokeConcurrently(new XABranchInvoker() {
+					public int invoke(XAResourceArchive archive) throws XAException {
+						return prepareBranch(archive);
+					}
+
+					public int timeout(XAResourceArchive archive) throws XAException {
+						throw new XAException(XAException.XAER_RMFAIL);
+					}
+				}, false);
+				for (int i = 0; i < votes.length; i++) {
+					globalVote = votes[i] == XAResource.XA_RDONLY ? globalVote : XAResource.XA_OK;
+				}
+			} else {
+				for (int i = 0; i < this.resources.size(); i++) {
+					int branchVote = this.prepareBranch(this.resources.get(i));
+					globalVote = branchVote == XAResource.XA_RDONLY ? globalVote : XAResource.XA_OK;
+				}
+			}
+
+			return globalVote;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	private int prepareBranch(XAResourceArchive archive) throws XAException {
 		TransactionLogger transactionLogger = this.beanFactory.getTransactionLogger();
 
-		int globalVote = XAResource.XA_RDONLY;
-		for (int i = 0; i < this.resources.size(); i++) {
-			XAResourceArchive archive = this.resources.get(i);
+		int branchVote = XAResource.XA_RDONLY;
+		boolean prepared = archive.getVote() != XAResourceArchive.DEFAULT_VOTE;
+		if (prepared) {
+			branchVote = archive.getVote() == XAResource.XA_RDONLY ? XAResource.XA_RDONLY : XAResource.XA_OK;
+		} else {
+			int vote = archive.prepare(archive.getXid());
+			archive.setVote(vote);
 
-			boolean prepared = archive.getVote() != XAResourceArchive.DEFAULT_VOTE;
-			if (prepared) {
-				globalVote = archive.getVote() == XAResource.XA_RDONLY ? globalVote : XAResource.XA_OK;
+			if (vote == XAResource.XA_RDONLY) {
+				archive.setReadonly(true);
+				archive.setCompleted(true);
 			} else {
-				int branchVote = archive.prepare(archive.getXid());
-				archive.setVote(branchVote);
+				branchVote = XAResource.XA_OK;
+			}
 
-				if (branchVote == XAResource.XA_RDONLY) {
-					archive.setReadonly(true);
-					archive.setCompleted(true);
-				} else {
-					globalVote = XAResource.XA_OK;
-				}
+			transactionLogger.updateParticipant(archive);
+		}
 
-				transactionLogger.updateParticipant(archive);
+		logger.info("{}> prepare: xares= {}, branch= {}, vote= {}",
+				ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
+				ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()), archive.getVote());
+
+		return branchVote;
+	}
+
+	private boolean isConcurrentRequired() {
+		XABranchExecutor branchExecutor = this.beanFactory.getBranchExecutor();
+		if (branchExecutor == null || this.resources.size() < 2) {
+			return false;
+		}
+
+		ExecutorService executor = branchExecutor.getExecutorService();
+		return executor != null && executor.isShutdown() == false;
+	}
+
+	/**
+	 * Calls every branch on the branch executor and waits for all of them, in reverse order of enlistment when required.
+	 * A branch which has not been started within the branch timeout is withdrawn and resolved by invoker.timeout; a
+	 * branch which has already been started is always waited for, so its archive is never shared with the caller. The
+	 * first error thrown by a branch is rethrown once all branches have returned.
+	 */
+	private int[] invokeConcurrently(final XABranchInvoker invoker, boolean reverse) throws XAException {
+		XABranchExecutor branchExecutor = this.beanFactory.getBranchExecutor();
+		ExecutorService executor = branchExecutor.getExecutorService();
+		long timeout = branchExecutor.getBranchTimeout();
+
+		int size = this.resources.size();
+		List<XABranchTask> tasks = new ArrayList<XABranchTask>(size);
+		for (int i = 0; i < size; i++) {
+			tasks.add(new XABranchTask(invoker, this.resources.get(i)));
+		}
+		for (int i = 0; i < size; i++) {
+			XABranchTask task = tasks.get(reverse ? size - 1 - i : i);
+			try {
+				task.future = executor.submit(task);
+			} catch (RejectedExecutionException ex) {
+				FutureTask<Integer> future = new FutureTask<Integer>(task); // saturated or shut down, call it here
+				task.future = future;
+				future.run();
 			}
+		}
 
-			logger.info("{}> prepare: xares= {}, branch= {}, vote= {}",
-					ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
-					ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()), archive.getVote());
+		int[] results = new int[size];
+		XAException xaError = null;
+		RuntimeException rtError = null;
+		long deadline = System.currentTimeMillis() + timeout;
+		for (int i = 0; i < size; i++) {
+			XABranchTask task = tasks.get(i);
+			XAResourceArchive archive = task.archive;
+			try {
+				results[i] = task.await(timeout > 0 ? deadline : 0);
+			} catch (XAException xaex) {
+				xaError = xaError == null ? xaex : xaError;
+			} catch (RuntimeException rex) {
+				rtError = rtError == null ? rex : rtError;
+			} catch (TimeoutException ex) {
+				logger.error("{}> Timed out while waiting for xa-resource: xares= {}, branch= {}, timeout= {}",
+						ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
+						ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()), timeout);
+				try {
+					results[i] = invoker.timeout(archive); // the branch has never been called
+				} catch (XAException xaex) {
+					xaError = xaError == null ? xaex : xaError;
+				}
+			}
+		}
+
+		if (xaError != null) {
+			throw xaError;
+		} else if (rtError != null) {
+			throw rtError;
 		}
 
-		return globalVote;
+		return results;
 	}
 
 	/** error: XA_HEURHAZ, XA_HEURMIX, XA_HEURCOM, XA_HEURRB, XA_RDONLY, XAER_RMERR */
-	public synchronized void commit(Xid xid, boolean onePhase) throws XAException {
-		if (onePhase) {
-			this.fireOnePhaseCommit(xid);
-		} else {
-			this.fireTwoPhaseCommit(xid);
+	public void commit(Xid xid, boolean onePhase) throws XAException {
+		this.lock.lock();
+		try {
+			if (onePhase) {
+				this.fireOnePhaseCommit(xid);
+			} else {
+				this.fireTwoPhaseCommit(xid);
+			}
+		} finally {
+			this.lock.unlock();
 		}
 	}
 
@@ -157,96 +278,30 @@ public class XATerminatorImpl implements XATerminator {
 	}
 
 	private void fireTwoPhaseCommit(Xid xid) throws XAException {
-		TransactionLogger transactionLogger = this.beanFactory.getTransactionLogger();
-
-		boolean committedExists = false;
-		boolean rolledbackExists = false;
-		boolean unFinishExists = false;
-		boolean errorExists = false;
-
-		for (int i = this.resources.size() - 1; i >= 0; i--) {
-			XAResourceArchive archive = this.resources.get(i);
-
-			if (archive.isCommitted() && archive.isRolledback()) {
-				committedExists = true;
-				rolledbackExists = true;
-				continue;
-			} else if (archive.isCommitted()) {
-				committedExists = true;
-				continue;
-			} else if (archive.isReadonly()) {
-				continue;
-			} else if (archive.isRolledback()) {
-				rolledbackExists = true;
-				continue;
-			}
-
-			Xid branchXid = archive.getXid();
-			boolean updateRequired = true;
-			try {
-				this.invokeTwoPhaseCommit(archive);
-				committedExists = true;
-				archive.setCommitted(true);
-				archive.setCompleted(true);
-				logger.info("{}> commit: xares= {}, branch= {}, onePhaseCommit= {}",
-						ByteUtils.byteArrayToString(branchXid.getGlobalTransactionId()), archive,
-						ByteUtils.byteArrayToString(branchXid.getBranchQualifier()), false);
-			} catch (XAException xaex) {
-				logger.error("{}> Error occurred while committing xa-resource: xares= {}, branch= {}, code= {}",
-						ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
-						ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()), xaex.errorCode, xaex);
-
-				switch (xaex.errorCode) {
-				case XAException.XA_HEURHAZ:
-					archive.setHeuristic(true);
-					unFinishExists = true;
-					break;
-				case XAException.XA_HEURMIX:
-					committedExists = true;
-					rolledbackExists = true;
-
-					archive.setCommitted(true);
-					archive.setRolledback(true);
-					archive.setHeuristic(true);
-					archive.setCompleted(true);
-					break;
-				case XAException.XA_HEURCOM:
-					committedExists = true;
-					archive.setCommitted(true);
-					archive.setHeuristic(true);
-					archive.setCompleted(true);
-					break;
-				case XAException.XA_HEURRB:
-					rolledbackExists = true;
-					archive.setRolledback(true);
-					archive.setHeuristic(true);
-					archive.setCompleted(true);
-					break;
-				case XAException.XAER_RMFAIL:
-					unFinishExists = true;
-					updateRequired = false;
-					break;
-				case XAException.XA_RDONLY:
-					archive.setReadonly(true);
-					break;
-				case XAException.XAER_RMERR:
-				default:
-					errorExists = true;
-					updateRequired = false;
+		int flags = 0;
+		if (this.isConcurrentRequired()) {
+			int[] results = this.invokeConcurrently(new XABranchInvoker() {
+				public int invoke(XAResourceArchive archive) {
+					return commitBranch(archive);
 				}
-			} catch (RuntimeException rex) {
-				logger.error("{}> Error occurred while committing xa-resource: xares= {}, branch= {}",
-						ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
-						ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()), rex);
-				unFinishExists = true;
-				updateRequired = false;
-			} finally {
-				if (updateRequired) {
-					transactionLogger.updateParticipant(archive);
+
+				public int timeout(XAResourceArchive archive) {
+					return BRANCH_UNFINISHED;
 				}
+			}, true);
+			for (int i = 0; i < results.length; i++) {
+				flags |= results[i];
+			}
+		} else {
+			for (int i = this.resources.size() - 1; i >= 0; i--) {
+				flags |= this.commitBranch(this.resources.get(i));
 			}
+		}
 
-		} // end-for
+		boolean committedExists = (flags & BRANCH_COMMITTED) != 0;
+		boolean rolledbackExists = (flags & BRANCH_ROLLEDBACK) != 0;
+		boolean unFinishExists = (flags & BRANCH_UNFINISHED) != 0;
+		boolean errorExists = (flags & BRANCH_ERROR) != 0;
 
 		if (committedExists && rolledbackExists) {
 			throw new XAException(XAException.XA_HEURMIX);
@@ -262,6 +317,87 @@ public class XATerminatorImpl implements XATerminator {
 
 	}
 
+	private int commitBranch(XAResourceArchive archive) {
+		TransactionLogger transactionLogger = this.beanFactory.getTransactionLogger();
+
+		if (archive.isCommitted() && archive.isRolledback()) {
+			return BRANCH_COMMITTED | BRANCH_ROLLEDBACK;
+		} else if (archive.isCommitted()) {
+			return BRANCH_COMMITTED;
+		} else if (archive.isReadonly()) {
+			return 0;
+		} else if (archive.isRolledback()) {
+			return BRANCH_ROLLEDBACK;
+		}
+
+		int flags = 0;
+		Xid branchXid = archive.getXid();
+		boolean updateRequired = true;
+		try {
+			this.invokeTwoPhaseCommit(archive);
+			flags |= BRANCH_COMMITTED;
+			archive.setCommitted(true);
+			archive.setCompleted(true);
+			logger.info("{}> commit: xares= {}, branch= {}, onePhaseCommit= {}",
+					ByteUtils.byteArrayToString(branchXid.getGlobalTransactionId()), archive,
+					ByteUtils.byteArrayToString(branchXid.getBranchQualifier()), false);
+		} catch (XAException xaex) {
+			logger.error("{}> Error occurred while committing xa-resource: xares= {}, branch= {}, code= {}",
+					ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
+					ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()), xaex.errorCode, xaex);
+
+			switch (xaex.errorCode) {
+			case XAException.XA_HEURHAZ:
+				archive.setHeuristic(true);
+				flags |= BRANCH_UNFINISHED;
+				break;
+			case XAException.XA_HEURMIX:
+				flags |= BRANCH_COMMITTED | BRANCH_ROLLEDBACK;
+
+				archive.setCommitted(true);
+				archive.setRolledback(true);
+				archive.setHeuristic(true);
+				archive.setCompleted(true);
+				break;
+			case XAException.XA_HEURCOM:
+				flags |= BRANCH_COMMITTED;
+				archive.setCommitted(true);
+				archive.setHeuristic(true);
+				archive.setCompleted(true);
+				break;
+			case XAException.XA_HEURRB:
+				flags |= BRANCH_ROLLEDBACK;
+				archive.setRolledback(true);
+				archive.setHeuristic(true);
+				archive.setCompleted(true);
+				break;
+			case XAException.XAER_RMFAIL:
+				flags |= BRANCH_UNFINISHED;
+				updateRequired = false;
+				break;
+			case XAException.XA_RDONLY:
+				archive.setReadonly(true);
+				break;
+			case XAException.XAER_RMERR:
+			default:
+				flags |= BRANCH_ERROR;
+				updateRequired = false;
+			}
+		} catch (RuntimeException rex) {
+			logger.error("{}> Error occurred while committing xa-resource: xares= {}, branch= {}",
+					ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
+					ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()), rex);
+			flags |= BRANCH_UNFINISHED;
+			updateRequired = false;
+		} finally {
+			if (updateRequired) {
+				transactionLogger.updateParticipant(archive);
+			}
+		}
+
+		return flags;
+	}
+
 	private void invokeOnePhaseCommit(XAResourceArchive archive) throws XAException {
 		try {
 			archive.commit(archive.getXid(), true);
@@ -360,107 +496,129 @@ public class XATerminatorImpl implements XATerminator {
 	}
 
 	/** error: XA_HEURHAZ, XA_HEURMIX, XA_HEURCOM, XA_HEURRB, XA_RDONLY, XAER_RMERR */
-	public synchronized void rollback(Xid xid) throws XAException {
-		TransactionLogger transactionLogger = this.beanFactory.getTransactionLogger();
+	public void rollback(Xid xid) throws XAException {
+		this.lock.lock();
+		try {
+			int flags = 0;
+			if (this.isConcurrentRequired()) {
+				int[] results = this.invokeConcurrently(new XABranchInvoker() {
+					public int invoke(XAResourceArchive archive) {
+						return rollbackBranch(archive);
+					}
+
+					public int timeout(XAResourceArchive archive) {
+						return BRANCH_UNFINISHED;
+					}
+				}, false);
+				for (int i = 0; i < results.length; i++) {
+					flags |= results[i];
+				}
+			} else {
+				for (int i = 0; i < this.resources.size(); i++) {
+					flags |= this.rollbackBranch(this.resources.get(i));
+				}
+			}
 
-		boolean committedExists = false;
-		boolean rolledbackExists = false;
-		boolean unFinishExists = false;
-		boolean errorExists = false;
-		for (int i = 0; i < this.resources.size(); i++) {
-			XAResourceArchive archive = this.resources.get(i);
+			boolean committedExists = (flags & BRANCH_COMMITTED) != 0;
+			boolean rolledbackExists = (flags & BRANCH_ROLLEDBACK) != 0;
+			boolean unFinishExists = (flags & BRANCH_UNFINISHED) != 0;
+			boolean errorExists = (flags & BRANCH_ERROR) != 0;
 
-			if (archive.isCommitted() && archive.isRolledback()) {
-				committedExists = true;
-				rolledbackExists = true;
-				continue;
-			} else if (archive.isRolledback()) {
-				rolledbackExists = true;
-				continue;
-			} else if (archive.isReadonly()) {
-				continue;
-			} else if (archive.isCommitted()) {
-				committedExists = true;
-				continue;
+			if (committedExists && rolledbackExists) {
+				throw new XAException(XAException.XA_HEURMIX);
+			} else if (unFinishExists) {
+				throw new XAException(XAException.XA_HEURHAZ);
+			} else if (errorExists) {
+				throw new XAException(XAException.XAER_RMERR);
+			} else if (committedExists) {
+				throw new XAException(XAException.XA_HEURCOM);
+			} else if (rolledbackExists == false) {
+				throw new XAException(XAException.XA_RDONLY);
 			}
 
-			boolean updateRequired = true;
-			try {
-				this.invokeRollback(archive);
-				rolledbackExists = true;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	private int rollbackBranch(XAResourceArchive archive) {
+		TransactionLogger transactionLogger = this.beanFactory.getTransactionLogger();
+
+		if (archive.isCommitted() && archive.isRolledback()) {
+			return BRANCH_COMMITTED | BRANCH_ROLLEDBACK;
+		} else if (archive.isRolledback()) {
+			return BRANCH_ROLLEDBACK;
+		} else if (archive.isReadonly()) {
+			return 0;
+		} else if (archive.isCommitted()) {
+			return BRANCH_COMMITTED;
+		}
+
+		int flags = 0;
+		boolean updateRequired = true;
+		try {
+			this.invokeRollback(archive);
+			flags |= BRANCH_ROLLEDBACK;
+			archive.setRolledback(true);
+			archive.setCompleted(true);
+			logger.info("{}> rollback: xares= {}, branch= {}",
+					ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
+					ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()));
+		} catch (XAException xaex) {
+			logger.error("{}> Error occurred while rolling back xa-resource: xares= {}, branch= {}, code= {}",
+					ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
+					ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()), xaex.errorCode, xaex);
+
+			switch (xaex.errorCode) {
+			case XAException.XA_HEURHAZ:
+				flags |= BRANCH_UNFINISHED;
+				archive.setHeuristic(true);
+				break;
+			case XAException.XA_HEURMIX:
+				flags |= BRANCH_COMMITTED | BRANCH_ROLLEDBACK;
+				archive.setCommitted(true);
 				archive.setRolledback(true);
+				archive.setHeuristic(true);
 				archive.setCompleted(true);
-				logger.info("{}> rollback: xares= {}, branch= {}",
-						ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
-						ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()));
-			} catch (XAException xaex) {
-				logger.error("{}> Error occurred while rolling back xa-resource: xares= {}, branch= {}, code= {}",
-						ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
-						ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()), xaex.errorCode, xaex);
-
-				switch (xaex.errorCode) {
-				case XAException.XA_HEURHAZ:
-					unFinishExists = true;
-					archive.setHeuristic(true);
-					break;
-				case XAException.XA_HEURMIX:
-					committedExists = true;
-					rolledbackExists = true;
-					archive.setCommitted(true);
-					archive.setRolledback(true);
-					archive.setHeuristic(true);
-					archive.setCompleted(true);
-					break;
-				case XAException.XA_HEURCOM:
-					committedExists = true;
-					archive.setCommitted(true);
-					archive.setHeuristic(true);
-					archive.setCompleted(true);
-					break;
-				case XAException.XA_HEURRB:
-					rolledbackExists = true;
-					archive.setRolledback(true);
-					archive.setHeuristic(true);
-					archive.setCompleted(true);
-					break;
-				case XAException.XA_RDONLY:
-					archive.setReadonly(true);
-					archive.setCompleted(true);
-					break;
-				case XAException.XAER_RMFAIL:
-					unFinishExists = true;
-					updateRequired = false;
-					break;
-				case XAException.XAER_RMERR:
-				default:
-					errorExists = true;
-					updateRequired = false;
-				}
-			} catch (RuntimeException rex) {
-				unFinishExists = true;
+				break;
+			case XAException.XA_HEURCOM:
+				flags |= BRANCH_COMMITTED;
+				archive.setCommitted(true);
+				archive.setHeuristic(true);
+				archive.setCompleted(true);
+				break;
+			case XAException.XA_HEURRB:
+				flags |= BRANCH_ROLLEDBACK;
+				archive.setRolledback(true);
+				archive.setHeuristic(true);
+				archive.setCompleted(true);
+				break;
+			case XAException.XA_RDONLY:
+				archive.setReadonly(true);
+				archive.setCompleted(true);
+				break;
+			case XAException.XAER_RMFAIL:
+				flags |= BRANCH_UNFINISHED;
+				updateRequired = false;
+				break;
+			case XAException.XAER_RMERR:
+			default:
+				flags |= BRANCH_ERROR;
 				updateRequired = false;
-				logger.error("{}> Error occurred while rolling back xa-resource: xares= {}, branch= {}",
-						ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
-						ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()), rex);
-			} finally {
-				if (updateRequired) {
-					transactionLogger.updateParticipant(archive);
-				}
+			}
+		} catch (RuntimeException rex) {
+			flags |= BRANCH_UNFINISHED;
+			updateRequired = false;
+			logger.error("{}> Error occurred while rolling back xa-resource: xares= {}, branch= {}",
+					ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
+					ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()), rex);
+		} finally {
+			if (updateRequired) {
+				transactionLogger.updateParticipant(archive);
 			}
 		}
 
-		if (committedExists && rolledbackExists) {
-			throw new XAException(XAException.XA_HEURMIX);
-		} else if (unFinishExists) {
-			throw new XAException(XAException.XA_HEURHAZ);
-		} else if (errorExists) {
-			throw new XAException(XAException.XAER_RMERR);
-		} else if (committedExists) {
-			throw new XAException(XAException.XA_HEURCOM);
-		} else if (rolledbackExists == false) {
-			throw new XAException(XAException.XA_RDONLY);
-		}
-
+		return flags;
 	}
 
 	private void invokeRollback(XAResourceArchive archive) throws XAException {
@@ -605,4 +763,78 @@ public class XATerminatorImpl implements XATerminator {
 		this.beanFactory = beanFactory;
 	}
 
+	private static interface XABranchInvoker {
+		public int invoke(XAResourceArchive archive) throws XAException;
+
+		public int timeout(XAResourceArchive archive) throws XAException;
+	}
+
+	/**
+	 * A branch call which can only be withdrawn before it starts: once started it owns the archive until it returns.
+	 */
+	private static class XABranchTask implements Callable<Integer> {
+		static final int STATE_NEW = 0;
+		static final int STATE_STARTED = 1;
+		static final int STATE_WITHDRAWN = 2;
+
+		private final AtomicInteger state = new AtomicInteger(STATE_NEW);
+		private final XABranchInvoker invoker;
+		private final XAResourceArchive archive;
+		private Future<Integer> future;
+
+		public XABranchTask(XABranchInvoker invoker, XAResourceArchive archive) {
+			this.invoker = invoker;
+			this.archive = archive;
+		}
+
+		public Integer call() throws XAException {
+			if (this.state.compareAndSet(STATE_NEW, STATE_STARTED) == false) {
+				return 0; // withdrawn, the result is ignored
+			}
+			return this.invoker.invoke(this.archive);
+		}
+
+		/**
+		 * @param deadline the time after which a branch not yet started is withdrawn, 0 means no deadline.
+		 * @throws TimeoutException if the branch has been withdrawn without being called.
+		 */
+		public int await(long deadline) throws XAException, TimeoutException {
+			boolean interrupted = false;
+			try {
+				while (true) {
+					long waitMillis = deadline - System.currentTimeMillis();
+					if (deadline > 0 && waitMillis <= 0 && this.state.compareAndSet(STATE_NEW, STATE_WITHDRAWN)) {
+						this.future.cancel(false);
+						throw new TimeoutException();
+					}
+
+					try {
+						if (deadline > 0 && waitMillis > 0) {
+							return this.future.get(waitMillis, TimeUnit.MILLISECONDS);
+						} else {
+							return this.future.get(); // started, wait until the branch returns
+						}
+					} catch (TimeoutException ex) {
+						continue; // withdraw the branch, or keep waiting if it has been started
+					} catch (InterruptedException ex) {
+						interrupted = true;
+					} catch (ExecutionException ex) {
+						Throwable cause = ex.getCause();
+						if (XAException.class.isInstance(cause)) {
+							throw (XAException) cause;
+						} else if (RuntimeException.class.isInstance(cause)) {
+							throw (RuntimeException) cause;
+						} else {
+							throw new IllegalStateException(cause);
+						}
+					}
+				}
+			} finally {
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
 }
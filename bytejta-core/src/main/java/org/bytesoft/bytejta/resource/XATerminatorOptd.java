@@ -19,6 +19,8 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
@@ -35,47 +37,59 @@ import org.slf4j.LoggerFactory;
 public class XATerminatorOptd implements XATerminator {
 	static final Logger logger = LoggerFactory.getLogger(XATerminatorOptd.class);
 
+	private final Lock lock = new ReentrantLock();
+
 	private TransactionBeanFactory beanFactory;
 	private XAResourceArchive archive;
 
-	public synchronized int prepare(Xid xid) throws XAException {
-		if (this.archive == null) {
-			return XAResource.XA_RDONLY;
-		}
-		TransactionLogger transactionLogger = this.beanFactory.getTransactionLogger();
-
-		boolean prepared = archive.getVote() != XAResourceArchive.DEFAULT_VOTE;
+	public int prepare(Xid xid) throws XAException {
+		this.lock.lock();
+		try {
+			if (this.archive == null) {
+				return XAResource.XA_RDONLY;
+			}
+			TransactionLogger transactionLogger = this.beanFactory.getTransactionLogger();
 
-		int globalVote = XAResource.XA_RDONLY;
-		if (prepared) {
-			globalVote = archive.getVote();
-		} else {
-			globalVote = archive.prepare(archive.getXid());
-			archive.setVote(globalVote);
+			boolean prepared = archive.getVote() != XAResourceArchive.DEFAULT_VOTE;
 
-			if (globalVote == XAResource.XA_RDONLY) {
-				archive.setReadonly(true);
-				archive.setCompleted(true);
+			int globalVote = XAResource.XA_RDONLY;
+			if (prepared) {
+				globalVote = archive.getVote();
 			} else {
-				globalVote = XAResource.XA_OK;
-			}
+				globalVote = archive.prepare(archive.getXid());
+				archive.setVote(globalVote);
 
-			transactionLogger.updateParticipant(archive);
-		}
+				if (globalVote == XAResource.XA_RDONLY) {
+					archive.setReadonly(true);
+					archive.setCompleted(true);
+				} else {
+					globalVote = XAResource.XA_OK;
+				}
 
-		logger.info("{}> prepare: xares= {}, branch= {}, vote= {}",
-				ByteUtils.byteArrayToString(this.archive.getXid().getGlobalTransactionId()), archive,
-				ByteUtils.byteArrayToString(this.archive.getXid().getBranchQualifier()), globalVote);
+				transactionLogger.updateParticipant(archive);
+			}
 
-		return globalVote;
+			logger.info("{}> prepare: xares= {}, branch= {}, vote= {}",
+					ByteUtils.byteArrayToString(this.archive.getXid().getGlobalTransactionId()), archive,
+					ByteUtils.byteArrayToString(this.archive.getXid().getBranchQualifier()), globalVote);
+
+			return globalVote;
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
 	/** error: XA_HEURHAZ, XA_HEURMIX, XA_HEURCOM, XA_HEURRB, XA_RDONLY, XAER_RMERR */
-	public synchronized void commit(Xid xid, boolean onePhase) throws XAException {
-		if (onePhase) {
-			this.fireOnePhaseCommit(xid);
-		} else {
-			this.fireTwoPhaseCommit(xid);
+	public void commit(Xid xid, boolean onePhase) throws XAException {
+		this.lock.lock();
+		try {
+			if (onePhase) {
+				this.fireOnePhaseCommit(xid);
+			} else {
+				this.fireTwoPhaseCommit(xid);
+			}
+		} finally {
+			this.lock.unlock();
 		}
 	}
 
@@ -274,126 +288,131 @@ public class XATerminatorOptd implements XATerminator {
 	}
 
 	/** error: XA_HEURHAZ, XA_HEURMIX, XA_HEURCOM, XA_HEURRB, XA_RDONLY, XAER_RMERR */
-	public synchronized void rollback(Xid xid) throws XAException {
-		if (archive.isCommitted() && archive.isRolledback()) {
-			throw new XAException(XAException.XA_HEURMIX);
-		} else if (archive.isRolledback()) {
-			return;
-		} else if (archive.isReadonly()) {
-			throw new XAException(XAException.XA_RDONLY);
-		} else if (archive.isCommitted()) {
-			throw new XAException(XAException.XA_HEURCOM);
-		}
-
-		TransactionLogger transactionLogger = this.beanFactory.getTransactionLogger();
-
-		boolean updateRequired = true;
+	public void rollback(Xid xid) throws XAException {
+		this.lock.lock();
 		try {
-			archive.rollback(archive.getXid());
-			archive.setRolledback(true);
-			archive.setCompleted(true);
+			if (archive.isCommitted() && archive.isRolledback()) {
+				throw new XAException(XAException.XA_HEURMIX);
+			} else if (archive.isRolledback()) {
+				return;
+			} else if (archive.isReadonly()) {
+				throw new XAException(XAException.XA_RDONLY);
+			} else if (archive.isCommitted()) {
+				throw new XAException(XAException.XA_HEURCOM);
+			}
 
-			logger.info("{}> rollback: xares= {}, branch= {}",
-					ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
-					ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()));
-		} catch (XAException xaex) {
-			logger.error("{}> Error occurred while rolling back xa-resource: xares= {}, branch= {}, code= {}",
-					ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
-					ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()), xaex.errorCode, xaex);
-
-			// * @exception XAException An error has occurred. Possible XAExceptions are
-			// * XA_HEURHAZ, XA_HEURCOM, XA_HEURRB, XA_HEURMIX, XAER_RMERR, XAER_RMFAIL,
-			// * XAER_NOTA, XAER_INVAL, or XAER_PROTO.
-			// * <p>If the transaction branch is already marked rollback-only the
-			// * resource manager may throw one of the XA_RB* exceptions. Upon return,
-			// * the resource manager has rolled back the branch's work and has released
-			// * all held resources.
-			switch (xaex.errorCode) {
-			case XAException.XA_HEURHAZ:
-				// Due to some failure, the work done on behalf of the specified transaction branch
-				// may have been heuristically completed. A resource manager may return this
-				// value only if it has successfully prepared xid.
-				archive.setHeuristic(true);
-				throw xaex;
-			case XAException.XA_HEURMIX:
-				// Due to a heuristic decision, the work done on behalf of the specified transaction
-				// branch was partially committed and partially rolled back. A resource manager
-				// may return this value only if it has successfully prepared xid.
-				archive.setHeuristic(true);
-				archive.setCommitted(true);
-				archive.setRolledback(true);
-				archive.setCompleted(true);
-				throw xaex;
-			case XAException.XA_HEURCOM:
-				// Due to a heuristic decision, the work done on behalf of the specified transaction
-				// branch was committed. A resource manager may return this value only if it has
-				// successfully prepared xid.
-				archive.setHeuristic(true);
-				archive.setCommitted(true);
-				archive.setCompleted(true);
-				throw xaex;
-			case XAException.XA_HEURRB:
-				// Due to a heuristic decision, the work done on behalf of the specified transaction
-				// branch was rolled back. A resource manager may return this value only if it has
-				// successfully prepared xid.
-				archive.setHeuristic(true);
+			TransactionLogger transactionLogger = this.beanFactory.getTransactionLogger();
+
+			boolean updateRequired = true;
+			try {
+				archive.rollback(archive.getXid());
 				archive.setRolledback(true);
 				archive.setCompleted(true);
-				break;
-			case XAException.XAER_RMFAIL:
-				// An error occurred that makes the resource manager unavailable.
 
-				updateRequired = false;
-				throw new XAException(XAException.XA_HEURHAZ);
-			case XAException.XAER_NOTA:
-				// The specified XID is not known by the resource manager.
-				if (archive.isReadonly()) {
-					archive.setReadonly(true);
-					archive.setCompleted(true);
-					throw new XAException(XAException.XA_RDONLY);
-				} else if (archive.getVote() == XAResourceArchive.DEFAULT_VOTE) {
+				logger.info("{}> rollback: xares= {}, branch= {}",
+						ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
+						ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()));
+			} catch (XAException xaex) {
+				logger.error("{}> Error occurred while rolling back xa-resource: xares= {}, branch= {}, code= {}",
+						ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
+						ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()), xaex.errorCode, xaex);
+
+				// * @exception XAException An error has occurred. Possible XAExceptions are
+				// * XA_HEURHAZ, XA_HEURCOM, XA_HEURRB, XA_HEURMIX, XAER_RMERR, XAER_RMFAIL,
+				// * XAER_NOTA, XAER_INVAL, or XAER_PROTO.
+				// * <p>If the transaction branch is already marked rollback-only the
+				// * resource manager may throw one of the XA_RB* exceptions. Upon return,
+				// * the resource manager has rolled back the branch's work and has released
+				// * all held resources.
+				switch (xaex.errorCode) {
+				case XAException.XA_HEURHAZ:
+					// Due to some failure, the work done on behalf of the specified transaction branch
+					// may have been heuristically completed. A resource manager may return this
+					// value only if it has successfully prepared xid.
+					archive.setHeuristic(true);
+					throw xaex;
+				case XAException.XA_HEURMIX:
+					// Due to a heuristic decision, the work done on behalf of the specified transaction
+					// branch was partially committed and partially rolled back. A resource manager
+					// may return this value only if it has successfully prepared xid.
+					archive.setHeuristic(true);
+					archive.setCommitted(true);
 					archive.setRolledback(true);
 					archive.setCompleted(true);
-					break; // rolled back
-				} else if (archive.getVote() == XAResource.XA_RDONLY) {
-					archive.setReadonly(true);
+					throw xaex;
+				case XAException.XA_HEURCOM:
+					// Due to a heuristic decision, the work done on behalf of the specified transaction
+					// branch was committed. A resource manager may return this value only if it has
+					// successfully prepared xid.
+					archive.setHeuristic(true);
+					archive.setCommitted(true);
 					archive.setCompleted(true);
-					throw new XAException(XAException.XA_RDONLY);
-				} else if (archive.getVote() == XAResource.XA_OK) {
+					throw xaex;
+				case XAException.XA_HEURRB:
+					// Due to a heuristic decision, the work done on behalf of the specified transaction
+					// branch was rolled back. A resource manager may return this value only if it has
+					// successfully prepared xid.
+					archive.setHeuristic(true);
+					archive.setRolledback(true);
+					archive.setCompleted(true);
+					break;
+				case XAException.XAER_RMFAIL:
+					// An error occurred that makes the resource manager unavailable.
+
 					updateRequired = false;
-					throw new XAException(XAException.XAER_RMERR);
-				} else {
+					throw new XAException(XAException.XA_HEURHAZ);
+				case XAException.XAER_NOTA:
+					// The specified XID is not known by the resource manager.
+					if (archive.isReadonly()) {
+						archive.setReadonly(true);
+						archive.setCompleted(true);
+						throw new XAException(XAException.XA_RDONLY);
+					} else if (archive.getVote() == XAResourceArchive.DEFAULT_VOTE) {
+						archive.setRolledback(true);
+						archive.setCompleted(true);
+						break; // rolled back
+					} else if (archive.getVote() == XAResource.XA_RDONLY) {
+						archive.setReadonly(true);
+						archive.setCompleted(true);
+						throw new XAException(XAException.XA_RDONLY);
+					} else if (archive.getVote() == XAResource.XA_OK) {
+						updateRequired = false;
+						throw new XAException(XAException.XAER_RMERR);
+					} else {
+						updateRequired = false;
+						throw new XAException(XAException.XAER_RMERR);
+					}
+				case XAException.XAER_PROTO:
+					// The routine was invoked in an improper context.
+				case XAException.XAER_INVAL:
+					// Invalid arguments were specified.
+
 					updateRequired = false;
 					throw new XAException(XAException.XAER_RMERR);
+				case XAException.XAER_RMERR:
+					// An error occurred in rolling back the transaction branch. The resource manager is
+					// free to forget about the branch when returning this error so long as all accessing
+					// threads of control have been notified of the branch’s state.
+				default: // XA_RB*
+					// The resource manager has rolled back the transaction branch’s work and has
+					// released all held resources. These values are typically returned when the
+					// branch was already marked rollback-only.
+					archive.setRolledback(true);
+					archive.setCompleted(true);
 				}
-			case XAException.XAER_PROTO:
-				// The routine was invoked in an improper context.
-			case XAException.XAER_INVAL:
-				// Invalid arguments were specified.
-
+			} catch (RuntimeException rex) {
+				logger.error("{}> Error occurred while rolling back xa-resource: xares= {}, branch= {}",
+						ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
+						ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()), rex);
 				updateRequired = false;
-				throw new XAException(XAException.XAER_RMERR);
-			case XAException.XAER_RMERR:
-				// An error occurred in rolling back the transaction branch. The resource manager is
-				// free to forget about the branch when returning this error so long as all accessing
-				// threads of control have been notified of the branch’s state.
-			default: // XA_RB*
-				// The resource manager has rolled back the transaction branch’s work and has
-				// released all held resources. These values are typically returned when the
-				// branch was already marked rollback-only.
-				archive.setRolledback(true);
-				archive.setCompleted(true);
+				throw new XAException(XAException.XA_HEURHAZ);
+			} finally {
+				if (updateRequired) {
+					transactionLogger.updateParticipant(archive);
+				}
 			}
-		} catch (RuntimeException rex) {
-			logger.error("{}> Error occurred while rolling back xa-resource: xares= {}, branch= {}",
-					ByteUtils.byteArrayToString(archive.getXid().getGlobalTransactionId()), archive,
-					ByteUtils.byteArrayToString(archive.getXid().getBranchQualifier()), rex);
-			updateRequired = false;
-			throw new XAException(XAException.XA_HEURHAZ);
 		} finally {
-			if (updateRequired) {
-				transactionLogger.updateParticipant(archive);
-			}
+			this.lock.unlock();
 		}
 	}
 
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.statistic;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets: values below 32 are counted exactly, every further power of two
+ * is divided into 32 sub-buckets, which bounds the relative error of a reported percentile to about 3%. Values are
+ * recorded in microseconds.
+ */
+public class LatencyHistogram {
+	static final int SUB_BUCKET_BITS = 5;
+	static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+	static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong totalCount = new AtomicLong();
+	private final AtomicLong totalValue = new AtomicLong();
+	private final AtomicLong maxValue = new AtomicLong();
+
+	public void recordNanos(long nanos) {
+		this.record(nanos < 0 ? 0 : nanos / 1000L);
+	}
+
+	public void record(long micros) {
+		long value = micros < 0 ? 0 : micros;
+		this.counts.incrementAndGet(indexOf(value));
+		this.totalCount.incrementAndGet();
+		this.totalValue.addAndGet(value);
+
+		long max = this.maxValue.get();
+		while (value > max && this.maxValue.compareAndSet(max, value) == false) {
+			max = this.maxValue.get();
+		}
+	}
+
+	/**
+	 * Returns the value (in microseconds) below which the specified percentage of the recorded values fall.
+	 */
+	public long getPercentile(double percentile) {
+		long total = this.totalCount.get();
+		if (total == 0) {
+			return 0;
+		}
+
+		double ratio = Math.min(100d, Math.max(0d, percentile)) / 100d;
+		long target = Math.max(1, (long) Math.ceil(total * ratio));
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			count += this.counts.get(i);
+			if (count >= target) {
+				return Math.min(highestValueOf(i), this.maxValue.get());
+			}
+		}
+		return this.maxValue.get();
+	}
+
+	public long getCount() {
+		return this.totalCount.get();
+	}
+
+	public long getMean() {
+		long total = this.totalCount.get();
+		return total == 0 ? 0 : this.totalValue.get() / total;
+	}
+
+	public long getMax() {
+		return this.maxValue.get();
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) & SUB_BUCKET_MASK;
+		return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	static long highestValueOf(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		long subBucket = index & SUB_BUCKET_MASK;
+		return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+	}
+
+}
@@ -0,0 +1,437 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.statistic;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.bytesoft.bytejta.TransactionImpl;
+import org.bytesoft.transaction.Transaction;
+import org.bytesoft.transaction.TransactionBeanFactory;
+import org.bytesoft.transaction.TransactionContext;
+import org.bytesoft.transaction.TransactionRepository;
+import org.bytesoft.transaction.aware.TransactionBeanFactoryAware;
+import org.bytesoft.transaction.supports.TransactionListenerAdapter;
+import org.bytesoft.transaction.supports.TransactionMetricsRegistry;
+import org.bytesoft.transaction.supports.TransactionStatistic;
+import org.bytesoft.transaction.supports.resource.XAResourceStatistic;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts the transactions per status flag and keeps latency histograms of the whole transaction, the prepare phase,
+ * the commit phase and the logging writes, as well as per-resource histograms and error counters of the XA branch
+ * operations. The figures are exposed through JMX and, optionally, forwarded to an external
+ * {@link TransactionMetricsRegistry}.
+ */
+public class TransactionStatisticImpl implements TransactionStatistic, XAResourceStatistic, TransactionStatisticMBean,
+		TransactionBeanFactoryAware {
+	static final Logger logger = LoggerFactory.getLogger(TransactionStatisticImpl.class);
+
+	static final String HISTOGRAM_TRANSACTION = "transaction";
+	static final String HISTOGRAM_PREPARE = "prepare";
+	static final String HISTOGRAM_COMMIT = "commit";
+	static final String HISTOGRAM_LOGGING = "logging";
+	static final String UNIDENTIFIED_RESOURCE = "unidentified";
+	static final int DEFAULT_SLOWEST_LIMIT = 10;
+
+	@javax.inject.Inject
+	private TransactionBeanFactory beanFactory;
+	private TransactionMetricsRegistry metricsRegistry;
+	private String objectName = "org.bytesoft.bytejta:type=TransactionStatistic";
+
+	private final AtomicLongArray counters = new AtomicLongArray(Long.numberOfTrailingZeros(FLAGS_ERROR_TOTAL) + 1);
+	private final AtomicLong cleanupCount = new AtomicLong();
+	private final AtomicLong recoverCount = new AtomicLong();
+	private final AtomicLong activeTransactions = new AtomicLong();
+	private final AtomicLong inDoubtTransactions = new AtomicLong();
+
+	private final LatencyHistogram transactionHistogram = new LatencyHistogram();
+	private final LatencyHistogram prepareHistogram = new LatencyHistogram();
+	private final LatencyHistogram commitHistogram = new LatencyHistogram();
+	private final LatencyHistogram loggingHistogram = new LatencyHistogram();
+	private final ConcurrentMap<String, XAResourceMetrics> resources = new ConcurrentHashMap<String, XAResourceMetrics>();
+
+	public void fireBeginTransaction(TransactionImpl transaction) {
+		this.increment(FLAGS_ACTIVE, "bytejta.transaction.begin");
+		this.activeTransactions.incrementAndGet();
+		transaction.registerTransactionListener(new TransactionStatisticListener(transaction));
+	}
+
+	public void firePreparingTransaction(TransactionImpl transaction) {
+		this.increment(FLAGS_PREPARING, "bytejta.transaction.preparing");
+	}
+
+	public void firePreparedTransaction(TransactionImpl transaction) {
+		this.increment(FLAGS_PREPARED, "bytejta.transaction.prepared");
+	}
+
+	public void fireCommittingTransaction(TransactionImpl transaction) {
+		this.increment(FLAGS_COMMITTING, "bytejta.transaction.committing");
+	}
+
+	public void fireCommittedTransaction(TransactionImpl transaction) {
+		this.increment(FLAGS_COMMITTED, "bytejta.transaction.committed");
+	}
+
+	public void fireRollingBackTransaction(TransactionImpl transaction) {
+		this.increment(FLAGS_ROLLINGBACK, "bytejta.transaction.rollingback");
+	}
+
+	public void fireRolledbackTransaction(TransactionImpl transaction) {
+		this.increment(FLAGS_ROLEDBACK, "bytejta.transaction.rolledback");
+	}
+
+	public void fireCompleteFailure(TransactionImpl transaction) {
+		this.increment(FLAGS_ERROR_TOTAL, "bytejta.transaction.failure");
+	}
+
+	public void fireCleanupTransaction(TransactionImpl transaction) {
+		this.cleanupCount.incrementAndGet();
+		if (this.metricsRegistry != null) {
+			this.metricsRegistry.increment("bytejta.transaction.cleanup");
+		}
+	}
+
+	public void fireRecoverTransaction(TransactionImpl transaction) {
+		this.recoverCount.incrementAndGet();
+		if (this.metricsRegistry != null) {
+			this.metricsRegistry.increment("bytejta.transaction.recover");
+		}
+	}
+
+	public void fireLoggingCompleted(long costNanos) {
+		this.record(this.loggingHistogram, "bytejta.logging.write", costNanos);
+	}
+
+	public void fireResourceCompleted(String identifier, int operation, long costNanos) {
+		this.getResourceMetrics(identifier).record(operation, costNanos);
+	}
+
+	public void fireResourceFailure(String identifier, int operation, long costNanos, int errorCode) {
+		XAResourceMetrics metrics = this.getResourceMetrics(identifier);
+		metrics.record(operation, costNanos);
+		metrics.recordError(errorCode);
+	}
+
+	private XAResourceMetrics getResourceMetrics(String identifier) {
+		String key = identifier == null ? UNIDENTIFIED_RESOURCE : identifier;
+		XAResourceMetrics metrics = this.resources.get(key);
+		if (metrics == null) {
+			XAResourceMetrics created = new XAResourceMetrics(key);
+			XAResourceMetrics existed = this.resources.putIfAbsent(key, created);
+			metrics = existed == null ? created : existed;
+		}
+		return metrics;
+	}
+
+	/**
+	 * Returns the snapshots of the resources with the highest 99th percentile latency, slowest first.
+	 */
+	public List<XAResourceSnapshot> getSlowestResources(int limit) {
+		List<XAResourceSnapshot> snapshots = new ArrayList<XAResourceSnapshot>();
+		for (Iterator<XAResourceMetrics> itr = this.resources.values().iterator(); itr.hasNext();) {
+			snapshots.add(itr.next().snapshot());
+		}
+
+		Collections.sort(snapshots, new Comparator<XAResourceSnapshot>() {
+			public int compare(XAResourceSnapshot o1, XAResourceSnapshot o2) {
+				return Long.compare(o2.getPercentile99th(), o1.getPercentile99th());
+			}
+		});
+		return snapshots.size() > limit ? new ArrayList<XAResourceSnapshot>(snapshots.subList(0, limit)) : snapshots;
+	}
+
+	public String[] getSlowestResources() {
+		List<XAResourceSnapshot> snapshots = this.getSlowestResources(DEFAULT_SLOWEST_LIMIT);
+		String[] values = new String[snapshots.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = snapshots.get(i).toString();
+		}
+		return values;
+	}
+
+	private void increment(long flags, String name) {
+		this.counters.incrementAndGet(Long.numberOfTrailingZeros(flags));
+		if (this.metricsRegistry != null) {
+			this.metricsRegistry.increment(name);
+		}
+	}
+
+	private void record(LatencyHistogram histogram, String name, long costNanos) {
+		histogram.recordNanos(costNanos);
+		if (this.metricsRegistry != null) {
+			this.metricsRegistry.record(name, costNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	public void registerMBean() {
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName name = new ObjectName(this.objectName);
+			if (mbeanServer.isRegistered(name)) {
+				logger.warn("MBean {} has already been registered!", this.objectName);
+				return;
+			}
+			mbeanServer.registerMBean(new StandardMBean(this, TransactionStatisticMBean.class), name);
+		} catch (JMException ex) {
+			logger.error("Error occurred while registering MBean {}!", this.objectName, ex);
+		}
+	}
+
+	public void unregisterMBean() {
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName name = new ObjectName(this.objectName);
+			if (mbeanServer.isRegistered(name)) {
+				mbeanServer.unregisterMBean(name);
+			}
+		} catch (JMException ex) {
+			logger.error("Error occurred while unregistering MBean {}!", this.objectName, ex);
+		}
+	}
+
+	public long getCount(long flags) {
+		return this.counters.get(Long.numberOfTrailingZeros(flags));
+	}
+
+	public long getBeginCount() {
+		return this.getCount(FLAGS_ACTIVE);
+	}
+
+	public long getPreparingCount() {
+		return this.getCount(FLAGS_PREPARING);
+	}
+
+	public long getPreparedCount() {
+		return this.getCount(FLAGS_PREPARED);
+	}
+
+	public long getCommittingCount() {
+		return this.getCount(FLAGS_COMMITTING);
+	}
+
+	public long getCommittedCount() {
+		return this.getCount(FLAGS_COMMITTED);
+	}
+
+	public long getRollingBackCount() {
+		return this.getCount(FLAGS_ROLLINGBACK);
+	}
+
+	public long getRolledbackCount() {
+		return this.getCount(FLAGS_ROLEDBACK);
+	}
+
+	public long getFailureCount() {
+		return this.getCount(FLAGS_ERROR_TOTAL);
+	}
+
+	public long getCleanupCount() {
+		return this.cleanupCount.get();
+	}
+
+	public long getRecoverCount() {
+		return this.recoverCount.get();
+	}
+
+	public long getActiveTransactions() {
+		return this.activeTransactions.get();
+	}
+
+	public long getInDoubtTransactions() {
+		return this.inDoubtTransactions.get();
+	}
+
+	public long getErrorTransactions() {
+		TransactionRepository transactionRepository = this.beanFactory == null ? null
+				: this.beanFactory.getTransactionRepository();
+		List<Transaction> transactionList = transactionRepository == null ? null
+				: transactionRepository.getErrorTransactionList();
+		return transactionList == null ? 0 : transactionList.size();
+	}
+
+	public long getTransactionLatency99th() {
+		return this.transactionHistogram.getPercentile(99d);
+	}
+
+	public long getPrepareLatency99th() {
+		return this.prepareHistogram.getPercentile(99d);
+	}
+
+	public long getCommitLatency99th() {
+		return this.commitHistogram.getPercentile(99d);
+	}
+
+	public long getLoggingLatency99th() {
+		return this.loggingHistogram.getPercentile(99d);
+	}
+
+	public long getLatencyPercentile(String histogram, double percentile) {
+		LatencyHistogram latencyHistogram = this.getHistogram(histogram);
+		return latencyHistogram == null ? -1 : latencyHistogram.getPercentile(percentile);
+	}
+
+	public LatencyHistogram getHistogram(String histogram) {
+		if (HISTOGRAM_TRANSACTION.equals(histogram)) {
+			return this.transactionHistogram;
+		} else if (HISTOGRAM_PREPARE.equals(histogram)) {
+			return this.prepareHistogram;
+		} else if (HISTOGRAM_COMMIT.equals(histogram)) {
+			return this.commitHistogram;
+		} else if (HISTOGRAM_LOGGING.equals(histogram)) {
+			return this.loggingHistogram;
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Follows the phases of one transaction, measuring their latencies and maintaining the active and in-doubt gauges.
+	 * The callbacks may come from different threads, the gauges are therefore moved by CAS on a single state.
+	 */
+	private class TransactionStatisticListener extends TransactionListenerAdapter {
+		static final int STATE_ACTIVE = 0;
+		static final int STATE_PREPARED = 1;
+		static final int STATE_COMPLETED = 2;
+
+		private final TransactionImpl transaction;
+		private final AtomicInteger state = new AtomicInteger(STATE_ACTIVE);
+		private volatile long prepareStartNanos;
+		private volatile long commitStartNanos;
+
+		public TransactionStatisticListener(TransactionImpl transaction) {
+			this.transaction = transaction;
+		}
+
+		public void onPrepareStart(TransactionXid xid) {
+			this.prepareStartNanos = System.nanoTime();
+			firePreparingTransaction(this.transaction);
+		}
+
+		public void onPrepareSuccess(TransactionXid xid) {
+			record(prepareHistogram, "bytejta.transaction.prepare", System.nanoTime() - this.prepareStartNanos);
+			if (this.state.compareAndSet(STATE_ACTIVE, STATE_PREPARED)) {
+				inDoubtTransactions.incrementAndGet();
+			}
+			firePreparedTransaction(this.transaction);
+		}
+
+		public void onPrepareFailure(TransactionXid xid) {
+			record(prepareHistogram, "bytejta.transaction.prepare", System.nanoTime() - this.prepareStartNanos);
+		}
+
+		public void onCommitStart(TransactionXid xid) {
+			this.commitStartNanos = System.nanoTime();
+			fireCommittingTransaction(this.transaction);
+		}
+
+		public void onCommitSuccess(TransactionXid xid) {
+			record(commitHistogram, "bytejta.transaction.commit", System.nanoTime() - this.commitStartNanos);
+			fireCommittedTransaction(this.transaction);
+			this.complete();
+		}
+
+		public void onCommitFailure(TransactionXid xid) {
+			fireCompleteFailure(this.transaction);
+			this.complete();
+		}
+
+		public void onCommitHeuristicMixed(TransactionXid xid) {
+			fireCompleteFailure(this.transaction);
+			this.complete();
+		}
+
+		public void onCommitHeuristicRolledback(TransactionXid xid) {
+			fireRolledbackTransaction(this.transaction);
+			this.complete();
+		}
+
+		public void onRollbackStart(TransactionXid xid) {
+			fireRollingBackTransaction(this.transaction);
+		}
+
+		public void onRollbackSuccess(TransactionXid xid) {
+			fireRolledbackTransaction(this.transaction);
+			this.complete();
+		}
+
+		public void onRollbackFailure(TransactionXid xid) {
+			fireCompleteFailure(this.transaction);
+			this.complete();
+		}
+
+		private void complete() {
+			int current = this.state.get();
+			while (current != STATE_COMPLETED && this.state.compareAndSet(current, STATE_COMPLETED) == false) {
+				current = this.state.get();
+			}
+			if (current == STATE_COMPLETED) {
+				return;
+			}
+
+			activeTransactions.decrementAndGet();
+			if (current == STATE_PREPARED) {
+				inDoubtTransactions.decrementAndGet();
+			}
+
+			TransactionContext transactionContext = this.transaction.getTransactionContext();
+			long costMillis = System.currentTimeMillis() - transactionContext.getCreatedTime();
+			record(transactionHistogram, "bytejta.transaction.duration", TimeUnit.MILLISECONDS.toNanos(costMillis));
+		}
+	}
+
+	public TransactionMetricsRegistry getMetricsRegistry() {
+		return metricsRegistry;
+	}
+
+	public void setMetricsRegistry(TransactionMetricsRegistry metricsRegistry) {
+		this.metricsRegistry = metricsRegistry;
+	}
+
+	public String getObjectName() {
+		return objectName;
+	}
+
+	public void setObjectName(String objectName) {
+		this.objectName = objectName;
+	}
+
+	public TransactionBeanFactory getBeanFactory() {
+		return beanFactory;
+	}
+
+	public void setBeanFactory(TransactionBeanFactory tbf) {
+		this.beanFactory = tbf;
+	}
+
+}
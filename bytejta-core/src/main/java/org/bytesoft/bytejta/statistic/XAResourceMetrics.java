@@ -0,0 +1,99 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.statistic;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bytesoft.transaction.supports.resource.XAResourceStatistic;
+
+/**
+ * Latency histograms and XA error code counters of the branch operations on one resource.
+ */
+public class XAResourceMetrics {
+	static final String[] OPERATION_NAMES = new String[] { "start", "end", "prepare", "commit", "rollback", "forget" };
+
+	private final String identifier;
+	private final LatencyHistogram totalHistogram = new LatencyHistogram();
+	private final LatencyHistogram[] histograms = new LatencyHistogram[OPERATION_NAMES.length];
+	private final ConcurrentMap<Integer, AtomicLong> errors = new ConcurrentHashMap<Integer, AtomicLong>();
+
+	public XAResourceMetrics(String identifier) {
+		this.identifier = identifier;
+		for (int i = 0; i < this.histograms.length; i++) {
+			this.histograms[i] = new LatencyHistogram();
+		}
+	}
+
+	public void record(int operation, long costNanos) {
+		this.totalHistogram.recordNanos(costNanos);
+		if (operation >= XAResourceStatistic.OPERATION_START && operation <= XAResourceStatistic.OPERATION_FORGET) {
+			this.histograms[operation].recordNanos(costNanos);
+		}
+	}
+
+	public void recordError(int errorCode) {
+		AtomicLong counter = this.errors.get(errorCode);
+		if (counter == null) {
+			AtomicLong created = new AtomicLong();
+			AtomicLong existed = this.errors.putIfAbsent(errorCode, created);
+			counter = existed == null ? created : existed;
+		}
+		counter.incrementAndGet();
+	}
+
+	public XAResourceSnapshot snapshot() {
+		XAResourceSnapshot snapshot = new XAResourceSnapshot();
+		snapshot.setIdentifier(this.identifier);
+		snapshot.setCount(this.totalHistogram.getCount());
+		snapshot.setMean(this.totalHistogram.getMean());
+		snapshot.setPercentile99th(this.totalHistogram.getPercentile(99d));
+		snapshot.setMax(this.totalHistogram.getMax());
+
+		Map<String, Long> operations = new TreeMap<String, Long>();
+		for (int i = 0; i < this.histograms.length; i++) {
+			if (this.histograms[i].getCount() > 0) {
+				operations.put(OPERATION_NAMES[i], this.histograms[i].getPercentile(99d));
+			}
+		}
+		snapshot.setOperations(operations);
+
+		long errorCount = 0;
+		Map<Integer, Long> errorMap = new TreeMap<Integer, Long>();
+		for (Iterator<Map.Entry<Integer, AtomicLong>> itr = this.errors.entrySet().iterator(); itr.hasNext();) {
+			Map.Entry<Integer, AtomicLong> entry = itr.next();
+			long value = entry.getValue().get();
+			errorMap.put(entry.getKey(), value);
+			errorCount += value;
+		}
+		snapshot.setErrors(errorMap);
+		snapshot.setErrorCount(errorCount);
+		return snapshot;
+	}
+
+	public LatencyHistogram getHistogram(int operation) {
+		return this.histograms[operation];
+	}
+
+	public String getIdentifier() {
+		return identifier;
+	}
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.statistic;
+
+import java.util.Map;
+
+/**
+ * Point-in-time view of the branch operations on one resource, latencies are in microseconds.
+ */
+public class XAResourceSnapshot {
+	private String identifier;
+	private long count;
+	private long errorCount;
+	private long mean;
+	private long percentile99th;
+	private long max;
+	private Map<String, Long> operations;
+	private Map<Integer, Long> errors;
+
+	public String toString() {
+		return String.format("%s: count= %s, mean= %sus, p99= %sus, max= %sus, operations(p99)= %s, errors= %s",
+				this.identifier, this.count, this.mean, this.percentile99th, this.max, this.operations, this.errors);
+	}
+
+	public String getIdentifier() {
+		return identifier;
+	}
+
+	public void setIdentifier(String identifier) {
+		this.identifier = identifier;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public void setCount(long count) {
+		this.count = count;
+	}
+
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	public void setErrorCount(long errorCount) {
+		this.errorCount = errorCount;
+	}
+
+	public long getMean() {
+		return mean;
+	}
+
+	public void setMean(long mean) {
+		this.mean = mean;
+	}
+
+	public long getPercentile99th() {
+		return percentile99th;
+	}
+
+	public void setPercentile99th(long percentile99th) {
+		this.percentile99th = percentile99th;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public void setMax(long max) {
+		this.max = max;
+	}
+
+	public Map<String, Long> getOperations() {
+		return operations;
+	}
+
+	public void setOperations(Map<String, Long> operations) {
+		this.operations = operations;
+	}
+
+	public Map<Integer, Long> getErrors() {
+		return errors;
+	}
+
+	public void setErrors(Map<Integer, Long> errors) {
+		this.errors = errors;
+	}
+
+}
@@ -21,6 +21,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
@@ -34,6 +36,8 @@ import org.slf4j.LoggerFactory;
 public class LocalXAResource implements XAResource {
 	static final Logger logger = LoggerFactory.getLogger(LocalXAResource.class);
 
+	protected final Lock lock = new ReentrantLock();
+
 	private LocalXAConnection managedConnection;
 	private Xid currentXid;
 	private Xid suspendXid;
@@ -97,84 +101,55 @@ public class LocalXAResource implements XAResource {
 		}
 	}
 
-	public synchronized void start(Xid xid, int flags) throws XAException {
-		if (xid == null) {
-			throw new XAException(XAException.XAER_INVAL);
-		} else if (flags == XAResource.TMRESUME && this.suspendXid != null) {
-			if (this.suspendXid.equals(xid)) {
-				this.suspendXid = null;
-				this.currentXid = xid;
-				this.originalAutoCommit = this.suspendAutoCommit;
-				this.suspendAutoCommit = true;
-				return;
-			} else {
+	public void start(Xid xid, int flags) throws XAException {
+		this.lock.lock();
+		try {
+			if (xid == null) {
+				throw new XAException(XAException.XAER_INVAL);
+			} else if (flags == XAResource.TMRESUME && this.suspendXid != null) {
+				if (this.suspendXid.equals(xid)) {
+					this.suspendXid = null;
+					this.currentXid = xid;
+					this.originalAutoCommit = this.suspendAutoCommit;
+					this.suspendAutoCommit = true;
+					return;
+				} else {
+					throw new XAException(XAException.XAER_PROTO);
+				}
+			} else if (flags == XAResource.TMJOIN) {
+				if (this.currentXid == null) {
+					throw new XAException(XAException.XAER_PROTO);
+				}
+			} else if (flags != XAResource.TMNOFLAGS) {
 				throw new XAException(XAException.XAER_PROTO);
-			}
-		} else if (flags == XAResource.TMJOIN) {
-			if (this.currentXid == null) {
+			} else if (this.currentXid != null) {
 				throw new XAException(XAException.XAER_PROTO);
-			}
-		} else if (flags != XAResource.TMNOFLAGS) {
-			throw new XAException(XAException.XAER_PROTO);
-		} else if (this.currentXid != null) {
-			throw new XAException(XAException.XAER_PROTO);
-		} else {
-			Connection connection = this.managedConnection.getPhysicalConnection();
-
-			try {
-				originalAutoCommit = connection.getAutoCommit();
-			} catch (Exception ignored) {
-				originalAutoCommit = true;
-			}
-
-			try {
-				connection.setAutoCommit(false);
-			} catch (Exception ex) {
-				XAException xae = new XAException(XAException.XAER_RMERR);
-				xae.initCause(ex);
-				throw xae;
-			}
-
-			this.currentXid = xid;
-		}
-	}
-
-	public synchronized void end(Xid xid, int flags) throws XAException {
-		if (xid == null) {
-			throw new XAException(XAException.XAER_INVAL);
-		} else if (this.currentXid == null) {
-			throw new XAException(XAException.XAER_PROTO);
-		} else if (!this.currentXid.equals(xid)) {
-			throw new XAException(XAException.XAER_PROTO);
-		} else if (flags == XAResource.TMSUSPEND) {
-			this.suspendXid = xid;
-			this.suspendAutoCommit = this.originalAutoCommit;
-			this.currentXid = null;
-			this.originalAutoCommit = true;
-		} else if (flags == XAResource.TMSUCCESS) {
-			// delay the logging operation to the commit phase.
-			// this.createTransactionLogIfNecessary(xid);
-		} else if (flags == XAResource.TMFAIL) {
-			logger.debug("Error occurred while ending local-xa-resource.");
-		} else {
-			throw new XAException(XAException.XAER_PROTO);
-		}
-	}
+			} else {
+				Connection connection = this.managedConnection.getPhysicalConnection();
+
+				try {
+					originalAutoCommit = connection.getAutoCommit();
+				} catch (Exception ignored) {
+					originalAutoCommit = true;
+				}
+
+				try {
+					connection.setAutoCommit(false);
+				} catch (Exception ex) {
+					XAException xae = new XAException(XAException.XAER_RMERR);
+					xae.initCause(ex);
+					throw xae;
+				}
 
-	public synchronized int prepare(Xid xid) {
-		Connection connection = this.managedConnection.getPhysicalConnection();
-		try {
-			if (connection.isReadOnly()) {
-				connection.setAutoCommit(originalAutoCommit);
-				return XAResource.XA_RDONLY;
+				this.currentXid = xid;
 			}
-		} catch (Exception ex) {
-			logger.debug("Error occurred while preparing local-xa-resource: {}", ex.getMessage());
+		} finally {
+			this.lock.unlock();
 		}
-		return XAResource.XA_OK;
 	}
 
-	public synchronized void commit(Xid xid, boolean loggingRequired) throws XAException {
+	public void end(Xid xid, int flags) throws XAException {
+		this.lock.lock();
 		try {
 			if (xid == null) {
 				throw new XAException(XAException.XAER_INVAL);
@@ -182,44 +157,98 @@ public class LocalXAResource implements XAResource {
 				throw new XAException(XAException.XAER_PROTO);
 			} else if (!this.currentXid.equals(xid)) {
 				throw new XAException(XAException.XAER_PROTO);
+			} else if (flags == XAResource.TMSUSPEND) {
+				this.suspendXid = xid;
+				this.suspendAutoCommit = this.originalAutoCommit;
+				this.currentXid = null;
+				this.originalAutoCommit = true;
+			} else if (flags == XAResource.TMSUCCESS) {
+				// delay the logging operation to the commit phase.
+				// this.createTransactionLogIfNecessary(xid);
+			} else if (flags == XAResource.TMFAIL) {
+				logger.debug("Error occurred while ending local-xa-resource.");
+			} else {
+				throw new XAException(XAException.XAER_PROTO);
 			}
+		} finally {
+			this.lock.unlock();
+		}
+	}
 
-			if (loggingRequired) {
-				this.createTransactionLogIfNecessary(xid);
-			} // end-if (loggingRequired)
-
-			this.managedConnection.commitLocalTransaction();
-		} catch (XAException xae) {
-			throw xae;
-		} catch (Exception ex) {
-			XAException xae = new XAException(XAException.XAER_RMERR);
-			xae.initCause(ex);
-			throw xae;
+	public int prepare(Xid xid) {
+		this.lock.lock();
+		try {
+			Connection connection = this.managedConnection.getPhysicalConnection();
+			try {
+				if (connection.isReadOnly()) {
+					connection.setAutoCommit(originalAutoCommit);
+					return XAResource.XA_RDONLY;
+				}
+			} catch (Exception ex) {
+				logger.debug("Error occurred while preparing local-xa-resource: {}", ex.getMessage());
+			}
+			return XAResource.XA_OK;
 		} finally {
-			this.releasePhysicalConnection();
+			this.lock.unlock();
 		}
 	}
 
-	public synchronized void rollback(Xid xid) throws XAException {
+	public void commit(Xid xid, boolean loggingRequired) throws XAException {
+		this.lock.lock();
 		try {
-			if (xid == null) {
-				throw new XAException(XAException.XAER_INVAL);
-			} else if (this.currentXid == null) {
-				throw new XAException(XAException.XAER_PROTO);
-			} else if (!this.currentXid.equals(xid)) {
-				throw new XAException(XAException.XAER_PROTO);
+			try {
+				if (xid == null) {
+					throw new XAException(XAException.XAER_INVAL);
+				} else if (this.currentXid == null) {
+					throw new XAException(XAException.XAER_PROTO);
+				} else if (!this.currentXid.equals(xid)) {
+					throw new XAException(XAException.XAER_PROTO);
+				}
+
+				if (loggingRequired) {
+					this.createTransactionLogIfNecessary(xid);
+				} // end-if (loggingRequired)
+
+				this.managedConnection.commitLocalTransaction();
+			} catch (XAException xae) {
+				throw xae;
+			} catch (Exception ex) {
+				XAException xae = new XAException(XAException.XAER_RMERR);
+				xae.initCause(ex);
+				throw xae;
+			} finally {
+				this.releasePhysicalConnection();
 			}
+		} finally {
+			this.lock.unlock();
+		}
+	}
 
-			// 回滚本地事务
-			this.managedConnection.rollbackLocalTransaction();
-		} catch (XAException xae) {
-			throw xae;
-		} catch (Exception ex) {
-			XAException xae = new XAException(XAException.XAER_RMERR);
-			xae.initCause(ex);
-			throw xae;
+	public void rollback(Xid xid) throws XAException {
+		this.lock.lock();
+		try {
+			try {
+				if (xid == null) {
+					throw new XAException(XAException.XAER_INVAL);
+				} else if (this.currentXid == null) {
+					throw new XAException(XAException.XAER_PROTO);
+				} else if (!this.currentXid.equals(xid)) {
+					throw new XAException(XAException.XAER_PROTO);
+				}
+
+				// 回滚本地事务
+				this.managedConnection.rollbackLocalTransaction();
+			} catch (XAException xae) {
+				throw xae;
+			} catch (Exception ex) {
+				XAException xae = new XAException(XAException.XAER_RMERR);
+				xae.initCause(ex);
+				throw xae;
+			} finally {
+				this.releasePhysicalConnection();
+			}
 		} finally {
-			this.releasePhysicalConnection();
+			this.lock.unlock();
 		}
 	}
 
@@ -308,13 +337,18 @@ public class LocalXAResource implements XAResource {
 		}
 	}
 
-	public synchronized void forget(Xid xid) throws XAException {
-		if (xid == null || this.currentXid == null) {
-			logger.warn("Error occurred while forgeting local-xa-resource: invalid xid.");
-		} else {
-			this.currentXid = null;
-			this.originalAutoCommit = true;
-			this.managedConnection = null;
+	public void forget(Xid xid) throws XAException {
+		this.lock.lock();
+		try {
+			if (xid == null || this.currentXid == null) {
+				logger.warn("Error occurred while forgeting local-xa-resource: invalid xid.");
+			} else {
+				this.currentXid = null;
+				this.originalAutoCommit = true;
+				this.managedConnection = null;
+			}
+		} finally {
+			this.lock.unlock();
 		}
 	}
 
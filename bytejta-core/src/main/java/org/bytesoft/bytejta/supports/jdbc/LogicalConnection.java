@@ -33,6 +33,8 @@ import java.sql.Struct;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +42,8 @@ import org.slf4j.LoggerFactory;
 public class LogicalConnection implements Connection {
 	static final Logger logger = LoggerFactory.getLogger(LogicalConnection.class);
 
+	private final Lock lock = new ReentrantLock();
+
 	private boolean connectionClosed;
 	private final LocalXAConnection managedConnection;
 	private final Connection delegateConnection;
@@ -98,12 +102,17 @@ public class LogicalConnection implements Connection {
 		throw new SQLException("Illegal operation!");
 	}
 
-	public synchronized void close() throws SQLException {
-		if (this.connectionClosed) {
-			logger.debug("Current connection has already been closed.");
-		} else {
-			this.connectionClosed = true;
-			managedConnection.closeLogicalConnection();
+	public void close() throws SQLException {
+		this.lock.lock();
+		try {
+			if (this.connectionClosed) {
+				logger.debug("Current connection has already been closed.");
+			} else {
+				this.connectionClosed = true;
+				managedConnection.closeLogicalConnection();
+			}
+		} finally {
+			this.lock.unlock();
 		}
 	}
 
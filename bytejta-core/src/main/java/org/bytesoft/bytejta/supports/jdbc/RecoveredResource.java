@@ -133,106 +133,116 @@ public class RecoveredResource extends LocalXAResource implements XAResource {
 		}
 	}
 
-	public synchronized void forget(Xid[] xids) throws XAException {
-		if (xids == null || xids.length == 0) {
-			return;
-		}
-
-		String[] xidArray = new String[xids.length];
-
-		for (int i = 0; i < xids.length; i++) {
-			Xid xid = xids[i];
+	public void forget(Xid[] xids) throws XAException {
+		this.lock.lock();
+		try {
+			if (xids == null || xids.length == 0) {
+				return;
+			}
 
-			byte[] globalTransactionId = xid.getGlobalTransactionId();
-			byte[] branchQualifier = xid.getBranchQualifier();
-			xidArray[i] = this.getIdentifier(globalTransactionId, branchQualifier);
-		}
+			String[] xidArray = new String[xids.length];
 
-		Connection conn = null;
-		PreparedStatement stmt = null;
-		Boolean autoCommit = null;
-		try {
-			conn = this.dataSource.getConnection();
-			autoCommit = conn.getAutoCommit();
-			conn.setAutoCommit(false);
-			stmt = conn.prepareStatement("delete from bytejta where xid = ?");
 			for (int i = 0; i < xids.length; i++) {
-				stmt.setString(1, xidArray[i]);
-				stmt.addBatch();
-			}
-			stmt.executeBatch();
-			conn.commit();
-		} catch (Exception ex) {
-			try {
-				conn.rollback();
-			} catch (Exception sqlEx) {
-				logger.error("Error occurred while rolling back local resources.", sqlEx);
+				Xid xid = xids[i];
+
+				byte[] globalTransactionId = xid.getGlobalTransactionId();
+				byte[] branchQualifier = xid.getBranchQualifier();
+				xidArray[i] = this.getIdentifier(globalTransactionId, branchQualifier);
 			}
 
-			boolean tableExists = false;
+			Connection conn = null;
+			PreparedStatement stmt = null;
+			Boolean autoCommit = null;
 			try {
-				tableExists = this.isTableExists(conn);
-			} catch (Exception sqlEx) {
-				logger.warn("Error occurred while forgeting local resources.", ex);
-				throw new XAException(XAException.XAER_RMFAIL);
-			}
+				conn = this.dataSource.getConnection();
+				autoCommit = conn.getAutoCommit();
+				conn.setAutoCommit(false);
+				stmt = conn.prepareStatement("delete from bytejta where xid = ?");
+				for (int i = 0; i < xids.length; i++) {
+					stmt.setString(1, xidArray[i]);
+					stmt.addBatch();
+				}
+				stmt.executeBatch();
+				conn.commit();
+			} catch (Exception ex) {
+				try {
+					conn.rollback();
+				} catch (Exception sqlEx) {
+					logger.error("Error occurred while rolling back local resources.", sqlEx);
+				}
 
-			if (tableExists) {
-				logger.error("Error occurred while forgetting resources.", ex);
-				throw new XAException(XAException.XAER_RMERR);
+				boolean tableExists = false;
+				try {
+					tableExists = this.isTableExists(conn);
+				} catch (Exception sqlEx) {
+					logger.warn("Error occurred while forgeting local resources.", ex);
+					throw new XAException(XAException.XAER_RMFAIL);
+				}
+
+				if (tableExists) {
+					logger.error("Error occurred while forgetting resources.", ex);
+					throw new XAException(XAException.XAER_RMERR);
+				}
+			} finally {
+				this.setAutoCommitIfNecessary(conn, autoCommit);
+				this.closeQuietly(stmt);
+				this.closeQuietly(conn);
 			}
 		} finally {
-			this.setAutoCommitIfNecessary(conn, autoCommit);
-			this.closeQuietly(stmt);
-			this.closeQuietly(conn);
+			this.lock.unlock();
 		}
 	}
 
-	public synchronized void forget(Xid xid) throws XAException {
-		if (xid == null) {
-			logger.warn("Error occurred while forgeting local-xa-resource: invalid xid.");
-			return;
-		}
+	public void forget(Xid xid) throws XAException {
+		this.lock.lock();
+		try {
+			if (xid == null) {
+				logger.warn("Error occurred while forgeting local-xa-resource: invalid xid.");
+				return;
+			}
 
-		byte[] globalTransactionId = xid.getGlobalTransactionId();
-		byte[] branchQualifier = xid.getBranchQualifier();
+			byte[] globalTransactionId = xid.getGlobalTransactionId();
+			byte[] branchQualifier = xid.getBranchQualifier();
 
-		String identifier = this.getIdentifier(globalTransactionId, branchQualifier);
+			String identifier = this.getIdentifier(globalTransactionId, branchQualifier);
 
-		Connection conn = null;
-		PreparedStatement stmt = null;
-		Boolean autoCommit = null;
-		try {
-			conn = this.dataSource.getConnection();
-			autoCommit = conn.getAutoCommit();
-			conn.setAutoCommit(false);
-			stmt = conn.prepareStatement("delete from bytejta where xid = ?");
-			stmt.setString(1, identifier);
-			stmt.executeUpdate();
-			conn.commit();
-		} catch (Exception ex) {
+			Connection conn = null;
+			PreparedStatement stmt = null;
+			Boolean autoCommit = null;
 			try {
-				conn.rollback();
-			} catch (Exception sqlEx) {
-				logger.error("Error occurred while rolling back local resources.", sqlEx);
-			}
+				conn = this.dataSource.getConnection();
+				autoCommit = conn.getAutoCommit();
+				conn.setAutoCommit(false);
+				stmt = conn.prepareStatement("delete from bytejta where xid = ?");
+				stmt.setString(1, identifier);
+				stmt.executeUpdate();
+				conn.commit();
+			} catch (Exception ex) {
+				try {
+					conn.rollback();
+				} catch (Exception sqlEx) {
+					logger.error("Error occurred while rolling back local resources.", sqlEx);
+				}
 
-			boolean tableExists = false;
-			try {
-				tableExists = this.isTableExists(conn);
-			} catch (Exception sqlEx) {
-				logger.warn("Error occurred while forgeting local-xa-resource.", ex);
-				throw new XAException(XAException.XAER_RMFAIL);
-			}
+				boolean tableExists = false;
+				try {
+					tableExists = this.isTableExists(conn);
+				} catch (Exception sqlEx) {
+					logger.warn("Error occurred while forgeting local-xa-resource.", ex);
+					throw new XAException(XAException.XAER_RMFAIL);
+				}
 
-			if (tableExists) {
-				logger.warn("Error occurred while forgeting local-xa-resource.", ex);
-				throw new XAException(XAException.XAER_RMERR);
+				if (tableExists) {
+					logger.warn("Error occurred while forgeting local-xa-resource.", ex);
+					throw new XAException(XAException.XAER_RMERR);
+				}
+			} finally {
+				this.setAutoCommitIfNecessary(conn, autoCommit);
+				this.closeQuietly(stmt);
+				this.closeQuietly(conn);
 			}
 		} finally {
-			this.setAutoCommitIfNecessary(conn, autoCommit);
-			this.closeQuietly(stmt);
-			this.closeQuietly(conn);
+			this.lock.unlock();
 		}
 	}
 
@@ -0,0 +1,283 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.supports.resource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
+
+import org.apache.commons.lang3.StringUtils;
+import org.bytesoft.transaction.remote.BatchCoalescer;
+import org.bytesoft.transaction.remote.BatchParticipant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces the phase-2 messages which concurrent transactions send to the same remote participant. The first caller
+ * for a participant opens a batch and lingers for a short while, callers arriving in the meantime join it, then the
+ * first caller sends the whole batch in one request and hands each caller the outcome of its own branch. A batch
+ * holding a single branch, or one which could not be delivered, is not completed here and each caller sends its own
+ * message as before. A participant which fails a batch, typically one running an older version without the batch
+ * endpoints, is not sent batches again until the retry interval has elapsed.
+ * <p>
+ * Coalescing is disabled unless a linger window is configured through the lingerMillis property, e.g. 2
+ * (milliseconds).
+ */
+public class RemoteBatchCoalescer implements BatchCoalescer {
+	static final Logger logger = LoggerFactory.getLogger(RemoteBatchCoalescer.class);
+
+	static final int OPERATION_COMMIT = 0;
+	static final int OPERATION_ROLLBACK = 1;
+	static final int OPERATION_FORGET = 2;
+
+	private final Map<String, Batch> batches = new ConcurrentHashMap<String, Batch>();
+	private final Map<String, Long> unsupported = new ConcurrentHashMap<String, Long>();
+	private long retryMillis = 1000L * 60 * 10;
+	private long lingerMillis;
+	private int maxBatchSize = 128;
+
+	public boolean commit(String identifier, BatchParticipant participant, Xid xid) throws XAException {
+		return this.coalesce(OPERATION_COMMIT, identifier, participant, xid);
+	}
+
+	public boolean rollback(String identifier, BatchParticipant participant, Xid xid) throws XAException {
+		return this.coalesce(OPERATION_ROLLBACK, identifier, participant, xid);
+	}
+
+	public boolean forget(String identifier, BatchParticipant participant, Xid xid) throws XAException {
+		return this.coalesce(OPERATION_FORGET, identifier, participant, xid);
+	}
+
+	private boolean coalesce(int operation, String identifier, BatchParticipant participant, Xid xid)
+			throws XAException {
+		if (this.lingerMillis <= 0 || this.maxBatchSize <= 1) {
+			return false;
+		}
+
+		if (participant == null || StringUtils.isBlank(identifier)) {
+			return false;
+		} else if (this.isUnsupported(identifier)) {
+			return false;
+		}
+
+		String key = String.format("%s#%s", identifier, operation);
+
+		Batch batch = null;
+		boolean leader = false;
+		int index = -1;
+		while (index < 0) {
+			Batch current = this.batches.get(key);
+			if (current != null) {
+				batch = current;
+				index = current.enlist(xid);
+			} else {
+				Batch created = new Batch(this.maxBatchSize);
+				if (this.batches.putIfAbsent(key, created) == null) {
+					batch = created;
+					leader = true;
+					index = created.enlist(xid);
+				}
+			}
+		}
+
+		if (leader) {
+			Xid[] xids = batch.close(this.lingerMillis);
+			this.batches.remove(key, batch);
+			batch.complete(this.deliver(operation, identifier, participant, xids));
+		} else if (batch.isClosed()) {
+			this.batches.remove(key, batch); // filled up, let the next caller open a new batch
+		}
+
+		int[] errorCodes = batch.await();
+		if (errorCodes == null) {
+			return false;
+		} else if (errorCodes[index] != XAResource.XA_OK) {
+			throw new XAException(errorCodes[index]);
+		}
+
+		return true;
+	}
+
+	private int[] deliver(int operation, String identifier, BatchParticipant participant, Xid[] xids) {
+		if (xids.length <= 1) {
+			return null;
+		}
+
+		try {
+			int[] errorCodes = null;
+			if (operation == OPERATION_COMMIT) {
+				errorCodes = participant.batchCommit(xids);
+			} else if (operation == OPERATION_ROLLBACK) {
+				errorCodes = participant.batchRollback(xids);
+			} else {
+				errorCodes = participant.batchForget(xids);
+			}
+			if (errorCodes == null || errorCodes.length != xids.length) {
+				this.markUnsupported(identifier);
+				return null;
+			}
+			return errorCodes;
+		} catch (UnsupportedOperationException ex) {
+			logger.info("Participant {} does not support batching, its branches are completed one by one.", identifier);
+			this.unsupported.put(identifier, Long.MAX_VALUE);
+			return null;
+		} catch (XAException ex) {
+			logger.warn("Error occurred while completing {} branches in batch: participant= {}, errorCode= {}.",
+					xids.length, identifier, ex.errorCode, ex);
+			this.markUnsupported(identifier);
+			return null;
+		} catch (RuntimeException ex) {
+			logger.warn("Error occurred while completing {} branches in batch: participant= {}.", xids.length,
+					identifier, ex);
+			this.markUnsupported(identifier);
+			return null;
+		}
+	}
+
+	private boolean isUnsupported(String identifier) {
+		Long retryTime = this.unsupported.get(identifier);
+		if (retryTime == null) {
+			return false;
+		} else if (System.currentTimeMillis() < retryTime) {
+			return true;
+		}
+
+		this.unsupported.remove(identifier, retryTime);
+		return false;
+	}
+
+	private void markUnsupported(String identifier) {
+		this.unsupported.put(identifier, System.currentTimeMillis() + this.retryMillis);
+	}
+
+	public long getLingerMillis() {
+		return lingerMillis;
+	}
+
+	public void setLingerMillis(long lingerMillis) {
+		this.lingerMillis = lingerMillis;
+	}
+
+	public long getRetryMillis() {
+		return retryMillis;
+	}
+
+	public void setRetryMillis(long retryMillis) {
+		this.retryMillis = retryMillis;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public void setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	private static final class Batch {
+		private final Lock lock = new ReentrantLock();
+		private final Condition condition = this.lock.newCondition();
+		private final List<Xid> xids = new ArrayList<Xid>();
+		private final int capacity;
+
+		private boolean closed;
+		private boolean completed;
+		private int[] errorCodes;
+
+		public Batch(int capacity) {
+			this.capacity = capacity;
+		}
+
+		/**
+		 * @return the position of the branch in this batch, -1 if the batch no longer accepts branches.
+		 */
+		public int enlist(Xid xid) {
+			this.lock.lock();
+			try {
+				if (this.closed) {
+					return -1;
+				}
+
+				this.xids.add(xid);
+				if (this.xids.size() >= this.capacity) {
+					this.closed = true;
+					this.condition.signalAll();
+				}
+				return this.xids.size() - 1;
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		public Xid[] close(long lingerMillis) {
+			this.lock.lock();
+			try {
+				long nanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+				while (this.closed == false && nanos > 0) {
+					nanos = this.condition.awaitNanos(nanos);
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			} finally {
+				this.closed = true;
+				this.lock.unlock();
+			}
+			return this.xids.toArray(new Xid[this.xids.size()]);
+		}
+
+		public boolean isClosed() {
+			this.lock.lock();
+			try {
+				return this.closed;
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		public void complete(int[] errorCodes) {
+			this.lock.lock();
+			try {
+				this.errorCodes = errorCodes;
+				this.completed = true;
+				this.condition.signalAll();
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		public int[] await() {
+			this.lock.lock();
+			try {
+				while (this.completed == false) {
+					this.condition.awaitUninterruptibly();
+				}
+				return this.errorCodes;
+			} finally {
+				this.lock.unlock();
+			}
+		}
+	}
+
+}
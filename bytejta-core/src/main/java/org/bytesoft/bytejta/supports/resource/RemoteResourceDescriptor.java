@@ -21,6 +21,7 @@ import javax.transaction.xa.Xid;
 
 import org.apache.commons.lang3.StringUtils;
 import org.bytesoft.common.utils.CommonUtils;
+import org.bytesoft.transaction.remote.BatchCoalescer;
 import org.bytesoft.transaction.remote.RemoteAddr;
 import org.bytesoft.transaction.remote.RemoteCoordinator;
 import org.bytesoft.transaction.remote.RemoteNode;
@@ -32,6 +33,7 @@ public class RemoteResourceDescriptor implements XAResourceDescriptor {
 
 	private RemoteCoordinator delegate;
 	private String identifier;
+	private BatchCoalescer coalescer;
 
 	public void setIdentifier(String identifier) {
 		this.identifier = identifier;
@@ -72,7 +74,9 @@ public class RemoteResourceDescriptor implements XAResourceDescriptor {
 	}
 
 	public void commit(Xid arg0, boolean arg1) throws XAException {
-		delegate.commit(arg0, arg1);
+		if (arg1 || this.coalescer == null || this.coalescer.commit(this.getIdentifier(), delegate, arg0) == false) {
+			delegate.commit(arg0, arg1);
+		}
 	}
 
 	public void end(Xid arg0, int arg1) throws XAException {
@@ -80,7 +84,9 @@ public class RemoteResourceDescriptor implements XAResourceDescriptor {
 	}
 
 	public void forget(Xid arg0) throws XAException {
-		delegate.forget(arg0);
+		if (this.coalescer == null || this.coalescer.forget(this.getIdentifier(), delegate, arg0) == false) {
+			delegate.forget(arg0);
+		}
 	}
 
 	public int getTransactionTimeout() throws XAException {
@@ -117,7 +123,9 @@ public class RemoteResourceDescriptor implements XAResourceDescriptor {
 	}
 
 	public void rollback(Xid arg0) throws XAException {
-		delegate.rollback(arg0);
+		if (this.coalescer == null || this.coalescer.rollback(this.getIdentifier(), delegate, arg0) == false) {
+			delegate.rollback(arg0);
+		}
 	}
 
 	public boolean setTransactionTimeout(int arg0) throws XAException {
@@ -136,4 +144,12 @@ public class RemoteResourceDescriptor implements XAResourceDescriptor {
 		this.delegate = delegate;
 	}
 
+	public BatchCoalescer getCoalescer() {
+		return coalescer;
+	}
+
+	public void setCoalescer(BatchCoalescer coalescer) {
+		this.coalescer = coalescer;
+	}
+
 }
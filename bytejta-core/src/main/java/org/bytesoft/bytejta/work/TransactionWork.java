@@ -15,29 +15,128 @@
  */
 package org.bytesoft.bytejta.work;
 
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
 import javax.resource.spi.work.Work;
+import javax.resource.spi.work.WorkException;
+import javax.resource.spi.work.WorkManager;
 
 import org.bytesoft.transaction.TransactionBeanFactory;
 import org.bytesoft.transaction.TransactionRecovery;
 import org.bytesoft.transaction.aware.TransactionBeanFactoryAware;
+import org.bytesoft.transaction.aware.WorkManagerAware;
 import org.bytesoft.transaction.supports.TransactionTimer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class TransactionWork implements Work, TransactionBeanFactoryAware {
+/**
+ * Schedules the timeout handling, the global recovery and the branch recovery as independent tasks. Each task has its
+ * own interval and jitter, and is handed over to the work manager when it is due; a task whose previous execution is
+ * still running is skipped for that round instead of being queued behind it. The scheduling thread itself only sleeps
+ * until the next task is due. The startup recovery runs to completion on the scheduling thread before any task is
+ * scheduled, so neither the timeout handling nor the branch recovery touches a transaction that is still being recovered.
+ */
+public class TransactionWork implements Work, TransactionBeanFactoryAware, WorkManagerAware {
 	static final Logger logger = LoggerFactory.getLogger(TransactionWork.class);
 
 	@javax.inject.Inject
 	private TransactionBeanFactory beanFactory;
+	private WorkManager workManager;
 
 	static final long SECOND_MILLIS = 1000L;
-	private long stopTimeMillis = -1;
+	private volatile long stopTimeMillis = -1;
 	private long delayOfStoping = SECOND_MILLIS * 15;
+	private long timingInterval = SECOND_MILLIS;
 	private long recoveryInterval = SECOND_MILLIS * 60;
+	private long recoveryJitter = SECOND_MILLIS * 5;
+
+	private final Lock lock = new ReentrantLock();
+	private final Condition condition = this.lock.newCondition();
 
 	public void run() {
+		this.fireStartupRecovery();
+
+		long current = System.currentTimeMillis();
+
+		ScheduledTask timingTask = new ScheduledTask("timing", this.timingInterval, 0) {
+			public void execute() {
+				fireTimingExecution();
+			}
+		};
+		ScheduledTask globalTask = new ScheduledTask("global-recovery", this.recoveryInterval, this.recoveryJitter) {
+			public void execute() {
+				fireGlobalRecovery();
+			}
+		};
+		globalTask.schedule(current);
+		ScheduledTask branchTask = new ScheduledTask("branch-recovery", this.recoveryInterval, this.recoveryJitter) {
+			public void execute() {
+				fireBranchRecovery();
+			}
+		};
+		branchTask.schedule(current);
+
+		ScheduledTask[] tasks = new ScheduledTask[] { globalTask, timingTask, branchTask };
+		while (this.currentActive()) {
+			current = System.currentTimeMillis();
+
+			long nextExecutionTime = Long.MAX_VALUE;
+			for (int i = 0; i < tasks.length; i++) {
+				ScheduledTask task = tasks[i];
+				if (current >= task.nextExecutionTime) {
+					this.dispatch(task, current);
+				}
+				nextExecutionTime = Math.min(nextExecutionTime, task.nextExecutionTime);
+			}
+
+			long stopTimeMillis = this.stopTimeMillis;
+			if (stopTimeMillis > 0) {
+				nextExecutionTime = Math.min(nextExecutionTime, stopTimeMillis);
+			}
+
+			this.waitForMillis(nextExecutionTime - System.currentTimeMillis());
+		} // end-while (this.currentActive())
+	}
 
+	private void dispatch(ScheduledTask task, long current) {
+		task.schedule(current);
+
+		if (task.running.compareAndSet(false, true) == false) {
+			logger.warn("The previous execution of task {} has not completed yet, skip this round.", task.name);
+			return;
+		}
+
+		if (this.workManager == null) {
+			task.run();
+			return;
+		}
+
+		try {
+			this.workManager.scheduleWork(task);
+		} catch (WorkException ex) {
+			task.running.set(false);
+			logger.warn("Error occurred while scheduling task {}, skip this round.", task.name, ex);
+		} catch (RuntimeException rex) {
+			task.running.set(false);
+			logger.warn("Error occurred while scheduling task {}, skip this round.", task.name, rex);
+		}
+	}
+
+	private void fireTimingExecution() {
 		TransactionTimer transactionTimer = beanFactory.getTransactionTimer();
+		try {
+			transactionTimer.timingExecution();
+		} catch (RuntimeException rex) {
+			logger.error(rex.getMessage(), rex);
+		}
+	}
+
+	private void fireStartupRecovery() {
 		TransactionRecovery transactionRecovery = beanFactory.getTransactionRecovery();
 		try {
 			transactionRecovery.startRecovery();
@@ -47,31 +146,6 @@ public class TransactionWork implements Work, TransactionBeanFactoryAware {
 		} catch (RuntimeException rex) {
 			logger.error("TransactionRecovery init failed!", rex);
 		}
-
-		long nextExecutionTime = 0;
-		long nextRecoveryTime = System.currentTimeMillis() + this.recoveryInterval;
-		while (this.currentActive()) {
-
-			long current = System.currentTimeMillis();
-			if (current >= nextExecutionTime) {
-				nextExecutionTime = current + SECOND_MILLIS;
-				try {
-					transactionTimer.timingExecution();
-				} catch (RuntimeException rex) {
-					logger.error(rex.getMessage(), rex);
-				}
-			}
-
-			if (current >= nextRecoveryTime) {
-				nextRecoveryTime = current + this.recoveryInterval;
-
-				this.fireGlobalRecovery();
-				this.fireBranchRecovery();
-			}
-
-			this.waitForMillis(100L);
-
-		} // end-while (this.currentActive())
 	}
 
 	private void fireGlobalRecovery() {
@@ -97,19 +171,66 @@ public class TransactionWork implements Work, TransactionBeanFactoryAware {
 	}
 
 	private void waitForMillis(long millis) {
+		if (millis <= 0) {
+			return;
+		}
+
+		this.lock.lock();
 		try {
-			Thread.sleep(millis);
-		} catch (Exception ignore) {
-			// ignore
+			this.condition.await(millis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException ignore) {
+			Thread.currentThread().interrupt();
+		} finally {
+			this.lock.unlock();
 		}
 	}
 
 	public void release() {
 		this.stopTimeMillis = System.currentTimeMillis() + this.delayOfStoping;
+
+		this.lock.lock();
+		try {
+			this.condition.signalAll();
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
 	protected boolean currentActive() {
-		return this.stopTimeMillis <= 0 || System.currentTimeMillis() < this.stopTimeMillis;
+		long stopTimeMillis = this.stopTimeMillis;
+		return stopTimeMillis <= 0 || System.currentTimeMillis() < stopTimeMillis;
+	}
+
+	private static abstract class ScheduledTask implements Work {
+		private final String name;
+		private final long interval;
+		private final long jitter;
+		private final AtomicBoolean running = new AtomicBoolean();
+		private long nextExecutionTime;
+
+		public ScheduledTask(String name, long interval, long jitter) {
+			this.name = name;
+			this.interval = interval;
+			this.jitter = jitter;
+		}
+
+		public void schedule(long current) {
+			long delay = this.jitter > 0 ? ThreadLocalRandom.current().nextLong(this.jitter) : 0;
+			this.nextExecutionTime = current + this.interval + delay;
+		}
+
+		public void run() {
+			try {
+				this.execute();
+			} finally {
+				this.running.set(false);
+			}
+		}
+
+		public abstract void execute();
+
+		public void release() {
+		}
 	}
 
 	public long getDelayOfStoping() {
@@ -120,6 +241,14 @@ public class TransactionWork implements Work, TransactionBeanFactoryAware {
 		this.delayOfStoping = delayOfStoping;
 	}
 
+	public long getTimingInterval() {
+		return timingInterval;
+	}
+
+	public void setTimingInterval(long timingInterval) {
+		this.timingInterval = timingInterval;
+	}
+
 	public long getRecoveryInterval() {
 		return recoveryInterval;
 	}
@@ -128,6 +257,22 @@ public class TransactionWork implements Work, TransactionBeanFactoryAware {
 		this.recoveryInterval = recoveryInterval;
 	}
 
+	public long getRecoveryJitter() {
+		return recoveryJitter;
+	}
+
+	public void setRecoveryJitter(long recoveryJitter) {
+		this.recoveryJitter = recoveryJitter;
+	}
+
+	public WorkManager getWorkManager() {
+		return workManager;
+	}
+
+	public void setWorkManager(WorkManager workManager) {
+		this.workManager = workManager;
+	}
+
 	public TransactionBeanFactory getBeanFactory() {
 		return this.beanFactory;
 	}
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.xa;
+
+import java.lang.management.ManagementFactory;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * High-throughput variant of XidFactoryImpl. The unique key is laid out as:
+ * 
+ * <pre>
+ * [ millis(6) | hardware-address(6) | instance(2) | stripe(4 bits) sequence(12 bits) ]
+ * </pre>
+ * 
+ * The instance is a random nonce drawn once per JVM and mixed with the pid, since containers commonly share or clone
+ * their hardware address and run with the same pid.
+ * 
+ * Each stripe keeps its last timestamp and sequence packed in one slot, threads are spread over the stripes by their
+ * id, so generating a key needs neither a lock nor a shared random. A stripe which exhausts its sequence within one
+ * millisecond borrows the next one, and the timestamp of a stripe never goes backwards, so keys generated by the same
+ * instance are always unique.
+ */
+public class SequenceXidFactoryImpl extends XidFactoryImpl {
+	static final int STRIPE_BITS = 4;
+	static final int SEQUENCE_BITS = 12;
+	static final int STRIPE_COUNT = 1 << STRIPE_BITS;
+	static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+	/* one stripe per cache line (8 longs) to avoid false sharing. */
+	static final int STRIPE_STRIDE = 8;
+
+	static final short instance = getInstanceIdentifier();
+
+	private final AtomicLongArray stripes = new AtomicLongArray(STRIPE_COUNT * STRIPE_STRIDE);
+
+	private static short getInstanceIdentifier() {
+		int nonce = new SecureRandom().nextInt();
+		String name = ManagementFactory.getRuntimeMXBean().getName(); // pid@hostname
+		int index = name == null ? -1 : name.indexOf('@');
+		try {
+			return (short) (nonce ^ Integer.parseInt(index > 0 ? name.substring(0, index) : name));
+		} catch (RuntimeException rex) {
+			logger.debug(rex.getMessage(), rex);
+			return (short) nonce;
+		}
+	}
+
+	public byte[] generateUniqueKey() {
+		int stripe = (int) (Thread.currentThread().getId() & (STRIPE_COUNT - 1));
+		int slot = stripe * STRIPE_STRIDE;
+
+		long value = 0;
+		for (boolean updated = false; updated == false;) {
+			long current = this.stripes.get(slot);
+			long millis = current >>> SEQUENCE_BITS;
+			long now = System.currentTimeMillis();
+			if (now > millis) {
+				value = now << SEQUENCE_BITS;
+			} else if ((current & SEQUENCE_MASK) < SEQUENCE_MASK) {
+				value = current + 1;
+			} else {
+				value = (millis + 1) << SEQUENCE_BITS;
+			}
+			updated = this.stripes.compareAndSet(slot, current, value);
+		}
+
+		long millis = value >>> SEQUENCE_BITS;
+		int sequence = (stripe << SEQUENCE_BITS) | (int) (value & SEQUENCE_MASK);
+
+		byte[] byteArray = new byte[16];
+		byteArray[0] = (byte) (millis >>> 40);
+		byteArray[1] = (byte) (millis >>> 32);
+		byteArray[2] = (byte) (millis >>> 24);
+		byteArray[3] = (byte) (millis >>> 16);
+		byteArray[4] = (byte) (millis >>> 8);
+		byteArray[5] = (byte) millis;
+		System.arraycopy(hardwareAddress, 0, byteArray, 6, SIZE_OF_MAC);
+		byteArray[12] = (byte) (instance >>> 8);
+		byteArray[13] = (byte) instance;
+		byteArray[14] = (byte) (sequence >>> 8);
+		byteArray[15] = (byte) sequence;
+
+		return byteArray;
+	}
+
+}
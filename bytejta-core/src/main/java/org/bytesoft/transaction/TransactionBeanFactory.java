@@ -17,6 +17,10 @@ package org.bytesoft.transaction;
 
 import org.bytesoft.transaction.logging.ArchiveDeserializer;
 import org.bytesoft.transaction.logging.TransactionLogger;
+import org.bytesoft.transaction.remote.BatchCoalescer;
+import org.bytesoft.transaction.resource.XABranchExecutor;
+import org.bytesoft.transaction.supports.TransactionCompleter;
+import org.bytesoft.transaction.supports.TransactionStatistic;
 import org.bytesoft.transaction.supports.TransactionTimer;
 import org.bytesoft.transaction.supports.rpc.TransactionInterceptor;
 import org.bytesoft.transaction.supports.serialize.XAResourceDeserializer;
@@ -46,4 +50,32 @@ public interface TransactionBeanFactory {
 
 	public XAResourceDeserializer getResourceDeserializer();
 
+	/**
+	 * Returns the executor used to call the branches concurrently, null keeps the branches sequential.
+	 */
+	public default XABranchExecutor getBranchExecutor() {
+		return null;
+	}
+
+	/**
+	 * Returns the statistic which is notified of the transaction events, null disables the statistic.
+	 */
+	public default TransactionStatistic getTransactionStatistic() {
+		return null;
+	}
+
+	/**
+	 * Returns the completer which takes over the second phase of committed transactions, null keeps it synchronous.
+	 */
+	public default TransactionCompleter getTransactionCompleter() {
+		return null;
+	}
+
+	/**
+	 * Returns the coalescer of the phase-2 messages sent to remote participants, null sends them one by one.
+	 */
+	public default BatchCoalescer getBatchCoalescer() {
+		return null;
+	}
+
 }
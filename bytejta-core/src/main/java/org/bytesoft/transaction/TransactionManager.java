@@ -27,6 +27,22 @@ public interface TransactionManager extends javax.transaction.TransactionManager
 
 	public Transaction desociateThread();
 
+	/**
+	 * Binds the transaction to the current thread only, unlike associateThread its timing is left untouched. The
+	 * default implementation falls back to associateThread.
+	 */
+	public default void bindThread(Transaction transaction) {
+		this.associateThread(transaction);
+	}
+
+	/**
+	 * Releases the transaction bound to the current thread by bindThread, its timing is left untouched. The default
+	 * implementation falls back to desociateThread.
+	 */
+	public default Transaction unbindThread() {
+		return this.desociateThread();
+	}
+
 	public Transaction getTransaction(Thread thread);
 
 	public Transaction getTransactionQuietly();
@@ -29,4 +29,8 @@ public interface TransactionRecovery {
 
 	public boolean isInitialized();
 
+	public default boolean isPresumedAbort() {
+		return false;
+	}
+
 }
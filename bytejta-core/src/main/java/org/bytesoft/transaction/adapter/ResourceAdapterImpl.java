@@ -29,6 +29,7 @@ import javax.resource.spi.work.WorkException;
 import javax.resource.spi.work.WorkManager;
 import javax.transaction.xa.XAResource;
 
+import org.bytesoft.transaction.aware.WorkManagerAware;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,6 +49,9 @@ public class ResourceAdapterImpl implements ResourceAdapter {
 		// org.bytesoft.bytetcc.work.vfs.CleanupWork
 		for (int i = 0; this.workList != null && i < this.workList.size(); i++) {
 			Work work = this.workList.get(i);
+			if (WorkManagerAware.class.isInstance(work)) {
+				((WorkManagerAware) work).setWorkManager(this.workManager);
+			}
 			try {
 				// 将Work封装成一个Runnable, 丢到线程池里去执行
 				this.workManager.startWork(work);
@@ -20,6 +20,7 @@ import javax.transaction.xa.XAResource;
 import javax.transaction.xa.Xid;
 
 import org.bytesoft.transaction.supports.resource.XAResourceDescriptor;
+import org.bytesoft.transaction.supports.resource.XAResourceStatistic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +38,7 @@ public class XAResourceArchive implements XAResource {
 	private boolean identified;
 
 	private transient boolean recovered;
+	private transient XAResourceStatistic statistic;
 
 	private Xid xid;
 	private int vote = DEFAULT_VOTE;
@@ -51,17 +53,32 @@ public class XAResourceArchive implements XAResource {
 		} else if (this.rolledback) {
 			throw new XAException(XAException.XA_HEURRB);
 		} else {
-			// 调用动态代理SpringCloudCoordinator
-			descriptor.commit(xid, onePhase);
+			this.invoke(XAResourceStatistic.OPERATION_COMMIT, new XAResourceOperation() {
+				public int execute() throws XAException {
+					// 调用动态代理SpringCloudCoordinator
+					descriptor.commit(xid, onePhase);
+					return XAResource.XA_OK;
+				}
+			});
 		}
 	}
 
 	public void end(Xid ignore, int flags) throws XAException {
-		descriptor.end(xid, flags);
+		this.invoke(XAResourceStatistic.OPERATION_END, new XAResourceOperation() {
+			public int execute() throws XAException {
+				descriptor.end(xid, flags);
+				return XAResource.XA_OK;
+			}
+		});
 	}
 
 	public void forget(Xid ignore) throws XAException {
-		descriptor.forget(xid);
+		this.invoke(XAResourceStatistic.OPERATION_FORGET, new XAResourceOperation() {
+			public int execute() throws XAException {
+				descriptor.forget(xid);
+				return XAResource.XA_OK;
+			}
+		});
 	}
 
 	public void forgetQuietly(Xid ignore) {
@@ -87,7 +104,11 @@ public class XAResourceArchive implements XAResource {
 
 	public int prepare(Xid ignore) throws XAException {
 		if (this.vote == -1) {
-			this.vote = this.descriptor.prepare(this.xid);
+			this.vote = this.invoke(XAResourceStatistic.OPERATION_PREPARE, new XAResourceOperation() {
+				public int execute() throws XAException {
+					return descriptor.prepare(xid);
+				}
+			});
 			this.readonly = this.vote == XAResource.XA_RDONLY;
 		}
 		return this.vote;
@@ -107,8 +128,13 @@ public class XAResourceArchive implements XAResource {
 		} else if (this.rolledback) {
 			// ignore
 		} else {
-			// 调用动态代理SpringCloudCoordinator
-			descriptor.rollback(xid);
+			this.invoke(XAResourceStatistic.OPERATION_ROLLBACK, new XAResourceOperation() {
+				public int execute() throws XAException {
+					// 调用动态代理SpringCloudCoordinator
+					descriptor.rollback(xid);
+					return XAResource.XA_OK;
+				}
+			});
 		}
 
 	}
@@ -118,13 +144,59 @@ public class XAResourceArchive implements XAResource {
 	}
 
 	public void start(Xid ignore, int flags) throws XAException {
-		descriptor.start(xid, flags);
+		this.invoke(XAResourceStatistic.OPERATION_START, new XAResourceOperation() {
+			public int execute() throws XAException {
+				descriptor.start(xid, flags);
+				return XAResource.XA_OK;
+			}
+		});
+	}
+
+	private int invoke(int operation, XAResourceOperation resourceOperation) throws XAException {
+		long startNanos = System.nanoTime();
+		try {
+			int result = resourceOperation.execute();
+			this.fireResourceCompleted(operation, startNanos);
+			return result;
+		} catch (XAException xae) {
+			this.fireResourceFailure(operation, startNanos, xae.errorCode);
+			throw xae;
+		} catch (RuntimeException rex) {
+			this.fireResourceFailure(operation, startNanos, XAException.XAER_RMERR);
+			throw rex;
+		}
+	}
+
+	private void fireResourceCompleted(int operation, long startNanos) {
+		if (this.statistic != null) {
+			String identifier = this.descriptor == null ? null : this.descriptor.getIdentifier();
+			this.statistic.fireResourceCompleted(identifier, operation, System.nanoTime() - startNanos);
+		}
+	}
+
+	private void fireResourceFailure(int operation, long startNanos, int errorCode) {
+		if (this.statistic != null) {
+			String identifier = this.descriptor == null ? null : this.descriptor.getIdentifier();
+			this.statistic.fireResourceFailure(identifier, operation, System.nanoTime() - startNanos, errorCode);
+		}
+	}
+
+	private interface XAResourceOperation {
+		public int execute() throws XAException;
 	}
 
 	public String toString() {
 		return String.format("xa-res-archive[descriptor: %s]", this.descriptor);
 	}
 
+	public XAResourceStatistic getStatistic() {
+		return statistic;
+	}
+
+	public void setStatistic(XAResourceStatistic statistic) {
+		this.statistic = statistic;
+	}
+
 	public XAResourceDescriptor getStickiness() {
 		return stickiness;
 	}
@@ -17,6 +17,8 @@ package org.bytesoft.transaction.internal;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.transaction.Synchronization;
 
@@ -26,6 +28,7 @@ import org.slf4j.LoggerFactory;
 public class SynchronizationList implements Synchronization {
 	private static final Logger logger = LoggerFactory.getLogger(SynchronizationList.class);
 	private final List<Synchronization> synchronizations = new ArrayList<Synchronization>();
+	private final Lock lock = new ReentrantLock();
 
 	private boolean beforeCompletionInvoked;
 	private boolean finishCompletionInvoked;
@@ -35,36 +38,46 @@ public class SynchronizationList implements Synchronization {
 		this.synchronizations.add(synchronization);
 	}
 
-	public synchronized void beforeCompletion() {
-		if (this.beforeCompletionInvoked == false) {
-			int length = this.synchronizations.size();
-			for (int i = 0; i < length; i++) {
-				Synchronization synchronization = this.synchronizations.get(i);
-				try {
-					synchronization.beforeCompletion();
-				} catch (RuntimeException error) {
-					logger.error(error.getMessage(), error);
-				}
-			} // end-for
+	public void beforeCompletion() {
+		this.lock.lock();
+		try {
+			if (this.beforeCompletionInvoked == false) {
+				int length = this.synchronizations.size();
+				for (int i = 0; i < length; i++) {
+					Synchronization synchronization = this.synchronizations.get(i);
+					try {
+						synchronization.beforeCompletion();
+					} catch (RuntimeException error) {
+						logger.error(error.getMessage(), error);
+					}
+				} // end-for
 
-			this.beforeCompletionInvoked = true;
-		} // end-if (this.beforeCompletionInvoked == false)
+				this.beforeCompletionInvoked = true;
+			} // end-if (this.beforeCompletionInvoked == false)
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
-	public synchronized void afterCompletion(int status) {
-		if (this.finishCompletionInvoked == false) {
-			int length = this.synchronizations.size();
-			for (int i = 0; i < length; i++) {
-				Synchronization synchronization = this.synchronizations.get(i);
-				try {
-					synchronization.afterCompletion(status);
-				} catch (RuntimeException error) {
-					logger.error(error.getMessage(), error);
-				}
-			} // end-for
+	public void afterCompletion(int status) {
+		this.lock.lock();
+		try {
+			if (this.finishCompletionInvoked == false) {
+				int length = this.synchronizations.size();
+				for (int i = 0; i < length; i++) {
+					Synchronization synchronization = this.synchronizations.get(i);
+					try {
+						synchronization.afterCompletion(status);
+					} catch (RuntimeException error) {
+						logger.error(error.getMessage(), error);
+					}
+				} // end-for
 
-			this.finishCompletionInvoked = true;
-		} // end-if (this.finishCompletionInvoked == false)
+				this.finishCompletionInvoked = true;
+			} // end-if (this.finishCompletionInvoked == false)
+		} finally {
+			this.lock.unlock();
+		}
 	}
 
 }
@@ -15,6 +15,8 @@
  */
 package org.bytesoft.transaction.logging;
 
+import javax.transaction.xa.Xid;
+
 import org.bytesoft.transaction.archive.TransactionArchive;
 import org.bytesoft.transaction.archive.XAResourceArchive;
 import org.bytesoft.transaction.recovery.TransactionRecoveryCallback;
@@ -42,6 +44,26 @@ public interface TransactionLogger {
 
 	public void deleteParticipant(XAResourceArchive archive);
 
+	/* batch */
+	/**
+	 * Opens a batch for the current phase of the global transaction: participant updates are deferred until the next
+	 * transaction-archive is written, which embeds them. Loggers which do not batch keep the default no-op.
+	 */
+	public default void beginBatch(Xid xid) {
+	}
+
+	/**
+	 * Closes the batch, the archive is written if some deferred participant updates have not been covered yet.
+	 */
+	public default void endBatch(TransactionArchive archive) {
+	}
+
+	/**
+	 * Closes the batch and discards the deferred participant updates, the transaction has never been logged.
+	 */
+	public default void cancelBatch(Xid xid) {
+	}
+
 	/* recovery */
 	public void recover(TransactionRecoveryCallback callback);
 
@@ -15,8 +15,12 @@
  */
 package org.bytesoft.transaction.logging.store;
 
+import java.nio.ByteBuffer;
+
 import javax.transaction.xa.Xid;
 
+import org.bytesoft.transaction.xa.XidFactory;
+
 public class VirtualLoggingRecord {
 
 	private Xid identifier;
@@ -48,7 +52,18 @@ public class VirtualLoggingRecord {
 		this.value = value;
 	}
 
+	/**
+	 * The whole record (key, operator, size and value), rebuilt from its fields if it was read without its content.
+	 */
 	public byte[] getContent() {
+		if (this.content == null && this.identifier != null && this.value != null) {
+			ByteBuffer buffer = ByteBuffer.allocate(XidFactory.GLOBAL_TRANSACTION_LENGTH + 1 + 4 + this.value.length);
+			buffer.put(this.identifier.getGlobalTransactionId(), 0, XidFactory.GLOBAL_TRANSACTION_LENGTH);
+			buffer.put((byte) this.operator);
+			buffer.putInt(this.value.length);
+			buffer.put(this.value);
+			this.content = buffer.array();
+		}
 		return content;
 	}
 
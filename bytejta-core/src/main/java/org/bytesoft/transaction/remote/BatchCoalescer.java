@@ -0,0 +1,33 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.transaction.remote;
+
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.Xid;
+
+/**
+ * Coalesces the phase-2 messages which concurrent transactions send to the same batch participant. Each method returns
+ * true if the branch has been completed as part of a batch, false if the caller should complete it itself.
+ */
+public interface BatchCoalescer {
+
+	public boolean commit(String identifier, BatchParticipant participant, Xid xid) throws XAException;
+
+	public boolean rollback(String identifier, BatchParticipant participant, Xid xid) throws XAException;
+
+	public boolean forget(String identifier, BatchParticipant participant, Xid xid) throws XAException;
+
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.transaction.remote;
+
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.Xid;
+
+/**
+ * Completes the second phase of several branches in one request. Each element of the returned array is the XA error
+ * code of the branch at the same position, XAResource.XA_OK if it was completed successfully. Participants which do not
+ * support batching keep the default implementations, and their branches are completed one by one.
+ */
+public interface BatchParticipant {
+
+	public default int[] batchCommit(Xid[] xids) throws XAException {
+		throw new UnsupportedOperationException();
+	}
+
+	public default int[] batchRollback(Xid[] xids) throws XAException {
+		throw new UnsupportedOperationException();
+	}
+
+	public default int[] batchForget(Xid[] xids) throws XAException {
+		throw new UnsupportedOperationException();
+	}
+
+}
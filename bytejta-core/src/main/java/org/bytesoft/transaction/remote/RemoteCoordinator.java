@@ -17,7 +17,7 @@ package org.bytesoft.transaction.remote;
 
 import org.bytesoft.transaction.TransactionParticipant;
 
-public interface RemoteCoordinator extends TransactionParticipant {
+public interface RemoteCoordinator extends TransactionParticipant, BatchParticipant {
 
 	public String getIdentifier();
 
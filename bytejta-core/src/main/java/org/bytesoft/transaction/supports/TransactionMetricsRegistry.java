@@ -0,0 +1,30 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.transaction.supports;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bridge to an external metrics registry. The methods mirror the counter and timer of common metrics libraries, e.g.
+ * Micrometer: <code>registry.counter(name).increment()</code> and <code>registry.timer(name).record(amount, unit)</code>.
+ */
+public interface TransactionMetricsRegistry {
+
+	public void increment(String name);
+
+	public void record(String name, long amount, TimeUnit unit);
+
+}
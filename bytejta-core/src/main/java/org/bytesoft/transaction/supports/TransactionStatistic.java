@@ -48,4 +48,6 @@ public interface TransactionStatistic {
 
 	public void fireRecoverTransaction(TransactionImpl transaction);
 
+	public void fireLoggingCompleted(long costNanos);
+
 }
@@ -0,0 +1,30 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.transaction.supports.resource;
+
+public interface XAResourceStatistic {
+	public static final int OPERATION_START = 0;
+	public static final int OPERATION_END = 1;
+	public static final int OPERATION_PREPARE = 2;
+	public static final int OPERATION_COMMIT = 3;
+	public static final int OPERATION_ROLLBACK = 4;
+	public static final int OPERATION_FORGET = 5;
+
+	public void fireResourceCompleted(String identifier, int operation, long costNanos);
+
+	public void fireResourceFailure(String identifier, int operation, long costNanos, int errorCode);
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.transaction.supports.serialize;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.bytesoft.common.utils.SerializeUtils;
+import org.bytesoft.transaction.TransactionContext;
+import org.bytesoft.transaction.xa.TransactionXid;
+import org.bytesoft.transaction.xa.XidFactory;
+
+/**
+ * Fixed-layout binary form of the transaction context propagated between participants. Only the fields which survive
+ * serialization of {@link TransactionContext} are written, the transient ones are reset by the receiving side. Payloads
+ * not starting with the codec version are handed to {@link SerializeUtils}, so contexts sent by older peers can still be
+ * read. Peers which have not been upgraded cannot read the binary form, so the encoder keeps using
+ * {@link SerializeUtils} unless the system property <code>bytejta.context.codec</code> is set to <code>binary</code>,
+ * which should only be done once every node of the cluster can decode it.
+ *
+ * <pre>
+ * version(1) | flags(1) | formatId(4) | gtrid(16) | [bqual(16)] | createdTime(8) | expiredTime(8) | configFlags(8)
+ * </pre>
+ */
+public final class TransactionContextCodec {
+	static final byte CODEC_VERSION = 0x10; // distinct from the serializer markers of SerializeUtils
+
+	static final int FLAG_ROLLBACK_ONLY = 0x1;
+	static final int FLAG_BRANCH_QUALIFIER = 0x2;
+
+	static final int FIXED_LENGTH = 1 + 1 + 4 + XidFactory.GLOBAL_TRANSACTION_LENGTH + 8 + 8 + 8;
+
+	static final boolean BINARY_ENCODING = StringUtils.equalsIgnoreCase("binary",
+			StringUtils.trimToNull(System.getProperty("bytejta.context.codec")));
+
+	private TransactionContextCodec() {
+	}
+
+	public static byte[] encode(TransactionContext transactionContext) throws IOException {
+		if (BINARY_ENCODING == false) {
+			return SerializeUtils.serializeObject(transactionContext);
+		}
+
+		TransactionXid xid = transactionContext.getXid();
+		byte[] globalTransactionId = xid.getGlobalTransactionId();
+		byte[] branchQualifier = xid.getBranchQualifier();
+		if (globalTransactionId == null || globalTransactionId.length != XidFactory.GLOBAL_TRANSACTION_LENGTH) {
+			return SerializeUtils.serializeObject(transactionContext);
+		} else if (branchQualifier != null && branchQualifier.length != 0
+				&& branchQualifier.length != XidFactory.BRANCH_QUALIFIER_LENGTH) {
+			return SerializeUtils.serializeObject(transactionContext);
+		}
+
+		boolean branchRequired = branchQualifier != null && branchQualifier.length != 0;
+
+		int flags = transactionContext.isRollbackOnly() ? FLAG_ROLLBACK_ONLY : 0;
+		flags |= branchRequired ? FLAG_BRANCH_QUALIFIER : 0;
+
+		int length = FIXED_LENGTH + (branchRequired ? XidFactory.BRANCH_QUALIFIER_LENGTH : 0);
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		buffer.put(CODEC_VERSION);
+		buffer.put((byte) flags);
+		buffer.putInt(xid.getFormatId());
+		buffer.put(globalTransactionId);
+		if (branchRequired) {
+			buffer.put(branchQualifier);
+		}
+		buffer.putLong(transactionContext.getCreatedTime());
+		buffer.putLong(transactionContext.getExpiredTime());
+		buffer.putLong(transactionContext.getConfigFlags());
+		return buffer.array();
+	}
+
+	public static TransactionContext decode(byte[] byteArray) throws IOException {
+		if (byteArray == null || byteArray.length == 0) {
+			throw new IllegalArgumentException();
+		} else if (byteArray[0] != CODEC_VERSION) {
+			Serializable instance = SerializeUtils.deserializeObject(byteArray);
+			return (TransactionContext) instance;
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(byteArray);
+		try {
+			buffer.get(); // version
+			int flags = buffer.get();
+			int formatId = buffer.getInt();
+			byte[] globalTransactionId = new byte[XidFactory.GLOBAL_TRANSACTION_LENGTH];
+			buffer.get(globalTransactionId);
+
+			TransactionXid xid = null;
+			if ((flags & FLAG_BRANCH_QUALIFIER) == FLAG_BRANCH_QUALIFIER) {
+				byte[] branchQualifier = new byte[XidFactory.BRANCH_QUALIFIER_LENGTH];
+				buffer.get(branchQualifier);
+				xid = new TransactionXid(formatId, globalTransactionId, branchQualifier);
+			} else {
+				xid = new TransactionXid(formatId, globalTransactionId);
+			}
+
+			TransactionContext transactionContext = new TransactionContext();
+			transactionContext.setXid(xid);
+			transactionContext.setRollbackOnly((flags & FLAG_ROLLBACK_ONLY) == FLAG_ROLLBACK_ONLY);
+			transactionContext.setCreatedTime(buffer.getLong());
+			transactionContext.setExpiredTime(buffer.getLong());
+			transactionContext.setConfigFlags(buffer.getLong());
+			return transactionContext;
+		} catch (BufferUnderflowException ex) {
+			throw new IOException("Truncated transaction context!", ex);
+		}
+	}
+
+}
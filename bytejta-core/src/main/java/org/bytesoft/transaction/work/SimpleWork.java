@@ -32,6 +32,10 @@ public class SimpleWork implements Runnable {
 		this.workListener.workCompleted(new WorkEvent(this.source, WorkEvent.WORK_COMPLETED, this.work, null));
 	}
 
+	public Work getWork() {
+		return work;
+	}
+
 	public void setSource(Object source) {
 		this.source = source;
 	}
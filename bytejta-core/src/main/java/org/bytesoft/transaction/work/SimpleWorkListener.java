@@ -15,6 +15,7 @@
  */
 package org.bytesoft.transaction.work;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -40,11 +41,29 @@ public class SimpleWorkListener implements WorkListener {
 	}
 
 	public long waitForStart() {
+		return this.waitForStart(-1);
+	}
+
+	/**
+	 * Returns the time elapsed between the acceptance and the start of the work, or -1 if the work has not been started
+	 * within the specified timeout (a negative timeout waits indefinitely).
+	 */
+	public long waitForStart(long timeoutMillis) {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
 		try {
 			this.lock.lock();
 			while (this.acceptedTime < 0 || this.startedTime < 0) {
+				long waitMillis = deadline - System.currentTimeMillis();
+				if (timeoutMillis >= 0 && waitMillis <= 0) {
+					return -1;
+				}
+
 				try {
-					this.condition.await();
+					if (timeoutMillis < 0) {
+						this.condition.await();
+					} else {
+						this.condition.await(waitMillis, TimeUnit.MILLISECONDS);
+					}
 				} catch (InterruptedException ex) {
 					logger.debug(ex.getMessage());
 				}
@@ -15,12 +15,22 @@
  */
 package org.bytesoft.transaction.work;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.resource.spi.work.ExecutionContext;
 import javax.resource.spi.work.Work;
@@ -28,19 +38,45 @@ import javax.resource.spi.work.WorkEvent;
 import javax.resource.spi.work.WorkException;
 import javax.resource.spi.work.WorkListener;
 import javax.resource.spi.work.WorkManager;
+import javax.resource.spi.work.WorkRejectedException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * WorkManager backed by either a bounded pool of platform threads (mode "platform") or one virtual thread per work
+ * (mode "virtual", requires a JDK providing virtual threads, falls back to "platform" otherwise).
+ * 
+ * The platform pool hands each work directly to a thread (queueCapacity = 0) by default, so that long-running works
+ * such as TransactionWork or the logging swap never keep the short ones queued; a positive queueCapacity bounds the
+ * queue instead. Works which cannot be accepted are rejected with a WorkRejectedException. When rejectedPolicy is
+ * "caller-runs", a rejected doWork is run by the submitting thread, which waits for it anyway; startWork and scheduleWork
+ * are always rejected, since long-lived works such as TransactionWork would otherwise never return to their caller.
+ */
 public class SimpleWorkManager implements WorkManager {
 	static final Logger logger = LoggerFactory.getLogger(SimpleWorkManager.class);
 
-	private final ThreadPoolExecutor executor = new ThreadPoolExecutor(5, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
-			new LinkedBlockingQueue<Runnable>());
-	// private final ScheduledThreadPoolExecutor scheduled = new ScheduledThreadPoolExecutor(1);
+	static final String MODE_PLATFORM = "platform";
+	static final String MODE_VIRTUAL = "virtual";
+	static final String POLICY_ABORT = "abort";
+	static final String POLICY_CALLER_RUNS = "caller-runs";
+
+	private String mode = MODE_PLATFORM;
+	private int corePoolSize = 5;
+	private int maximumPoolSize = 256;
+	private int queueCapacity = 0;
+	private long keepAliveSeconds = 60L;
+	private String rejectedPolicy = POLICY_ABORT;
+
+	private volatile ExecutorService executor;
+
+	private final AtomicInteger pendingCount = new AtomicInteger();
+	private final AtomicInteger activeCount = new AtomicInteger();
+	private final AtomicLong completedCount = new AtomicLong();
+	private final AtomicLong rejectedCount = new AtomicLong();
 
 	public void doWork(Work work) throws WorkException {
-		this.doWork(work, 1800 * 1000L, null, null);
+		this.doWork(work, WorkManager.INDEFINITE, null, null);
 	}
 
 	public void doWork(Work work, long startTimeout, ExecutionContext execContext, WorkListener workListener)
@@ -48,9 +84,11 @@ public class SimpleWorkManager implements WorkManager {
 		SimpleWorkListener wrappedListener = new SimpleWorkListener(workListener);
 		wrappedListener.workAccepted(new WorkEvent(this, WorkEvent.WORK_ACCEPTED, work, null));
 		SimpleWork task = new SimpleWork();
+		task.setSource(this);
 		task.setWork(work);
 		task.setWorkListener(wrappedListener);
-		Future<?> future = this.executor.submit(task);
+		Future<?> future = this.submit(task, wrappedListener, POLICY_CALLER_RUNS.equals(this.rejectedPolicy));
+		this.waitForStart(future, task, wrappedListener, startTimeout);
 		try {
 			future.get();
 		} catch (CancellationException ex) {
@@ -63,7 +101,7 @@ public class SimpleWorkManager implements WorkManager {
 	}
 
 	public long startWork(Work work) throws WorkException {
-		return this.startWork(work, 1800 * 1000L, null, null);
+		return this.startWork(work, WorkManager.INDEFINITE, null, null);
 	}
 
 	public long startWork(Work work, long startTimeout, ExecutionContext execContext, WorkListener workListener)
@@ -76,25 +114,189 @@ public class SimpleWorkManager implements WorkManager {
 		task.setWork(work);
 		task.setWorkListener(wrappedListener);
 		// 丢到线程池里去执行
-		this.executor.submit(task);
-		return wrappedListener.waitForStart();
+		Future<?> future = this.submit(task, wrappedListener, false);
+		return this.waitForStart(future, task, wrappedListener, startTimeout);
 	}
 
 	public void scheduleWork(Work work) throws WorkException {
-		throw new WorkException("not supported yet!");
+		this.scheduleWork(work, WorkManager.INDEFINITE, null, null);
 	}
 
+	/**
+	 * Accepts the work and returns immediately, the work is executed asynchronously.
+	 */
 	public void scheduleWork(Work work, long startTimeout, ExecutionContext execContext, WorkListener workListener)
 			throws WorkException {
-		// SimpleWorkListener wrappedListener = new SimpleWorkListener(workListener);
-		// wrappedListener.workAccepted(new WorkEvent(this, WorkEvent.WORK_ACCEPTED, work, null));
-		// SimpleWork task = new SimpleWork();
-		// task.setSource(this);
-		// task.setWork(work);
-		// task.setWorkListener(wrappedListener);
-		// // ScheduledFuture<?> future =
-		// this.scheduled.scheduleAtFixedRate(task, 0, 1000, TimeUnit.MILLISECONDS);
-		throw new WorkException("not supported yet!");
+		SimpleWorkListener wrappedListener = new SimpleWorkListener(workListener);
+		wrappedListener.workAccepted(new WorkEvent(this, WorkEvent.WORK_ACCEPTED, work, null));
+		SimpleWork task = new SimpleWork();
+		task.setSource(this);
+		task.setWork(work);
+		task.setWorkListener(wrappedListener);
+		this.submit(task, wrappedListener, false);
+	}
+
+	private Future<?> submit(final SimpleWork task, SimpleWorkListener listener, boolean callerRunsAllowed)
+			throws WorkRejectedException {
+		Runnable runnable = new Runnable() {
+			public void run() {
+				pendingCount.decrementAndGet();
+				activeCount.incrementAndGet();
+				try {
+					task.run();
+				} finally {
+					activeCount.decrementAndGet();
+					completedCount.incrementAndGet();
+				}
+			}
+		};
+
+		this.pendingCount.incrementAndGet();
+		try {
+			return this.getExecutor().submit(runnable);
+		} catch (RejectedExecutionException ex) {
+			if (callerRunsAllowed) {
+				FutureTask<Object> future = new FutureTask<Object>(runnable, null);
+				future.run();
+				return future;
+			} // end-if (callerRunsAllowed)
+
+			this.pendingCount.decrementAndGet();
+			this.rejectedCount.incrementAndGet();
+
+			WorkRejectedException error = new WorkRejectedException(ex);
+			error.setErrorCode(WorkException.INTERNAL);
+			listener.workRejected(new WorkEvent(this, WorkEvent.WORK_REJECTED, task.getWork(), error));
+			throw error;
+		}
+	}
+
+	private long waitForStart(Future<?> future, SimpleWork task, SimpleWorkListener listener, long startTimeout)
+			throws WorkRejectedException {
+		long timeoutMillis = startTimeout == WorkManager.INDEFINITE || startTimeout <= 0 ? -1 : startTimeout;
+		long elapsed = listener.waitForStart(timeoutMillis);
+		if (elapsed >= 0) {
+			return elapsed;
+		} else if (future.cancel(false) == false) {
+			return listener.waitForStart(-1); // started in the meantime
+		}
+
+		this.pendingCount.decrementAndGet();
+		this.rejectedCount.incrementAndGet();
+		WorkRejectedException error = new WorkRejectedException("The work was not started in time!");
+		error.setErrorCode(WorkException.START_TIMED_OUT);
+		listener.workRejected(new WorkEvent(this, WorkEvent.WORK_REJECTED, task.getWork(), error));
+		throw error;
+	}
+
+	private ExecutorService getExecutor() {
+		ExecutorService current = this.executor;
+		if (current == null) {
+			synchronized (this) {
+				if (this.executor == null) {
+					this.executor = MODE_VIRTUAL.equals(this.mode) ? this.createVirtualExecutor() : null;
+					this.executor = this.executor == null ? this.createPlatformExecutor() : this.executor;
+				}
+				current = this.executor;
+			}
+		}
+		return current;
+	}
+
+	private ExecutorService createVirtualExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (Exception ex) {
+			logger.warn("Virtual threads are not supported by the current JDK, platform threads are used instead.");
+			return null;
+		}
+	}
+
+	private ExecutorService createPlatformExecutor() {
+		BlockingQueue<Runnable> queue = this.queueCapacity > 0 ? new ArrayBlockingQueue<Runnable>(this.queueCapacity)
+				: new SynchronousQueue<Runnable>();
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(this.corePoolSize, this.maximumPoolSize, this.keepAliveSeconds,
+				TimeUnit.SECONDS, queue, new ThreadFactory() {
+					private final AtomicInteger counter = new AtomicInteger();
+
+					public Thread newThread(Runnable runnable) {
+						return new Thread(runnable, "bytejta-work-" + this.counter.incrementAndGet());
+					}
+				});
+		pool.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+		return pool;
+	}
+
+	public synchronized void shutdown() {
+		if (this.executor != null) {
+			this.executor.shutdown();
+		}
+	}
+
+	/* metrics */
+	public int getQueueDepth() {
+		return this.pendingCount.get();
+	}
+
+	public int getActiveCount() {
+		return this.activeCount.get();
+	}
+
+	public long getCompletedCount() {
+		return this.completedCount.get();
+	}
+
+	public long getRejectedCount() {
+		return this.rejectedCount.get();
+	}
+
+	public String getMode() {
+		return mode;
+	}
+
+	public void setMode(String mode) {
+		this.mode = mode;
+	}
+
+	public int getCorePoolSize() {
+		return corePoolSize;
+	}
+
+	public void setCorePoolSize(int corePoolSize) {
+		this.corePoolSize = corePoolSize;
+	}
+
+	public int getMaximumPoolSize() {
+		return maximumPoolSize;
+	}
+
+	public void setMaximumPoolSize(int maximumPoolSize) {
+		this.maximumPoolSize = maximumPoolSize;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public long getKeepAliveSeconds() {
+		return keepAliveSeconds;
+	}
+
+	public void setKeepAliveSeconds(long keepAliveSeconds) {
+		this.keepAliveSeconds = keepAliveSeconds;
+	}
+
+	public String getRejectedPolicy() {
+		return rejectedPolicy;
+	}
+
+	public void setRejectedPolicy(String rejectedPolicy) {
+		this.rejectedPolicy = rejectedPolicy;
 	}
 
 }
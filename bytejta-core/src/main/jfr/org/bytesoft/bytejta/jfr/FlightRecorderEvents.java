@@ -0,0 +1,182 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.jfr;
+
+import org.bytesoft.bytejta.TransactionImpl;
+import org.bytesoft.common.utils.ByteUtils;
+import org.bytesoft.transaction.Transaction;
+import org.bytesoft.transaction.TransactionContext;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Event types of the transaction lifecycle. Xids are only hex-encoded for events which are actually recorded, and the
+ * per-transaction listener is only registered while a recording has one of its event types enabled.
+ */
+final class FlightRecorderEvents implements FlightRecorderSupport {
+	static final String OUTCOME_SUCCESS = "success";
+	static final String OUTCOME_FAILURE = "failure";
+
+	private final EventType enlistType = EventType.getEventType(EnlistEvent.class);
+	private final EventType prepareType = EventType.getEventType(PrepareEvent.class);
+	private final EventType commitType = EventType.getEventType(CommitEvent.class);
+	private final EventType rollbackType = EventType.getEventType(RollbackEvent.class);
+
+	public void fireBeginTransaction(TransactionImpl transaction) {
+		TransactionContext transactionContext = transaction.getTransactionContext();
+		BeginEvent event = new BeginEvent();
+		if (event.shouldCommit()) {
+			event.xid = ByteUtils.byteArrayToString(transactionContext.getXid().getGlobalTransactionId());
+			event.coordinator = transactionContext.isCoordinator();
+			event.commit();
+		}
+
+		if (this.enlistType.isEnabled() || this.prepareType.isEnabled() || this.commitType.isEnabled()
+				|| this.rollbackType.isEnabled()) {
+			FlightRecorderListener listener = new FlightRecorderListener();
+			transaction.registerTransactionListener(listener);
+			transaction.registerTransactionResourceListener(listener);
+		}
+	}
+
+	public void fireRecoverTransaction(Transaction transaction, boolean success, long costNanos) {
+		RecoveryEvent event = new RecoveryEvent();
+		if (event.shouldCommit()) {
+			TransactionContext transactionContext = transaction.getTransactionContext();
+			event.xid = ByteUtils.byteArrayToString(transactionContext.getXid().getGlobalTransactionId());
+			event.coordinator = transactionContext.isCoordinator();
+			event.outcome = success ? OUTCOME_SUCCESS : OUTCOME_FAILURE;
+			event.cost = costNanos;
+			event.commit();
+		}
+	}
+
+	public void fireLoggingWrite(long costNanos) {
+		LoggingWriteEvent event = new LoggingWriteEvent();
+		if (event.shouldCommit()) {
+			event.cost = costNanos;
+			event.commit();
+		}
+	}
+
+	public void fireLoggingFlush(long costNanos) {
+		LoggingFlushEvent event = new LoggingFlushEvent();
+		if (event.shouldCommit()) {
+			event.cost = costNanos;
+			event.commit();
+		}
+	}
+
+	@Name("org.bytesoft.bytejta.Begin")
+	@Label("Transaction Begin")
+	@Category({ "ByteJTA", "Transaction" })
+	@StackTrace(false)
+	static class BeginEvent extends Event {
+		@Label("Global Transaction Id")
+		String xid;
+		@Label("Coordinator")
+		boolean coordinator;
+	}
+
+	@Name("org.bytesoft.bytejta.Enlist")
+	@Label("Resource Enlist")
+	@Category({ "ByteJTA", "Transaction" })
+	@StackTrace(false)
+	static class EnlistEvent extends Event {
+		@Label("Global Transaction Id")
+		String xid;
+		@Label("Branch Qualifier")
+		String branch;
+		@Label("Resource")
+		String resource;
+	}
+
+	@Name("org.bytesoft.bytejta.Prepare")
+	@Label("Transaction Prepare")
+	@Category({ "ByteJTA", "Transaction" })
+	@StackTrace(false)
+	static class PrepareEvent extends Event {
+		@Label("Global Transaction Id")
+		String xid;
+		@Label("Outcome")
+		String outcome;
+	}
+
+	@Name("org.bytesoft.bytejta.Commit")
+	@Label("Transaction Commit")
+	@Category({ "ByteJTA", "Transaction" })
+	@StackTrace(false)
+	static class CommitEvent extends Event {
+		@Label("Global Transaction Id")
+		String xid;
+		@Label("Outcome")
+		String outcome;
+	}
+
+	@Name("org.bytesoft.bytejta.Rollback")
+	@Label("Transaction Rollback")
+	@Category({ "ByteJTA", "Transaction" })
+	@StackTrace(false)
+	static class RollbackEvent extends Event {
+		@Label("Global Transaction Id")
+		String xid;
+		@Label("Outcome")
+		String outcome;
+	}
+
+	@Name("org.bytesoft.bytejta.Recovery")
+	@Label("Transaction Recovery")
+	@Category({ "ByteJTA", "Transaction" })
+	@StackTrace(false)
+	static class RecoveryEvent extends Event {
+		@Label("Global Transaction Id")
+		String xid;
+		@Label("Coordinator")
+		boolean coordinator;
+		@Label("Outcome")
+		String outcome;
+		@Label("Cost")
+		@Timespan(Timespan.NANOSECONDS)
+		long cost;
+	}
+
+	@Name("org.bytesoft.bytejta.LoggingWrite")
+	@Label("Logging Write")
+	@Category({ "ByteJTA", "Logging" })
+	@StackTrace(false)
+	static class LoggingWriteEvent extends Event {
+		@Label("Cost")
+		@Timespan(Timespan.NANOSECONDS)
+		long cost;
+	}
+
+	@Name("org.bytesoft.bytejta.LoggingFlush")
+	@Label("Logging Flush")
+	@Category({ "ByteJTA", "Logging" })
+	@StackTrace(false)
+	static class LoggingFlushEvent extends Event {
+		@Label("Cost")
+		@Timespan(Timespan.NANOSECONDS)
+		long cost;
+	}
+
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright 2014-2016 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.jfr;
+
+import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
+
+import org.bytesoft.bytejta.jfr.FlightRecorderEvents.CommitEvent;
+import org.bytesoft.bytejta.jfr.FlightRecorderEvents.EnlistEvent;
+import org.bytesoft.bytejta.jfr.FlightRecorderEvents.PrepareEvent;
+import org.bytesoft.bytejta.jfr.FlightRecorderEvents.RollbackEvent;
+import org.bytesoft.common.utils.ByteUtils;
+import org.bytesoft.transaction.supports.TransactionListenerAdapter;
+import org.bytesoft.transaction.supports.TransactionResourceListener;
+import org.bytesoft.transaction.supports.resource.XAResourceDescriptor;
+import org.bytesoft.transaction.xa.TransactionXid;
+
+/**
+ * Turns the phases of one transaction into duration events: each event begins on the start notification of its phase
+ * and is committed on the corresponding success or failure notification.
+ */
+class FlightRecorderListener extends TransactionListenerAdapter implements TransactionResourceListener {
+	static final String OUTCOME_HEURISTIC_MIXED = "heuristic-mixed";
+	static final String OUTCOME_HEURISTIC_ROLLEDBACK = "heuristic-rolledback";
+
+	private PrepareEvent prepareEvent;
+	private CommitEvent commitEvent;
+	private RollbackEvent rollbackEvent;
+
+	public void onPrepareStart(TransactionXid xid) {
+		PrepareEvent event = new PrepareEvent();
+		if (event.isEnabled()) {
+			event.begin();
+			this.prepareEvent = event;
+		}
+	}
+
+	public void onPrepareSuccess(TransactionXid xid) {
+		this.completePrepare(xid, FlightRecorderEvents.OUTCOME_SUCCESS);
+	}
+
+	public void onPrepareFailure(TransactionXid xid) {
+		this.completePrepare(xid, FlightRecorderEvents.OUTCOME_FAILURE);
+	}
+
+	private void completePrepare(TransactionXid xid, String outcome) {
+		PrepareEvent event = this.prepareEvent;
+		this.prepareEvent = null;
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.xid = ByteUtils.byteArrayToString(xid.getGlobalTransactionId());
+				event.outcome = outcome;
+				event.commit();
+			}
+		}
+	}
+
+	public void onCommitStart(TransactionXid xid) {
+		CommitEvent event = new CommitEvent();
+		if (event.isEnabled()) {
+			event.begin();
+			this.commitEvent = event;
+		}
+	}
+
+	public void onCommitSuccess(TransactionXid xid) {
+		this.completeCommit(xid, FlightRecorderEvents.OUTCOME_SUCCESS);
+	}
+
+	public void onCommitFailure(TransactionXid xid) {
+		this.completeCommit(xid, FlightRecorderEvents.OUTCOME_FAILURE);
+	}
+
+	public void onCommitHeuristicMixed(TransactionXid xid) {
+		this.completeCommit(xid, OUTCOME_HEURISTIC_MIXED);
+	}
+
+	public void onCommitHeuristicRolledback(TransactionXid xid) {
+		this.completeCommit(xid, OUTCOME_HEURISTIC_ROLLEDBACK);
+	}
+
+	private void completeCommit(TransactionXid xid, String outcome) {
+		CommitEvent event = this.commitEvent;
+		this.commitEvent = null;
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.xid = ByteUtils.byteArrayToString(xid.getGlobalTransactionId());
+				event.outcome = outcome;
+				event.commit();
+			}
+		}
+	}
+
+	public void onRollbackStart(TransactionXid xid) {
+		RollbackEvent event = new RollbackEvent();
+		if (event.isEnabled()) {
+			event.begin();
+			this.rollbackEvent = event;
+		}
+	}
+
+	public void onRollbackSuccess(TransactionXid xid) {
+		this.completeRollback(xid, FlightRecorderEvents.OUTCOME_SUCCESS);
+	}
+
+	public void onRollbackFailure(TransactionXid xid) {
+		this.completeRollback(xid, FlightRecorderEvents.OUTCOME_FAILURE);
+	}
+
+	private void completeRollback(TransactionXid xid, String outcome) {
+		RollbackEvent event = this.rollbackEvent;
+		this.rollbackEvent = null;
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.xid = ByteUtils.byteArrayToString(xid.getGlobalTransactionId());
+				event.outcome = outcome;
+				event.commit();
+			}
+		}
+	}
+
+	public void onEnlistResource(Xid xid, XAResource xares) {
+		EnlistEvent event = new EnlistEvent();
+		if (event.shouldCommit()) {
+			event.xid = ByteUtils.byteArrayToString(xid.getGlobalTransactionId());
+			event.branch = ByteUtils.byteArrayToString(xid.getBranchQualifier());
+			if (XAResourceDescriptor.class.isInstance(xares)) {
+				event.resource = ((XAResourceDescriptor) xares).getIdentifier();
+			}
+			event.commit();
+		}
+	}
+
+	public void onDelistResource(Xid xid, XAResource xares) {
+	}
+
+}
@@ -26,6 +26,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.bytesoft.bytejta.supports.internal.RemoteCoordinatorRegistry;
 import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.transaction.TransactionParticipant;
+import org.bytesoft.transaction.remote.BatchParticipant;
 import org.bytesoft.transaction.remote.RemoteAddr;
 import org.bytesoft.transaction.remote.RemoteCoordinator;
 import org.bytesoft.transaction.remote.RemoteNode;
@@ -96,6 +97,8 @@ public class DubboRemoteCoordinator implements InvocationHandler {
 				} else {
 					throw new XAException(XAException.XAER_RMFAIL);
 				}
+			} else if (BatchParticipant.class.equals(clazz)) {
+				return this.invokeForGeneric(proxy, method, args);
 			} else {
 				throw new IllegalAccessException();
 			}
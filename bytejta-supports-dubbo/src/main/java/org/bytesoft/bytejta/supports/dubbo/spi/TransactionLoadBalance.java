@@ -15,7 +15,13 @@
  */
 package org.bytesoft.bytejta.supports.dubbo.spi;
 
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 import org.bytesoft.bytejta.TransactionImpl;
 import org.bytesoft.bytejta.supports.dubbo.InvocationContextRegistry;
@@ -42,6 +48,7 @@ public final class TransactionLoadBalance implements LoadBalance {
 	static final String CONSTANT_LOADBALANCE_KEY = "org.bytesoft.bytejta.loadbalance";
 
 	private ILoadBalancer loadBalancer;
+	private final Map<String, InvokerIndex> invokerIndexes = new ConcurrentHashMap<String, InvokerIndex>();
 
 	private void fireInitializeIfNecessary() {
 		if (this.loadBalancer == null) {
@@ -74,39 +81,29 @@ public final class TransactionLoadBalance implements LoadBalance {
 		}
 
 		TransactionBeanFactory beanFactory = TransactionBeanRegistry.getInstance().getBeanFactory();
-		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
 		TransactionManager transactionManager = beanFactory.getTransactionManager();
 		TransactionImpl transaction = //
 				(TransactionImpl) transactionManager.getTransactionQuietly();
 		List<XAResourceArchive> participantList = transaction == null ? null : transaction.getRemoteParticipantList();
 
 		RemoteAddr instanceAddr = null;
-		for (int i = 0; invokers != null && participantList != null && participantList.isEmpty() == false
-				&& i < invokers.size(); i++) {
-			Invoker<T> invoker = invokers.get(i);
-			URL invokerUrl = invoker.getUrl();
-			RemoteAddr invokerAddr = new RemoteAddr();
-			invokerAddr.setServerHost(invokerUrl.getHost());
-			invokerAddr.setServerPort(invokerUrl.getPort());
-
-			RemoteNode remoteNode = participantRegistry.getRemoteNode(invokerAddr);
-			if (remoteNode == null) {
-				continue;
-			}
-
-			XAResourceDescriptor participant = transaction.getRemoteCoordinator(remoteNode.getServiceKey());
-			if (participant == null) {
+		InvokerIndex invokerIndex = participantList == null || participantList.isEmpty() //
+				? null : this.getInvokerIndex(invokers, url);
+		for (int i = 0; invokerIndex != null && i < participantList.size(); i++) {
+			XAResourceArchive archive = participantList.get(i);
+			XAResourceDescriptor participant = archive.getDescriptor();
+			String identifier = participant == null ? null : participant.getIdentifier();
+			RemoteAddr remoteAddr = CommonUtils.getRemoteAddr(identifier);
+			if (remoteAddr == null) {
 				continue;
 			}
 
-			String identifier = participant.getIdentifier();
-			RemoteAddr remoteAddr = CommonUtils.getRemoteAddr(identifier);
-			if (invokerAddr.equals(remoteAddr) == false) {
+			Invoker<T> invoker = invokerIndex.getInvokerByHost(remoteAddr);
+			if (invoker != null) {
+				return invoker;
+			} else if (invokerIndex.containsApplication(CommonUtils.getApplication(identifier))) {
 				instanceAddr = remoteAddr;
-				continue;
 			}
-
-			return invoker;
 		}
 
 		if (instanceAddr != null) {
@@ -129,18 +126,99 @@ public final class TransactionLoadBalance implements LoadBalance {
 		RemoteAddr remoteAddr = new RemoteAddr();
 		remoteAddr.setServerHost(context.getServerHost());
 		remoteAddr.setServerPort(context.getServerPort());
-		for (int i = 0; invokers != null && i < invokers.size(); i++) {
-			Invoker<T> invoker = invokers.get(i);
-			URL targetUrl = invoker.getUrl();
-			RemoteAddr targetAddr = new RemoteAddr();
-			targetAddr.setServerHost(targetUrl.getIp());
-			targetAddr.setServerPort(targetUrl.getPort());
-			if (targetAddr.equals(remoteAddr)) {
-				return invoker;
-			} // end-if (targetAddr.equals(remoteAddr))
+
+		Invoker<T> invoker = invokers == null || invokers.isEmpty() ? null
+				: this.getInvokerIndex(invokers, url).getInvokerByIp(remoteAddr);
+		if (invoker != null) {
+			return invoker;
 		}
 
 		throw new RpcException(String.format("Invoker(%s:%s) is not found!", context.getServerHost(), context.getServerPort()));
 	}
 
+	private InvokerIndex getInvokerIndex(List<? extends Invoker<?>> invokers, URL url) {
+		String serviceKey = url.getServiceKey();
+		InvokerIndex invokerIndex = this.invokerIndexes.get(serviceKey);
+		if (invokerIndex == null || invokerIndex.matches(invokers) == false) {
+			invokerIndex = new InvokerIndex(invokers);
+			this.invokerIndexes.put(serviceKey, invokerIndex);
+		} // end-if (invokerIndex == null || invokerIndex.matches(invokers) == false)
+		return invokerIndex;
+	}
+
+	/**
+	 * Invokers of one service indexed by host:port. The index is only rebuilt when the directory hands out a different
+	 * list of invokers; the applications behind the invokers are resolved as their nodes become known to the
+	 * RemoteCoordinatorRegistry.
+	 */
+	static final class InvokerIndex {
+		private final List<? extends Invoker<?>> invokers;
+		private final Map<RemoteAddr, Invoker<?>> hostMap = new HashMap<RemoteAddr, Invoker<?>>();
+		private final Map<RemoteAddr, Invoker<?>> ipMap = new HashMap<RemoteAddr, Invoker<?>>();
+		private final Set<String> applications = new ConcurrentSkipListSet<String>();
+		private final Map<RemoteAddr, Boolean> unresolvedMap = new ConcurrentHashMap<RemoteAddr, Boolean>();
+
+		public InvokerIndex(List<? extends Invoker<?>> invokers) {
+			this.invokers = invokers;
+			for (int i = 0; i < invokers.size(); i++) {
+				Invoker<?> invoker = invokers.get(i);
+				URL invokerUrl = invoker.getUrl();
+
+				RemoteAddr hostAddr = new RemoteAddr();
+				hostAddr.setServerHost(invokerUrl.getHost());
+				hostAddr.setServerPort(invokerUrl.getPort());
+				this.hostMap.put(hostAddr, invoker);
+				this.unresolvedMap.put(hostAddr, Boolean.TRUE);
+
+				RemoteAddr ipAddr = new RemoteAddr();
+				ipAddr.setServerHost(invokerUrl.getIp());
+				ipAddr.setServerPort(invokerUrl.getPort());
+				this.ipMap.put(ipAddr, invoker);
+			}
+		}
+
+		public boolean matches(List<? extends Invoker<?>> target) {
+			if (this.invokers == target) {
+				return true;
+			} else if (this.invokers.size() != target.size()) {
+				return false;
+			}
+
+			for (int i = 0; i < target.size(); i++) {
+				if (this.invokers.get(i) != target.get(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@SuppressWarnings("unchecked")
+		public <T> Invoker<T> getInvokerByHost(RemoteAddr remoteAddr) {
+			return (Invoker<T>) this.hostMap.get(remoteAddr);
+		}
+
+		@SuppressWarnings("unchecked")
+		public <T> Invoker<T> getInvokerByIp(RemoteAddr remoteAddr) {
+			return (Invoker<T>) this.ipMap.get(remoteAddr);
+		}
+
+		public boolean containsApplication(String application) {
+			if (application == null) {
+				return false;
+			} else if (this.unresolvedMap.isEmpty() == false) {
+				RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
+				Iterator<RemoteAddr> itr = this.unresolvedMap.keySet().iterator();
+				while (itr.hasNext()) {
+					RemoteAddr remoteAddr = itr.next();
+					RemoteNode remoteNode = participantRegistry.getRemoteNode(remoteAddr);
+					if (remoteNode != null && remoteNode.getServiceKey() != null) {
+						this.applications.add(remoteNode.getServiceKey());
+						itr.remove();
+					} // end-if (remoteNode != null && remoteNode.getServiceKey() != null)
+				} // end-while (itr.hasNext())
+			}
+			return this.applications.contains(application);
+		}
+	}
+
 }
@@ -22,12 +22,18 @@ import java.io.Serializable;
 import java.lang.reflect.Proxy;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
 import javax.transaction.xa.Xid;
 
 import org.apache.commons.lang3.StringUtils;
+import org.bytesoft.bytejta.TransactionImpl;
 import org.bytesoft.bytejta.supports.dubbo.DubboRemoteCoordinator;
 import org.bytesoft.bytejta.supports.dubbo.TransactionBeanRegistry;
 import org.bytesoft.bytejta.supports.internal.RemoteCoordinatorRegistry;
@@ -60,6 +66,8 @@ import com.alibaba.dubbo.config.ApplicationConfig;
 import com.alibaba.dubbo.config.ProtocolConfig;
 import com.alibaba.dubbo.config.ReferenceConfig;
 import com.alibaba.dubbo.config.RegistryConfig;
+import com.alibaba.dubbo.remoting.exchange.ResponseCallback;
+import com.alibaba.dubbo.remoting.exchange.ResponseFuture;
 import com.alibaba.dubbo.rpc.Filter;
 import com.alibaba.dubbo.rpc.Invocation;
 import com.alibaba.dubbo.rpc.Invoker;
@@ -67,6 +75,8 @@ import com.alibaba.dubbo.rpc.Result;
 import com.alibaba.dubbo.rpc.RpcContext;
 import com.alibaba.dubbo.rpc.RpcException;
 import com.alibaba.dubbo.rpc.RpcResult;
+import com.alibaba.dubbo.rpc.protocol.dubbo.FutureAdapter;
+import com.alibaba.dubbo.rpc.support.RpcUtils;
 import com.caucho.hessian.io.HessianInput;
 import com.caucho.hessian.io.HessianOutput;
 
@@ -142,6 +152,8 @@ public class TransactionServiceFilter implements Filter {
 		Class<?> parameterType = (parameterTypeArray == null || parameterTypeArray.length == 0) ? null : parameterTypeArray[0];
 		if (parameterTypeArray == null || parameterTypeArray.length == 0) {
 			return this.wrapResultForProvider(invoker, invocation, null, false);
+		} else if (Xid[].class.equals(parameterType)) {
+			return this.providerInvokeForBatch(invoker, invocation);
 		} else if (Xid.class.equals(parameterType) == false) {
 			return this.wrapResultForProvider(invoker, invocation, null, false);
 		}
@@ -261,6 +273,55 @@ public class TransactionServiceFilter implements Filter {
 
 	}
 
+	/**
+	 * A batch is only accepted if every branch in it was propagated by the calling coordinator, otherwise it is rejected
+	 * as a whole and the caller falls back to completing the branches one by one.
+	 */
+	public Result providerInvokeForBatch(Invoker<?> invoker, Invocation invocation) throws RpcException {
+		TransactionBeanRegistry beanRegistry = TransactionBeanRegistry.getInstance();
+		TransactionBeanFactory beanFactory = beanRegistry.getBeanFactory();
+		XidFactory xidFactory = beanFactory.getXidFactory();
+		TransactionRepository transactionRepository = beanFactory.getTransactionRepository();
+		RemoteCoordinator transactionCoordinator = (RemoteCoordinator) beanFactory.getNativeParticipant();
+
+		String remoteAddr = invocation.getAttachment(RemoteCoordinator.class.getName());
+
+		Object[] arguments = invocation.getArguments();
+		Xid[] xids = (Xid[]) arguments[0];
+		for (int i = 0; xids != null && i < xids.length; i++) {
+			TransactionXid globalXid = xidFactory.createGlobalXid(xids[i].getGlobalTransactionId());
+			Transaction transaction = null;
+			try {
+				transaction = transactionRepository.getTransaction(globalXid);
+			} catch (TransactionException tex) {
+				continue; // reported by the coordinator for this branch
+			}
+
+			if (transaction == null) {
+				continue;
+			}
+
+			TransactionContext transactionContext = transaction.getTransactionContext();
+			String propagatedBy = String.valueOf(transactionContext.getPropagatedBy());
+			if (StringUtils.equals(propagatedBy, remoteAddr) == false) {
+				RpcResult result = new RpcResult();
+
+				InvocationResult wrapped = new InvocationResult();
+				wrapped.setError(new XAException(XAException.XAER_PROTO));
+				wrapped.setVariable(RemoteCoordinator.class.getName(), transactionCoordinator.getIdentifier());
+
+				result.setException(null);
+				result.setValue(wrapped);
+
+				logger.warn("{}| branch should be invoked by its own coordinator(expect= {}, actual= {})." //
+						, globalXid, propagatedBy, remoteAddr);
+				return result;
+			}
+		}
+
+		return this.wrapResultForProvider(invoker, invocation, remoteAddr, false);
+	}
+
 	public Result wrapResultForProvider(Invoker<?> invoker, Invocation invocation, String propagatedBy,
 			boolean attachRequired) {
 
@@ -492,6 +553,10 @@ public class TransactionServiceFilter implements Filter {
 		TransactionResponseImpl response = new TransactionResponseImpl();
 		response.setSourceTransactionCoordinator(participant);
 
+		if (RpcUtils.isAsync(invoker.getUrl(), invocation)) {
+			return this.consumerInvokeForAsyncSVC(invoker, invocation, transaction, invocationDef, request, response);
+		} // end-if (RpcUtils.isAsync(invoker.getUrl(), invocation))
+
 		RpcResult result = null;
 		RpcException invokeError = null;
 		Throwable serverError = null;
@@ -558,6 +623,149 @@ public class TransactionServiceFilter implements Filter {
 
 	}
 
+	/**
+	 * The branch is enlisted when the request is sent and delisted when its response is received, which may happen on
+	 * a dubbo thread. The future exposed by the RpcContext is replaced by a CompletableFuture holding the unwrapped
+	 * value, several calls may be sent this way and their futures combined, the transaction waits for their responses
+	 * before it completes.
+	 */
+	private Result consumerInvokeForAsyncSVC(Invoker<?> invoker, final Invocation invocation, final Transaction transaction,
+			final InvocationDef invocationDef, final TransactionRequestImpl request, final TransactionResponseImpl response)
+			throws RpcException {
+		Result result = null;
+		this.beforeConsumerInvokeForSVC(invocation, request, response);
+		if (TransactionImpl.class.isInstance(transaction)) {
+			((TransactionImpl) transaction).beginAsyncInvocation();
+		} // end-if (TransactionImpl.class.isInstance(transaction))
+
+		try {
+			result = invoker.invoke(invocation);
+		} catch (RuntimeException rex) {
+			this.completeAsyncInvocation(invocation, transaction, invocationDef, request, response, null,
+					new RpcResult(rex));
+			throw RpcException.class.isInstance(rex) ? (RpcException) rex : new RpcException(rex.getMessage(), rex);
+		}
+
+		final CompletableFuture<Object> completableFuture = new CompletableFuture<Object>();
+		Future<?> future = RpcContext.getContext().getFuture();
+		if (FutureAdapter.class.isInstance(future)) {
+			ResponseFuture responseFuture = ((FutureAdapter<?>) future).getFuture();
+			RpcContext.getContext().setFuture(completableFuture);
+			responseFuture.setCallback(new ResponseCallback() {
+				public void done(Object value) {
+					Result completed = Result.class.isInstance(value) ? (Result) value : new RpcResult(value);
+					completeAsyncInvocation(invocation, transaction, invocationDef, request, response, completableFuture,
+							completed);
+				}
+
+				public void caught(Throwable error) {
+					completeAsyncInvocation(invocation, transaction, invocationDef, request, response, completableFuture,
+							new RpcResult(error));
+				}
+			});
+		} else {
+			RpcContext.getContext().setFuture(completableFuture);
+			long expired = transaction.getTransactionContext().getExpiredTime();
+			Result completed = null;
+			try {
+				// no callback available, wait for the response as long as the transaction has not expired
+				long remains = Math.max(0, expired - System.currentTimeMillis());
+				completed = new RpcResult(future == null ? null : future.get(remains, TimeUnit.MILLISECONDS));
+			} catch (TimeoutException ex) {
+				future.cancel(false);
+				completed = new RpcResult(new RpcException(RpcException.TIMEOUT_EXCEPTION,
+						"The response was not received before the transaction expired.", ex));
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				completed = new RpcResult(new RpcException(ex.getMessage(), ex));
+			} catch (ExecutionException ex) {
+				completed = new RpcResult(ex.getCause() == null ? ex : ex.getCause());
+			}
+			this.completeAsyncInvocation(invocation, transaction, invocationDef, request, response, completableFuture,
+					completed);
+		}
+
+		return result;
+	}
+
+	private void completeAsyncInvocation(Invocation invocation, Transaction transaction, InvocationDef invocationDef,
+			TransactionRequestImpl request, TransactionResponseImpl response, CompletableFuture<Object> future,
+			Result completed) {
+		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
+		TransactionBeanRegistry beanRegistry = TransactionBeanRegistry.getInstance();
+		TransactionBeanFactory beanFactory = beanRegistry.getBeanFactory();
+		RemoteCoordinator transactionCoordinator = (RemoteCoordinator) beanFactory.getNativeParticipant();
+
+		Object value = null;
+		Throwable error = null;
+		if (completed.hasException()) {
+			error = completed.getException();
+		} else if (InvocationResult.class.isInstance(completed.getValue())) {
+			InvocationResult wrapped = (InvocationResult) completed.getValue();
+			error = wrapped.isFailure() ? wrapped.getError() : null;
+			value = wrapped.isFailure() ? null : wrapped.getValue();
+
+			String propagatedBy = (String) wrapped.getVariable(Propagation.class.getName());
+			String instanceId = (String) wrapped.getVariable(RemoteCoordinator.class.getName());
+
+			participantRegistry.putInvocationDef(invocationDef, CommonUtils.getRemoteNode(instanceId));
+
+			String identifier = transactionCoordinator.getIdentifier();
+			boolean participantDelistRequired = StringUtils.equals(propagatedBy, identifier) == false;
+			response.setParticipantDelistFlag(participantDelistRequired);
+			response.setParticipantEnlistFlag(request.isParticipantEnlistFlag());
+		} else {
+			value = completed.getValue();
+		}
+
+		try {
+			this.afterConsumerInvokeForAsyncSVC(invocation, transaction, request, response);
+		} catch (RuntimeException rex) {
+			logger.error("Error occurred in remote call!", rex);
+			error = error == null ? rex : error;
+		} finally {
+			if (TransactionImpl.class.isInstance(transaction)) {
+				((TransactionImpl) transaction).endAsyncInvocation();
+			} // end-if (TransactionImpl.class.isInstance(transaction))
+		}
+
+		if (future == null) {
+			return;
+		} else if (error == null) {
+			future.complete(value);
+		} else {
+			future.completeExceptionally(error);
+		}
+	}
+
+	/**
+	 * Delists the remote branch on the thread which received the response, the transaction is bound to that thread for
+	 * the time of the call. Only the thread binding is borrowed, the timing of the transaction stays with its owner.
+	 */
+	private void afterConsumerInvokeForAsyncSVC(Invocation invocation, Transaction transaction,
+			TransactionRequestImpl request, TransactionResponseImpl response) {
+		TransactionBeanRegistry beanRegistry = TransactionBeanRegistry.getInstance();
+		TransactionBeanFactory beanFactory = beanRegistry.getBeanFactory();
+		TransactionManager transactionManager = beanFactory.getTransactionManager();
+
+		Transaction current = transactionManager.getTransactionQuietly();
+		if (transaction == null || current == transaction) {
+			this.afterConsumerInvokeForSVC(invocation, request, response);
+			return;
+		}
+
+		Transaction suspended = current == null ? null : transactionManager.unbindThread();
+		try {
+			transactionManager.bindThread(transaction);
+			this.afterConsumerInvokeForSVC(invocation, request, response);
+		} finally {
+			transactionManager.unbindThread();
+			if (suspended != null) {
+				transactionManager.bindThread(suspended);
+			} // end-if (suspended != null)
+		}
+	}
+
 	private RemoteCoordinator getParticipantByRemoteAddr(Invoker<?> invoker, InvocationDef invocationDef) {
 		RemoteCoordinatorRegistry participantRegistry = RemoteCoordinatorRegistry.getInstance();
 
@@ -29,6 +29,7 @@ import org.bytesoft.common.utils.ByteUtils;
 import org.bytesoft.common.utils.CommonUtils;
 import org.bytesoft.common.utils.SerializeUtils;
 import org.bytesoft.transaction.TransactionParticipant;
+import org.bytesoft.transaction.remote.BatchParticipant;
 import org.bytesoft.transaction.remote.RemoteAddr;
 import org.bytesoft.transaction.remote.RemoteCoordinator;
 import org.bytesoft.transaction.remote.RemoteNode;
@@ -46,8 +47,11 @@ public class SpringCloudCoordinator implements InvocationHandler {
 	static final Logger logger = LoggerFactory.getLogger(SpringCloudCoordinator.class);
 	static final String CONSTANT_CONTENT_PATH = "org.bytesoft.bytejta.contextpath";
 
+	static final RestTemplate defaultRestTemplate = new RestTemplate();
+
 	private String identifier;
 	private Environment environment;
+	private transient volatile String requestPrefix;
 
 	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
 		Class<?> clazz = method.getDeclaringClass();
@@ -88,6 +92,8 @@ public class SpringCloudCoordinator implements InvocationHandler {
 			} else {
 				throw new XAException(XAException.XAER_RMFAIL);
 			}
+		} else if (BatchParticipant.class.equals(clazz)) {
+			return this.invokeBatchPostRequest(proxy, method, args);
 		} else {
 			throw new IllegalAccessException();
 		}
@@ -98,24 +104,8 @@ public class SpringCloudCoordinator implements InvocationHandler {
 
 		Class<?> returnType = method.getReturnType();
 		try {
-			RestTemplate transactionRestTemplate = SpringCloudBeanRegistry.getInstance().getRestTemplate();
-			RestTemplate restTemplate = transactionRestTemplate == null ? new RestTemplate() : transactionRestTemplate;
-
-			RemoteNode remoteNode = CommonUtils.getRemoteNode(this.identifier);
-			String contextPathKey = String.format("%s.%s", CONSTANT_CONTENT_PATH, remoteNode.getServiceKey());
-			String contextPath = StringUtils.isBlank(remoteNode.getServiceKey()) //
-					? null : StringUtils.trimToEmpty(this.environment.getProperty(contextPathKey));
-
-			StringBuilder ber = new StringBuilder();
-			// http://${serverHost}:${serverPort}
-			ber.append("http://").append(remoteNode.getServerHost()).append(":").append(remoteNode.getServerPort());
-
-			if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/")) {
-				ber.append(contextPath.startsWith("/") ? "" : "/").append(contextPath);
-			} // end-if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/"))
-
 			// http://${serverHost}:${serverPort}/org/bytesoft/bytejta/
-			ber.append("/org/bytesoft/bytejta/");
+			StringBuilder ber = new StringBuilder(this.getRequestPrefix());
 			// http://${serverHost}:${serverPort}/org/bytesoft/bytejta/${methodName}
 			ber.append(method.getName());
 			for (int i = 0; i < args.length; i++) {
@@ -124,6 +114,7 @@ public class SpringCloudCoordinator implements InvocationHandler {
 				ber.append("/").append(this.serialize(arg));
 			}
 
+			RestTemplate restTemplate = this.getRestTemplate();
 			ResponseEntity<?> response = restTemplate.postForEntity(ber.toString(), null, returnType, new Object[0]);
 
 			return response.getBody();
@@ -162,31 +153,53 @@ public class SpringCloudCoordinator implements InvocationHandler {
 
 	}
 
-	public Object invokeTransactionRecover(Object proxy, Method method, Object[] args) throws Throwable {
+	// POST /org/bytesoft/bytejta/batch/${operation} with the global transaction ids as the request body
+	public Object invokeBatchPostRequest(Object proxy, Method method, Object[] args) throws Throwable {
 
 		try {
-			RestTemplate transactionRestTemplate = SpringCloudBeanRegistry.getInstance().getRestTemplate();
-			RestTemplate restTemplate = transactionRestTemplate == null ? new RestTemplate() : transactionRestTemplate;
+			// http://${serverHost}:${serverPort}/org/bytesoft/bytejta/batch/${operation}
+			StringBuilder ber = new StringBuilder(this.getRequestPrefix());
+			ber.append("batch/");
+			ber.append(StringUtils.uncapitalize(StringUtils.removeStart(method.getName(), "batch")));
+
+			Xid[] xids = (Xid[]) args[0];
+			StringBuilder content = new StringBuilder();
+			for (int i = 0; i < xids.length; i++) {
+				content.append(i == 0 ? "" : ",").append(this.serialize((Serializable) xids[i]));
+			}
 
-			RemoteNode remoteNode = CommonUtils.getRemoteNode(this.identifier);
-			String contextPathKey = String.format("%s.%s", CONSTANT_CONTENT_PATH, remoteNode.getServiceKey());
-			String contextPath = StringUtils.isBlank(remoteNode.getServiceKey()) //
-					? null : StringUtils.trimToEmpty(this.environment.getProperty(contextPathKey));
+			RestTemplate restTemplate = this.getRestTemplate();
+			ResponseEntity<int[]> response = restTemplate.postForEntity(ber.toString(), content.toString(), int[].class,
+					new Object[0]);
 
-			StringBuilder ber = new StringBuilder();
-			ber.append("http://").append(remoteNode.getServerHost()).append(":").append(remoteNode.getServerPort());
+			return response.getBody();
+		} catch (HttpClientErrorException ex) {
+			XAException xaEx = new XAException(XAException.XAER_RMFAIL);
+			xaEx.initCause(ex);
+			throw xaEx;
+		} catch (HttpServerErrorException ex) {
+			XAException xaEx = new XAException(XAException.XAER_RMERR);
+			xaEx.initCause(ex);
+			throw xaEx;
+		} catch (Exception ex) {
+			XAException xaEx = new XAException(XAException.XAER_RMERR);
+			xaEx.initCause(ex);
+			throw xaEx;
+		}
 
-			if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/")) {
-				ber.append(contextPath.startsWith("/") ? "" : "/").append(contextPath);
-			} // end-if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/"))
+	}
 
-			ber.append("/org/bytesoft/bytejta/");
+	public Object invokeTransactionRecover(Object proxy, Method method, Object[] args) throws Throwable {
+
+		try {
+			StringBuilder ber = new StringBuilder(this.getRequestPrefix());
 			ber.append(method.getName());
 			for (int i = 0; i < args.length; i++) {
 				Serializable arg = (Serializable) args[i];
 				ber.append("/").append(this.serialize(arg));
 			}
 
+			RestTemplate restTemplate = this.getRestTemplate();
 			ResponseEntity<?> response = restTemplate.getForEntity(ber.toString(), TransactionXid[].class, new Object[0]);
 
 			return response.getBody();
@@ -225,6 +238,38 @@ public class SpringCloudCoordinator implements InvocationHandler {
 
 	}
 
+	private RestTemplate getRestTemplate() {
+		RestTemplate transactionRestTemplate = SpringCloudBeanRegistry.getInstance().getRestTemplate();
+		return transactionRestTemplate == null ? defaultRestTemplate : transactionRestTemplate;
+	}
+
+	/**
+	 * http://${serverHost}:${serverPort}[/${contextPath}]/org/bytesoft/bytejta/, built once per participant node.
+	 */
+	private String getRequestPrefix() {
+		String prefix = this.requestPrefix;
+		if (prefix != null) {
+			return prefix;
+		}
+
+		RemoteNode remoteNode = CommonUtils.getRemoteNode(this.identifier);
+		String contextPathKey = String.format("%s.%s", CONSTANT_CONTENT_PATH, remoteNode.getServiceKey());
+		String contextPath = StringUtils.isBlank(remoteNode.getServiceKey()) //
+				? null : StringUtils.trimToEmpty(this.environment.getProperty(contextPathKey));
+
+		StringBuilder ber = new StringBuilder();
+		ber.append("http://").append(remoteNode.getServerHost()).append(":").append(remoteNode.getServerPort());
+
+		if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/")) {
+			ber.append(contextPath.startsWith("/") ? "" : "/").append(contextPath);
+		} // end-if (StringUtils.isNotBlank(contextPath) || StringUtils.equals(contextPath, "/"))
+
+		ber.append("/org/bytesoft/bytejta/");
+
+		this.requestPrefix = ber.toString();
+		return this.requestPrefix;
+	}
+
 	private String serialize(Serializable arg) throws IOException {
 		if (Xid.class.isInstance(arg)) {
 			Xid xid = (Xid) arg;
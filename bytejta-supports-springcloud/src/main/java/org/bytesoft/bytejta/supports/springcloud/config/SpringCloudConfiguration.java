@@ -18,10 +18,15 @@ package org.bytesoft.bytejta.supports.springcloud.config;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.transaction.UserTransaction;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.bytesoft.bytejta.supports.resource.properties.ConnectorResourcePropertySourceFactory;
 import org.bytesoft.bytejta.supports.springcloud.SpringCloudBeanRegistry;
 import org.bytesoft.bytejta.supports.springcloud.feign.TransactionClientRegistry;
@@ -33,6 +38,8 @@ import org.bytesoft.bytejta.supports.springcloud.feign.TransactionFeignIntercept
 import org.bytesoft.bytejta.supports.springcloud.hystrix.TransactionHystrixBeanPostProcessor;
 import org.bytesoft.bytejta.supports.springcloud.loadbalancer.TransactionLoadBalancerRuleImpl;
 import org.bytesoft.bytejta.supports.springcloud.property.TransactionPropertySourceFactory;
+import org.bytesoft.bytejta.supports.springcloud.reactive.TransactionExchangeFilterFunction;
+import org.bytesoft.bytejta.supports.springcloud.reactive.TransactionWebFilter;
 import org.bytesoft.bytejta.supports.springcloud.web.TransactionHandlerInterceptor;
 import org.bytesoft.bytejta.supports.springcloud.web.TransactionRequestInterceptor;
 import org.bytesoft.common.utils.CommonUtils;
@@ -63,10 +70,12 @@ import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.ImportResource;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.core.env.Environment;
 import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.transaction.annotation.TransactionManagementConfigurer;
@@ -79,6 +88,7 @@ import feign.codec.ErrorDecoder;
 @PropertySource(value = "bytejta:loadbalancer.config", factory = TransactionPropertySourceFactory.class)
 @PropertySource(value = "bytejta:connector.config", factory = ConnectorResourcePropertySourceFactory.class)
 @ImportResource({ "classpath:bytejta-supports-springcloud.xml" })
+@Import(SpringCloudConfiguration.ReactiveConfiguration.class)
 @EnableAspectJAutoProxy(proxyTargetClass = true)
 @EnableAutoConfiguration(exclude = { DataSourceAutoConfiguration.class })
 @EnableTransactionManagement
@@ -87,6 +97,11 @@ public class SpringCloudConfiguration implements WebMvcConfigurer, TransactionMa
 	static final String CONSTANT_INCLUSIONS = "org.bytesoft.bytejta.feign.inclusions";
 	static final String CONSTANT_EXCLUSIONS = "org.bytesoft.bytejta.feign.exclusions";
 	static final String FEIGN_FACTORY_CLASS = "org.springframework.cloud.openfeign.FeignClientFactoryBean";
+	static final String CONSTANT_CLIENT_MAX_CONNECTIONS = "org.bytesoft.bytejta.client.max-connections";
+	static final String CONSTANT_CLIENT_MAX_CONNECTIONS_PER_NODE = "org.bytesoft.bytejta.client.max-connections-per-node";
+	static final String CONSTANT_CLIENT_CONNECT_TIMEOUT = "org.bytesoft.bytejta.client.connect-timeout";
+	static final String CONSTANT_CLIENT_REQUEST_TIMEOUT = "org.bytesoft.bytejta.client.request-timeout";
+	static final String CONSTANT_CLIENT_KEEP_ALIVE = "org.bytesoft.bytejta.client.keep-alive";
 
 	private ApplicationContext applicationContext;
 	private String identifier;
@@ -196,11 +211,31 @@ public class SpringCloudConfiguration implements WebMvcConfigurer, TransactionMa
 		return interceptor;
 	}
 
+	/**
+	 * Pooled keep-alive client for the calls between coordinators. Connections are pooled per participant node, idle
+	 * ones are evicted, and every call is bounded by the request timeout.
+	 */
 	@org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean(ClientHttpRequestFactory.class)
 	@org.springframework.context.annotation.Bean
-	@SuppressWarnings("deprecation")
 	public ClientHttpRequestFactory defaultRequestFactory() {
-		return new org.springframework.http.client.Netty4ClientHttpRequestFactory();
+		int maxConnections = this.environment.getProperty(CONSTANT_CLIENT_MAX_CONNECTIONS, Integer.class, 200);
+		int maxConnectionsPerNode = this.environment.getProperty(CONSTANT_CLIENT_MAX_CONNECTIONS_PER_NODE, Integer.class, 20);
+		int connectTimeout = this.environment.getProperty(CONSTANT_CLIENT_CONNECT_TIMEOUT, Integer.class, 3000);
+		int requestTimeout = this.environment.getProperty(CONSTANT_CLIENT_REQUEST_TIMEOUT, Integer.class, 15000);
+		long keepAliveMillis = this.environment.getProperty(CONSTANT_CLIENT_KEEP_ALIVE, Long.class, 60000L);
+
+		PoolingHttpClientConnectionManager connectionManager = //
+				new PoolingHttpClientConnectionManager(keepAliveMillis, TimeUnit.MILLISECONDS);
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerNode);
+
+		RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(connectTimeout)
+				.setConnectionRequestTimeout(connectTimeout).setSocketTimeout(requestTimeout).build();
+
+		CloseableHttpClient httpClient = HttpClients.custom().setConnectionManager(connectionManager) //
+				.setDefaultRequestConfig(requestConfig).evictExpiredConnections() //
+				.evictIdleConnections(keepAliveMillis, TimeUnit.MILLISECONDS).build();
+		return new HttpComponentsClientHttpRequestFactory(httpClient);
 	}
 
 	@org.springframework.context.annotation.Bean("transactionRestTemplate")
@@ -314,4 +349,38 @@ public class SpringCloudConfiguration implements WebMvcConfigurer, TransactionMa
 		this.applicationContext = applicationContext;
 	}
 
+	/**
+	 * Propagates transactions through WebFlux handlers and WebClient exchanges, only when WebFlux is on the classpath.
+	 */
+	@org.springframework.context.annotation.Configuration
+	@ConditionalOnClass(name = "org.springframework.web.reactive.function.client.WebClient")
+	public static class ReactiveConfiguration {
+
+		@org.springframework.context.annotation.Bean
+		public TransactionWebFilter transactionWebFilter(@Autowired SpringCloudConfiguration configuration) {
+			TransactionWebFilter filter = new TransactionWebFilter();
+			filter.setEndpoint(configuration.getEndpoint());
+			return filter;
+		}
+
+		@org.springframework.context.annotation.Bean
+		public TransactionExchangeFilterFunction transactionExchangeFilterFunction(
+				@Autowired SpringCloudConfiguration configuration) {
+			TransactionExchangeFilterFunction filterFunction = new TransactionExchangeFilterFunction();
+			filterFunction.setEndpoint(configuration.getEndpoint());
+			return filterFunction;
+		}
+
+		@org.springframework.context.annotation.Bean
+		public org.springframework.boot.web.reactive.function.client.WebClientCustomizer transactionWebClientCustomizer(
+				@Autowired final TransactionExchangeFilterFunction filterFunction) {
+			return new org.springframework.boot.web.reactive.function.client.WebClientCustomizer() {
+				public void customize(org.springframework.web.reactive.function.client.WebClient.Builder builder) {
+					builder.filter(filterFunction);
+				}
+			};
+		}
+
+	}
+
 }
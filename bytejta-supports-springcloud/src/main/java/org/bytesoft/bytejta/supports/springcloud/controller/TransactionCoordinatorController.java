@@ -21,6 +21,7 @@ import javax.servlet.http.HttpServletResponse;
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.Xid;
 
+import org.apache.commons.lang3.StringUtils;
 import org.bytesoft.bytejta.TransactionCoordinator;
 import org.bytesoft.common.utils.ByteUtils;
 import org.bytesoft.transaction.TransactionBeanFactory;
@@ -32,6 +33,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
@@ -162,6 +164,83 @@ public class TransactionCoordinatorController extends PropertyEditorSupport impl
 		}
 	}
 
+	@RequestMapping(value = "/org/bytesoft/bytejta/batch/commit", method = RequestMethod.POST, produces = {
+			MediaType.APPLICATION_JSON_UTF8_VALUE })
+	@ResponseBody
+	public int[] batchCommit(@RequestBody String identifiers, HttpServletResponse response) {
+		try {
+			return this.transactionCoordinator.batchCommit(this.createGlobalXids(identifiers));
+		} catch (XAException ex) {
+			logger.error("Error occurred while committing transactions: {}.", identifiers, ex);
+
+			response.addHeader("failure", "true");
+			response.addHeader("XA_XAER", String.valueOf(ex.errorCode));
+			response.setStatus(500);
+			return new int[0];
+		} catch (RuntimeException ex) {
+			logger.error("Error occurred while committing transactions: {}.", identifiers, ex);
+
+			response.addHeader("failure", "true");
+			response.setStatus(500);
+			return new int[0];
+		}
+	}
+
+	@RequestMapping(value = "/org/bytesoft/bytejta/batch/rollback", method = RequestMethod.POST, produces = {
+			MediaType.APPLICATION_JSON_UTF8_VALUE })
+	@ResponseBody
+	public int[] batchRollback(@RequestBody String identifiers, HttpServletResponse response) {
+		try {
+			return this.transactionCoordinator.batchRollback(this.createGlobalXids(identifiers));
+		} catch (XAException ex) {
+			logger.error("Error occurred while rolling back transactions: {}.", identifiers, ex);
+
+			response.addHeader("failure", "true");
+			response.addHeader("XA_XAER", String.valueOf(ex.errorCode));
+			response.setStatus(500);
+			return new int[0];
+		} catch (RuntimeException ex) {
+			logger.error("Error occurred while rolling back transactions: {}.", identifiers, ex);
+
+			response.addHeader("failure", "true");
+			response.setStatus(500);
+			return new int[0];
+		}
+	}
+
+	@RequestMapping(value = "/org/bytesoft/bytejta/batch/forget", method = RequestMethod.POST, produces = {
+			MediaType.APPLICATION_JSON_UTF8_VALUE })
+	@ResponseBody
+	public int[] batchForget(@RequestBody String identifiers, HttpServletResponse response) {
+		try {
+			return this.transactionCoordinator.batchForget(this.createGlobalXids(identifiers));
+		} catch (XAException ex) {
+			logger.error("Error occurred while forgetting transactions: {}.", identifiers, ex);
+
+			response.addHeader("failure", "true");
+			response.addHeader("XA_XAER", String.valueOf(ex.errorCode));
+			response.setStatus(500);
+			return new int[0];
+		} catch (RuntimeException ex) {
+			logger.error("Error occurred while forgetting transactions: {}.", identifiers, ex);
+
+			response.addHeader("failure", "true");
+			response.setStatus(500);
+			return new int[0];
+		}
+	}
+
+	private Xid[] createGlobalXids(String identifiers) {
+		XidFactory xidFactory = this.beanFactory.getXidFactory();
+		String[] identifierArray = StringUtils.split(identifiers, ",");
+		Xid[] xids = new Xid[identifierArray.length];
+		for (int i = 0; i < identifierArray.length; i++) {
+			byte[] byteArray = ByteUtils.stringToByteArray(StringUtils.trim(identifierArray[i]));
+			xids[i] = xidFactory.createGlobalXid(byteArray);
+		}
+		return xids;
+	}
+
 	public TransactionBeanFactory getBeanFactory() {
 		return this.beanFactory;
 	}
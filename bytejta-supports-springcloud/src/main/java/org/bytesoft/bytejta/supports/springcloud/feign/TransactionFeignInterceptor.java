@@ -21,12 +21,12 @@ import java.util.Collection;
 import java.util.Map;
 
 import org.bytesoft.bytejta.supports.springcloud.SpringCloudBeanRegistry;
-import org.bytesoft.common.utils.SerializeUtils;
 import org.bytesoft.transaction.Transaction;
 import org.bytesoft.transaction.TransactionBeanFactory;
 import org.bytesoft.transaction.TransactionContext;
 import org.bytesoft.transaction.TransactionManager;
 import org.bytesoft.transaction.aware.TransactionEndpointAware;
+import org.bytesoft.transaction.supports.serialize.TransactionContextCodec;
 import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
@@ -50,7 +50,7 @@ public class TransactionFeignInterceptor
 
 		try {
 			TransactionContext transactionContext = transaction.getTransactionContext();
-			byte[] byteArray = SerializeUtils.serializeObject(transactionContext);
+			byte[] byteArray = TransactionContextCodec.encode(transactionContext);
 
 			String transactionText = Base64.getEncoder().encodeToString(byteArray);
 
@@ -0,0 +1,212 @@
+/**
+ * Copyright 2014-2017 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.supports.springcloud.reactive;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.transaction.Status;
+import javax.transaction.SystemException;
+
+import org.apache.commons.lang3.StringUtils;
+import org.bytesoft.bytejta.TransactionImpl;
+import org.bytesoft.bytejta.supports.rpc.TransactionRequestImpl;
+import org.bytesoft.bytejta.supports.rpc.TransactionResponseImpl;
+import org.bytesoft.bytejta.supports.springcloud.SpringCloudBeanRegistry;
+import org.bytesoft.bytejta.supports.springcloud.web.TransactionRequestInterceptor;
+import org.bytesoft.transaction.Transaction;
+import org.bytesoft.transaction.TransactionBeanFactory;
+import org.bytesoft.transaction.TransactionContext;
+import org.bytesoft.transaction.TransactionManager;
+import org.bytesoft.transaction.aware.TransactionEndpointAware;
+import org.bytesoft.transaction.remote.RemoteCoordinator;
+import org.bytesoft.transaction.supports.rpc.TransactionInterceptor;
+import org.bytesoft.transaction.supports.serialize.TransactionContextCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.Context;
+
+/**
+ * Reactive counterpart of the TransactionRequestInterceptor for WebClient. The transaction is taken from the Reactor
+ * context of the exchange, or from the thread which built the request. The instance which served the request is only
+ * known from its response, so the remote branch is enlisted and delisted when the response is received; a branch whose
+ * response is lost has never been prepared and is rolled back by its own timeout, the transaction itself is marked
+ * rollback-only since the work of that branch is lost. The transaction does not complete while exchanges are pending.
+ */
+public class TransactionExchangeFilterFunction implements ExchangeFilterFunction, TransactionEndpointAware {
+	static final Logger logger = LoggerFactory.getLogger(TransactionExchangeFilterFunction.class);
+
+	static final String HEADER_TRANCACTION_KEY = TransactionRequestInterceptor.HEADER_TRANCACTION_KEY;
+	static final String HEADER_PROPAGATION_KEY = TransactionRequestInterceptor.HEADER_PROPAGATION_KEY;
+	static final String PREFIX_TRANSACTION_KEY = TransactionRequestInterceptor.PREFIX_TRANSACTION_KEY;
+
+	private String identifier;
+
+	public Mono<ClientResponse> filter(final ClientRequest request, final ExchangeFunction next) {
+		String path = request.url().getPath();
+		int position = path.startsWith("/") ? path.indexOf("/", 1) : -1;
+		String pathWithoutContextPath = position > 0 ? path.substring(position) : null;
+		if (StringUtils.startsWith(path, PREFIX_TRANSACTION_KEY) //
+				|| StringUtils.startsWith(pathWithoutContextPath, PREFIX_TRANSACTION_KEY)) {
+			return next.exchange(request);
+		}
+
+		SpringCloudBeanRegistry beanRegistry = SpringCloudBeanRegistry.getInstance();
+		TransactionBeanFactory beanFactory = beanRegistry.getBeanFactory();
+		TransactionManager transactionManager = beanFactory.getTransactionManager();
+		final Transaction threadTransaction = transactionManager.getTransactionQuietly();
+
+		return Mono.subscriberContext().flatMap(new Function<Context, Mono<ClientResponse>>() {
+			public Mono<ClientResponse> apply(Context context) {
+				Transaction transaction = TransactionReactorContext.getTransaction(context, threadTransaction);
+				return transaction == null ? next.exchange(request) : exchange(transaction, request, next);
+			}
+		});
+	}
+
+	private Mono<ClientResponse> exchange(final Transaction transaction, ClientRequest request, ExchangeFunction next) {
+		if (transaction.getTransactionStatus() == Status.STATUS_MARKED_ROLLBACK) {
+			return Mono.error(new IllegalStateException(
+					"Transaction has been marked as rollback only, can not propagate its context to remote branch."));
+		} // end-if (transaction.getTransactionStatus() == Status.STATUS_MARKED_ROLLBACK)
+
+		ClientRequest transactionRequest = null;
+		try {
+			byte[] reqByteArray = TransactionContextCodec.encode(transaction.getTransactionContext());
+			String reqTransactionStr = Base64.getEncoder().encodeToString(reqByteArray);
+			transactionRequest = ClientRequest.from(request) //
+					.header(HEADER_TRANCACTION_KEY, reqTransactionStr) //
+					.header(HEADER_PROPAGATION_KEY, this.identifier).build();
+		} catch (IOException ex) {
+			return Mono.error(ex);
+		}
+
+		final AtomicBoolean completed = new AtomicBoolean();
+		final AtomicBoolean processed = new AtomicBoolean();
+		if (TransactionImpl.class.isInstance(transaction)) {
+			((TransactionImpl) transaction).beginAsyncInvocation();
+		} // end-if (TransactionImpl.class.isInstance(transaction))
+
+		return next.exchange(transactionRequest).doOnNext(new Consumer<ClientResponse>() {
+			public void accept(ClientResponse response) {
+				try {
+					invokeAfterRecvResponse(transaction, response);
+					processed.set(true);
+				} finally {
+					if (completed.compareAndSet(false, true)) {
+						endAsyncInvocation(transaction);
+					} // end-if (completed.compareAndSet(false, true))
+				}
+			}
+		}).doFinally(new Consumer<SignalType>() {
+			public void accept(SignalType signal) {
+				if (processed.get() == false) {
+					setRollbackOnlyQuietly(transaction, signal);
+				} // end-if (processed.get() == false)
+
+				if (completed.compareAndSet(false, true)) {
+					endAsyncInvocation(transaction);
+				} // end-if (completed.compareAndSet(false, true))
+			}
+		});
+	}
+
+	private void invokeAfterRecvResponse(Transaction transaction, ClientResponse response) {
+		SpringCloudBeanRegistry beanRegistry = SpringCloudBeanRegistry.getInstance();
+		TransactionBeanFactory beanFactory = beanRegistry.getBeanFactory();
+		final TransactionInterceptor transactionInterceptor = beanFactory.getTransactionInterceptor();
+
+		HttpHeaders respHeaders = response.headers().asHttpHeaders();
+		String respTransactionStr = respHeaders.getFirst(HEADER_TRANCACTION_KEY);
+		String respPropagationStr = respHeaders.getFirst(HEADER_PROPAGATION_KEY);
+		if (StringUtils.isBlank(respPropagationStr)) {
+			return; // the remote endpoint has not joined the transaction
+		}
+
+		String transactionText = StringUtils.trimToNull(respTransactionStr);
+		TransactionContext serverContext = null;
+		try {
+			byte[] byteArray = transactionText == null ? null : Base64.getDecoder().decode(transactionText);
+			serverContext = byteArray == null || byteArray.length == 0 ? null : TransactionContextCodec.decode(byteArray);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+
+		RemoteCoordinator serverCoordinator = beanRegistry.getConsumeCoordinator(respPropagationStr);
+
+		final TransactionRequestImpl txReq = new TransactionRequestImpl();
+		txReq.setTransactionContext(transaction.getTransactionContext());
+		txReq.setTargetTransactionCoordinator(serverCoordinator);
+
+		final TransactionResponseImpl txResp = new TransactionResponseImpl();
+		txResp.setTransactionContext(serverContext);
+		txResp.setSourceTransactionCoordinator(serverCoordinator);
+		txResp.setParticipantDelistFlag(response.statusCode().is4xxClientError());
+
+		try {
+			TransactionReactorContext.invoke(transaction, new Callable<Void>() {
+				public Void call() {
+					transactionInterceptor.beforeSendRequest(txReq);
+					txResp.setParticipantEnlistFlag(txReq.isParticipantEnlistFlag());
+					transactionInterceptor.afterReceiveResponse(txResp);
+					return null;
+				}
+			});
+		} catch (RuntimeException ex) {
+			throw ex;
+		} catch (Exception ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private void setRollbackOnlyQuietly(Transaction transaction, SignalType signal) {
+		logger.warn("The response of a remote call was not processed({}), the transaction will be rolled back.", signal);
+		try {
+			transaction.setRollbackOnly();
+		} catch (IllegalStateException ex) {
+			logger.debug("Error occurred while marking transaction rollback-only.", ex);
+		} catch (SystemException ex) {
+			logger.error("Error occurred while marking transaction rollback-only.", ex);
+		}
+	}
+
+	private void endAsyncInvocation(Transaction transaction) {
+		if (TransactionImpl.class.isInstance(transaction)) {
+			((TransactionImpl) transaction).endAsyncInvocation();
+		} // end-if (TransactionImpl.class.isInstance(transaction))
+	}
+
+	public String getEndpoint() {
+		return this.identifier;
+	}
+
+	public void setEndpoint(String identifier) {
+		this.identifier = identifier;
+	}
+
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2014-2017 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.supports.springcloud.reactive;
+
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+import org.bytesoft.bytejta.supports.springcloud.SpringCloudBeanRegistry;
+import org.bytesoft.transaction.Transaction;
+import org.bytesoft.transaction.TransactionBeanFactory;
+import org.bytesoft.transaction.TransactionManager;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Carries the global transaction through the Reactor context of a reactive pipeline. A pipeline is not bound to one
+ * thread, so the transaction is bound to a thread only for the time of a call into the thread-bound API, and the
+ * binding leaves the timing of the transaction alone.
+ */
+public final class TransactionReactorContext {
+	public static final String KEY_TRANSACTION = Transaction.class.getName();
+
+	private TransactionReactorContext() {
+	}
+
+	public static Context putTransaction(Context context, Transaction transaction) {
+		return transaction == null ? context : context.put(KEY_TRANSACTION, transaction);
+	}
+
+	public static Transaction getTransaction(Context context, Transaction defaultValue) {
+		return context.getOrDefault(KEY_TRANSACTION, defaultValue);
+	}
+
+	public static Mono<Transaction> currentTransaction() {
+		return Mono.subscriberContext().flatMap(new Function<Context, Mono<Transaction>>() {
+			public Mono<Transaction> apply(Context context) {
+				return Mono.justOrEmpty(getTransaction(context, null));
+			}
+		});
+	}
+
+	/**
+	 * Runs blocking work, e.g. on an XA data source, within the transaction carried by the subscriber context.
+	 */
+	public static <T> Mono<T> fromCallable(final Callable<T> callable) {
+		return Mono.subscriberContext().flatMap(new Function<Context, Mono<T>>() {
+			public Mono<T> apply(Context context) {
+				final Transaction transaction = getTransaction(context, null);
+				return Mono.fromCallable(new Callable<T>() {
+					public T call() throws Exception {
+						return invoke(transaction, callable);
+					}
+				});
+			}
+		});
+	}
+
+	public static <T> T invoke(Transaction transaction, Callable<T> callable) throws Exception {
+		SpringCloudBeanRegistry beanRegistry = SpringCloudBeanRegistry.getInstance();
+		TransactionBeanFactory beanFactory = beanRegistry.getBeanFactory();
+		TransactionManager transactionManager = beanFactory.getTransactionManager();
+
+		Transaction current = transactionManager.getTransactionQuietly();
+		if (transaction == null || current == transaction) {
+			return callable.call();
+		}
+
+		Transaction suspended = current == null ? null : transactionManager.unbindThread();
+		try {
+			transactionManager.bindThread(transaction);
+			return callable.call();
+		} finally {
+			transactionManager.unbindThread();
+			if (suspended != null) {
+				transactionManager.bindThread(suspended);
+			} // end-if (suspended != null)
+		}
+	}
+
+}
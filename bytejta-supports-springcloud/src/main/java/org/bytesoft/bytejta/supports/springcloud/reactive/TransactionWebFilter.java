@@ -0,0 +1,173 @@
+/**
+ * Copyright 2014-2017 yangming.liu<bytefox@126.com>.
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bytesoft.bytejta.supports.springcloud.reactive;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.StringUtils;
+import org.bytesoft.bytejta.supports.rpc.TransactionRequestImpl;
+import org.bytesoft.bytejta.supports.rpc.TransactionResponseImpl;
+import org.bytesoft.bytejta.supports.springcloud.SpringCloudBeanRegistry;
+import org.bytesoft.bytejta.supports.springcloud.web.TransactionHandlerInterceptor;
+import org.bytesoft.bytejta.supports.springcloud.web.TransactionRequestInterceptor;
+import org.bytesoft.transaction.Transaction;
+import org.bytesoft.transaction.TransactionBeanFactory;
+import org.bytesoft.transaction.TransactionContext;
+import org.bytesoft.transaction.TransactionManager;
+import org.bytesoft.transaction.aware.TransactionEndpointAware;
+import org.bytesoft.transaction.supports.rpc.TransactionInterceptor;
+import org.bytesoft.transaction.supports.serialize.TransactionContextCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.Context;
+
+/**
+ * Reactive counterpart of the TransactionHandlerInterceptor. The branch is started when the request is received, the
+ * transaction is then released from the event-loop thread and carried by the Reactor context of the exchange; the
+ * branch is ended before the response is committed.
+ */
+public class TransactionWebFilter implements WebFilter, TransactionEndpointAware {
+	static final Logger logger = LoggerFactory.getLogger(TransactionWebFilter.class);
+
+	static final String HEADER_TRANCACTION_KEY = TransactionHandlerInterceptor.HEADER_TRANCACTION_KEY;
+	static final String HEADER_PROPAGATION_KEY = TransactionHandlerInterceptor.HEADER_PROPAGATION_KEY;
+	static final String PREFIX_TRANSACTION_KEY = TransactionRequestInterceptor.PREFIX_TRANSACTION_KEY;
+
+	private String identifier;
+
+	public Mono<Void> filter(final ServerWebExchange exchange, WebFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		String path = request.getPath().pathWithinApplication().value();
+		if (StringUtils.startsWith(path, PREFIX_TRANSACTION_KEY)) {
+			return chain.filter(exchange);
+		}
+
+		HttpHeaders headers = request.getHeaders();
+		String transactionText = StringUtils.trimToNull(headers.getFirst(HEADER_TRANCACTION_KEY));
+		String propagationText = StringUtils.trimToNull(headers.getFirst(HEADER_PROPAGATION_KEY));
+		if (transactionText == null) {
+			return chain.filter(exchange);
+		}
+
+		final Transaction transaction;
+		try {
+			transaction = this.invokeAfterRecvRequest(transactionText, propagationText);
+		} catch (IOException ex) {
+			logger.error("Error occurred while receiving the transaction context!", ex);
+			return Mono.error(ex);
+		} catch (RuntimeException ex) {
+			logger.error("Error occurred while receiving the transaction context!", ex);
+			return Mono.error(ex);
+		}
+
+		try {
+			byte[] responseByteArray = TransactionContextCodec.encode(transaction.getTransactionContext());
+			HttpHeaders responseHeaders = exchange.getResponse().getHeaders();
+			responseHeaders.set(HEADER_TRANCACTION_KEY, Base64.getEncoder().encodeToString(responseByteArray));
+			responseHeaders.set(HEADER_PROPAGATION_KEY, this.identifier);
+		} catch (IOException ex) {
+			this.invokeBeforeSendResponseQuietly(transaction);
+			return Mono.error(ex);
+		}
+
+		final AtomicBoolean completed = new AtomicBoolean();
+		exchange.getResponse().beforeCommit(new Supplier<Mono<Void>>() {
+			public Mono<Void> get() {
+				if (completed.compareAndSet(false, true)) {
+					invokeBeforeSendResponseQuietly(transaction);
+				} // end-if (completed.compareAndSet(false, true))
+				return Mono.empty();
+			}
+		});
+
+		return chain.filter(exchange).doFinally(new Consumer<SignalType>() {
+			public void accept(SignalType signal) {
+				if (completed.compareAndSet(false, true)) {
+					invokeBeforeSendResponseQuietly(transaction);
+				} // end-if (completed.compareAndSet(false, true))
+			}
+		}).subscriberContext(new Function<Context, Context>() {
+			public Context apply(Context context) {
+				return TransactionReactorContext.putTransaction(context, transaction);
+			}
+		});
+	}
+
+	private Transaction invokeAfterRecvRequest(String transactionText, String propagationText) throws IOException {
+		SpringCloudBeanRegistry beanRegistry = SpringCloudBeanRegistry.getInstance();
+		TransactionBeanFactory beanFactory = beanRegistry.getBeanFactory();
+		TransactionManager transactionManager = beanFactory.getTransactionManager();
+		TransactionInterceptor transactionInterceptor = beanFactory.getTransactionInterceptor();
+
+		byte[] byteArray = Base64.getDecoder().decode(transactionText);
+		TransactionContext transactionContext = TransactionContextCodec.decode(byteArray);
+		transactionContext.setPropagated(true);
+		transactionContext.setPropagatedBy(propagationText);
+
+		TransactionRequestImpl req = new TransactionRequestImpl();
+		req.setTransactionContext(transactionContext);
+		req.setTargetTransactionCoordinator(beanRegistry.getConsumeCoordinator(propagationText));
+
+		transactionInterceptor.afterReceiveRequest(req);
+
+		// the branch keeps its timing, only the event-loop thread is released
+		return transactionManager.unbindThread();
+	}
+
+	private void invokeBeforeSendResponseQuietly(Transaction transaction) {
+		SpringCloudBeanRegistry beanRegistry = SpringCloudBeanRegistry.getInstance();
+		TransactionBeanFactory beanFactory = beanRegistry.getBeanFactory();
+		final TransactionInterceptor transactionInterceptor = beanFactory.getTransactionInterceptor();
+
+		final TransactionResponseImpl resp = new TransactionResponseImpl();
+		resp.setTransactionContext(transaction.getTransactionContext());
+		resp.setSourceTransactionCoordinator(beanRegistry.getConsumeCoordinator(null));
+
+		try {
+			TransactionReactorContext.invoke(transaction, new Callable<Void>() {
+				public Void call() {
+					transactionInterceptor.beforeSendResponse(resp);
+					return null;
+				}
+			});
+		} catch (Exception ex) {
+			logger.error("Error occurred while ending the transaction branch!", ex);
+		}
+	}
+
+	public String getEndpoint() {
+		return this.identifier;
+	}
+
+	public void setEndpoint(String identifier) {
+		this.identifier = identifier;
+	}
+
+}
@@ -25,13 +25,13 @@ import org.bytesoft.bytejta.supports.rpc.TransactionRequestImpl;
 import org.bytesoft.bytejta.supports.rpc.TransactionResponseImpl;
 import org.bytesoft.bytejta.supports.springcloud.SpringCloudBeanRegistry;
 import org.bytesoft.bytejta.supports.springcloud.controller.TransactionCoordinatorController;
-import org.bytesoft.common.utils.SerializeUtils;
 import org.bytesoft.transaction.Transaction;
 import org.bytesoft.transaction.TransactionBeanFactory;
 import org.bytesoft.transaction.TransactionContext;
 import org.bytesoft.transaction.TransactionManager;
 import org.bytesoft.transaction.aware.TransactionEndpointAware;
 import org.bytesoft.transaction.supports.rpc.TransactionInterceptor;
+import org.bytesoft.transaction.supports.serialize.TransactionContextCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
@@ -45,8 +45,8 @@ import org.springframework.web.servlet.ModelAndView;
 public class TransactionHandlerInterceptor implements HandlerInterceptor, TransactionEndpointAware, ApplicationContextAware {
 	private static final Logger logger = LoggerFactory.getLogger(TransactionHandlerInterceptor.class);
 
-	static final String HEADER_TRANCACTION_KEY = "X-BYTEJTA-TRANSACTION"; // org.bytesoft.bytejta.transaction
-	static final String HEADER_PROPAGATION_KEY = "X-BYTEJTA-PROPAGATION"; // org.bytesoft.bytejta.propagation
+	public static final String HEADER_TRANCACTION_KEY = "X-BYTEJTA-TRANSACTION"; // org.bytesoft.bytejta.transaction
+	public static final String HEADER_PROPAGATION_KEY = "X-BYTEJTA-PROPAGATION"; // org.bytesoft.bytejta.propagation
 
 	private String identifier;
 	private ApplicationContext applicationContext;
@@ -84,7 +84,7 @@ public class TransactionHandlerInterceptor implements HandlerInterceptor, Transa
 
 		TransactionContext transactionContext = null;
 		if (byteArray != null && byteArray.length > 0) {
-			transactionContext = (TransactionContext) SerializeUtils.deserializeObject(byteArray);
+			transactionContext = TransactionContextCodec.decode(byteArray);
 			transactionContext.setPropagated(true);
 			transactionContext.setPropagatedBy(propagationText);
 		}
@@ -97,7 +97,7 @@ public class TransactionHandlerInterceptor implements HandlerInterceptor, Transa
 
 		TransactionManager transactionManager = beanFactory.getTransactionManager();
 		Transaction transaction = transactionManager.getTransactionQuietly();
-		byte[] responseByteArray = SerializeUtils.serializeObject(transaction.getTransactionContext());
+		byte[] responseByteArray = TransactionContextCodec.encode(transaction.getTransactionContext());
 		String responseTransactionStr = Base64.getEncoder().encodeToString(responseByteArray);
 		response.setHeader(HEADER_TRANCACTION_KEY, responseTransactionStr);
 		response.setHeader(HEADER_PROPAGATION_KEY, this.identifier);
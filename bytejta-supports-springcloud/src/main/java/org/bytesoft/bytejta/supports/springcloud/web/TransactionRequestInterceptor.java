@@ -28,7 +28,6 @@ import org.bytesoft.bytejta.supports.rpc.TransactionResponseImpl;
 import org.bytesoft.bytejta.supports.springcloud.SpringCloudBeanRegistry;
 import org.bytesoft.bytejta.supports.springcloud.loadbalancer.TransactionLoadBalancerInterceptor;
 import org.bytesoft.common.utils.CommonUtils;
-import org.bytesoft.common.utils.SerializeUtils;
 import org.bytesoft.transaction.TransactionBeanFactory;
 import org.bytesoft.transaction.TransactionContext;
 import org.bytesoft.transaction.TransactionManager;
@@ -37,6 +36,7 @@ import org.bytesoft.transaction.aware.TransactionEndpointAware;
 import org.bytesoft.transaction.remote.RemoteCoordinator;
 import org.bytesoft.transaction.remote.RemoteSvc;
 import org.bytesoft.transaction.supports.rpc.TransactionInterceptor;
+import org.bytesoft.transaction.supports.serialize.TransactionContextCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
@@ -58,9 +58,9 @@ public class TransactionRequestInterceptor
 		implements ClientHttpRequestInterceptor, TransactionEndpointAware, ApplicationContextAware {
 	static final Logger logger = LoggerFactory.getLogger(TransactionRequestInterceptor.class);
 
-	static final String HEADER_TRANCACTION_KEY = "X-BYTEJTA-TRANSACTION"; // org.bytesoft.bytejta.transaction
-	static final String HEADER_PROPAGATION_KEY = "X-BYTEJTA-PROPAGATION"; // org.bytesoft.bytejta.propagation
-	static final String PREFIX_TRANSACTION_KEY = "/org/bytesoft/bytejta";
+	public static final String HEADER_TRANCACTION_KEY = "X-BYTEJTA-TRANSACTION"; // org.bytesoft.bytejta.transaction
+	public static final String HEADER_PROPAGATION_KEY = "X-BYTEJTA-PROPAGATION"; // org.bytesoft.bytejta.propagation
+	public static final String PREFIX_TRANSACTION_KEY = "/org/bytesoft/bytejta";
 
 	private String identifier;
 	private ApplicationContext applicationContext;
@@ -199,7 +199,7 @@ public class TransactionRequestInterceptor
 
 		TransactionContext transactionContext = transaction.getTransactionContext();
 
-		byte[] reqByteArray = SerializeUtils.serializeObject(transactionContext);
+		byte[] reqByteArray = TransactionContextCodec.encode(transactionContext);
 		String reqTransactionStr = Base64.getEncoder().encodeToString(reqByteArray);
 
 		HttpHeaders reqHeaders = httpRequest.getHeaders();
@@ -226,7 +226,7 @@ public class TransactionRequestInterceptor
 		String transactionText = StringUtils.trimToNull(respTransactionStr);
 		byte[] byteArray = StringUtils.isBlank(transactionText) ? null : Base64.getDecoder().decode(transactionText);
 		TransactionContext serverContext = byteArray == null || byteArray.length == 0 //
-				? null : (TransactionContext) SerializeUtils.deserializeObject(byteArray);
+				? null : TransactionContextCodec.decode(byteArray);
 
 		TransactionResponseImpl txResp = new TransactionResponseImpl();
 		txResp.setTransactionContext(serverContext);